@@ -61,6 +61,31 @@ public class VespaMetricSet {
         metrics.add(new Metric("jrt.transport.client.tls-connections-established"));
         metrics.add(new Metric("jrt.transport.server.unencrypted-connections-established"));
         metrics.add(new Metric("jrt.transport.client.unencrypted-connections-established"));
+        metrics.add(new Metric("jrt.transport.tls-sessions-resumed"));
+        metrics.add(new Metric("jrt.transport.tls-records-written"));
+        metrics.add(new Metric("jrt.transport.tls-record-bytes-written"));
+        metrics.add(new Metric("jrt.transport.handshake-work-rejected"));
+
+        // Java (JRT) transport buffer metrics
+        metrics.add(new Metric("jrt.transport.pooled-buffers-allocated"));
+        metrics.add(new Metric("jrt.transport.pooled-buffers-acquired"));
+        metrics.add(new Metric("jrt.transport.pooled-buffers-released"));
+        metrics.add(new Metric("jrt.transport.unbuffered-data-bytes-written"));
+
+        // Java (JRT) invocation metrics
+        metrics.add(new Metric("jrt.transport.invocations-queued"));
+        metrics.add(new Metric("jrt.transport.invocations-rejected"));
+        metrics.add(new Metric("jrt.transport.connection-reads-paused"));
+
+        // Java message bus batching metrics
+        metrics.add(new Metric("mbus.rpc.batches-sent"));
+        metrics.add(new Metric("mbus.rpc.messages-batched"));
+        metrics.add(new Metric("mbus.rpc.batch-bytes-sent"));
+        metrics.add(new Metric("mbus.rpc.batches-rejected"));
+        metrics.add(new Metric("mbus.rpc.batch-size.average"));
+        metrics.add(new Metric("mbus.rpc.batch-size.max"));
+        metrics.add(new Metric("mbus.rpc.batch-latency.average"));
+        metrics.add(new Metric("mbus.rpc.batch-latency.max"));
 
         // C++ TLS metrics
         metrics.add(new Metric("vds.server.network.tls-handshakes-failed"));
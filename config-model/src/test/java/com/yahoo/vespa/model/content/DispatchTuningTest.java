@@ -45,6 +45,14 @@ public class DispatchTuningTest {
         assertNull(dispatch.getMinActiveDocsCoverage());
     }
 
+    @Test
+    public void requireThatBestOfRandom2DispatchWork() {
+        DispatchTuning dispatch = new DispatchTuning.Builder()
+                .setDispatchPolicy("best-of-random-2")
+                .build();
+        assertTrue(DispatchTuning.DispatchPolicy.BEST_OF_RANDOM_2 == dispatch.getDispatchPolicy());
+    }
+
     @Test
     public void requireThatDefaultsAreNull() {
         DispatchTuning dispatch = new DispatchTuning.Builder().build();
@@ -94,6 +94,15 @@ public abstract class AsynchronousSectionedRenderer<RESPONSE extends Response> e
      */
     public abstract void endResponse() throws IOException;
 
+    /**
+     * Invoked when rendering is about to wait for more data to become available.
+     * Renderers which buffer output themselves should write it to the stream here, such that
+     * what is rendered so far reaches the client while waiting. This default implementation does nothing.
+     *
+     * @throws IOException passed on from the stream
+     */
+    protected void flushRendered() throws IOException { }
+
     private static final Logger logger = Logger.getLogger(AsynchronousSectionedRenderer.class.getName());
 
     // NOTE: Renderers are *prototype objects* - a new instance is created for each rendering by invoking 
@@ -255,6 +264,12 @@ public abstract class AsynchronousSectionedRenderer<RESPONSE extends Response> e
     /** For inspection only; use getExecutor() for execution */
     Executor getRenderingExecutor() { return renderingExecutor; }    
 
+    /** Writes everything rendered so far to the stream before rendering waits for more data */
+    private void flushBeforeSuspend() throws IOException {
+        flushRendered();
+        stream.flush();
+    }
+
     /** The outermost execution which was run to create the response to render. */
     public Execution getExecution() { return execution; }
 
@@ -359,7 +374,7 @@ public abstract class AsynchronousSectionedRenderer<RESPONSE extends Response> e
             if (list.complete().isDone()) // might not be when in before handover mode
                 endListLevel();
             else
-                stream.flush();
+                flushBeforeSuspend();
         }
 
         private void endListLevel() throws IOException {
@@ -555,7 +570,7 @@ public abstract class AsynchronousSectionedRenderer<RESPONSE extends Response> e
 
         protected void flushIfLikelyToSuspend(DataList list) throws IOException {
             // If the listener is not complete, we will (likely) suspend rendering
-            if ( ! list.incoming().isComplete()) stream.flush();
+            if ( ! list.incoming().isComplete()) flushBeforeSuspend();
         }
 
     }
@@ -30,6 +30,17 @@ class JrtMetrics {
         increment("jrt.transport.client.tls-connections-established", changesSincePrevious.clientTlsConnectionsEstablished());
         increment("jrt.transport.server.unencrypted-connections-established", changesSincePrevious.serverUnencryptedConnectionsEstablished());
         increment("jrt.transport.client.unencrypted-connections-established", changesSincePrevious.clientUnencryptedConnectionsEstablished());
+        increment("jrt.transport.pooled-buffers-allocated", changesSincePrevious.pooledBuffersAllocated());
+        increment("jrt.transport.pooled-buffers-acquired", changesSincePrevious.pooledBuffersAcquired());
+        increment("jrt.transport.pooled-buffers-released", changesSincePrevious.pooledBuffersReleased());
+        increment("jrt.transport.unbuffered-data-bytes-written", changesSincePrevious.unbufferedDataBytesWritten());
+        increment("jrt.transport.invocations-queued", changesSincePrevious.invocationsQueued());
+        increment("jrt.transport.invocations-rejected", changesSincePrevious.invocationsRejected());
+        increment("jrt.transport.connection-reads-paused", changesSincePrevious.connectionReadsPaused());
+        increment("jrt.transport.tls-sessions-resumed", changesSincePrevious.tlsSessionsResumed());
+        increment("jrt.transport.tls-records-written", changesSincePrevious.tlsRecordsWritten());
+        increment("jrt.transport.tls-record-bytes-written", changesSincePrevious.tlsRecordBytesWritten());
+        increment("jrt.transport.handshake-work-rejected", changesSincePrevious.handshakeWorkRejected());
         previousSnapshot = snapshot;
     }
 
@@ -0,0 +1,43 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.jdisc.metric;
+
+import com.yahoo.jdisc.Metric;
+import com.yahoo.messagebus.network.rpc.RPCBatchMetrics;
+
+import static com.yahoo.messagebus.network.rpc.RPCBatchMetrics.Snapshot;
+
+/**
+ * Emits metrics of messages sent in batches by message bus
+ */
+class MessageBusMetrics {
+
+    private final RPCBatchMetrics batchMetrics = RPCBatchMetrics.getInstance();
+    private final Metric metric;
+    private Snapshot previousSnapshot = Snapshot.EMPTY;
+
+    MessageBusMetrics(Metric metric) {
+        this.metric = metric;
+    }
+
+    void emitMetrics() {
+        Snapshot snapshot = batchMetrics.snapshot();
+        Snapshot changesSincePrevious = snapshot.changesSince(previousSnapshot);
+        increment("mbus.rpc.batches-sent", changesSincePrevious.batchesSent());
+        increment("mbus.rpc.messages-batched", changesSincePrevious.messagesBatched());
+        increment("mbus.rpc.batch-bytes-sent", changesSincePrevious.batchBytesSent());
+        increment("mbus.rpc.batches-rejected", changesSincePrevious.batchesRejected());
+        if (changesSincePrevious.batchesSent() > 0) {
+            metric.set("mbus.rpc.batch-size",
+                       (double)changesSincePrevious.messagesBatched() / changesSincePrevious.batchesSent(), null);
+            metric.set("mbus.rpc.batch-latency",
+                       changesSincePrevious.batchWaitMicros() / 1000.0 / changesSincePrevious.messagesBatched(), null);
+        }
+        previousSnapshot = snapshot;
+    }
+
+    private void increment(String metricName, long countIncrement) {
+        if (countIncrement > 0) {
+            metric.add(metricName, countIncrement, null);
+        }
+    }
+}
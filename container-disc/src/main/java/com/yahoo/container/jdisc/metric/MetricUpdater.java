@@ -89,12 +89,14 @@ public class MetricUpdater extends AbstractComponent {
         private final ContainerWatchdogMetrics containerWatchdogMetrics;
         private final GarbageCollectionMetrics garbageCollectionMetrics;
         private final JrtMetrics jrtMetrics;
+        private final MessageBusMetrics messageBusMetrics;
 
         public UpdaterTask(Metric metric, ContainerWatchdogMetrics containerWatchdogMetrics) {
             this.metric = metric;
             this.containerWatchdogMetrics = containerWatchdogMetrics;
             this.garbageCollectionMetrics = new GarbageCollectionMetrics(Clock.systemUTC());
             this.jrtMetrics = new JrtMetrics(metric);
+            this.messageBusMetrics = new MessageBusMetrics(metric);
         }
 
         @SuppressWarnings("deprecation")
@@ -112,6 +114,7 @@ public class MetricUpdater extends AbstractComponent {
             containerWatchdogMetrics.emitMetrics(metric);
             garbageCollectionMetrics.emitMetrics(metric);
             jrtMetrics.emitMetrics();
+            messageBusMetrics.emitMetrics();
         }
     }
 
@@ -283,7 +283,7 @@ public class ClusterSearcher extends Searcher {
         query.getRanking().setQueryCache(false);
     }
 
-    private Result doSearch(Searcher searcher, Query query, Execution execution) {
+    private Result doSearch(VespaBackEndSearcher searcher, Query query, Execution execution) {
         if (documentTypes.size() > 1) {
             return searchMultipleDocumentTypes(searcher, query, execution);
         } else {
@@ -299,7 +299,7 @@ public class ClusterSearcher extends Searcher {
         }
     }
 
-    private Result searchMultipleDocumentTypes(Searcher searcher, Query query, Execution execution) {
+    private Result searchMultipleDocumentTypes(VespaBackEndSearcher searcher, Query query, Execution execution) {
         Set<String> docTypes = resolveDocumentTypes(query, execution.context().getIndexFacts());
 
         Result invalidRankProfile = checkValidRankProfiles(query, docTypes);
@@ -310,8 +310,7 @@ public class ClusterSearcher extends Searcher {
             return searcher.search(queries.get(0), execution);
         } else {
             Result mergedResult = new Result(query);
-            for (Query q : queries) {
-                Result result = searcher.search(q, execution);
+            for (Result result : searcher.search(queries, execution)) {
                 mergedResult.mergeWith(result);
                 mergedResult.hits().addAll(result.hits().asUnorderedHits());
             }
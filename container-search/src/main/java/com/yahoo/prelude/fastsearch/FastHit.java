@@ -233,10 +233,7 @@ public class FastHit extends Hit {
     public Object getField(String name) {
         Object value = super.getField(name);
         if (value != null) return value;
-        value = getSummaryValue(name);
-        if (value != null)
-            super.setField(name, value);
-        return value;
+        return getSummaryValue(name);
     }
 
     @Override
@@ -523,9 +520,15 @@ public class FastHit extends Hit {
 
     }
 
-    /** Summary data (values of a number of fields) received for this hit */
+    /**
+     * Summary data (values of a number of fields) received for this hit.
+     * Field values are decoded on first access and kept in an array indexed by the field order of the
+     * summary type, which is shared by all hits having this summary, rather than in the field map of the hit.
+     */
     private static class SummaryData {
 
+        private static final Object NO_VALUE = new Object();
+
         private final FastHit hit;
         private final DocsumDefinition type;
         private final Inspector data;
@@ -533,6 +536,12 @@ public class FastHit extends Hit {
         /** The index from the end of this summary in the list of summaries */
         private final int index;
 
+        /**
+         * The values decoded from this so far, by the index of the field in the type, or null if none are.
+         * Fields which are decoded to no value are marked by NO_VALUE.
+         */
+        private Object[] values = null;
+
         SummaryData(FastHit hit, DocsumDefinition type, Inspector data, int index) {
             this.hit = hit;
             this.type = type;
@@ -541,13 +550,35 @@ public class FastHit extends Hit {
         }
 
         Object getField(String name) {
-            return type.convert(name, data.field(name));
+            return getField(name, null);
+        }
+
+        /**
+         * Returns the value of the given field, or null if none
+         *
+         * @param name the name of the field
+         * @param value the data of this field if already looked up, or null to look it up if necessary
+         */
+        private Object getField(String name, Inspector value) {
+            int fieldIndex = type.fieldIndex(name);
+            if (fieldIndex < 0) return null;
+
+            if (values == null)
+                values = new Object[type.getFieldCount()];
+            Object decoded = values[fieldIndex];
+            if (decoded == null) {
+                if (value == null)
+                    value = data.field(name);
+                decoded = value.valid() ? type.getField(fieldIndex).convert(value) : null;
+                values[fieldIndex] = decoded == null ? NO_VALUE : decoded;
+            }
+            return decoded == NO_VALUE ? null : decoded;
         }
 
         void forEachField(BiConsumer<String, Object> consumer) {
             data.traverse((ObjectTraverser)(name, value) -> {
                 if (!shadowed(name) && !removed(name)) {
-                    Object convertedValue = type.convert(name, value);
+                    Object convertedValue = getField(name, value);
                     if (convertedValue != null)
                         consumer.accept(name, convertedValue);
                 }
@@ -563,7 +594,7 @@ public class FastHit extends Hit {
                             byte[] utf8Value = value.asUtf8();
                             consumer.accept(name, utf8Value, 0, utf8Value.length);
                         } else {
-                            Object convertedValue = fieldType.convert(value);
+                            Object convertedValue = getField(name, value);
                             if (convertedValue != null)
                                 consumer.accept(name, convertedValue);
                         }
@@ -573,7 +604,7 @@ public class FastHit extends Hit {
         }
 
         Iterator<Map.Entry<String, Object>> fieldIterator() {
-            return new SummaryDataFieldIterator(this, type, data.fields().iterator());
+            return new SummaryDataFieldIterator(this, data.fields().iterator());
         }
 
         Iterator<String> fieldNameIterator() {
@@ -614,6 +645,8 @@ public class FastHit extends Hit {
                 this.fieldIterator = fieldIterator;
             }
 
+            protected SummaryData summaryData() { return summaryData; }
+
             @Override
             public boolean hasNext() {
                 return next != null;
@@ -646,19 +679,15 @@ public class FastHit extends Hit {
         /** Iterator over the fields in a SummaryData instance. Read only. */
         private static class SummaryDataFieldIterator extends SummaryDataIterator<Map.Entry<String, Object>> {
 
-            private final DocsumDefinition type;
-
             SummaryDataFieldIterator(SummaryData summaryData,
-                                     DocsumDefinition type,
                                      Iterator<Map.Entry<String, Inspector>> fieldIterator) {
                 super(summaryData, fieldIterator);
-                this.type = type;
                 advanceNext();
             }
 
             @Override
             protected Map.Entry<String, Object> toValue(Map.Entry<String, Inspector> field) {
-                Object convertedValue = type.convert(field.getKey(), field.getValue());
+                Object convertedValue = summaryData().getField(field.getKey(), field.getValue());
                 if (convertedValue == null) return null;
                 return new SummaryFieldEntry(field.getKey(), convertedValue);
             }
@@ -6,6 +6,7 @@ import com.yahoo.prelude.Pong;
 import com.yahoo.prelude.querytransform.QueryRewrite;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
+import com.yahoo.search.dispatch.BatchSearchInvoker;
 import com.yahoo.search.dispatch.Dispatcher;
 import com.yahoo.search.dispatch.FillInvoker;
 import com.yahoo.search.dispatch.SearchInvoker;
@@ -18,6 +19,7 @@ import com.yahoo.search.result.HitGroup;
 import com.yahoo.search.searchchain.Execution;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
 import java.util.logging.Level;
 
@@ -86,30 +88,55 @@ public class FastSearcher extends VespaBackEndSearcher {
         if (dispatcher.searchCluster().groupSize() == 1)
             forceSinglePassGrouping(query);
         try (SearchInvoker invoker = getSearchInvoker(query)) {
-            Result result = invoker.search(query, execution);
-            injectSource(result.hits());
-
-            if (query.properties().getBoolean(Ranking.RANKFEATURES, false)) {
-                // There is currently no correct choice for which
-                // summary class we want to fetch at this point. If we
-                // fetch the one selected by the user it may not
-                // contain the data we need. If we fetch the default
-                // one we end up fetching docsums twice unless the
-                // user also requested the default one.
-                fill(result, query.getPresentation().getSummary(), execution); // ARGH
-            }
-            return result;
-        } catch (TimeoutException e) {
-            return new Result(query,ErrorMessage.createTimeout(e.getMessage()));
+            return complete(query, invoker.search(query, execution), execution);
         } catch (IOException e) {
-            Result result = new Result(query);
-            if (query.getTraceLevel() >= 1)
-                query.trace(getName() + " error response: " + result, false, 1);
-            result.hits().addError(ErrorMessage.createBackendCommunicationError(getName() + " failed: "+ e.getMessage()));
-            return result;
+            return errorResult(query, e);
+        }
+    }
+
+    /** Searches all the queries in a single dispatch round */
+    @Override
+    protected List<Result> doSearch2(List<Query> queries, Execution execution) {
+        if (queries.size() < 2) return super.doSearch2(queries, execution);
+
+        if (dispatcher.searchCluster().groupSize() == 1) {
+            for (Query query : queries)
+                forceSinglePassGrouping(query);
+        }
+        try (BatchSearchInvoker invoker = dispatcher.getBatchSearchInvoker(queries, this)) {
+            List<Result> results = invoker.search(execution, this::errorResult);
+            for (int i = 0; i < queries.size(); i++)
+                complete(queries.get(i), results.get(i), execution);
+            return results;
         }
     }
 
+    private Result complete(Query query, Result result, Execution execution) {
+        injectSource(result.hits());
+
+        if (query.properties().getBoolean(Ranking.RANKFEATURES, false)) {
+            // There is currently no correct choice for which
+            // summary class we want to fetch at this point. If we
+            // fetch the one selected by the user it may not
+            // contain the data we need. If we fetch the default
+            // one we end up fetching docsums twice unless the
+            // user also requested the default one.
+            fill(result, query.getPresentation().getSummary(), execution); // ARGH
+        }
+        return result;
+    }
+
+    private Result errorResult(Query query, IOException e) {
+        if (e instanceof TimeoutException)
+            return new Result(query,ErrorMessage.createTimeout(e.getMessage()));
+
+        Result result = new Result(query);
+        if (query.getTraceLevel() >= 1)
+            query.trace(getName() + " error response: " + result, false, 1);
+        result.hits().addError(ErrorMessage.createBackendCommunicationError(getName() + " failed: "+ e.getMessage()));
+        return result;
+    }
+
     /**
      * Perform a partial docsum fill for a temporary result
      * representing a partition of the complete fill request.
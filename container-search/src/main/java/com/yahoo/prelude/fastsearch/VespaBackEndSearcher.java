@@ -141,10 +141,55 @@ public abstract class VespaBackEndSearcher extends PingableSearcher {
     protected void transformQuery(Query query) { }
 
     public Result search(Query query, Execution execution) {
+        Optional<Result> unsearchable = prepare(query);
+        if (unsearchable.isPresent()) return unsearchable.get();
+
+        return complete(query, doSearch2(query, execution));
+    }
+
+    /**
+     * Searches a batch of queries to this cluster, such as one per document type, in a single round
+     * where the backend supports it.
+     *
+     * @return the results, in the same order as the queries
+     */
+    public List<Result> search(List<Query> queries, Execution execution) {
+        Result[] results = new Result[queries.size()];
+        List<Query> searchable = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            Optional<Result> unsearchable = prepare(queries.get(i));
+            if (unsearchable.isPresent())
+                results[i] = unsearchable.get();
+            else
+                searchable.add(queries.get(i));
+        }
+
+        Iterator<Result> searched = doSearch2(searchable, execution).iterator();
+        for (int i = 0; i < queries.size(); i++) {
+            if (results[i] == null)
+                results[i] = complete(queries.get(i), searched.next());
+        }
+        return List.of(results);
+    }
+
+    /**
+     * Searches several queries. This default implementation searches them one by one.
+     *
+     * @return the results, in the same order as the queries
+     */
+    protected List<Result> doSearch2(List<Query> queries, Execution execution) {
+        List<Result> results = new ArrayList<>(queries.size());
+        for (Query query : queries)
+            results.add(doSearch2(query, execution));
+        return results;
+    }
+
+    /** Rewrites the query for this backend, and returns the result to use instead of searching, if any */
+    private Optional<Result> prepare(Query query) {
         // query root should not be null here
         Item root = query.getModel().getQueryTree().getRoot();
         if (root == null || root instanceof NullItem) {
-            return new Result(query, ErrorMessage.createNullQuery(query.getHttpRequest().getUri().toString()));
+            return Optional.of(new Result(query, ErrorMessage.createNullQuery(query.getHttpRequest().getUri().toString())));
         }
 
         QueryRewrite.optimizeByRestrict(query);
@@ -153,7 +198,7 @@ public abstract class VespaBackEndSearcher extends PingableSearcher {
 
         root = query.getModel().getQueryTree().getRoot();
         if (root == null || root instanceof NullItem) // root can become null after optimization
-            return new Result(query);
+            return Optional.of(new Result(query));
 
         resolveDocumentDatabase(query);
         transformQuery(query);
@@ -161,9 +206,11 @@ public abstract class VespaBackEndSearcher extends PingableSearcher {
 
         root = query.getModel().getQueryTree().getRoot();
         if (root == null || root instanceof NullItem) // root can become null after resolving and transformation?
-            return new Result(query);
+            return Optional.of(new Result(query));
+        return Optional.empty();
+    }
 
-        Result result = doSearch2(query, execution);
+    private Result complete(Query query, Result result) {
         if (isLoggingFine())
             getLogger().fine("Result NOT retrieved from cache");
 
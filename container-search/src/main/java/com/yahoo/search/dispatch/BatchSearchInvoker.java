@@ -0,0 +1,66 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.searchchain.Execution;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Runs a batch of queries to the same search cluster, such as one per document type, in a single dispatch round:
+ * The requests of all the queries are sent before waiting for any reply, so the requests to each content node
+ * are all written in the same round, and the nodes work on all of them concurrently.
+ * Each request is still sent with the per query search RPC, as content nodes have no request for several queries.
+ *
+ * The invocation object can be stateful and should not be reused.
+ */
+public class BatchSearchInvoker extends CloseableInvoker {
+
+    private final List<Query> queries;
+    private final List<SearchInvoker> invokers;
+
+    BatchSearchInvoker(List<Query> queries, List<SearchInvoker> invokers) {
+        if (queries.size() != invokers.size())
+            throw new IllegalArgumentException("Got " + queries.size() + " queries but " + invokers.size() + " invokers");
+        this.queries = List.copyOf(queries);
+        this.invokers = List.copyOf(invokers);
+    }
+
+    /**
+     * Retrieves the hits of all the queries of this batch. A query which fails gets the result
+     * returned by the given error function, without affecting the others.
+     *
+     * @param execution the execution used to complete the results
+     * @param errorResult returns the result to use for a query which failed with the given exception
+     * @return the results, in the same order as the queries
+     */
+    public List<Result> search(Execution execution, BiFunction<Query, IOException, Result> errorResult) {
+        Result[] results = new Result[queries.size()];
+        for (int i = 0; i < queries.size(); i++) {
+            try {
+                invokers.get(i).sendSearchRequest(queries.get(i));
+            } catch (IOException e) {
+                results[i] = errorResult.apply(queries.get(i), e);
+            }
+        }
+
+        for (int i = 0; i < queries.size(); i++) {
+            if (results[i] != null) continue;
+            try {
+                results[i] = invokers.get(i).getCompletedResult(execution);
+            } catch (IOException e) {
+                results[i] = errorResult.apply(queries.get(i), e);
+            }
+        }
+        return List.of(results);
+    }
+
+    @Override
+    protected void release() {
+        invokers.forEach(SearchInvoker::close);
+    }
+
+}
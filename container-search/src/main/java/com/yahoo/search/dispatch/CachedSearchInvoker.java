@@ -0,0 +1,38 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.search.Query;
+import com.yahoo.search.searchchain.Execution;
+
+import java.util.Optional;
+
+/**
+ * A search invoker which produces a result from a {@link ResultCache} entry without contacting any content nodes.
+ */
+class CachedSearchInvoker extends SearchInvoker {
+
+    private final ResultCache.Entry entry;
+    private Query query;
+
+    CachedSearchInvoker(ResultCache.Entry entry) {
+        super(Optional.empty());
+        this.entry = entry;
+    }
+
+    @Override
+    protected void sendSearchRequest(Query query) {
+        this.query = query;
+    }
+
+    @Override
+    protected InvokerResult getSearchResult(Execution execution) {
+        query.trace(false, 2, "Result served from the container result cache");
+        return entry.toInvokerResult(query);
+    }
+
+    @Override
+    protected void release() {
+        // nothing to release
+    }
+
+}
@@ -25,12 +25,16 @@ import com.yahoo.search.query.profile.types.QueryProfileType;
 import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.vespa.config.search.DispatchConfig;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * A dispatcher communicates with search nodes to perform queries and fill hits.
@@ -49,6 +53,7 @@ public class Dispatcher extends AbstractComponent {
     public static final String DISPATCH = "dispatch";
     private static final String INTERNAL = "internal";
     private static final String PROTOBUF = "protobuf";
+    private static final String PREFETCH_SUMMARIES = "prefetchSummaries";
 
     private static final String INTERNAL_METRIC = "dispatch_internal";
 
@@ -57,6 +62,9 @@ public class Dispatcher extends AbstractComponent {
     /** If enabled, search queries will use protobuf rpc */
     public static final CompoundName dispatchProtobuf = CompoundName.fromComponents(DISPATCH, PROTOBUF);
 
+    /** If enabled, summaries are fetched while waiting for the replies of the last content nodes */
+    public static final CompoundName dispatchPrefetchSummaries = CompoundName.fromComponents(DISPATCH, PREFETCH_SUMMARIES);
+
     /** A model of the search cluster this dispatches to */
     private final SearchCluster searchCluster;
     private final ClusterMonitor clusterMonitor;
@@ -65,11 +73,19 @@ public class Dispatcher extends AbstractComponent {
 
     private final InvokerFactory invokerFactory;
 
+    private final ResultCache resultCache;
+
     private final Metric metric;
     private final Metric.Context metricContext;
 
     private final int maxHitsPerNode;
 
+    private final boolean hedgeQueries;
+    private final double hedgeLatencyPercentile;
+
+    private final boolean prefetchSummaries;
+    private final Map<String, String> prefetchSummaryClasses;
+
     private static final QueryProfileType argumentType;
 
     static {
@@ -78,6 +94,7 @@ public class Dispatcher extends AbstractComponent {
         argumentType.setBuiltin(true);
         argumentType.addField(new FieldDescription(INTERNAL, FieldType.booleanType));
         argumentType.addField(new FieldDescription(PROTOBUF, FieldType.booleanType));
+        argumentType.addField(new FieldDescription(PREFETCH_SUMMARIES, FieldType.booleanType));
         argumentType.freeze();
     }
 
@@ -111,12 +128,18 @@ public class Dispatcher extends AbstractComponent {
 
         this.searchCluster = searchCluster;
         this.clusterMonitor = clusterMonitor;
-        this.loadBalancer = new LoadBalancer(searchCluster,
-                                  dispatchConfig.distributionPolicy() == DispatchConfig.DistributionPolicy.ROUNDROBIN);
+        this.loadBalancer = new LoadBalancer(searchCluster, dispatchConfig.distributionPolicy());
         this.invokerFactory = invokerFactory;
+        this.resultCache = new ResultCache(dispatchConfig, metric);
         this.metric = metric;
         this.metricContext = metric.createContext(null);
         this.maxHitsPerNode = dispatchConfig.maxHitsPerNode();
+        this.hedgeQueries = dispatchConfig.hedgeQueries();
+        this.hedgeLatencyPercentile = dispatchConfig.hedgeLatencyPercentile();
+        this.prefetchSummaries = dispatchConfig.prefetchSummaries();
+        this.prefetchSummaryClasses = dispatchConfig.prefetchSummaryClass().stream()
+                                                    .collect(Collectors.toUnmodifiableMap(DispatchConfig.PrefetchSummaryClass::rankProfile,
+                                                                                          DispatchConfig.PrefetchSummaryClass::summaryClass));
         searchCluster.addMonitoring(clusterMonitor);
         try {
             while ( ! searchCluster.hasInformationAboutAllNodes()) {
@@ -149,10 +172,27 @@ public class Dispatcher extends AbstractComponent {
         return invokerFactory.createFillInvoker(searcher, result);
     }
 
-    public SearchInvoker getSearchInvoker(Query query, VespaBackEndSearcher searcher) {
-        SearchInvoker invoker = getSearchPathInvoker(query, searcher).orElseGet(() -> getInternalInvoker(query, searcher));
+    /** Returns the cache of results from this dispatcher's search cluster */
+    public ResultCache resultCache() {
+        return resultCache;
+    }
 
-        if (query.properties().getBoolean(com.yahoo.search.query.Model.ESTIMATE)) {
+    /** Removes all cached results which may contain documents of the given type, e.g after a feed to it is seen */
+    public void invalidateResultCache(String documentType) {
+        resultCache.invalidate(documentType);
+    }
+
+    public SearchInvoker getSearchInvoker(Query query, VespaBackEndSearcher searcher) {
+        if (resultCache.isEnabled())
+            resultCache.setActiveDocuments(searchCluster.activeDocuments());
+        Optional<ResultCache.Key> cacheKey = resultCache.keyOf(query);
+        // Estimates request no hits, so they are served from cached results but their own results are not cached
+        boolean estimate = query.properties().getBoolean(com.yahoo.search.query.Model.ESTIMATE);
+        SearchInvoker invoker = cacheKey.flatMap(resultCache::get)
+                                        .<SearchInvoker>map(CachedSearchInvoker::new)
+                                        .orElseGet(() -> getContentInvoker(query, searcher, estimate ? Optional.empty() : cacheKey));
+
+        if (estimate) {
             query.setHits(0);
             query.setOffset(0);
         }
@@ -160,6 +200,28 @@ public class Dispatcher extends AbstractComponent {
         return invoker;
     }
 
+    /**
+     * Returns an invoker which runs all the given queries in a single dispatch round.
+     * Each query is dispatched exactly as by {@link #getSearchInvoker}.
+     */
+    public BatchSearchInvoker getBatchSearchInvoker(List<Query> queries, VespaBackEndSearcher searcher) {
+        List<SearchInvoker> invokers = new ArrayList<>(queries.size());
+        try {
+            for (Query query : queries)
+                invokers.add(getSearchInvoker(query, searcher));
+        } catch (RuntimeException e) {
+            invokers.forEach(SearchInvoker::close);
+            throw e;
+        }
+        return new BatchSearchInvoker(queries, invokers);
+    }
+
+    /** Returns an invoker for the content nodes, which caches the result if a cache key is given */
+    private SearchInvoker getContentInvoker(Query query, VespaBackEndSearcher searcher, Optional<ResultCache.Key> cacheKey) {
+        SearchInvoker invoker = getSearchPathInvoker(query, searcher).orElseGet(() -> getInternalInvoker(query, searcher));
+        return cacheKey.isPresent() ? new CachingSearchInvoker(invoker, resultCache, cacheKey.get()) : invoker;
+    }
+
     /** Builds an invoker based on searchpath */
     private Optional<SearchInvoker> getSearchPathInvoker(Query query, VespaBackEndSearcher searcher) {
         String searchPath = query.getModel().getSearchPath();
@@ -170,11 +232,13 @@ public class Dispatcher extends AbstractComponent {
             if (nodes.isEmpty()) return Optional.empty();
 
             query.trace(false, 2, "Dispatching with search path ", searchPath);
-            return invokerFactory.createSearchInvoker(searcher, query,
-                                                      OptionalInt.empty(),
-                                                      nodes,
-                                                      true,
-                                                      maxHitsPerNode);
+            Optional<SearchInvoker> invoker = invokerFactory.createSearchInvoker(searcher, query,
+                                                                                 OptionalInt.empty(),
+                                                                                 nodes,
+                                                                                 true,
+                                                                                 maxHitsPerNode);
+            invoker.ifPresent(i -> prefetchSummaries(i, query, searcher));
+            return invoker;
         } catch (InvalidSearchPathException e) {
             return Optional.of(new SearchErrorInvoker(ErrorMessage.createIllegalQuery(e.getMessage())));
         }
@@ -214,7 +278,8 @@ public class Dispatcher extends AbstractComponent {
                 query.trace(false, 2, "Dispatching to group ", group.id());
                 query.getModel().setSearchPath("/" + group.id());
                 invoker.get().teardown((success, time) -> loadBalancer.releaseGroup(group, success, time));
-                return invoker.get();
+                prefetchSummaries(invoker.get(), query, searcher);
+                return withHedging(invoker.get(), group, query, searcher);
             } else {
                 loadBalancer.releaseGroup(group, false, 0);
                 if (rejected == null) {
@@ -226,4 +291,55 @@ public class Dispatcher extends AbstractComponent {
         throw new IllegalStateException("No suitable groups to dispatch query. Rejected: " + rejected);
     }
 
+    /**
+     * Makes the given invoker prefetch summaries if this is enabled and it merges the replies of several nodes.
+     * Invokers for a single node have no replies of other nodes to wait for, so there is nothing to gain there.
+     */
+    private void prefetchSummaries(SearchInvoker invoker, Query query, VespaBackEndSearcher searcher) {
+        if ( ! (invoker instanceof InterleavedSearchInvoker)) return;
+        if ( ! query.properties().getBoolean(dispatchPrefetchSummaries, prefetchSummaries)) return;
+
+        String summaryClass = prefetchSummaryClasses.getOrDefault(query.getRanking().getProfile(),
+                                                                  query.getPresentation().getSummary());
+        ((InterleavedSearchInvoker) invoker).setSummaryPrefetcher(
+                new SummaryPrefetcher(query, summaryClass, result -> getFillInvoker(result, searcher), metric, metricContext));
+    }
+
+    /**
+     * Returns an invoker which sends the query to another group if the given one does not answer
+     * within its usual search time, if hedging is enabled and applicable
+     */
+    private SearchInvoker withHedging(SearchInvoker invoker, Group group, Query query, VespaBackEndSearcher searcher) {
+        if ( ! hedgeQueries || searchCluster.groupsWithSufficientCoverage() < 2) return invoker;
+
+        OptionalDouble hedgeDelay = loadBalancer.searchTimePercentile(group, hedgeLatencyPercentile);
+        if (hedgeDelay.isEmpty()) return invoker;
+
+        return new HedgedSearchInvoker(invoker, (long) Math.ceil(hedgeDelay.getAsDouble()),
+                                       () -> getHedgeInvoker(group, query, searcher), metric, metricContext);
+    }
+
+    private Optional<SearchInvoker> getHedgeInvoker(Group primary, Query query, VespaBackEndSearcher searcher) {
+        Optional<Group> hedgeGroup = loadBalancer.takeGroup(Set.of(primary.id()));
+        if (hedgeGroup.isEmpty()) return Optional.empty();
+
+        Group group = hedgeGroup.get();
+        Optional<SearchInvoker> invoker = group.hasSufficientCoverage()
+                                          ? invokerFactory.createSearchInvoker(searcher,
+                                                                               query,
+                                                                               OptionalInt.of(group.id()),
+                                                                               group.nodes(),
+                                                                               false,
+                                                                               maxHitsPerNode)
+                                          : Optional.empty();
+        if (invoker.isPresent()) {
+            query.trace(false, 2, "Hedging to group ", group.id());
+            invoker.get().teardown((success, time) -> loadBalancer.releaseGroup(group, success, time));
+            prefetchSummaries(invoker.get(), query, searcher);
+        } else {
+            loadBalancer.releaseGroup(group, false, 0);
+        }
+        return invoker;
+    }
+
 }
@@ -0,0 +1,117 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.jdisc.Metric;
+import com.yahoo.search.Query;
+import com.yahoo.search.searchchain.Execution;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A search invoker which sends the query to a primary invoker, and if that has not answered within the
+ * hedge delay, sends the same query to a hedge invoker targeting another group. The result of whichever
+ * answers first is used, and the other is closed.
+ *
+ * This requires that the primary and hedge invokers report when their full response is available
+ * through {@link ResponseMonitor}.
+ */
+class HedgedSearchInvoker extends SearchInvoker implements ResponseMonitor<SearchInvoker> {
+
+    static final String HEDGED_METRIC = "dispatch_hedged_queries";
+    static final String HEDGE_WINS_METRIC = "dispatch_hedge_wins";
+    static final String WASTED_METRIC = "dispatch_hedge_wasted_queries";
+
+    private final SearchInvoker primary;
+    private final long hedgeDelayMs;
+    private final Supplier<Optional<SearchInvoker>> hedgeFactory;
+    private final Metric metric;
+    private final Metric.Context metricContext;
+    private final LinkedBlockingQueue<SearchInvoker> answered = new LinkedBlockingQueue<>();
+
+    private SearchInvoker hedge = null;
+    private SearchInvoker winner = null;
+    private Query query;
+
+    HedgedSearchInvoker(SearchInvoker primary, long hedgeDelayMs, Supplier<Optional<SearchInvoker>> hedgeFactory,
+                        Metric metric, Metric.Context metricContext) {
+        super(Optional.empty());
+        this.primary = primary;
+        this.hedgeDelayMs = hedgeDelayMs;
+        this.hedgeFactory = hedgeFactory;
+        this.metric = metric;
+        this.metricContext = metricContext;
+    }
+
+    @Override
+    protected void sendSearchRequest(Query query) throws IOException {
+        this.query = query;
+        primary.setMonitor(this);
+        primary.sendSearchRequest(query);
+    }
+
+    @Override
+    protected InvokerResult getSearchResult(Execution execution) throws IOException {
+        try {
+            SearchInvoker first = answered.poll(Math.min(hedgeDelayMs, query.getTimeLeft()), TimeUnit.MILLISECONDS);
+            if (first == null) {
+                sendHedge();
+                first = answered.poll(Math.max(0, query.getTimeLeft()), TimeUnit.MILLISECONDS);
+            }
+            winner = (first != null) ? first : primary;
+        } catch (InterruptedException e) {
+            winner = primary;
+        }
+
+        if (hedge != null) {
+            SearchInvoker loser = (winner == primary) ? hedge : primary;
+            if (winner == hedge) {
+                metric.add(HEDGE_WINS_METRIC, 1, metricContext);
+                query.trace(false, 2, "Using the result of the hedged query");
+            }
+            metric.add(WASTED_METRIC, 1, metricContext);
+            // The loser was cut short, so its time must not count as a search time of its group
+            loser.setFinalStatus(false);
+            loser.close();
+        }
+        return winner.getSearchResult(execution);
+    }
+
+    private void sendHedge() throws IOException {
+        Optional<SearchInvoker> created = hedgeFactory.get();
+        if (created.isEmpty()) return;
+
+        hedge = created.get();
+        metric.add(HEDGED_METRIC, 1, metricContext);
+        query.trace(false, 2, "No answer after ", hedgeDelayMs, " ms, hedging the query to another group");
+        hedge.setMonitor(this);
+        hedge.sendSearchRequest(query);
+    }
+
+    @Override
+    protected void setFinalStatus(boolean success) {
+        super.setFinalStatus(success);
+        if (winner != null)
+            winner.setFinalStatus(success);
+    }
+
+    @Override
+    protected void release() {
+        if (winner != null) {
+            winner.close();
+        } else {
+            primary.close();
+            if (hedge != null)
+                hedge.close();
+        }
+    }
+
+    @Override
+    public void responseAvailable(SearchInvoker from) {
+        answered.add(from);
+    }
+
+}
@@ -11,7 +11,6 @@ import com.yahoo.search.searchchain.Execution;
 import com.yahoo.vespa.config.search.DispatchConfig;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.IdentityHashMap;
@@ -21,6 +20,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -43,7 +43,9 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     private final SearchCluster searchCluster;
     private final LinkedBlockingQueue<SearchInvoker> availableForProcessing;
     private final Set<Integer> alreadyFailedNodes;
+    private final AtomicInteger pendingResponses = new AtomicInteger(0);
     private Query query;
+    private SummaryPrefetcher summaryPrefetcher = null;
 
     private boolean adaptiveTimeoutCalculated = false;
     private long adaptiveTimeoutMin = 0;
@@ -68,6 +70,11 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         this.alreadyFailedNodes = alreadyFailedNodes;
     }
 
+    /** Fetches summaries of the hits which may become part of the result while waiting for the remaining nodes */
+    void setSummaryPrefetcher(SummaryPrefetcher summaryPrefetcher) {
+        this.summaryPrefetcher = summaryPrefetcher;
+    }
+
     /**
      * Sends search queries to the contained {@link SearchInvoker} sub-invokers. If the search
      * query has an offset other than zero, it will be reset to zero and the expected hit amount
@@ -77,6 +84,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     protected void sendSearchRequest(Query query) throws IOException {
         this.query = query;
         invokers.forEach(invoker -> invoker.setMonitor(this));
+        pendingResponses.set(invokers.size());
         deadline = currentTime() + query.getTimeLeft();
 
         int originalHits = query.getHits();
@@ -84,8 +92,9 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         query.setHits(query.getHits() + query.getOffset());
         query.setOffset(0);
 
+        Object context = null;
         for (SearchInvoker invoker : invokers) {
-            invoker.sendSearchRequest(query);
+            context = invoker.sendSearchRequest(query, context);
             askedNodes++;
         }
 
@@ -96,7 +105,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     @Override
     protected InvokerResult getSearchResult(Execution execution) throws IOException {
         InvokerResult result = new InvokerResult(query, query.getHits());
-        List<LeanHit> merged = Collections.emptyList();
+        LeanHitMerger merger = new LeanHitMerger(query.getOffset() + query.getHits());
         long nextTimeout = query.getTimeLeft();
         try {
             while (!invokers.isEmpty() && nextTimeout >= 0) {
@@ -105,7 +114,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
                     log.fine(() -> "Search timed out with " + askedNodes + " requests made, " + answeredNodes + " responses received");
                     break;
                 } else {
-                    merged = mergeResult(result.getResult(), invoker.getSearchResult(execution), merged);
+                    mergeResult(result.getResult(), invoker.getSearchResult(execution), merger);
                     ejectInvoker(invoker);
                 }
                 nextTimeout = nextTimeout();
@@ -116,10 +125,9 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
 
         insertNetworkErrors(result.getResult());
         result.getResult().setCoverage(createCoverage());
-        int needed = query.getOffset() + query.getHits();
-        for (int index = query.getOffset(); (index < merged.size()) && (index < needed); index++) {
-            result.getLeanHits().add(merged.get(index));
-        }
+        merger.mergeInto(query.getOffset(), result.getLeanHits());
+        if (summaryPrefetcher != null)
+            result.setPrefetchedHits(summaryPrefetcher.complete(result.getLeanHits(), result.getResult()));
         query.setOffset(0);  // Now we are all trimmed down
         return result;
     }
@@ -190,7 +198,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         return nextAdaptive;
     }
 
-    private List<LeanHit> mergeResult(Result result, InvokerResult partialResult, List<LeanHit> current) {
+    private void mergeResult(Result result, InvokerResult partialResult, LeanHitMerger merger) {
         collectCoverage(partialResult.getResult().getCoverage(true));
 
         result.mergeWith(partialResult.getResult());
@@ -200,42 +208,9 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
                 result.hits().add(hit);
             }
         }
-        if (current.isEmpty() ) {
-            return partialResult.getLeanHits();
-        }
-        List<LeanHit> partial = partialResult.getLeanHits();
-        if (partial.isEmpty()) {
-            return current;
-        }
-
-        int needed = query.getOffset() + query.getHits();
-        List<LeanHit> merged = new ArrayList<>(needed);
-        int indexCurrent = 0;
-        int indexPartial = 0;
-        while (indexCurrent < current.size() && indexPartial < partial.size() && merged.size() < needed) {
-            LeanHit incommingHit = partial.get(indexPartial);
-            LeanHit currentHit = current.get(indexCurrent);
-
-            int cmpRes = currentHit.compareTo(incommingHit);
-            if (cmpRes < 0) {
-                merged.add(currentHit);
-                indexCurrent++;
-            } else if (cmpRes > 0) {
-                merged.add(incommingHit);
-                indexPartial++;
-            } else { // Duplicates
-                merged.add(currentHit);
-                indexCurrent++;
-                indexPartial++;
-            }
-        }
-        while ((indexCurrent < current.size()) && (merged.size() < needed)) {
-            merged.add(current.get(indexCurrent++));
-        }
-        while ((indexPartial < partial.size()) && (merged.size() < needed)) {
-            merged.add(partial.get(indexPartial++));
-        }
-        return merged;
+        merger.add(partialResult.getLeanHits());
+        if (summaryPrefetcher != null)
+            summaryPrefetcher.prefetch(partialResult.getLeanHits());
     }
 
     private void collectCoverage(Coverage source) {
@@ -298,18 +273,19 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
             invokers.forEach(SearchInvoker::close);
             invokers.clear();
         }
+        if (summaryPrefetcher != null)
+            summaryPrefetcher.release();
     }
 
+    /** Queues the response for processing, and notifies the monitor of this when all responses are available */
     @Override
     public void responseAvailable(SearchInvoker from) {
         if (availableForProcessing != null) {
             availableForProcessing.add(from);
         }
-    }
-
-    @Override
-    protected void setMonitor(ResponseMonitor<SearchInvoker> monitor) {
-        // never to be called
+        if (pendingResponses.decrementAndGet() == 0) {
+            responseAvailable();
+        }
     }
 
     // For overriding in tests
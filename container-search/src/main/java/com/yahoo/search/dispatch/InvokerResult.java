@@ -4,11 +4,11 @@ package com.yahoo.search.dispatch;
 import com.yahoo.prelude.fastsearch.FastHit;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
-import com.yahoo.search.query.Sorting;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Wraps a Result and a flat, skinny hit list
@@ -16,6 +16,7 @@ import java.util.List;
 public class InvokerResult {
     private final Result result;
     private final List<LeanHit> leanHits;
+    private Map<LeanHit, FastHit> prefetchedHits = Collections.emptyMap();
     public InvokerResult(Result result) {
         this.result = result;
         this.leanHits = Collections.emptyList();
@@ -32,19 +33,29 @@ public class InvokerResult {
     public List<LeanHit> getLeanHits() {
         return leanHits;
     }
+    /** Sets the hits to use instead of creating new hits from the given lean hits, because they have been prefetched */
+    void setPrefetchedHits(Map<LeanHit, FastHit> prefetchedHits) {
+        this.prefetchedHits = prefetchedHits;
+    }
+
     void complete() {
         Query query = result.getQuery();
-        Sorting sorting = query.getRanking().getSorting();
         for (LeanHit hit : leanHits) {
-            FastHit fh = new FastHit(hit.getGid(), hit.getRelevance(), hit.getPartId(), hit.getDistributionKey());
-            if (hit.hasSortData()) {
-                fh.setSortData(hit.getSortData(), sorting);
-            }
-            fh.setQuery(query);
-            fh.setFillable();
-            fh.setCached(false);
-            result.hits().add(fh);
+            FastHit prefetched = prefetchedHits.get(hit);
+            result.hits().add(prefetched != null ? prefetched : toFastHit(hit, query));
         }
         leanHits.clear();
     }
+
+    static FastHit toFastHit(LeanHit hit, Query query) {
+        FastHit fh = new FastHit(hit.getGid(), hit.getRelevance(), hit.getPartId(), hit.getDistributionKey());
+        if (hit.hasSortData()) {
+            fh.setSortData(hit.getSortData(), query.getRanking().getSorting());
+        }
+        fh.setQuery(query);
+        fh.setFillable();
+        fh.setCached(false);
+        return fh;
+    }
+
 }
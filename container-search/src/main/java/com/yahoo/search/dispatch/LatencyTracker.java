@@ -0,0 +1,51 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import java.util.Arrays;
+import java.util.OptionalDouble;
+
+/**
+ * Keeps a window of the most recent latencies observed for a target, and computes percentiles over it.
+ * Percentiles are only available once the window has been filled, to avoid acting on too few samples.
+ *
+ * This class is not multithread safe.
+ */
+class LatencyTracker {
+
+    private static final int DEFAULT_WINDOW = 128;
+
+    private final double[] samples;
+    private final double[] sorted;
+    private int next = 0;
+    private long count = 0;
+    private boolean sortedIsValid = false;
+
+    LatencyTracker() {
+        this(DEFAULT_WINDOW);
+    }
+
+    LatencyTracker(int window) {
+        this.samples = new double[window];
+        this.sorted = new double[window];
+    }
+
+    void add(double latency) {
+        samples[next] = latency;
+        next = (next + 1) % samples.length;
+        count++;
+        sortedIsValid = false;
+    }
+
+    /** Returns the given percentile (0-100) of the latencies in the window, or empty if the window is not yet filled */
+    OptionalDouble percentile(double percentile) {
+        if (count < samples.length) return OptionalDouble.empty();
+        if ( ! sortedIsValid) {
+            System.arraycopy(samples, 0, sorted, 0, samples.length);
+            Arrays.sort(sorted);
+            sortedIsValid = true;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return OptionalDouble.of(sorted[Math.max(0, Math.min(index, sorted.length - 1))]);
+    }
+
+}
@@ -0,0 +1,88 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Merges the sorted hit lists returned from a set of content nodes into a single sorted window of hits.
+ *
+ * The lists are collected as they arrive and merged once using a k-way merge, where a heap over the
+ * head of each list selects the next hit. This only compares and moves the hits which end up in the
+ * window, instead of rebuilding the merged list each time a node answers. Duplicate hits are dropped,
+ * keeping the one from the list added first.
+ *
+ * This class is not multithread safe.
+ */
+final class LeanHitMerger {
+
+    private final int needed;
+    private final List<List<LeanHit>> lists = new ArrayList<>();
+
+    /** Creates a merger producing a window ending at the given number of hits (offset + hits) */
+    LeanHitMerger(int needed) {
+        this.needed = needed;
+    }
+
+    /** Adds a list of hits, which must be sorted. Hits beyond the window can never be part of the merge and are ignored. */
+    void add(List<LeanHit> sortedHits) {
+        if (sortedHits.isEmpty() || needed <= 0) return;
+        lists.add(sortedHits.size() > needed ? sortedHits.subList(0, needed) : sortedHits);
+    }
+
+    /** Adds the merged hits at positions [offset, needed) to the given list */
+    void mergeInto(int offset, List<LeanHit> target) {
+        if (lists.isEmpty()) return;
+        if (lists.size() == 1) {
+            List<LeanHit> only = lists.get(0);
+            for (int i = offset; i < only.size(); i++)
+                target.add(only.get(i));
+            return;
+        }
+
+        int[] heap = new int[lists.size()];
+        int[] positions = new int[lists.size()];
+        int size = lists.size();
+        for (int i = 0; i < size; i++)
+            heap[i] = i;
+        for (int i = size / 2 - 1; i >= 0; i--)
+            siftDown(heap, positions, size, i);
+
+        LeanHit previous = null;
+        int produced = 0;
+        while (size > 0 && produced < needed) {
+            int list = heap[0];
+            LeanHit hit = lists.get(list).get(positions[list]);
+            if (previous == null || previous.compareTo(hit) != 0) {
+                if (produced >= offset)
+                    target.add(hit);
+                produced++;
+                previous = hit;
+            }
+            if (++positions[list] == lists.get(list).size())
+                heap[0] = heap[--size];
+            siftDown(heap, positions, size, 0);
+        }
+    }
+
+    private void siftDown(int[] heap, int[] positions, int size, int index) {
+        int list = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) break;
+            if (child + 1 < size && isBefore(heap[child + 1], heap[child], positions))
+                child++;
+            if ( ! isBefore(heap[child], list, positions)) break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = list;
+    }
+
+    /** Returns whether the current head of list a should be merged before the current head of list b */
+    private boolean isBefore(int a, int b, int[] positions) {
+        int result = lists.get(a).get(positions[a]).compareTo(lists.get(b).get(positions[b]));
+        return (result != 0) ? result < 0 : a < b;
+    }
+
+}
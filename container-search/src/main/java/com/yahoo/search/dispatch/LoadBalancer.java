@@ -3,10 +3,12 @@ package com.yahoo.search.dispatch;
 
 import com.yahoo.search.dispatch.searchcluster.Group;
 import com.yahoo.search.dispatch.searchcluster.SearchCluster;
+import com.yahoo.vespa.config.search.DispatchConfig.DistributionPolicy;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalDouble;
 import java.util.Random;
 import java.util.Set;
 import java.util.logging.Logger;
@@ -31,12 +33,18 @@ public class LoadBalancer {
     private final GroupScheduler scheduler;
 
     public LoadBalancer(SearchCluster searchCluster, boolean roundRobin) {
+        this(searchCluster, roundRobin ? DistributionPolicy.ROUNDROBIN : DistributionPolicy.ADAPTIVE);
+    }
+
+    public LoadBalancer(SearchCluster searchCluster, DistributionPolicy.Enum policy) {
         this.scoreboard = new ArrayList<>(searchCluster.groups().size());
         for (Group group : searchCluster.orderedGroups()) {
             scoreboard.add(new GroupStatus(group));
         }
-        if (roundRobin || scoreboard.size() == 1) {
+        if (policy == DistributionPolicy.ROUNDROBIN || scoreboard.size() == 1) {
             this.scheduler = new RoundRobinScheduler(scoreboard);
+        } else if (policy == DistributionPolicy.BEST_OF_RANDOM_2) {
+            this.scheduler = new BestOfRandom2Scheduler(new Random(), scoreboard);
         } else {
             this.scheduler = new AdaptiveScheduler(new Random(), scoreboard);
         }
@@ -83,11 +91,27 @@ public class LoadBalancer {
         }
     }
 
+    /**
+     * Returns the given percentile (0-100) of the recent search times of a group in milliseconds,
+     * or empty if not enough queries have completed in the group to tell
+     */
+    public OptionalDouble searchTimePercentile(Group group, double percentile) {
+        synchronized (this) {
+            for (GroupStatus sched : scoreboard) {
+                if (sched.group.id() == group.id()) {
+                    return sched.recentSearchTimes.percentile(percentile);
+                }
+            }
+            return OptionalDouble.empty();
+        }
+    }
+
     static class GroupStatus {
         private final Group group;
         private int allocations = 0;
         private long queries = 0;
         private double averageSearchTime = INITIAL_QUERY_TIME;
+        private final LatencyTracker recentSearchTimes = new LatencyTracker();
 
         GroupStatus(Group group) {
             this.group = group;
@@ -107,6 +131,7 @@ public class LoadBalancer {
                 searchTime = Math.max(searchTime, MIN_QUERY_TIME);
                 double decayRate = Math.min(queries + MIN_LATENCY_DECAY_RATE, DEFAULT_LATENCY_DECAY_RATE);
                 averageSearchTime = (searchTime + (decayRate - 1) * averageSearchTime) / decayRate;
+                recentSearchTimes.add(searchTime * 1000.0);
                 queries++;
             }
         }
@@ -119,6 +144,11 @@ public class LoadBalancer {
             return 1.0 / averageSearchTime;
         }
 
+        /** Returns the expected time until a new query to this group completes, given the queries already in flight */
+        double expectedSearchTime() {
+            return (allocations + 1) * averageSearchTime;
+        }
+
         int groupId() {
             return group.id();
         }
@@ -251,4 +281,55 @@ public class LoadBalancer {
             return selectGroup(needle, false, rejectedGroups);
         }
     }
+
+    /**
+     * Picks two random groups and chooses the one with the lowest expected search time, taking the
+     * number of queries in flight to each group into account. Groups with sufficient coverage are
+     * preferred over those without.
+     */
+    static class BestOfRandom2Scheduler implements GroupScheduler {
+        private final Random random;
+        private final List<GroupStatus> scoreboard;
+        private final List<GroupStatus> candidates;
+
+        public BestOfRandom2Scheduler(Random random, List<GroupStatus> scoreboard) {
+            this.random = random;
+            this.scoreboard = scoreboard;
+            this.candidates = new ArrayList<>(scoreboard.size());
+        }
+
+        @Override
+        public Optional<GroupStatus> takeNextGroup(Set<Integer> rejectedGroups) {
+            selectCandidates(true, rejectedGroups);
+            if (candidates.isEmpty()) {
+                // fallback - any coverage better than none
+                selectCandidates(false, rejectedGroups);
+            }
+            if (candidates.isEmpty()) {
+                return Optional.empty();
+            }
+            if (candidates.size() == 1) {
+                return Optional.of(candidates.get(0));
+            }
+            int firstIndex = random.nextInt(candidates.size());
+            int secondIndex = random.nextInt(candidates.size() - 1);
+            if (secondIndex >= firstIndex) {
+                secondIndex++;
+            }
+            GroupStatus first = candidates.get(firstIndex);
+            GroupStatus second = candidates.get(secondIndex);
+            return Optional.of(second.expectedSearchTime() < first.expectedSearchTime() ? second : first);
+        }
+
+        private void selectCandidates(boolean requireCoverage, Set<Integer> rejected) {
+            candidates.clear();
+            for (GroupStatus gs : scoreboard) {
+                if (rejected == null || !rejected.contains(gs.group.id())) {
+                    if (!requireCoverage || gs.group.hasSufficientCoverage()) {
+                        candidates.add(gs);
+                    }
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,296 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.jdisc.Metric;
+import com.yahoo.processing.request.CompoundName;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.dispatch.rpc.ProtobufSerialization;
+import com.yahoo.search.grouping.vespa.GroupingExecutor;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.vespa.config.search.DispatchConfig;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A bounded cache of the lean results returned from content nodes, keyed on the serialized search request.
+ * Entries are evicted least recently used first when either the entry or byte size limit is exceeded,
+ * and are never served after they have reached their maximum age.
+ *
+ * Cached results are invalidated explicitly, per document type by {@link #invalidate} when a feed to it is seen,
+ * or all at once when the number of active documents reported by the content nodes changes. Feed usually does not
+ * pass through the container running the query, and document updates do not change the number of active documents,
+ * so the maximum age is the bound on how stale a served result may be, and a cache with entries must have a
+ * positive maximum age. Results which are in flight when the cache is invalidated are not cached.
+ *
+ * Only results which are complete are cached. Queries which opt out of caching, use the backend query
+ * cache or grouping are never cached.
+ *
+ * This class is multithread safe.
+ */
+public class ResultCache {
+
+    private static final CompoundName cachecontrolNocache = new CompoundName("cachecontrol.nocache");
+    private static final CompoundName cachecontrolMaxage = new CompoundName("cachecontrol.maxage");
+
+    static final String HITS_METRIC = "dispatch_result_cache_hits";
+    static final String MISSES_METRIC = "dispatch_result_cache_misses";
+    static final String EVICTIONS_METRIC = "dispatch_result_cache_evictions";
+    static final String ENTRIES_METRIC = "dispatch_result_cache_entries";
+    static final String BYTES_METRIC = "dispatch_result_cache_bytes";
+
+    /** Rough per object overhead used when estimating the size of an entry */
+    private static final int OBJECT_OVERHEAD = 48;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final Clock clock;
+    private final Metric metric;
+    private final Metric.Context metricContext;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+
+    /** Incremented on each invalidation, such that results requested before it are not cached */
+    private volatile long generation = 0;
+
+    /** The active documents last reported, or -1 if none has been reported */
+    private volatile long activeDocuments = -1;
+
+    public ResultCache(DispatchConfig config, Metric metric) {
+        this(config.resultCacheMaxEntries(), config.resultCacheMaxBytes(), (long)(config.resultCacheMaxAge() * 1000),
+             Clock.systemUTC(), metric);
+    }
+
+    ResultCache(int maxEntries, long maxBytes, long maxAgeMillis, Clock clock, Metric metric) {
+        if (maxEntries > 0 && maxAgeMillis <= 0)
+            throw new IllegalArgumentException("A result cache with entries must have a positive max age, " +
+                                               "as it bounds how stale a cached result may be, but max age is " +
+                                               maxAgeMillis + " ms");
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        this.clock = clock;
+        this.metric = metric;
+        this.metricContext = metric.createContext(null);
+    }
+
+    /** Returns whether this cache may hold any results at all */
+    public boolean isEnabled() { return maxEntries > 0 && maxBytes > 0 && maxAgeMillis > 0; }
+
+    /** Returns the key to use for the given query, or empty if results of this query should not be cached */
+    public Optional<Key> keyOf(Query query) {
+        if ( ! isEnabled()) return Optional.empty();
+        if (query.getNoCache() || query.properties().getBoolean(cachecontrolNocache, false)) return Optional.empty();
+        if (query.getRanking().getQueryCache()) return Optional.empty();
+        if (GroupingExecutor.hasGroupingList(query)) return Optional.empty();
+
+        long maxAge = maxAgeMillis;
+        int requestedMaxAge = query.properties().getInteger(cachecontrolMaxage, -1);
+        if (requestedMaxAge >= 0)
+            maxAge = Math.min(maxAge, requestedMaxAge * 1000L);
+        if (maxAge <= 0) return Optional.empty();
+
+        return Optional.of(new Key(ProtobufSerialization.serializeResultCacheKey(query),
+                                   query.getModel().getSearchPath(),
+                                   query.getModel().getDocumentDb(),
+                                   maxAge,
+                                   generation));
+    }
+
+    /** Returns the cached result for the given key, or empty if none is cached or it is too old */
+    public synchronized Optional<Entry> get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null && clock.millis() - entry.createdAt > key.maxAgeMillis) {
+            remove(key);
+            entry = null;
+        }
+        metric.add(entry != null ? HITS_METRIC : MISSES_METRIC, 1, metricContext);
+        return Optional.ofNullable(entry);
+    }
+
+    /**
+     * Caches the given result from a content node invoker if it is complete, and the cache has not been
+     * invalidated since the key was created.
+     * This must be called before the result is completed, as that consumes the lean hits.
+     */
+    public void put(Key key, InvokerResult invokerResult) {
+        Result result = invokerResult.getResult();
+        if (result.hits().getError() != null) return;
+        if (result.hits().size() > 0) return; // Auxiliary hits (such as grouping) are owned by the result
+        Coverage coverage = result.getCoverage(false);
+        if (coverage == null || coverage.isDegraded()) return;
+
+        Entry entry = new Entry(new ArrayList<>(invokerResult.getLeanHits()), result.getTotalHitCount(), coverage,
+                                clock.millis());
+        long entryBytes = entry.estimatedBytes() + key.estimatedBytes();
+        if (entryBytes > maxBytes) return;
+
+        synchronized (this) {
+            if (key.generation != generation) return; // may be stale
+            remove(key);
+            entries.put(key, entry);
+            bytes += entryBytes;
+            evictWhileFull();
+            updateSizeMetrics();
+        }
+    }
+
+    /** Removes all cached results for the given document type, and results which are not specific to a document type */
+    public synchronized void invalidate(String documentType) {
+        generation++;
+        for (Iterator<Map.Entry<Key, Entry>> i = entries.entrySet().iterator(); i.hasNext(); ) {
+            Map.Entry<Key, Entry> entry = i.next();
+            if (entry.getKey().documentType == null || entry.getKey().documentType.equals(documentType)) {
+                bytes -= entry.getValue().estimatedBytes() + entry.getKey().estimatedBytes();
+                i.remove();
+            }
+        }
+        updateSizeMetrics();
+    }
+
+    /** Removes all cached results */
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        bytes = 0;
+        updateSizeMetrics();
+    }
+
+    /**
+     * Sets the number of active documents in the content nodes of this cache, and removes all cached results
+     * if it has changed since it was last set, as documents have then been added or removed.
+     */
+    public void setActiveDocuments(long activeDocuments) {
+        if (activeDocuments == this.activeDocuments) return;
+        synchronized (this) {
+            if (this.activeDocuments >= 0 && activeDocuments != this.activeDocuments)
+                invalidateAll();
+            this.activeDocuments = activeDocuments;
+        }
+    }
+
+    public synchronized int size() { return entries.size(); }
+
+    public synchronized long byteSize() { return bytes; }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null)
+            bytes -= removed.estimatedBytes() + key.estimatedBytes();
+    }
+
+    private void evictWhileFull() {
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+            Map.Entry<Key, Entry> entry = eldest.next();
+            bytes -= entry.getValue().estimatedBytes() + entry.getKey().estimatedBytes();
+            eldest.remove();
+            metric.add(EVICTIONS_METRIC, 1, metricContext);
+        }
+    }
+
+    private void updateSizeMetrics() {
+        metric.set(ENTRIES_METRIC, entries.size(), metricContext);
+        metric.set(BYTES_METRIC, bytes, metricContext);
+    }
+
+    /** The key of a cached result. Two queries have equal keys if they will produce the same result. */
+    public static final class Key {
+
+        private final byte[] request;
+        private final String searchPath;
+        private final String documentType;
+        private final long maxAgeMillis;
+        private final long generation;
+        private final int hashCode;
+
+        Key(byte[] request, String searchPath, String documentType, long maxAgeMillis, long generation) {
+            this.request = request;
+            this.searchPath = searchPath;
+            this.documentType = documentType;
+            this.maxAgeMillis = maxAgeMillis;
+            this.generation = generation;
+            this.hashCode = 31 * Arrays.hashCode(request) + Objects.hashCode(searchPath);
+        }
+
+        long estimatedBytes() { return OBJECT_OVERHEAD * 2 + request.length; }
+
+        @Override
+        public int hashCode() { return hashCode; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof Key)) return false;
+            Key other = (Key)o;
+            return hashCode == other.hashCode
+                   && Arrays.equals(request, other.request)
+                   && Objects.equals(searchPath, other.searchPath);
+        }
+
+    }
+
+    /** A cached result: The hits of the requested window, and the meta data needed to recreate the result */
+    public static final class Entry {
+
+        private final List<LeanHit> hits;
+        private final long totalHitCount;
+        private final long docs;
+        private final long active;
+        private final long soonActive;
+        private final int nodes;
+        private final int nodesTried;
+        private final long createdAt;
+        private final long estimatedBytes;
+
+        Entry(List<LeanHit> hits, long totalHitCount, Coverage coverage, long createdAt) {
+            this.hits = hits;
+            this.totalHitCount = totalHitCount;
+            this.docs = coverage.getDocs();
+            this.active = coverage.getActive();
+            this.soonActive = coverage.getSoonActive();
+            this.nodes = coverage.getNodes();
+            this.nodesTried = coverage.getNodesTried();
+            this.createdAt = createdAt;
+            this.estimatedBytes = estimateBytes(hits);
+        }
+
+        long estimatedBytes() { return estimatedBytes; }
+
+        /**
+         * Returns a new invoker result containing the cached hits, ready to be completed for the given query.
+         * The cached hits are those of the requested window, starting at the offset of the query, so they are
+         * only sliced to the hits of the query, which may be fewer, without changing the query.
+         */
+        InvokerResult toInvokerResult(Query query) {
+            List<LeanHit> window = hits.subList(0, Math.min(hits.size(), query.getHits()));
+            InvokerResult result = new InvokerResult(query, window.size());
+            result.getLeanHits().addAll(window);
+            result.getResult().setTotalHitCount(totalHitCount);
+            result.getResult().setCoverage(new Coverage(docs, active, nodes, 1).setNodesTried(nodesTried).setSoonActive(soonActive));
+            return result;
+        }
+
+        private static long estimateBytes(List<LeanHit> hits) {
+            long size = OBJECT_OVERHEAD * 2;
+            for (LeanHit hit : hits) {
+                size += OBJECT_OVERHEAD + hit.getGid().length;
+                if (hit.hasSortData())
+                    size += hit.getSortData().length;
+            }
+            return size;
+        }
+
+    }
+
+}
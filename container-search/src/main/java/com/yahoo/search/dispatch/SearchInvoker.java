@@ -33,6 +33,11 @@ public abstract class SearchInvoker extends CloseableInvoker {
      */
     public Result search(Query query, Execution execution) throws IOException {
         sendSearchRequest(query);
+        return getCompletedResult(execution);
+    }
+
+    /** Waits for the result of the search request which has been sent, and completes it */
+    Result getCompletedResult(Execution execution) throws IOException {
         InvokerResult result = getSearchResult(execution);
         setFinalStatus(result.getResult().hits().getError() == null);
         result.complete();
@@ -41,6 +46,19 @@ public abstract class SearchInvoker extends CloseableInvoker {
 
     protected abstract void sendSearchRequest(Query query) throws IOException;
 
+    /**
+     * Sends the search request, possibly reusing work done by another invoker sending the same query to another node.
+     * The context returned should be passed to the next invoker sending the same query, unchanged.
+     * This default implementation does not share anything.
+     *
+     * @param context the context returned from the previous invoker sending this query, or null if this is the first
+     * @return the context to pass to the next invoker sending this query
+     */
+    protected Object sendSearchRequest(Query query, Object context) throws IOException {
+        sendSearchRequest(query);
+        return context;
+    }
+
     protected abstract InvokerResult getSearchResult(Execution execution) throws IOException;
 
     protected void setMonitor(ResponseMonitor<SearchInvoker> monitor) {
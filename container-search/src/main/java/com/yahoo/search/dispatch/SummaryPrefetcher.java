@@ -0,0 +1,136 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.jdisc.Metric;
+import com.yahoo.prelude.fastsearch.FastHit;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.result.ErrorHit;
+import com.yahoo.search.result.Hit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Fetches summaries speculatively while a query is still waiting for content node replies.
+ *
+ * When a reply is received, its hits which are in the result window of all the replies received so far
+ * are sent for filling right away. A hit which is in the final result window is in the window of every
+ * subset of the replies containing it, so once all replies are received, all the hits in the result have
+ * been prefetched. Prefetched hits which fall out of the window later are wasted, which is reported as
+ * a metric so this can be weighed against the saved round trip.
+ *
+ * Only the prefetches containing hits in the final result window are waited for. The errors of these,
+ * including timeouts, are added to the result, and hits which were not filled by them are replaced by new
+ * hits, to be filled by the regular summary fill.
+ *
+ * This class is not multithread safe.
+ */
+final class SummaryPrefetcher {
+
+    static final String PREFETCHED_METRIC = "dispatch_prefetched_summaries";
+    static final String WASTED_METRIC = "dispatch_prefetched_summaries_wasted";
+
+    private final Query query;
+    private final String summaryClass;
+    private final Function<Result, FillInvoker> fillInvokers;
+    private final Metric metric;
+    private final Metric.Context metricContext;
+
+    /** The best hits received so far, with the worst first */
+    private final PriorityQueue<LeanHit> best = new PriorityQueue<>(Comparator.reverseOrder());
+    private final Map<LeanHit, FastHit> prefetched = new IdentityHashMap<>();
+    private final List<Fill> fills = new ArrayList<>();
+
+    SummaryPrefetcher(Query query, String summaryClass, Function<Result, FillInvoker> fillInvokers,
+                      Metric metric, Metric.Context metricContext) {
+        this.query = query;
+        this.summaryClass = summaryClass;
+        this.fillInvokers = fillInvokers;
+        this.metric = metric;
+        this.metricContext = metricContext;
+    }
+
+    /** Sends a fill request for the hits of the given sorted reply which are in the window of the replies so far */
+    void prefetch(List<LeanHit> sortedHits) {
+        int window = query.getOffset() + query.getHits();
+        if (window <= 0) return;
+
+        Result toFill = new Result(query);
+        for (LeanHit hit : sortedHits) {
+            if (best.size() == window) {
+                if (best.peek().compareTo(hit) <= 0) break; // this and the rest of the reply are outside the window
+                best.poll();
+            }
+            best.add(hit);
+            FastHit fastHit = InvokerResult.toFastHit(hit, query);
+            prefetched.put(hit, fastHit);
+            toFill.hits().add(fastHit);
+        }
+        if (toFill.hits().size() == 0) return;
+
+        FillInvoker invoker = fillInvokers.apply(toFill);
+        invoker.sendFillRequest(toFill, summaryClass);
+        fills.add(new Fill(invoker, toFill));
+    }
+
+    /**
+     * Waits for the prefetches of the hits in the given final, merged list of hits, adds their errors to the given
+     * result, and returns the hits which were filled by them, by the lean hit they were created from.
+     */
+    Map<LeanHit, FastHit> complete(List<LeanHit> mergedHits, Result result) {
+        Map<LeanHit, FastHit> used = new IdentityHashMap<>();
+        Set<Hit> usedHits = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (LeanHit hit : mergedHits) {
+            FastHit fastHit = prefetched.get(hit);
+            if (fastHit != null) {
+                used.put(hit, fastHit);
+                usedHits.add(fastHit);
+            }
+        }
+
+        try {
+            for (Fill fill : fills) {
+                if (fill.result.hits().asList().stream().noneMatch(usedHits::contains)) continue; // all wasted
+                fill.invoker.getFillResults(fill.result, summaryClass);
+                ErrorHit errors = fill.result.hits().getErrorHit();
+                if (errors != null)
+                    errors.errors().forEach(error -> result.hits().addError(error));
+            }
+        } finally {
+            release();
+        }
+
+        metric.add(PREFETCHED_METRIC, prefetched.size(), metricContext);
+        metric.add(WASTED_METRIC, prefetched.size() - used.size(), metricContext);
+        used.values().removeIf(hit -> ! hit.isFilled(summaryClass));
+        query.trace(false, 3, "Prefetched summaries of ", prefetched.size(), " hits, of which ", used.size(), " were used");
+        return used;
+    }
+
+    /** Releases the fill invokers of this */
+    void release() {
+        fills.forEach(fill -> fill.invoker.close());
+        fills.clear();
+    }
+
+    private static class Fill {
+
+        final FillInvoker invoker;
+        final Result result;
+
+        Fill(FillInvoker invoker, Result result) {
+            this.invoker = invoker;
+            this.result = result;
+        }
+
+    }
+
+}
@@ -29,6 +29,7 @@ import com.yahoo.searchlib.aggregation.Grouping;
 import com.yahoo.slime.BinaryFormat;
 import com.yahoo.vespa.objects.BufferSerializer;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
@@ -37,12 +38,29 @@ import java.util.function.Consumer;
 public class ProtobufSerialization {
 
     private static final int INITIAL_SERIALIZATION_BUFFER_SIZE = 10 * 1024;
+    private static final int MAX_POOLED_SERIALIZATION_BUFFER_SIZE = 1 << 20;
+
+    /** Query tree encoding buffers reused by each thread, as the encoded size is not known up front */
+    private static final ThreadLocal<ByteBuffer> serializationBuffers =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(INITIAL_SERIALIZATION_BUFFER_SIZE));
 
     static byte[] serializeSearchRequest(Query query, int hits, String serverId) {
         return convertFromQuery(query, hits, serverId).toByteArray();
     }
 
+    /**
+     * Returns the serialized form of the parts of a search request which determine its result,
+     * that is, everything but the timeout and trace level.
+     */
+    public static byte[] serializeResultCacheKey(Query query) {
+        return convertFromQuery(query, query.getHits(), null, false).toBuilder().clearTimeout().clearTraceLevel().build().toByteArray();
+    }
+
     private static SearchProtocol.SearchRequest convertFromQuery(Query query, int hits, String serverId) {
+        return convertFromQuery(query, hits, serverId, true);
+    }
+
+    private static SearchProtocol.SearchRequest convertFromQuery(Query query, int hits, String serverId, boolean includeSession) {
         var builder = SearchProtocol.SearchRequest.newBuilder().setHits(hits).setOffset(query.getOffset())
                 .setTimeout((int) query.getTimeLeft());
 
@@ -52,7 +70,7 @@ public class ProtobufSerialization {
         }
         builder.setQueryTreeBlob(serializeQueryTree(query.getModel().getQueryTree()));
 
-        if (query.getGroupingSessionCache() || query.getRanking().getQueryCache()) {
+        if (includeSession && (query.getGroupingSessionCache() || query.getRanking().getQueryCache())) {
             // TODO verify that the session key is included whenever rank properties would have been
             builder.setSessionKey(query.getSessionId(serverId).toString());
         }
@@ -188,6 +206,15 @@ public class ProtobufSerialization {
         return convertToResult(query, protobuf, searcher.getDocumentDatabase(query), partId, distKey);
     }
 
+    /**
+     * Reads a search reply directly from the protobuf wire format into a result, without creating the
+     * intermediate reply objects. Only the first maxHits hits are read, as the others can not be part of the result.
+     */
+    static InvokerResult deserializeToSearchResult(ReplyPayload payload, Query query, VespaBackEndSearcher searcher,
+                                                   int partId, int distKey, int maxHits) throws IOException {
+        return SearchReplyReader.read(payload, query, searcher.getDocumentDatabase(query), partId, distKey, maxHits);
+    }
+
     static InvokerResult convertToResult(Query query, SearchProtocol.SearchReply protobuf,
                                                  DocumentDatabase documentDatabase, int partId, int distKey)
     {
@@ -198,17 +225,7 @@ public class ProtobufSerialization {
 
         var haveGrouping = protobuf.getGroupingBlob() != null && !protobuf.getGroupingBlob().isEmpty();
         if (haveGrouping) {
-            BufferSerializer buf = new BufferSerializer(new GrowableByteBuffer(protobuf.getGroupingBlob().asReadOnlyByteBuffer()));
-            int cnt = buf.getInt(null);
-            ArrayList<Grouping> list = new ArrayList<>(cnt);
-            for (int i = 0; i < cnt; i++) {
-                Grouping g = new Grouping();
-                g.deserialize(buf);
-                list.add(g);
-            }
-            GroupingListHit hit = new GroupingListHit(list, documentDatabase.getDocsumDefinitionSet());
-            hit.setQuery(query);
-            result.getResult().hits().add(hit);
+            addGroupingHit(result, protobuf.getGroupingBlob().asReadOnlyByteBuffer(), query, documentDatabase);
         }
 
         for (var replyHit : protobuf.getHitsList()) {
@@ -220,21 +237,45 @@ public class ProtobufSerialization {
 
         var slimeTrace = protobuf.getSlimeTrace();
         if (slimeTrace != null && !slimeTrace.isEmpty()) {
-            var traces = new Value.ArrayValue();
-            traces.add(new SlimeAdapter(BinaryFormat.decode(slimeTrace.toByteArray()).get()));
-            query.trace(traces, query.getTraceLevel());
+            addTrace(query, slimeTrace.toByteArray());
         }
         return result;
     }
 
+    static void addGroupingHit(InvokerResult result, ByteBuffer groupingBlob, Query query, DocumentDatabase documentDatabase) {
+        BufferSerializer buf = new BufferSerializer(new GrowableByteBuffer(groupingBlob));
+        int cnt = buf.getInt(null);
+        ArrayList<Grouping> list = new ArrayList<>(cnt);
+        for (int i = 0; i < cnt; i++) {
+            Grouping g = new Grouping();
+            g.deserialize(buf);
+            list.add(g);
+        }
+        GroupingListHit hit = new GroupingListHit(list, documentDatabase.getDocsumDefinitionSet());
+        hit.setQuery(query);
+        result.getResult().hits().add(hit);
+    }
+
+    static void addTrace(Query query, byte[] slimeTrace) {
+        var traces = new Value.ArrayValue();
+        traces.add(new SlimeAdapter(BinaryFormat.decode(slimeTrace).get()));
+        query.trace(traces, query.getTraceLevel());
+    }
+
     private static Coverage convertToCoverage(SearchProtocol.SearchReply protobuf) {
-        var coverage = new Coverage(protobuf.getCoverageDocs(), protobuf.getActiveDocs(), 1);
-        coverage.setNodesTried(1).setSoonActive(protobuf.getSoonActiveDocs());
+        return convertToCoverage(protobuf.getCoverageDocs(), protobuf.getActiveDocs(), protobuf.getSoonActiveDocs(),
+                                 protobuf.getDegradedByMatchPhase(), protobuf.getDegradedBySoftTimeout());
+    }
+
+    static Coverage convertToCoverage(long coverageDocs, long activeDocs, long soonActiveDocs,
+                                      boolean degradedByMatchPhase, boolean degradedBySoftTimeout) {
+        var coverage = new Coverage(coverageDocs, activeDocs, 1);
+        coverage.setNodesTried(1).setSoonActive(soonActiveDocs);
 
         int degradedReason = 0;
-        if (protobuf.getDegradedByMatchPhase())
+        if (degradedByMatchPhase)
             degradedReason |= Coverage.DEGRADED_BY_MATCH_PHASE;
-        if (protobuf.getDegradedBySoftTimeout())
+        if (degradedBySoftTimeout)
             degradedReason |= Coverage.DEGRADED_BY_TIMEOUT;
         coverage.setDegradedReason(degradedReason);
 
@@ -265,15 +306,17 @@ public class ProtobufSerialization {
     }
 
     private static ByteString serializeQueryTree(QueryTree queryTree) {
-        int bufferSize = INITIAL_SERIALIZATION_BUFFER_SIZE;
+        ByteBuffer treeBuffer = serializationBuffers.get();
         while (true) {
             try {
-                ByteBuffer treeBuffer = ByteBuffer.allocate(bufferSize);
+                treeBuffer.clear();
                 queryTree.encode(treeBuffer);
                 treeBuffer.flip();
                 return ByteString.copyFrom(treeBuffer);
             } catch (java.nio.BufferOverflowException e) {
-                bufferSize *= 2;
+                treeBuffer = ByteBuffer.allocate(treeBuffer.capacity() * 2);
+                if (treeBuffer.capacity() <= MAX_POOLED_SERIALIZATION_BUFFER_SIZE)
+                    serializationBuffers.set(treeBuffer); // keep the larger buffer so the next large query encodes once
             }
         }
     }
@@ -0,0 +1,66 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch.rpc;
+
+import com.google.protobuf.CodedInputStream;
+import com.yahoo.compress.CompressionType;
+import com.yahoo.compress.Compressor;
+
+/**
+ * The uncompressed protobuf payload of a reply from a content node.
+ *
+ * This avoids allocating a new array for each reply: Uncompressed replies are read directly from the
+ * bytes received, and compressed replies are decompressed into a buffer which is reused by the calling thread.
+ * A payload is therefore only valid until the next payload is created by the same thread, and everything
+ * needed from it must be copied out before that.
+ */
+final class ReplyPayload {
+
+    /** Buffers larger than this are not kept for reuse, to avoid holding on to memory after a few large replies */
+    static final int MAX_POOLED_BUFFER_SIZE = 1 << 20;
+
+    private static final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[16 * 1024]);
+
+    private final byte[] bytes;
+    private final int length;
+
+    private ReplyPayload(byte[] bytes, int length) {
+        this.bytes = bytes;
+        this.length = length;
+    }
+
+    /** Returns the uncompressed payload of the given response */
+    static ReplyPayload of(Client.ProtobufResponse response, Compressor compressor) {
+        CompressionType compression = CompressionType.valueOf(response.compression());
+        byte[] compressed = response.compressedPayload();
+        if (compression == CompressionType.NONE || compression == CompressionType.INCOMPRESSIBLE)
+            return new ReplyPayload(compressed, compressed.length);
+
+        int size = response.uncompressedSize();
+        byte[] buffer = buffer(size);
+        compressor.decompress(compression, compressed, 0, size, buffer);
+        return new ReplyPayload(buffer, size);
+    }
+
+    private static byte[] buffer(int size) {
+        if (size > MAX_POOLED_BUFFER_SIZE) return new byte[size];
+
+        byte[] buffer = buffers.get();
+        if (buffer.length < size) {
+            buffer = new byte[Math.min(MAX_POOLED_BUFFER_SIZE, Integer.highestOneBit(size) << 1)];
+            buffers.set(buffer);
+        }
+        return buffer;
+    }
+
+    /** Returns a protobuf input stream reading this payload */
+    CodedInputStream input() {
+        return CodedInputStream.newInstance(bytes, 0, length);
+    }
+
+    /** Returns the array holding this payload, which may be larger than the payload */
+    byte[] array() { return bytes; }
+
+    /** Returns the number of bytes in this payload */
+    int length() { return length; }
+
+}
@@ -2,10 +2,11 @@
 package com.yahoo.search.dispatch.rpc;
 
 import ai.vespa.searchlib.searchprotocol.protobuf.SearchProtocol;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
 import com.yahoo.collections.ListMap;
 import com.yahoo.collections.Pair;
-import com.yahoo.compress.CompressionType;
 import com.yahoo.compress.Compressor;
 import com.yahoo.container.protect.Error;
 import com.yahoo.data.access.Inspector;
@@ -21,7 +22,9 @@ import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.result.Hit;
 import com.yahoo.slime.ArrayTraverser;
 import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.Slime;
 
+import java.io.IOException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -39,6 +42,8 @@ import java.util.logging.Logger;
  */
 public class RpcProtobufFillInvoker extends FillInvoker {
     private static final String RPC_METHOD = "vespa.searchprotocol.getDocsums";
+    private static final int SLIME_SUMMARIES_TAG =
+            (SearchProtocol.DocsumReply.SLIME_SUMMARIES_FIELD_NUMBER << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED;
 
     private static final Logger log = Logger.getLogger(RpcProtobufFillInvoker.class.getName());
 
@@ -168,11 +173,8 @@ public class RpcProtobufFillInvoker extends FillInvoker {
             log.log(Level.WARNING, "Error fetching summary data: " + error);
             hasReportedError = true;
         } else {
-            Client.ProtobufResponse response = responseOrError.response().get();
-            CompressionType compression = CompressionType.valueOf(response.compression());
-            byte[] responseBytes = resourcePool.compressor().decompress(response.compressedPayload(), compression,
-                    response.uncompressedSize());
-            return fill(result, hitsContext, summaryClass, responseBytes);
+            ReplyPayload payload = ReplyPayload.of(responseOrError.response().get(), resourcePool.compressor());
+            return fill(result, hitsContext, summaryClass, payload);
         }
         return 0;
     }
@@ -184,10 +186,9 @@ public class RpcProtobufFillInvoker extends FillInvoker {
         });
     }
 
-    private int fill(Result result, List<FastHit> hits, String summaryClass, byte[] payload) {
+    private int fill(Result result, List<FastHit> hits, String summaryClass, ReplyPayload payload) {
         try {
-            var protobuf = SearchProtocol.DocsumReply.parseFrom(payload);
-            var root = BinaryFormat.decode(protobuf.getSlimeSummaries().toByteArray()).get();
+            var root = decodeSummaries(payload).get();
             var errors = root.field("errors");
             boolean hasErrors = errors.valid() && (errors.entries() > 0);
             if (hasErrors) {
@@ -210,13 +211,29 @@ public class RpcProtobufFillInvoker extends FillInvoker {
                 }
             }
             return skippedHits;
-        } catch (InvalidProtocolBufferException ex) {
+        } catch (IOException ex) {
             log.log(Level.WARNING, "Invalid response to docsum request", ex);
             result.hits().addError(ErrorMessage.createInternalServerError("Invalid response to docsum request from backend"));
             return 0;
         }
     }
 
+    /** Decodes the summaries of a docsum reply straight from the payload, without copying them out of it first */
+    private static Slime decodeSummaries(ReplyPayload payload) throws IOException {
+        CodedInputStream input = payload.input();
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            if (tag == SLIME_SUMMARIES_TAG) {
+                int length = input.readRawVarint32();
+                if (length > payload.length() - input.getTotalBytesRead())
+                    throw new InvalidProtocolBufferException("Truncated docsum reply");
+                return BinaryFormat.decode(payload.array(), input.getTotalBytesRead(), length);
+            }
+            input.skipField(tag);
+        }
+        return BinaryFormat.decode(new byte[0]);
+    }
+
     private void throwTimeout() throws TimeoutException {
         throw new TimeoutException("Timed out waiting for summary data. " + outstandingResponses + " responses outstanding.");
     }
@@ -1,7 +1,6 @@
 // Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.dispatch.rpc;
 
-import com.yahoo.compress.CompressionType;
 import com.yahoo.compress.Compressor;
 import com.yahoo.prelude.fastsearch.VespaBackEndSearcher;
 import com.yahoo.search.Query;
@@ -34,6 +33,7 @@ public class RpcSearchInvoker extends SearchInvoker implements Client.ResponseRe
     private final int maxHits;
 
     private Query query;
+    private int requestedHits;
 
     RpcSearchInvoker(VespaBackEndSearcher searcher, Node node, RpcResourcePool resourcePool, int maxHits) {
         super(Optional.of(node));
@@ -46,20 +46,36 @@ public class RpcSearchInvoker extends SearchInvoker implements Client.ResponseRe
 
     @Override
     protected void sendSearchRequest(Query query) {
+        sendSearchRequest(query, null);
+    }
+
+    @Override
+    protected Object sendSearchRequest(Query query, Object incomingContext) {
         this.query = query;
+        requestedHits = Math.min(query.getHits(), maxHits);
 
         Client.NodeConnection nodeConnection = resourcePool.getConnection(node.key());
         if (nodeConnection == null) {
             responses.add(Client.ResponseOrError.fromError("Could not send search to unknown node " + node.key()));
             responseAvailable();
-            return;
+            return incomingContext;
         }
         query.trace(false, 5, "Sending search request with jrt/protobuf to node with dist key ", node.key());
 
-        var payload = ProtobufSerialization.serializeSearchRequest(query, Math.min(query.getHits(), maxHits), searcher.getServerId());
+        RpcContext context = getContext(incomingContext);
         double timeoutSeconds = ((double) query.getTimeLeft() - 3.0) / 1000.0;
-        Compressor.Compression compressionResult = resourcePool.compress(query, payload);
-        nodeConnection.request(RPC_METHOD, compressionResult.type(), payload.length, compressionResult.data(), this, timeoutSeconds);
+        nodeConnection.request(RPC_METHOD, context.compressedPayload.type(), context.compressedPayload.uncompressedSize(),
+                               context.compressedPayload.data(), this, timeoutSeconds);
+        return context;
+    }
+
+    /** Returns the request serialized by a previous invoker of this query if it asked for the same hits, or a new one */
+    private RpcContext getContext(Object incomingContext) {
+        if (incomingContext instanceof RpcContext && ((RpcContext) incomingContext).hits == requestedHits)
+            return (RpcContext) incomingContext;
+
+        var payload = ProtobufSerialization.serializeSearchRequest(query, requestedHits, searcher.getServerId());
+        return new RpcContext(requestedHits, resourcePool.compress(query, payload));
     }
 
     @Override
@@ -84,12 +100,9 @@ public class RpcSearchInvoker extends SearchInvoker implements Client.ResponseRe
             return errorResult(query, ErrorMessage.createInternalServerError("Neither error nor result available"));
         }
 
-        ProtobufResponse protobufResponse = response.response().get();
-        CompressionType compression = CompressionType.valueOf(protobufResponse.compression());
-        byte[] payload = resourcePool.compressor().decompress(protobufResponse.compressedPayload(), compression, protobufResponse.uncompressedSize());
-        var result = ProtobufSerialization.deserializeToSearchResult(payload, query, searcher, node.pathIndex(), node.key());
-
-        return result;
+        ReplyPayload payload = ReplyPayload.of(response.response().get(), resourcePool.compressor());
+        return ProtobufSerialization.deserializeToSearchResult(payload, query, searcher, node.pathIndex(), node.key(),
+                                                               query.getOffset() + requestedHits);
     }
 
     @Override
@@ -106,4 +119,17 @@ public class RpcSearchInvoker extends SearchInvoker implements Client.ResponseRe
         return searcher.getName();
     }
 
+    /** The serialized and compressed search request, which is identical for all the nodes of a group */
+    static class RpcContext {
+
+        final int hits;
+        final Compressor.Compression compressedPayload;
+
+        RpcContext(int hits, Compressor.Compression compressedPayload) {
+            this.hits = hits;
+            this.compressedPayload = compressedPayload;
+        }
+
+    }
+
 }
@@ -0,0 +1,122 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch.rpc;
+
+import ai.vespa.searchlib.searchprotocol.protobuf.SearchProtocol.Hit;
+import ai.vespa.searchlib.searchprotocol.protobuf.SearchProtocol.SearchReply;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import com.yahoo.prelude.fastsearch.DocumentDatabase;
+import com.yahoo.search.Query;
+import com.yahoo.search.dispatch.InvokerResult;
+import com.yahoo.search.dispatch.LeanHit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads a {@link SearchReply} from the protobuf wire format directly into an {@link InvokerResult}.
+ *
+ * Compared to parsing the reply message, this skips creating the reply, hit and byte string objects,
+ * and only copies out the global id, relevance and sort data of hits which may become part of the result.
+ * The grouping blob is deserialized straight from the payload bytes.
+ *
+ * @see ProtobufSerialization#convertToResult
+ */
+final class SearchReplyReader {
+
+    private static final int TOTAL_HIT_COUNT = tag(SearchReply.TOTAL_HIT_COUNT_FIELD_NUMBER, WireFormat.WIRETYPE_VARINT);
+    private static final int COVERAGE_DOCS = tag(SearchReply.COVERAGE_DOCS_FIELD_NUMBER, WireFormat.WIRETYPE_VARINT);
+    private static final int ACTIVE_DOCS = tag(SearchReply.ACTIVE_DOCS_FIELD_NUMBER, WireFormat.WIRETYPE_VARINT);
+    private static final int SOON_ACTIVE_DOCS = tag(SearchReply.SOON_ACTIVE_DOCS_FIELD_NUMBER, WireFormat.WIRETYPE_VARINT);
+    private static final int DEGRADED_BY_MATCH_PHASE = tag(SearchReply.DEGRADED_BY_MATCH_PHASE_FIELD_NUMBER, WireFormat.WIRETYPE_VARINT);
+    private static final int DEGRADED_BY_SOFT_TIMEOUT = tag(SearchReply.DEGRADED_BY_SOFT_TIMEOUT_FIELD_NUMBER, WireFormat.WIRETYPE_VARINT);
+    private static final int HITS = tag(SearchReply.HITS_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    private static final int GROUPING_BLOB = tag(SearchReply.GROUPING_BLOB_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    private static final int SLIME_TRACE = tag(SearchReply.SLIME_TRACE_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+
+    private static final int HIT_GLOBAL_ID = tag(Hit.GLOBAL_ID_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    private static final int HIT_RELEVANCE = tag(Hit.RELEVANCE_FIELD_NUMBER, WireFormat.WIRETYPE_FIXED64);
+    private static final int HIT_SORT_DATA = tag(Hit.SORT_DATA_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+
+    /** The capacity to reserve for hits up front, as the number of hits in the reply is not known before reading it */
+    private static final int INITIAL_HITS_CAPACITY = 100;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private SearchReplyReader() {}
+
+    static InvokerResult read(ReplyPayload payload, Query query, DocumentDatabase documentDatabase,
+                              int partId, int distKey, int maxHits) throws IOException {
+        InvokerResult result = new InvokerResult(query, Math.min(maxHits, INITIAL_HITS_CAPACITY));
+        CodedInputStream input = payload.input();
+        long coverageDocs = 0, activeDocs = 0, soonActiveDocs = 0;
+        boolean degradedByMatchPhase = false, degradedBySoftTimeout = false;
+        int hitCount = 0;
+
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            if (tag == HITS) {
+                int length = input.readRawVarint32();
+                if (hitCount++ < maxHits) {
+                    int oldLimit = input.pushLimit(length);
+                    result.getLeanHits().add(readHit(input, partId, distKey));
+                    input.popLimit(oldLimit);
+                } else {
+                    input.skipRawBytes(length);
+                }
+            } else if (tag == TOTAL_HIT_COUNT) {
+                result.getResult().setTotalHitCount(input.readInt64());
+            } else if (tag == COVERAGE_DOCS) {
+                coverageDocs = input.readInt64();
+            } else if (tag == ACTIVE_DOCS) {
+                activeDocs = input.readInt64();
+            } else if (tag == SOON_ACTIVE_DOCS) {
+                soonActiveDocs = input.readInt64();
+            } else if (tag == DEGRADED_BY_MATCH_PHASE) {
+                degradedByMatchPhase = input.readBool();
+            } else if (tag == DEGRADED_BY_SOFT_TIMEOUT) {
+                degradedBySoftTimeout = input.readBool();
+            } else if (tag == GROUPING_BLOB) {
+                int length = input.readRawVarint32();
+                if (length > 0) {
+                    ByteBuffer blob = ByteBuffer.wrap(payload.array(), input.getTotalBytesRead(), length).slice();
+                    ProtobufSerialization.addGroupingHit(result, blob, query, documentDatabase);
+                }
+                input.skipRawBytes(length);
+            } else if (tag == SLIME_TRACE) {
+                byte[] trace = input.readByteArray();
+                if (trace.length > 0)
+                    ProtobufSerialization.addTrace(query, trace);
+            } else {
+                input.skipField(tag);
+            }
+        }
+        result.getResult().setCoverage(ProtobufSerialization.convertToCoverage(coverageDocs, activeDocs, soonActiveDocs,
+                                                                               degradedByMatchPhase, degradedBySoftTimeout));
+        return result;
+    }
+
+    private static LeanHit readHit(CodedInputStream input, int partId, int distKey) throws IOException {
+        byte[] globalId = EMPTY;
+        double relevance = 0.0;
+        byte[] sortData = EMPTY;
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            if (tag == HIT_GLOBAL_ID)
+                globalId = input.readByteArray();
+            else if (tag == HIT_RELEVANCE)
+                relevance = input.readDouble();
+            else if (tag == HIT_SORT_DATA)
+                sortData = input.readByteArray();
+            else
+                input.skipField(tag);
+        }
+        return (sortData.length == 0) ? new LeanHit(globalId, partId, distKey, relevance)
+                                      : new LeanHit(globalId, partId, distKey, sortData);
+    }
+
+    private static int tag(int fieldNumber, int wireType) {
+        return (fieldNumber << 3) | wireType;
+    }
+
+}
@@ -145,6 +145,14 @@ public class SearchCluster implements NodeManager<Node> {
     /** Returns the groups of this cluster as an immutable list in introduction order */
     public ImmutableList<Group> orderedGroups() { return orderedGroups; }
 
+    /** Returns the sum of the active documents of all groups, as of the last completed ping iteration */
+    public long activeDocuments() {
+        long activeDocuments = 0;
+        for (Group group : orderedGroups)
+            activeDocuments += group.getActiveDocuments();
+        return activeDocuments;
+    }
+
     /** Returns the n'th (zero-indexed) group in the cluster if possible */
     public Optional<Group> group(int n) {
         if (orderedGroups.size() > n) {
@@ -450,6 +450,13 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
         endJsonCallback();
     }
 
+    /** Passes what is buffered in the generator on to the stream while waiting for more hits */
+    @Override
+    protected void flushRendered() throws IOException {
+        if (generator != null)
+            generator.flush();
+    }
+
     @Override
     public String getEncoding() {
         return "utf-8";
@@ -527,6 +534,8 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
      */
     public static class FieldConsumer implements Hit.RawUtf8Consumer, TraceRenderer.FieldConsumer {
 
+        private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
         private final JsonGenerator generator;
         private final boolean debugRendering;
 
@@ -623,19 +632,64 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
 
         private void renderInspector(Inspector data) throws IOException {
             Inspector asMap = wrapAsMap(data);
-            if (asMap != null) {
-                StringBuilder intermediate = new StringBuilder();
-                JsonRender.render(asMap, intermediate, true);
-                generator.writeRawValue(intermediate.toString());
-            } else {
-                renderInspectorDirect(data);
-            }
+            renderInspectorDirect(asMap != null ? asMap : data);
         }
 
+        /**
+         * Renders the given value directly to the generator, writing strings from their UTF-8 bytes.
+         * The output is the same as given by {@link JsonRender}, except that non-ASCII characters are not escaped.
+         */
         private void renderInspectorDirect(Inspector data) throws IOException {
-            StringBuilder intermediate = new StringBuilder();
-            JsonRender.render(data, intermediate, true);
-            generator.writeRawValue(intermediate.toString());
+            switch (data.type()) {
+                case EMPTY:
+                    generator.writeNull();
+                    break;
+                case BOOL:
+                    generator.writeBoolean(data.asBool());
+                    break;
+                case LONG:
+                    generator.writeNumber(data.asLong());
+                    break;
+                case DOUBLE:
+                    double value = data.asDouble();
+                    if (Double.isFinite(value))
+                        generator.writeNumber(value);
+                    else
+                        generator.writeNull();
+                    break;
+                case STRING:
+                    byte[] utf8 = data.asUtf8();
+                    generator.writeUTF8String(utf8, 0, utf8.length);
+                    break;
+                case DATA:
+                    renderData(data.asData());
+                    break;
+                case ARRAY:
+                    generator.writeStartArray();
+                    for (int i = 0; i < data.entryCount(); i++)
+                        renderInspectorDirect(data.entry(i));
+                    generator.writeEndArray();
+                    break;
+                case OBJECT:
+                    generator.writeStartObject();
+                    for (Map.Entry<String, Inspector> field : data.fields()) {
+                        generator.writeFieldName(field.getKey());
+                        renderInspectorDirect(field.getValue());
+                    }
+                    generator.writeEndObject();
+                    break;
+            }
+        }
+
+        private void renderData(byte[] data) throws IOException {
+            char[] hex = new char[2 + data.length * 2];
+            hex[0] = '0';
+            hex[1] = 'x';
+            for (int i = 0; i < data.length; i++) {
+                hex[2 + i * 2] = HEX_DIGITS[(data[i] >> 4) & 0xf];
+                hex[3 + i * 2] = HEX_DIGITS[data[i] & 0xf];
+            }
+            generator.writeString(hex, 0, hex.length);
         }
 
         protected void renderFieldContents(Object field) throws IOException {
@@ -147,6 +147,7 @@ public class ClusterSearcherTestCase {
         private final String type3 = "type3";
         private final Map<String, List<Hit>> results = new LinkedHashMap<>();
         private final boolean expectAttributePrefetch;
+        private final List<Integer> batchSizes = new ArrayList<>();
         static final String ATTRIBUTE_PREFETCH = "attributeprefetch";
 
         private String getId(String type, int i) {
@@ -229,6 +230,15 @@ public class ClusterSearcherTestCase {
             return result;
         }
 
+        @Override
+        public List<com.yahoo.search.Result> search(List<Query> queries, Execution execution) {
+            batchSizes.add(queries.size());
+            List<com.yahoo.search.Result> results = new ArrayList<>();
+            for (Query query : queries)
+                results.add(search(query, execution));
+            return results;
+        }
+
         @Override
         protected void doPartialFill(com.yahoo.search.Result result, String summaryClass) {
             if (summaryClass.equals(ATTRIBUTE_PREFETCH) && !expectAttributePrefetch) {
@@ -356,6 +366,24 @@ public class ClusterSearcherTestCase {
         assertEquals("score: 3.0",  hits.get(8).getField("score"));
     }
 
+    @Test
+    public void testThatMultipleDocumentTypesAreSearchedInOneBatch() {
+        Set<String> documentTypes = new LinkedHashSet<>(Arrays.asList("type1", "type2", "type3"));
+        ClusterSearcher cluster = new ClusterSearcher(documentTypes);
+        MyMockSearcher backend = new MyMockSearcher(false);
+        try {
+            cluster.addBackendSearcher(backend);
+            cluster.setValidRankProfile("default", documentTypes);
+            Execution execution = new Execution(cluster, Execution.Context.createContextStub());
+
+            com.yahoo.search.Result result = execution.search(new Query("?query=hello&restrict=type1,type3"));
+            assertEquals(6, result.getTotalHitCount());
+            assertEquals(List.of(2), backend.batchSizes);
+        } finally {
+            cluster.deconstruct();
+        }
+    }
+
     private com.yahoo.search.Result getResult(int offset, int hits, Execution execution) {
         Result result = getResult(offset, hits, null, execution);
         assertEquals(0, result.getQuery().getOffset());
@@ -0,0 +1,81 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.fastsearch;
+
+import com.yahoo.data.access.Inspector;
+import com.yahoo.data.access.slime.SlimeAdapter;
+import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Slime;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures time and heap allocated when accessing the summary fields of a page of {@link FastHit}s
+ * the way a typical search chain and renderer does: Some fields are read by searchers, and then all
+ * fields are rendered.
+ *
+ * Run with e.g. <code>java -cp ... com.yahoo.prelude.fastsearch.FastHitFieldBenchmark</code>
+ */
+public class FastHitFieldBenchmark {
+
+    private static final int HITS = 400;
+    private static final int FIELDS = 16;
+    private static final int ROUNDS = 2000;
+
+    private final DocsumDefinition definition;
+    private final List<Inspector> docsums = new ArrayList<>(HITS);
+    private long sink = 0;
+
+    private FastHitFieldBenchmark() {
+        List<DocsumField> fields = new ArrayList<>();
+        for (int i = 0; i < FIELDS; i++)
+            fields.add(DocsumField.create("field" + i, i % 2 == 0 ? "string" : "int64"));
+        definition = new DocsumDefinition("default", fields);
+
+        for (int hit = 0; hit < HITS; hit++) {
+            Slime slime = new Slime();
+            Cursor docsum = slime.setObject();
+            for (int i = 0; i < FIELDS; i++) {
+                if (i % 2 == 0)
+                    docsum.setString("field" + i, "value " + i + " of hit " + hit);
+                else
+                    docsum.setLong("field" + i, hit * i);
+            }
+            docsums.add(new SlimeAdapter(BinaryFormat.decode(BinaryFormat.encode(slime)).get()));
+        }
+    }
+
+    private void accessPage() {
+        for (Inspector docsum : docsums) {
+            FastHit hit = new FastHit();
+            hit.addSummary(definition, docsum);
+            for (int i = 0; i < FIELDS; i += 4) // read by searchers
+                sink += hit.getField("field" + i).hashCode();
+            hit.forEachField((name, value) -> sink += value.hashCode()); // rendered
+        }
+    }
+
+    public void run() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < ROUNDS; i++) // warmup
+            accessPage();
+
+        long startBytes = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++)
+            accessPage();
+        double nanos = (double)(System.nanoTime() - startNanos) / ROUNDS;
+        double bytes = (double)(threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - startBytes) / ROUNDS;
+        System.out.println(String.format(Locale.US, "%d hits, %d fields: %8.1f us, %8.1f kB allocated per page",
+                                         HITS, FIELDS, nanos / 1000, bytes / 1024));
+        System.out.println("(" + sink + ")");
+    }
+
+    public static void main(String[] args) {
+        new FastHitFieldBenchmark().run();
+    }
+
+}
@@ -126,6 +126,25 @@ public class SlimeSummaryTestCase {
         assertEquals(tensor2, featureData.getTensor("tensor2_feature"));
     }
 
+    @Test
+    public void testDecodedValuesAreKeptOutsideTheFieldMap() {
+        DocsumDefinitionSet docsum = createDocsumDefinitionSet(summary_cf);
+        FastHit hit = new FastHit();
+        assertNull(docsum.lazyDecode("default", fullSummary(null, null), hit));
+        Object value = hit.getField("data_field");
+        assertEquals("data_value", value.toString());
+        assertFalse(hit.hasField("data_field"));
+        assertTrue(value == hit.getField("data_field"));
+        assertTrue(value == hit.fields().get("data_field"));
+        assertNull(hit.getField("tensor_field1"));
+
+        hit.setField("data_field", "overridden");
+        assertEquals("overridden", hit.getField("data_field"));
+        hit.removeField("data_field");
+        assertNull(hit.getField("data_field"));
+        assertFalse(hit.fieldKeys().contains("data_field"));
+    }
+
     @Test
     public void testFieldAccessAPI() {
         DocsumDefinitionSet partialDocsum1 = createDocsumDefinitionSet(partial_summary1_cf);
@@ -227,27 +246,26 @@ public class SlimeSummaryTestCase {
         expected.remove("string");
         assertFields(expected, hit);
 
-        fieldIterator.next();
-        assertEquals("short_field", fieldIterator.next().getKey());
+        assertEquals("integer_field", fieldIterator.next().getKey());
+        assertEquals("float_field", fieldIterator.next().getKey());
         fieldIterator.remove();
-        expected.remove("short_field");
+        expected.remove("float_field");
         assertFields(expected, hit);
 
-        fieldIterator.next();
         assertEquals("double_field", fieldIterator.next().getKey());
         fieldIterator.remove();
         expected.remove("double_field");
         assertFields(expected, hit);
 
         fieldIterator = hit.fieldIterator();
-        assertEquals("float_field", fieldIterator.next().getKey());
+        assertEquals("integer_field", fieldIterator.next().getKey());
         fieldIterator.remove();
-        expected.remove("float_field");
+        expected.remove("integer_field");
         assertFields(expected, hit);
 
-        assertEquals("integer_field", fieldIterator.next().getKey());
+        assertEquals("short_field", fieldIterator.next().getKey());
         fieldIterator.remove();
-        expected.remove("integer_field");
+        expected.remove("short_field");
         assertFields(expected, hit);
 
         // --- Add full summary
@@ -128,6 +128,28 @@ public class FastSearcherTestCase {
         assertForceSinglePassIs(false, q);
     }
 
+    @Test
+    public void testBatchOfQueriesIsSearchedWithTheSameProcessingAsSingleQueries() {
+        FastSearcher fastSearcher = new FastSearcher("container.0",
+                                                     MockDispatcher.create(Collections.singletonList(new Node(0, "host0", 0))),
+                                                     new SummaryParameters(null),
+                                                     new ClusterParams("testhittype"),
+                                                     documentdbInfoConfig);
+        List<Query> queries = new ArrayList<>();
+        for (String word : List.of("foo", "bar", "baz")) {
+            Query query = new Query("?query=" + word);
+            GroupingRequest.newInstance(query).setRootOperation(new AllOperation());
+            queries.add(query);
+        }
+
+        List<Result> results = fastSearcher.search(queries, new Execution(Execution.Context.createContextStub()));
+        assertEquals(queries.size(), results.size());
+        for (int i = 0; i < queries.size(); i++) {
+            assertTrue(results.get(i).getQuery() == queries.get(i));
+            assertForceSinglePassIs(true, queries.get(i));
+        }
+    }
+
     private void assertForceSinglePassIs(boolean expected, Query query) {
         for (GroupingRequest request : query.getSelect().getGrouping())
             assertForceSinglePassIs(expected, request.getRootOperation());
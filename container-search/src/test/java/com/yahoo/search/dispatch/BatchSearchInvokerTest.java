@@ -0,0 +1,102 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.search.result.ErrorMessage;
+import com.yahoo.search.searchchain.Execution;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BatchSearchInvokerTest {
+
+    private final List<String> events = new ArrayList<>();
+
+    @Test
+    public void requireThatAllRequestsAreSentBeforeWaitingForReplies() {
+        List<Query> queries = List.of(new Query("?query=a"), new Query("?query=b"), new Query("?query=c"));
+        List<SearchInvoker> invokers = List.of(new RecordingInvoker("a", 1, false),
+                                               new RecordingInvoker("b", 2, false),
+                                               new RecordingInvoker("c", 3, false));
+        List<Result> results;
+        try (BatchSearchInvoker batch = new BatchSearchInvoker(queries, invokers)) {
+            results = batch.search(null, BatchSearchInvokerTest::errorResult);
+        }
+
+        assertEquals(List.of("send a", "send b", "send c", "get a", "get b", "get c", "close a", "close b", "close c"), events);
+        assertEquals(3, results.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, results.get(i).getTotalHitCount());
+            assertTrue(results.get(i).getQuery() == queries.get(i));
+        }
+    }
+
+    @Test
+    public void requireThatAFailingQueryDoesNotAffectTheOthers() {
+        List<Query> queries = List.of(new Query("?query=a"), new Query("?query=b"));
+        List<SearchInvoker> invokers = List.of(new RecordingInvoker("a", 1, true),
+                                               new RecordingInvoker("b", 2, false));
+        List<Result> results;
+        try (BatchSearchInvoker batch = new BatchSearchInvoker(queries, invokers)) {
+            results = batch.search(null, BatchSearchInvokerTest::errorResult);
+        }
+
+        assertNotNull(results.get(0).hits().getError());
+        assertNull(results.get(1).hits().getError());
+        assertEquals(2, results.get(1).getTotalHitCount());
+        assertEquals(List.of("send a", "send b", "get b", "close a", "close b"), events);
+    }
+
+    static Result errorResult(Query query, IOException e) {
+        return new Result(query, ErrorMessage.createBackendCommunicationError(e.getMessage()));
+    }
+
+    private class RecordingInvoker extends SearchInvoker {
+
+        private final String name;
+        private final int totalHits;
+        private final boolean failOnSend;
+        private Query query;
+
+        RecordingInvoker(String name, int totalHits, boolean failOnSend) {
+            super(Optional.empty());
+            this.name = name;
+            this.totalHits = totalHits;
+            this.failOnSend = failOnSend;
+        }
+
+        @Override
+        protected void sendSearchRequest(Query query) throws IOException {
+            this.query = query;
+            events.add("send " + name);
+            if (failOnSend)
+                throw new IOException("Connection lost");
+        }
+
+        @Override
+        protected InvokerResult getSearchResult(Execution execution) {
+            events.add("get " + name);
+            InvokerResult result = new InvokerResult(query, 10);
+            result.getResult().setTotalHitCount(totalHits);
+            result.getResult().setCoverage(new Coverage(1, 1, 1, 1));
+            return result;
+        }
+
+        @Override
+        protected void release() {
+            events.add("close " + name);
+        }
+
+    }
+
+}
@@ -92,6 +92,18 @@ public class DispatcherTest {
         }
     }
 
+    @Test
+    public void requireThatBatchCreatesAnInvokerPerQuery() {
+        SearchCluster cl = new MockSearchCluster("1", 2, 1);
+        MockInvokerFactory invokerFactory = new MockInvokerFactory(cl, (n, a) -> true, (n, a) -> true);
+        Dispatcher disp = new Dispatcher(new ClusterMonitor(cl, false), cl, createDispatchConfig(), invokerFactory, new MockMetric());
+        try (BatchSearchInvoker batch = disp.getBatchSearchInvoker(List.of(new Query(), new Query()), null)) {
+            invokerFactory.verifyAllEventsProcessed();
+            assertEquals(2, batch.search(null, BatchSearchInvokerTest::errorResult).size());
+        }
+        disp.deconstruct();
+    }
+
     interface FactoryStep {
         boolean returnInvoker(List<Node> nodes, boolean acceptIncompleteCoverage);
     }
@@ -0,0 +1,134 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.prelude.fastsearch.test.MockMetric;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.search.searchchain.Execution;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalDouble;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HedgedSearchInvokerTest {
+
+    @Test
+    public void requireThatHedgeIsNotSentWhenPrimaryAnswersInTime() throws IOException {
+        AnsweringInvoker primary = new AnsweringInvoker(1, true);
+        AnsweringInvoker hedge = new AnsweringInvoker(2, true);
+        HedgedSearchInvoker invoker = new HedgedSearchInvoker(primary, 1000, () -> Optional.of(hedge),
+                                                              new MockMetric(), null);
+        Result result = invoker.search(new Query(), null);
+        invoker.close();
+
+        assertEquals(1, result.getTotalHitCount());
+        assertFalse(hedge.sent);
+        assertTrue(primary.closed);
+    }
+
+    @Test
+    public void requireThatHedgeIsUsedWhenPrimaryIsSlow() throws IOException {
+        AnsweringInvoker primary = new AnsweringInvoker(1, false);
+        AnsweringInvoker hedge = new AnsweringInvoker(2, true);
+        HedgedSearchInvoker invoker = new HedgedSearchInvoker(primary, 0, () -> Optional.of(hedge),
+                                                              new MockMetric(), null);
+        Result result = invoker.search(new Query(), null);
+        invoker.close();
+
+        assertEquals(2, result.getTotalHitCount());
+        assertTrue(hedge.sent);
+        assertTrue(primary.closed);
+        assertTrue(hedge.closed);
+    }
+
+    @Test
+    public void requireThatOnlyTheWinnerIsReleasedAsSuccessful() throws IOException {
+        AnsweringInvoker primary = new AnsweringInvoker(1, false);
+        AnsweringInvoker hedge = new AnsweringInvoker(2, true);
+        List<Boolean> primaryStatus = new ArrayList<>();
+        List<Boolean> hedgeStatus = new ArrayList<>();
+        primary.teardown((success, time) -> primaryStatus.add(success));
+        hedge.teardown((success, time) -> hedgeStatus.add(success));
+        HedgedSearchInvoker invoker = new HedgedSearchInvoker(primary, 0, () -> Optional.of(hedge),
+                                                              new MockMetric(), null);
+        invoker.search(new Query(), null);
+        invoker.close();
+
+        assertEquals(List.of(false), primaryStatus);
+        assertEquals(List.of(true), hedgeStatus);
+    }
+
+    @Test
+    public void requireThatPrimaryIsUsedWhenNoHedgeIsAvailable() throws IOException {
+        AnsweringInvoker primary = new AnsweringInvoker(1, false);
+        HedgedSearchInvoker invoker = new HedgedSearchInvoker(primary, 0, Optional::empty, new MockMetric(), null);
+        Query query = new Query();
+        query.setTimeout(1);
+        Result result = invoker.search(query, null);
+        invoker.close();
+
+        assertEquals(1, result.getTotalHitCount());
+        assertTrue(primary.closed);
+    }
+
+    @Test
+    public void requireThatLatencyPercentilesRequireAFullWindow() {
+        LatencyTracker tracker = new LatencyTracker(10);
+        for (int i = 1; i <= 9; i++)
+            tracker.add(i);
+        assertEquals(OptionalDouble.empty(), tracker.percentile(90));
+        tracker.add(10);
+        assertEquals(9.0, tracker.percentile(90).getAsDouble(), 0.0);
+        assertEquals(10.0, tracker.percentile(100).getAsDouble(), 0.0);
+        assertEquals(1.0, tracker.percentile(0).getAsDouble(), 0.0);
+        tracker.add(20);
+        assertEquals(20.0, tracker.percentile(100).getAsDouble(), 0.0);
+        assertEquals(2.0, tracker.percentile(0).getAsDouble(), 0.0);
+    }
+
+    private static class AnsweringInvoker extends SearchInvoker {
+
+        private final int totalHits;
+        private final boolean answers;
+        private Query query;
+        boolean sent = false;
+        boolean closed = false;
+
+        AnsweringInvoker(int totalHits, boolean answers) {
+            super(Optional.empty());
+            this.totalHits = totalHits;
+            this.answers = answers;
+        }
+
+        @Override
+        protected void sendSearchRequest(Query query) {
+            this.query = query;
+            sent = true;
+            if (answers)
+                responseAvailable();
+        }
+
+        @Override
+        protected InvokerResult getSearchResult(Execution execution) {
+            InvokerResult result = new InvokerResult(query, 10);
+            result.getResult().setTotalHitCount(totalHits);
+            result.getResult().setCoverage(new Coverage(1, 1, 1, 1));
+            return result;
+        }
+
+        @Override
+        protected void release() {
+            closed = true;
+        }
+
+    }
+
+}
@@ -1,8 +1,10 @@
 // Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.dispatch;
 
+import com.yahoo.container.protect.Error;
 import com.yahoo.document.GlobalId;
 import com.yahoo.document.idstring.IdString;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.prelude.fastsearch.FastHit;
 import com.yahoo.prelude.fastsearch.GroupingListHit;
 import com.yahoo.search.Query;
@@ -22,11 +24,14 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 import static com.yahoo.container.handler.Coverage.DEGRADED_BY_MATCH_PHASE;
@@ -270,6 +275,107 @@ public class InterleavedSearchInvokerTest {
         assertEquals(3, result.getQuery().getHits());
     }
 
+    @Test
+    public void requireThatPrefetchedSummariesAreUsedForHitsInTheWindow() throws IOException {
+        InterleavedSearchInvoker invoker = createInterLeavedTestInvoker(A5, B5);
+        query.setHits(3);
+        Map<String, Number> metrics = new HashMap<>();
+        List<Integer> fillSizes = new ArrayList<>();
+        invoker.setSummaryPrefetcher(new SummaryPrefetcher(query, "prefetched", result -> new FillInvoker() {
+            @Override
+            protected void sendFillRequest(Result result, String summaryClass) {
+                fillSizes.add(result.hits().size());
+            }
+            @Override
+            protected void getFillResults(Result result, String summaryClass) {
+                result.hits().asList().forEach(hit -> hit.setFilled(summaryClass));
+            }
+            @Override
+            protected void release() { }
+        }, new RecordingMetric(metrics), null));
+        Result result = invoker.search(query, null);
+
+        // The first reply prefetches 11, 8.5 and 7.5, the second 9, which pushes 7.5 out of the window
+        assertEquals(List.of(3, 1), fillSizes);
+        assertEquals(3, result.hits().size());
+        assertEquals(11.0, result.hits().get(0).getRelevance().getScore(), DELTA);
+        assertEquals(9.0, result.hits().get(1).getRelevance().getScore(), DELTA);
+        assertEquals(8.5, result.hits().get(2).getRelevance().getScore(), DELTA);
+        assertTrue(result.isFilled("prefetched"));
+        assertEquals(4, metrics.get(SummaryPrefetcher.PREFETCHED_METRIC));
+        assertEquals(1, metrics.get(SummaryPrefetcher.WASTED_METRIC));
+    }
+
+    @Test
+    public void requireThatPrefetchErrorsAreAddedToTheResultAndFailedHitsAreNotUsed() throws IOException {
+        InterleavedSearchInvoker invoker = createInterLeavedTestInvoker(A5, B5);
+        query.setHits(3);
+        invoker.setSummaryPrefetcher(new SummaryPrefetcher(query, "prefetched", result -> new FillInvoker() {
+            @Override
+            protected void sendFillRequest(Result result, String summaryClass) { }
+            @Override
+            protected void getFillResults(Result result, String summaryClass) {
+                if (result.hits().size() == 1) // the fill of the second reply fails
+                    result.hits().addError(ErrorMessage.createTimeout("Summary data is incomplete"));
+                else
+                    result.hits().asList().forEach(hit -> hit.setFilled(summaryClass));
+            }
+            @Override
+            protected void release() { }
+        }, new RecordingMetric(new HashMap<>()), null));
+        Result result = invoker.search(query, null);
+
+        assertEquals(Error.TIMEOUT.code, result.hits().getError().getCode());
+        List<Hit> hits = result.hits().asList().stream().filter(hit -> ! hit.isMeta()).collect(Collectors.toList());
+        assertEquals(3, hits.size());
+        assertTrue(hits.get(0).isFilled("prefetched"));
+        assertFalse(hits.get(1).isFilled("prefetched"));
+        assertEquals(9.0, hits.get(1).getRelevance().getScore(), DELTA);
+        assertTrue(hits.get(2).isFilled("prefetched"));
+    }
+
+    @Test
+    public void requireThatPrefetchesOfWastedHitsAreNotWaitedFor() throws IOException {
+        InterleavedSearchInvoker invoker = createInterLeavedTestInvoker(B5, A5);
+        query.setHits(1);
+        List<Integer> waitedFor = new ArrayList<>();
+        List<Integer> released = new ArrayList<>();
+        invoker.setSummaryPrefetcher(new SummaryPrefetcher(query, "prefetched", result -> new FillInvoker() {
+            @Override
+            protected void sendFillRequest(Result result, String summaryClass) { }
+            @Override
+            protected void getFillResults(Result result, String summaryClass) {
+                waitedFor.add((int)result.hits().get(0).getRelevance().getScore());
+                result.hits().asList().forEach(hit -> hit.setFilled(summaryClass));
+            }
+            @Override
+            protected void release() { released.add(1); }
+        }, new RecordingMetric(new HashMap<>()), null));
+        Result result = invoker.search(query, null);
+
+        // The first reply prefetches 9, which the second pushes out of the window with 11
+        assertEquals(List.of(11), waitedFor);
+        assertEquals(2, released.size());
+        assertTrue(result.isFilled("prefetched"));
+    }
+
+    private static class RecordingMetric implements Metric {
+
+        private final Map<String, Number> values;
+
+        RecordingMetric(Map<String, Number> values) { this.values = values; }
+
+        @Override
+        public void set(String key, Number value, Context context) { values.put(key, value); }
+
+        @Override
+        public void add(String key, Number value, Context context) { values.merge(key, value, (a, b) -> a.intValue() + b.intValue()); }
+
+        @Override
+        public Context createContext(Map<String, ?> properties) { return null; }
+
+    }
+
     private static InterleavedSearchInvoker createInterLeavedTestInvoker(List<Double> a, List<Double> b) {
         SearchCluster cluster = new MockSearchCluster("!", 1, 2);
         List<SearchInvoker> invokers = new ArrayList<>();
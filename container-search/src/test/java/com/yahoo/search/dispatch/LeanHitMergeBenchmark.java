@@ -0,0 +1,103 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Compares merging the hit lists from many content nodes using {@link LeanHitMerger} with
+ * the pairwise merge previously done each time a node answered.
+ *
+ * Run with e.g. <code>java -cp ... com.yahoo.search.dispatch.LeanHitMergeBenchmark</code>
+ */
+public class LeanHitMergeBenchmark {
+
+    private static final int WINDOW = 400;
+    private static final int ROUNDS = 2000;
+
+    private long sink = 0;
+
+    private static List<List<LeanHit>> createReplies(int nodes, Random random) {
+        List<List<LeanHit>> replies = new ArrayList<>(nodes);
+        for (int node = 0; node < nodes; node++) {
+            List<LeanHit> hits = new ArrayList<>(WINDOW);
+            for (int i = 0; i < WINDOW; i++) {
+                byte[] gid = new byte[12];
+                random.nextBytes(gid);
+                hits.add(new LeanHit(gid, 0, node, random.nextDouble()));
+            }
+            Collections.sort(hits);
+            replies.add(hits);
+        }
+        return replies;
+    }
+
+    private void heapMerge(List<List<LeanHit>> replies) {
+        LeanHitMerger merger = new LeanHitMerger(WINDOW);
+        for (List<LeanHit> reply : replies)
+            merger.add(reply);
+        List<LeanHit> result = new ArrayList<>(WINDOW);
+        merger.mergeInto(0, result);
+        sink += result.size();
+    }
+
+    private void pairwiseMerge(List<List<LeanHit>> replies) {
+        List<LeanHit> current = Collections.emptyList();
+        for (List<LeanHit> partial : replies) {
+            if (current.isEmpty()) {
+                current = partial;
+                continue;
+            }
+            List<LeanHit> merged = new ArrayList<>(WINDOW);
+            int indexCurrent = 0;
+            int indexPartial = 0;
+            while (indexCurrent < current.size() && indexPartial < partial.size() && merged.size() < WINDOW) {
+                int cmpRes = current.get(indexCurrent).compareTo(partial.get(indexPartial));
+                if (cmpRes < 0) {
+                    merged.add(current.get(indexCurrent++));
+                } else if (cmpRes > 0) {
+                    merged.add(partial.get(indexPartial++));
+                } else {
+                    merged.add(current.get(indexCurrent++));
+                    indexPartial++;
+                }
+            }
+            while ((indexCurrent < current.size()) && (merged.size() < WINDOW))
+                merged.add(current.get(indexCurrent++));
+            while ((indexPartial < partial.size()) && (merged.size() < WINDOW))
+                merged.add(partial.get(indexPartial++));
+            current = merged;
+        }
+        sink += current.size();
+    }
+
+    private double nanosPerMerge(Runnable merge, int rounds) {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++)
+            merge.run();
+        return (double) (System.nanoTime() - start) / rounds;
+    }
+
+    public void run() {
+        Random random = new Random(1);
+        for (int nodes : new int[] { 10, 50, 100, 200, 500 }) {
+            List<List<LeanHit>> replies = createReplies(nodes, random);
+            int rounds = Math.max(20, ROUNDS * 10 / nodes);
+            nanosPerMerge(() -> pairwiseMerge(replies), rounds); // warmup
+            nanosPerMerge(() -> heapMerge(replies), rounds);
+            double pairwise = nanosPerMerge(() -> pairwiseMerge(replies), rounds);
+            double heap = nanosPerMerge(() -> heapMerge(replies), rounds);
+            System.out.println(String.format(Locale.US, "%3d nodes, %d hits: pairwise %9.1f us, k-way heap %9.1f us",
+                                             nodes, WINDOW, pairwise / 1000, heap / 1000));
+        }
+        System.out.println("(" + sink + ")");
+    }
+
+    public static void main(String[] args) {
+        new LeanHitMergeBenchmark().run();
+    }
+
+}
@@ -0,0 +1,96 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LeanHitMergerTest {
+
+    @Test
+    public void requireThatListsAreMergedInOrder() {
+        LeanHitMerger merger = new LeanHitMerger(10);
+        merger.add(List.of(hit('a', 9), hit('b', 5), hit('c', 1)));
+        merger.add(Collections.emptyList());
+        merger.add(List.of(hit('d', 8), hit('e', 7), hit('f', 2)));
+        merger.add(List.of(hit('g', 6)));
+
+        assertEquals("adegbfc", gids(merge(merger, 0)));
+    }
+
+    @Test
+    public void requireThatWindowIsRespected() {
+        LeanHitMerger merger = new LeanHitMerger(4);
+        merger.add(List.of(hit('a', 9), hit('b', 5), hit('c', 1)));
+        merger.add(List.of(hit('d', 8), hit('e', 7), hit('f', 2)));
+
+        assertEquals("eb", gids(merge(merger, 2)));
+    }
+
+    @Test
+    public void requireThatSingleListIsWindowed() {
+        LeanHitMerger merger = new LeanHitMerger(3);
+        merger.add(List.of(hit('a', 9), hit('b', 5), hit('c', 1), hit('d', 0)));
+
+        assertEquals("bc", gids(merge(merger, 1)));
+    }
+
+    @Test
+    public void requireThatDuplicatesAreRemovedKeepingTheFirstAdded() {
+        LeanHit first = new LeanHit(new byte[] { 'b' }, 0, 1, 5);
+        LeanHit second = new LeanHit(new byte[] { 'b' }, 0, 2, 5);
+        LeanHitMerger merger = new LeanHitMerger(3);
+        merger.add(List.of(hit('a', 9), first));
+        merger.add(List.of(second, hit('c', 1)));
+
+        List<LeanHit> merged = merge(merger, 0);
+        assertEquals("abc", gids(merged));
+        assertSame(first, merged.get(1));
+    }
+
+    @Test
+    public void requireThatMergeEqualsSortingAllHits() {
+        Random random = new Random(1);
+        for (int nodes : new int[] { 2, 7, 100 }) {
+            List<LeanHit> all = new ArrayList<>();
+            LeanHitMerger merger = new LeanHitMerger(50);
+            for (int node = 0; node < nodes; node++) {
+                List<LeanHit> hits = new ArrayList<>();
+                for (int i = 0; i < 20; i++)
+                    hits.add(new LeanHit(new byte[] { (byte) node, (byte) i }, 0, node, random.nextDouble()));
+                Collections.sort(hits);
+                all.addAll(hits);
+                merger.add(hits);
+            }
+            Collections.sort(all);
+            List<LeanHit> merged = merge(merger, 10);
+            assertEquals(all.subList(10, Math.min(50, all.size())), merged);
+            assertTrue(merged.size() <= 40);
+        }
+    }
+
+    private static List<LeanHit> merge(LeanHitMerger merger, int offset) {
+        List<LeanHit> merged = new ArrayList<>();
+        merger.mergeInto(offset, merged);
+        return merged;
+    }
+
+    private static LeanHit hit(char gid, double relevance) {
+        return new LeanHit(new byte[] { (byte) gid }, 0, 0, relevance);
+    }
+
+    private static String gids(List<LeanHit> hits) {
+        StringBuilder b = new StringBuilder();
+        for (LeanHit hit : hits)
+            b.append((char) hit.getGid()[0]);
+        return b.toString();
+    }
+
+}
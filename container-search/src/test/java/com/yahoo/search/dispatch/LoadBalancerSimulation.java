@@ -0,0 +1,134 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.search.dispatch.searchcluster.Group;
+import com.yahoo.search.dispatch.searchcluster.SearchCluster;
+import com.yahoo.vespa.config.search.DispatchConfig.DistributionPolicy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * A discrete event simulation comparing the group selection policies of {@link LoadBalancer}
+ * on query latency percentiles.
+ *
+ * Each group replays a latency distribution, either recorded (one file per group, one latency
+ * in milliseconds per line, given as arguments) or synthetic, where one group is slower than the others.
+ * The sampled latency of a query is inflated by the number of queries already in flight to the group,
+ * and queries arrive in bursts, which is where policies ignoring queries in flight do poorly.
+ *
+ * Run with e.g. <code>java -cp ... com.yahoo.search.dispatch.LoadBalancerSimulation [latencies-group-0.txt ...]</code>
+ */
+public class LoadBalancerSimulation {
+
+    private static final int QUERIES = 500_000;
+    private static final double BASE_QPS = 800;
+    private static final double BURST_QPS = 2400;
+    private static final double BURST_FRACTION = 0.1;
+    private static final int CONCURRENCY_PER_GROUP = 8;
+
+    private final List<double[]> latencies;
+
+    private LoadBalancerSimulation(List<double[]> latencies) {
+        this.latencies = latencies;
+    }
+
+    private static class Completion implements Comparable<Completion> {
+
+        final double time;
+        final Group group;
+        final double latency;
+
+        Completion(double time, Group group, double latency) {
+            this.time = time;
+            this.group = group;
+            this.latency = latency;
+        }
+
+        @Override
+        public int compareTo(Completion other) { return Double.compare(time, other.time); }
+
+    }
+
+    private void run(DistributionPolicy.Enum policy) {
+        SearchCluster cluster = new MockSearchCluster("simulation", latencies.size(), 1);
+        LoadBalancer loadBalancer = new LoadBalancer(cluster, policy);
+        Random random = new Random(42);
+        PriorityQueue<Completion> pending = new PriorityQueue<>();
+        int[] inFlight = new int[latencies.size()];
+        int[] queriesPerGroup = new int[latencies.size()];
+        double[] observed = new double[QUERIES];
+
+        double now = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            boolean burst = (i % 10_000) < 10_000 * BURST_FRACTION;
+            now += -Math.log(1 - random.nextDouble()) * 1000.0 / (burst ? BURST_QPS : BASE_QPS);
+            while ( ! pending.isEmpty() && pending.peek().time <= now) {
+                Completion done = pending.poll();
+                inFlight[done.group.id()]--;
+                loadBalancer.releaseGroup(done.group, true, done.latency);
+            }
+
+            Group group = loadBalancer.takeGroup(null).get();
+            double[] distribution = latencies.get(group.id());
+            double latency = distribution[random.nextInt(distribution.length)]
+                             * (1.0 + (double) inFlight[group.id()] / CONCURRENCY_PER_GROUP);
+            inFlight[group.id()]++;
+            queriesPerGroup[group.id()]++;
+            observed[i] = latency;
+            pending.add(new Completion(now + latency, group, latency));
+        }
+
+        Arrays.sort(observed);
+        System.out.println(String.format(Locale.US, "%-17s p50 %8.2f ms  p99 %8.2f ms  p99.9 %8.2f ms  queries per group %s",
+                                         policy, percentile(observed, 50), percentile(observed, 99),
+                                         percentile(observed, 99.9), Arrays.toString(queriesPerGroup)));
+    }
+
+    private static double percentile(double[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    /** Lognormal latencies around the given median, with one group twice as slow as the others */
+    private static List<double[]> syntheticLatencies(int groups, double medianMs) {
+        Random random = new Random(7);
+        List<double[]> latencies = new ArrayList<>();
+        for (int group = 0; group < groups; group++) {
+            double median = (group == 0) ? 2 * medianMs : medianMs;
+            double[] samples = new double[10_000];
+            for (int i = 0; i < samples.length; i++)
+                samples[i] = median * Math.exp(0.5 * random.nextGaussian());
+            latencies.add(samples);
+        }
+        return latencies;
+    }
+
+    private static double[] readLatencies(String file) throws IOException {
+        return Files.readAllLines(Path.of(file)).stream()
+                    .map(String::trim)
+                    .filter(line -> ! line.isEmpty())
+                    .mapToDouble(Double::parseDouble)
+                    .toArray();
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<double[]> latencies = new ArrayList<>();
+        for (String file : args)
+            latencies.add(readLatencies(file));
+        if (latencies.size() < 2)
+            latencies = syntheticLatencies(4, 10.0);
+
+        LoadBalancerSimulation simulation = new LoadBalancerSimulation(latencies);
+        for (DistributionPolicy.Enum policy : DistributionPolicy.Enum.values())
+            simulation.run(policy);
+    }
+
+}
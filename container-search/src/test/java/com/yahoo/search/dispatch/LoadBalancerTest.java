@@ -2,6 +2,7 @@
 package com.yahoo.search.dispatch;
 
 import com.yahoo.search.dispatch.LoadBalancer.AdaptiveScheduler;
+import com.yahoo.search.dispatch.LoadBalancer.BestOfRandom2Scheduler;
 import com.yahoo.search.dispatch.LoadBalancer.GroupStatus;
 import com.yahoo.search.dispatch.searchcluster.Group;
 import com.yahoo.search.dispatch.searchcluster.Node;
@@ -14,6 +15,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
 
 import static com.yahoo.search.dispatch.MockSearchCluster.createDispatchConfig;
 import static org.hamcrest.Matchers.closeTo;
@@ -156,6 +158,61 @@ public class LoadBalancerTest {
         assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(4));
     }
 
+    @Test
+    public void requireThatBestOfRandom2SchedulerPrefersFasterGroup() {
+        List<GroupStatus> scoreboard = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            GroupStatus gs = newGroupStatus(i);
+            gs.setQueryStatistics(1, 0.1 * (i + 1));
+            scoreboard.add(gs);
+        }
+        BestOfRandom2Scheduler sched = new BestOfRandom2Scheduler(new Random(1), scoreboard);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(0));
+        }
+    }
+
+    @Test
+    public void requireThatBestOfRandom2SchedulerAvoidsGroupsWithQueriesInFlight() {
+        List<GroupStatus> scoreboard = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            GroupStatus gs = newGroupStatus(i);
+            gs.setQueryStatistics(1, 0.1);
+            scoreboard.add(gs);
+        }
+        BestOfRandom2Scheduler sched = new BestOfRandom2Scheduler(new Random(1), scoreboard);
+
+        GroupStatus first = sched.takeNextGroup(null).get();
+        first.allocate();
+        GroupStatus second = sched.takeNextGroup(null).get();
+        assertThat(second.groupId(), not(equalTo(first.groupId())));
+        second.allocate();
+        second.allocate();
+        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(first.groupId()));
+    }
+
+    @Test
+    public void requireThatBestOfRandom2SchedulerObeysRejectionsAndCoverage() {
+        List<GroupStatus> scoreboard = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            scoreboard.add(newGroupStatus(i));
+        }
+        scoreboard.add(new GroupStatus(new Group(3, Collections.emptyList()) {
+            @Override
+            public boolean hasSufficientCoverage() {
+                return false;
+            }
+        }));
+        BestOfRandom2Scheduler sched = new BestOfRandom2Scheduler(new Random(1), scoreboard);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(sched.takeNextGroup(Set.of(0, 2)).get().groupId(), equalTo(1));
+        }
+        assertThat(sched.takeNextGroup(Set.of(0, 1, 2)).get().groupId(), equalTo(3));
+        assertThat(sched.takeNextGroup(Set.of(0, 1, 2, 3)).isPresent(), is(false));
+    }
+
     private static void updateSearchTime(GroupStatus gs, double time) {
         gs.allocate();
         gs.release(true, time);
@@ -0,0 +1,224 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.prelude.fastsearch.FastHit;
+import com.yahoo.prelude.fastsearch.test.MockMetric;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.search.result.ErrorMessage;
+import com.yahoo.test.ManualClock;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResultCacheTest {
+
+    private final ManualClock clock = new ManualClock();
+
+    @Test
+    public void requireThatResultsAreCachedAndReplayed() throws IOException {
+        ResultCache cache = new ResultCache(10, 1 << 20, 1000, clock, new MockMetric());
+        Query query = new Query("?query=foo&hits=3");
+        ResultCache.Key key = cache.keyOf(query).get();
+        assertFalse(cache.get(key).isPresent());
+
+        cache.put(key, createResult(query, 3));
+        assertEquals(1, cache.size());
+        assertTrue(cache.byteSize() > 0);
+
+        Query again = new Query("?query=foo&hits=3");
+        ResultCache.Key sameKey = cache.keyOf(again).get();
+        assertEquals(key, sameKey);
+        Result result = new CachedSearchInvoker(cache.get(sameKey).get()).search(again, null);
+        assertEquals(3, result.getHitCount());
+        assertEquals(42, result.getTotalHitCount());
+        assertEquals(100, result.getCoverage(false).getDocs());
+        assertEquals(2.0, result.hits().get(0).getRelevance().getScore(), 0.0);
+        assertTrue(result.hits().get(0) instanceof FastHit);
+    }
+
+    @Test
+    public void requireThatKeyDependsOnRequestButNotTimeout() {
+        ResultCache cache = new ResultCache(10, 1 << 20, 1000, clock, new MockMetric());
+        ResultCache.Key key = cache.keyOf(new Query("?query=foo&timeout=1s")).get();
+        assertEquals(key, cache.keyOf(new Query("?query=foo&timeout=5s")).get());
+        assertNotEquals(key, cache.keyOf(new Query("?query=bar")).get());
+        assertNotEquals(key, cache.keyOf(new Query("?query=foo&ranking=other")).get());
+        assertNotEquals(key, cache.keyOf(new Query("?query=foo&sorting=-title")).get());
+        assertNotEquals(key, cache.keyOf(new Query("?query=foo&offset=10")).get());
+    }
+
+    @Test
+    public void requireThatUncacheableQueriesHaveNoKey() {
+        ResultCache cache = new ResultCache(10, 1 << 20, 1000, clock, new MockMetric());
+        assertFalse(cache.keyOf(new Query("?query=foo&nocache")).isPresent());
+        assertFalse(cache.keyOf(new Query("?query=foo&cachecontrol.nocache=true")).isPresent());
+        assertFalse(cache.keyOf(new Query("?query=foo&cachecontrol.maxage=0")).isPresent());
+        assertFalse(cache.keyOf(new Query("?query=foo&ranking.queryCache=true")).isPresent());
+        assertFalse(new ResultCache(0, 1 << 20, 1000, clock, new MockMetric()).keyOf(new Query("?query=foo")).isPresent());
+    }
+
+    @Test
+    public void requireThatIncompleteResultsAreNotCached() {
+        ResultCache cache = new ResultCache(10, 1 << 20, 1000, clock, new MockMetric());
+        Query query = new Query("?query=foo");
+        ResultCache.Key key = cache.keyOf(query).get();
+
+        InvokerResult degraded = createResult(query, 2);
+        degraded.getResult().setCoverage(new Coverage(50, 100, 1, 1).setDegradedReason(Coverage.DEGRADED_BY_TIMEOUT));
+        cache.put(key, degraded);
+        assertEquals(0, cache.size());
+
+        InvokerResult error = createResult(query, 2);
+        error.getResult().hits().addError(ErrorMessage.createTimeout("timeout"));
+        cache.put(key, error);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void requireThatEntriesExpire() {
+        ResultCache cache = new ResultCache(10, 1 << 20, 1000, clock, new MockMetric());
+        Query query = new Query("?query=foo");
+        ResultCache.Key key = cache.keyOf(query).get();
+        cache.put(key, createResult(query, 2));
+
+        clock.advance(Duration.ofMillis(1000));
+        assertTrue(cache.get(key).isPresent());
+        clock.advance(Duration.ofMillis(1));
+        assertFalse(cache.get(key).isPresent());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.byteSize());
+    }
+
+    @Test
+    public void requireThatLeastRecentlyUsedEntriesAreEvicted() {
+        ResultCache cache = new ResultCache(2, 1 << 20, 1000, clock, new MockMetric());
+        ResultCache.Key a = put(cache, "a");
+        ResultCache.Key b = put(cache, "b");
+        cache.get(a);
+        ResultCache.Key c = put(cache, "c");
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.get(a).isPresent());
+        assertFalse(cache.get(b).isPresent());
+        assertTrue(cache.get(c).isPresent());
+    }
+
+    @Test
+    public void requireThatByteLimitIsEnforced() {
+        ResultCache cache = new ResultCache(100, 1000, 1000, clock, new MockMetric());
+        for (int i = 0; i < 20; i++)
+            put(cache, "term" + i);
+        assertTrue(cache.size() < 20);
+        assertTrue(cache.byteSize() <= 1000);
+    }
+
+    @Test
+    public void requireThatServingCachedResultsDoesNotChangeTheQuery() throws IOException {
+        ResultCache cache = new ResultCache(10, 1 << 20, 1000, clock, new MockMetric());
+        Query query = new Query("?query=foo&offset=10&hits=3");
+        ResultCache.Key key = cache.keyOf(query).get();
+        cache.put(key, createResult(query, 3));
+
+        Query again = new Query("?query=foo&offset=10&hits=3");
+        Result result = new CachedSearchInvoker(cache.get(cache.keyOf(again).get()).get()).search(again, null);
+        assertEquals(3, result.getHitCount());
+        assertEquals(10, again.getOffset());
+        assertEquals(3, again.getHits());
+
+        Query estimate = new Query("?query=foo&offset=10&hits=3");
+        ResultCache.Key estimateKey = cache.keyOf(estimate).get();
+        estimate.setHits(0);
+        result = new CachedSearchInvoker(cache.get(estimateKey).get()).search(estimate, null);
+        assertEquals(0, result.getHitCount());
+        assertEquals(42, result.getTotalHitCount());
+        assertEquals(10, estimate.getOffset());
+    }
+
+    @Test
+    public void requireThatInvalidationIsPerDocumentType() {
+        ResultCache cache = new ResultCache(10, 1 << 20, 1000, clock, new MockMetric());
+        Query music = new Query("?query=foo");
+        music.getModel().setDocumentDb("music");
+        Query books = new Query("?query=foo");
+        books.getModel().setDocumentDb("books");
+        ResultCache.Key musicKey = cache.keyOf(music).get();
+        ResultCache.Key booksKey = cache.keyOf(books).get();
+        cache.put(musicKey, createResult(music, 1));
+        cache.put(booksKey, createResult(books, 1));
+
+        cache.invalidate("music");
+        assertFalse(cache.get(musicKey).isPresent());
+        assertTrue(cache.get(booksKey).isPresent());
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.byteSize());
+    }
+
+    @Test
+    public void requireThatResultsRequestedBeforeInvalidationAreNotCached() {
+        ResultCache cache = new ResultCache(10, 1 << 20, 1000, clock, new MockMetric());
+        Query query = new Query("?query=foo");
+        query.getModel().setDocumentDb("music");
+        ResultCache.Key key = cache.keyOf(query).get();
+
+        cache.invalidate("music");
+        cache.put(key, createResult(query, 1));
+        assertEquals(0, cache.size());
+
+        key = cache.keyOf(query).get();
+        cache.put(key, createResult(query, 1));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void requireThatChangedActiveDocumentsInvalidatesAllResults() {
+        ResultCache cache = new ResultCache(10, 1 << 20, 1000, clock, new MockMetric());
+        cache.setActiveDocuments(100);
+        ResultCache.Key key = put(cache, "foo");
+
+        cache.setActiveDocuments(100);
+        assertTrue(cache.get(key).isPresent());
+
+        cache.setActiveDocuments(101);
+        assertFalse(cache.get(key).isPresent());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void requireThatCacheWithEntriesMustHaveMaxAge() {
+        try {
+            new ResultCache(10, 1 << 20, 0, clock, new MockMetric());
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("A result cache with entries must have a positive max age"));
+        }
+        assertFalse(new ResultCache(0, 1 << 20, 0, clock, new MockMetric()).isEnabled());
+    }
+
+    private ResultCache.Key put(ResultCache cache, String term) {
+        Query query = new Query("?query=" + term);
+        ResultCache.Key key = cache.keyOf(query).get();
+        cache.put(key, createResult(query, 3));
+        return key;
+    }
+
+    private static InvokerResult createResult(Query query, int hits) {
+        InvokerResult result = new InvokerResult(query, hits);
+        for (int i = 0; i < hits; i++)
+            result.getLeanHits().add(new LeanHit(new byte[] { 'a', (byte)i }, 0, 0, hits - i - 1));
+        result.getResult().setTotalHitCount(42);
+        result.getResult().setCoverage(new Coverage(100, 100, 1, 1));
+        return result;
+    }
+
+}
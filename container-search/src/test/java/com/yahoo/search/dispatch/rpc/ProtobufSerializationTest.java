@@ -4,6 +4,8 @@ package com.yahoo.search.dispatch.rpc;
 
 import ai.vespa.searchlib.searchprotocol.protobuf.SearchProtocol;
 import com.google.protobuf.ByteString;
+import com.yahoo.compress.CompressionType;
+import com.yahoo.compress.Compressor;
 import com.yahoo.document.GlobalId;
 import com.yahoo.document.idstring.IdString;
 import com.yahoo.prelude.fastsearch.FastHit;
@@ -17,6 +19,7 @@ import java.util.Collections;
 import java.util.List;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
@@ -97,4 +100,49 @@ public class ProtobufSerializationTest {
             hitNum++;
         }
     }
+
+    @Test
+    public void testSearchReplyReadingFromWireFormat() throws IOException {
+        Query q = new Query("search/?query=test");
+        var reply = createSearchReply(5, true).toBuilder()
+                .setCoverageDocs(90).setActiveDocs(100).setSoonActiveDocs(110).setDegradedBySoftTimeout(true).build();
+        Compressor compressor = new Compressor();
+        var compressed = compressor.compress(CompressionType.LZ4, reply.toByteArray());
+        assertEquals(CompressionType.LZ4, compressed.type());
+        var payload = ReplyPayload.of(new Client.ProtobufResponse(compressed.type().getCode(), compressed.uncompressedSize(),
+                                                                  compressed.data()), compressor);
+
+        InvokerResult result = SearchReplyReader.read(payload, q, null, 1, 2, 100);
+        InvokerResult expected = ProtobufSerialization.convertToResult(q, reply, null, 1, 2);
+        assertEquals(7, result.getResult().getTotalHitCount());
+        assertEquals(90, result.getResult().getCoverage(false).getDocs());
+        assertEquals(100, result.getResult().getCoverage(false).getActive());
+        assertEquals(110, result.getResult().getCoverage(false).getSoonActive());
+        assertTrue(result.getResult().getCoverage(false).isDegradedByTimeout());
+        assertFalse(result.getResult().getCoverage(false).isDegradedByMatchPhase());
+        assertEquals(expected.getLeanHits().size(), result.getLeanHits().size());
+        for (int i = 0; i < expected.getLeanHits().size(); i++) {
+            LeanHit expectedHit = expected.getLeanHits().get(i);
+            LeanHit hit = result.getLeanHits().get(i);
+            assertArrayEquals(expectedHit.getGid(), hit.getGid());
+            assertArrayEquals(expectedHit.getSortData(), hit.getSortData());
+            assertEquals(1, hit.getPartId());
+            assertEquals(2, hit.getDistributionKey());
+        }
+    }
+
+    @Test
+    public void testSearchReplyReadingSkipsHitsOutsideWindow() throws IOException {
+        Query q = new Query("search/?query=test");
+        byte[] bytes = createSearchReply(5, false).toByteArray();
+        var payload = ReplyPayload.of(new Client.ProtobufResponse(CompressionType.NONE.getCode(), bytes.length, bytes),
+                                      new Compressor());
+
+        InvokerResult result = SearchReplyReader.read(payload, q, null, 1, 2, 3);
+        assertEquals(7, result.getResult().getTotalHitCount());
+        assertEquals(3, result.getLeanHits().size());
+        assertEquals(5.0, result.getLeanHits().get(0).getRelevance(), DELTA);
+        assertEquals(3.0, result.getLeanHits().get(2).getRelevance(), DELTA);
+    }
+
 }
@@ -20,6 +20,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -67,6 +69,29 @@ public class RpcSearchInvokerTest {
         assertEquals(maxHits, request.getHits());
     }
 
+    @Test
+    public void testSerializedRequestIsSharedThroughContext() throws IOException {
+        var compressionTypeHolder = new AtomicReference<CompressionType>();
+        var payloadHolder = new AtomicReference<byte[]>();
+        var lengthHolder = new AtomicInteger();
+        var mockClient = parameterCollectorClient(compressionTypeHolder, payloadHolder, lengthHolder);
+        var mockPool = new RpcResourcePool(ImmutableMap.of(7, mockClient.createConnection("foo", 123),
+                                                           8, mockClient.createConnection("foo", 124)));
+        var invoker1 = new RpcSearchInvoker(mockSearcher(), new Node(7, "seven", 1), mockPool, 1000);
+        var invoker2 = new RpcSearchInvoker(mockSearcher(), new Node(8, "eight", 1), mockPool, 1000);
+        var invoker3 = new RpcSearchInvoker(mockSearcher(), new Node(8, "eight", 1), mockPool, 5);
+
+        Query q = new Query("search/?query=test&hits=10&offset=3");
+        Object context = invoker1.sendSearchRequest(q, null);
+        byte[] firstPayload = payloadHolder.get();
+        assertSame(context, invoker2.sendSearchRequest(q, context));
+        assertSame(firstPayload, payloadHolder.get());
+
+        assertNotSame(context, invoker3.sendSearchRequest(q, context));
+        var bytes = mockPool.compressor().decompress(payloadHolder.get(), compressionTypeHolder.get(), lengthHolder.get());
+        assertEquals(5, SearchProtocol.SearchRequest.newBuilder().mergeFrom(bytes).build().getHits());
+    }
+
     private Client parameterCollectorClient(AtomicReference<CompressionType> compressionTypeHolder, AtomicReference<byte[]> payloadHolder,
             AtomicInteger lengthHolder) {
         return new Client() {
@@ -130,6 +130,7 @@ public class AsyncGroupPopulationTestCase {
                 result.getQuery());
         WrappedFuture<DataList<Hit>> x = (WrappedFuture<DataList<Hit>>) h.incoming().completed();
         x.isListening.get(86_400_000);
+        assertTrue("Hits rendered before the group completes are written before waiting", waitForOutput(out, "yahoo1"));
         h.incoming().add(new Hit("yahoo2"));
         h.incoming().markComplete();
         Boolean b = f.get();
@@ -141,4 +142,12 @@ public class AsyncGroupPopulationTestCase {
         assertEquals(expected, got);
     }
 
+    private static boolean waitForOutput(ByteArrayOutputStream out, String expected) throws InterruptedException {
+        for (int i = 0; i < 60_000; i++) {
+            if (Utf8.toString(out.toByteArray()).contains(expected)) return true;
+            Thread.sleep(1);
+        }
+        return false;
+    }
+
 }
@@ -1232,6 +1232,56 @@ public class JsonRendererTestCase {
         assertEqualJson(expected, summary);
     }
 
+    @Test
+    public void testAllValueTypesInStructuredField() throws IOException, InterruptedException, ExecutionException {
+        String expected = "{"
+                + "    \"root\": {"
+                + "        \"children\": ["
+                + "            {"
+                + "                \"fields\": {"
+                + "                    \"structured\": {"
+                + "                        \"empty\": null,"
+                + "                        \"bool\": true,"
+                + "                        \"long\": 7809531904,"
+                + "                        \"double\": 0.25,"
+                + "                        \"nan\": null,"
+                + "                        \"string\": \"bl\u00e5b\u00e6r \\\"quoted\\\"\","
+                + "                        \"data\": \"0x01AB\","
+                + "                        \"array\": [1, [], {}]"
+                + "                    }"
+                + "                },"
+                + "                \"id\": \"structured\","
+                + "                \"relevance\": 1.0"
+                + "            }"
+                + "        ],"
+                + "        \"fields\": {"
+                + "            \"totalCount\": 0"
+                + "        },"
+                + "        \"id\": \"toplevel\","
+                + "        \"relevance\": 1.0"
+                + "    }"
+                + "}";
+        Slime slime = new Slime();
+        Cursor c = slime.setObject();
+        c.setNix("empty");
+        c.setBool("bool", true);
+        c.setLong("long", 7809531904L);
+        c.setDouble("double", 0.25);
+        c.setDouble("nan", Double.NaN);
+        c.setString("string", "bl\u00e5b\u00e6r \"quoted\"");
+        c.setData("data", new byte[] { 0x01, (byte)0xab });
+        Cursor array = c.setArray("array");
+        array.addLong(1);
+        array.addArray();
+        array.addObject();
+        Result r = newEmptyResult();
+        Hit h = new Hit("structured");
+        h.setField("structured", new StructuredData(new SlimeAdapter(slime.get())));
+        r.hits().add(h);
+        String summary = render(r);
+        assertEqualJson(expected, summary);
+    }
+
     @Test
     public void testThatTheJsonValidatorCanCatchErrors() {
         String json = "{"
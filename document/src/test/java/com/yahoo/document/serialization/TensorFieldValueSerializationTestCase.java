@@ -11,6 +11,7 @@ import com.yahoo.tensor.TensorType;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.List;
 
 import static com.yahoo.document.serialization.SerializationTestUtils.deserializeDocument;
 import static com.yahoo.document.serialization.SerializationTestUtils.serializeDocument;
@@ -40,6 +41,18 @@ public class TensorFieldValueSerializationTestCase {
         assertSerialization(createTensor(tensorType, "{{dimX:a,dimY:bb}:2.0,{dimX:ccc,dimY:dddd}:3.0,{dimX:e,dimY:ff}:5.0}"));
     }
 
+    @Test
+    public void requireThatTensorFieldValueOfEachValueTypeIsSerializedAndDeserialized() {
+        for (String valueType : List.of("double", "float", "bfloat16")) {
+            TensorType type = TensorType.fromSpec("tensor<" + valueType + ">(x{},y[2])");
+            DocumentType docType = new DocumentType("my_type");
+            docType.addField(TENSOR_FIELD, new TensorDataType(type));
+            TestDocumentFactory factory = new TestDocumentFactory(docType, "id:test:my_type::foo");
+            SerializationTestUtils.assertFieldInDocumentSerialization(factory, TENSOR_FIELD,
+                    createTensor(type, "{{x:a,y:0}:2.0,{x:a,y:1}:-0.5,{x:b,y:0}:1.5,{x:b,y:1}:3.0}"));
+        }
+    }
+
     @Test
     public void requireThatSerializationMatchesCpp() throws IOException {
         assertSerializationMatchesCpp("non_existing_tensor", new TensorFieldValue(tensorType));
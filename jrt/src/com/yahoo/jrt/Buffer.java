@@ -9,6 +9,7 @@ class Buffer {
 
     static final int MAX_IO = 65000;
 
+    private final BufferPool pool;
     private ByteBuffer buf;
     private int        readPos;
     private int        writePos;
@@ -58,35 +59,106 @@ class Buffer {
             if (buf.capacity() + free < minFree) {
                 size = buf.capacity() + minFree;
             }
-            ByteBuffer tmp = ByteBuffer.allocate(size);
+            ByteBuffer tmp = allocate(size);
             tmp.order(buf.order());
             buf.position(readPos);
             buf.limit(writePos);
             tmp.put(buf);
+            free(buf);
             buf = tmp;
             readPos = 0;
         }
     }
 
+    private ByteBuffer allocate(int size) {
+        if (pool != null && size <= pool.slabSize()) {
+            return pool.acquire();
+        }
+        return ByteBuffer.allocate(size);
+    }
+
+    private void free(ByteBuffer buffer) {
+        if (pool != null) {
+            pool.release(buffer);
+        }
+    }
+
     public Buffer(int size) {
+        pool = null;
         buf = ByteBuffer.allocate(size);
         readPos = 0;
         writePos = 0;
         readMode = false;
     }
 
+    /**
+     * Create a buffer which takes its storage from the given pool
+     * when data is written to it, and which can give it back when
+     * it is empty. Storage which must be larger than the slabs of
+     * the pool is allocated on the heap.
+     *
+     * @param pool the pool to take storage from
+     **/
+    public Buffer(BufferPool pool) {
+        this.pool = pool;
+        buf = null;
+        readPos = 0;
+        writePos = 0;
+        readMode = false;
+    }
+
+    /**
+     * Give the storage of this buffer back to its pool if the buffer
+     * is empty. The buffer can still be used after this; new
+     * storage is obtained when needed.
+     *
+     * @return whether this buffer is empty
+     **/
+    public boolean releaseIfEmpty() {
+        if (bytes() > 0) {
+            return false;
+        }
+        if (pool != null && buf != null) {
+            free(buf);
+            buf = null;
+            readPos = 0;
+            writePos = 0;
+            readMode = false;
+        }
+        return true;
+    }
+
+    /**
+     * Discard the content of this buffer, and give its storage back
+     * to its pool.
+     **/
+    public void release() {
+        if (buf == null) {
+            return;
+        }
+        readPos = 0;
+        writePos = 0;
+        readMode = false;
+        buf.clear();
+        releaseIfEmpty();
+    }
+
     public boolean shrink(int size) {
+        if (buf == null) {
+            return false;
+        }
         int rpos = readMode? buf.position() : readPos;
         int wpos = readMode? writePos : buf.position();
         int used = wpos - rpos;
         if (used > size || buf.capacity() <= size) {
             return false;
         }
-        ByteBuffer tmp = ByteBuffer.allocate(size);
+        ByteBuffer tmp = allocate(size);
         tmp.order(buf.order());
         buf.position(rpos);
         buf.limit(wpos);
         tmp.put(buf);
+        free(buf);
         buf = tmp;
         readPos = 0;
         writePos = used;
@@ -96,17 +168,26 @@ class Buffer {
     }
 
     public int bytes() {
+        if (buf == null) {
+            return 0;
+        }
         return (readMode)
             ? (writePos - buf.position())
             : (buf.position() - readPos);
     }
 
     public ByteBuffer getReadable() {
+        if (buf == null) {
+            return ByteBuffer.allocate(0);
+        }
         setReadMode();
         return buf;
     }
 
     public ByteBuffer getWritable(int minFree) {
+        if (buf == null) {
+            buf = allocate(minFree);
+        }
         setWriteMode();
         ensureFree(minFree);
         return buf;
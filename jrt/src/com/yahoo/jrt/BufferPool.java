@@ -0,0 +1,94 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+
+
+/**
+ * A pool of equally sized direct buffers (slabs) shared by the
+ * connections of a {@link TransportThread}. Connections only hold a
+ * slab while they have data in transit, so the number of slabs in use
+ * follows the number of busy connections rather than the number of
+ * open connections. Direct buffers are read into and written from by
+ * the socket channel without being copied to a temporary direct
+ * buffer first.
+ *
+ * This class is not thread-safe; it is only used by the owning
+ * transport thread.
+ **/
+class BufferPool {
+
+    static final int SLAB_SIZE = 64 * 1024;
+    static final int MAX_IDLE  = 64;
+
+    private final int slabSize;
+    private final int maxIdle;
+    private final ArrayDeque<ByteBuffer> idle = new ArrayDeque<>();
+    private final TransportMetrics metrics = TransportMetrics.getInstance();
+
+    BufferPool(int slabSize, int maxIdle) {
+        this.slabSize = slabSize;
+        this.maxIdle = maxIdle;
+    }
+
+    BufferPool() {
+        this(SLAB_SIZE, MAX_IDLE);
+    }
+
+    /**
+     * Obtain an empty big endian slab from this pool, allocating a
+     * new one if none is idle.
+     *
+     * @return an empty slab
+     **/
+    ByteBuffer acquire() {
+        ByteBuffer slab = idle.pollFirst();
+        if (slab == null) {
+            slab = ByteBuffer.allocateDirect(slabSize);
+            metrics.incrementPooledBuffersAllocated();
+        }
+        metrics.incrementPooledBuffersAcquired();
+        slab.clear();
+        slab.order(ByteOrder.BIG_ENDIAN);
+        return slab;
+    }
+
+    /**
+     * Return a buffer to this pool. Buffers which are not slabs of
+     * this pool are ignored, as are slabs in excess of the max number
+     * of idle slabs.
+     *
+     * @return whether the buffer was a slab of this pool
+     * @param buffer the buffer to return, which must not be used by
+     *        the caller after this
+     **/
+    boolean release(ByteBuffer buffer) {
+        if ( ! isSlab(buffer)) {
+            return false;
+        }
+        metrics.incrementPooledBuffersReleased();
+        if (idle.size() < maxIdle) {
+            idle.addFirst(buffer); // reuse the most recently used slab first, as it is more likely to be cached
+        }
+        return true;
+    }
+
+    /**
+     * @return whether the given buffer is a slab of this pool
+     * @param buffer the buffer to check
+     **/
+    boolean isSlab(ByteBuffer buffer) {
+        return buffer.isDirect() && buffer.capacity() == slabSize;
+    }
+
+    int slabSize() {
+        return slabSize;
+    }
+
+    int idle() {
+        return idle.size();
+    }
+}
@@ -32,10 +32,14 @@ class Connection extends Target {
     private int state = INITIAL;
     private final Queue  queue   = new Queue();
     private final Queue  myQueue = new Queue();
-    private final Buffer input   = new Buffer(READ_SIZE * 2);
-    private final Buffer output  = new Buffer(WRITE_SIZE * 2);
+    private final Buffer input;
+    private final Buffer output;
+    private ByteBuffer[] largePacket = null;
+    private int largePacketIndex = 0;
     private int maxInputSize  = 64*1024;
     private int maxOutputSize = 64*1024;
+    private int maxPendingRequests = 0;
+    private boolean readPaused = false;
     private final Map<Integer, ReplyHandler> replyMap = new HashMap<>();
     private final Map<TargetWatcher, TargetWatcher> watchers = new IdentityHashMap<>();
     private int activeReqs = 0;
@@ -48,6 +52,7 @@ class Connection extends Target {
     private int readSize = READ_SIZE;
     private final boolean server;
     private final AtomicLong requestId = new AtomicLong(0);
+    private final TransportMetrics metrics = TransportMetrics.getInstance();
     private SelectionKey selectionKey;
     private Exception lostReason = null;
 
@@ -93,6 +98,8 @@ class Connection extends Target {
 
         this.parent = parent;
         this.owner = owner;
+        this.input = new Buffer(parent.bufferPool());
+        this.output = new Buffer(parent.bufferPool());
         this.socket = parent.transport().createServerCryptoSocket(channel);
         this.spec = null;
         server = true;
@@ -103,6 +110,8 @@ class Connection extends Target {
         super(context);
         this.parent = parent;
         this.owner = owner;
+        this.input = new Buffer(parent.bufferPool());
+        this.output = new Buffer(parent.bufferPool());
         this.spec = spec;
         server = false;
         owner.sessionInit(this);
@@ -116,6 +125,14 @@ class Connection extends Target {
         maxOutputSize = bytes;
     }
 
+    public void setMaxPendingRequests(int requests) {
+        maxPendingRequests = requests;
+    }
+
+    public Supervisor owner() {
+        return owner;
+    }
+
     public TransportThread transportThread() {
         return parent;
     }
@@ -267,6 +284,9 @@ class Connection extends Target {
     private void handlePackets() throws IOException {
         ByteBuffer rb = input.getReadable();
         while (true) {
+            if (maxPendingRequests > 0 && pauseReadIfTooManyPendingRequests()) {
+                break;
+            }
             PacketInfo info = PacketInfo.getPacketInfo(rb);
             if (info == null || info.packetLength() > rb.remaining()) {
                 break;
@@ -291,9 +311,39 @@ class Connection extends Target {
         }
     }
 
+    /**
+     * Stop reading from this connection if it has as many pending
+     * requests as allowed. Reading is resumed when a request is
+     * completed.
+     *
+     * @return whether reading was paused
+     **/
+    private boolean pauseReadIfTooManyPendingRequests() {
+        synchronized (this) {
+            if (activeReqs < maxPendingRequests) {
+                return false;
+            }
+            readPaused = true;
+        }
+        disableRead();
+        metrics.incrementConnectionReadsPaused();
+        return true;
+    }
+
+    private synchronized boolean isReadPaused() {
+        return readPaused;
+    }
+
+    public void handleResumeRead() throws IOException {
+        if (state == CONNECTED) {
+            enableRead();
+            read();
+        }
+    }
+
     private void read() throws IOException {
         boolean doneRead = false;
-        for (int i = 0; !doneRead && i < READ_REDO; i++) {
+        for (int i = 0; !doneRead && i < READ_REDO && !isReadPaused(); i++) {
             ByteBuffer wb = input.getChannelWritable(readSize);
             if (socket.read(wb) == -1) {
                 throw new IOException("jrt: Connection closed by peer");
@@ -301,10 +351,10 @@ class Connection extends Target {
             doneRead = (wb.remaining() > 0);
             handlePackets();
         }
-        while (socket.drain(input.getChannelWritable(readSize)) > 0) {
+        while (!isReadPaused() && socket.drain(input.getChannelWritable(readSize)) > 0) {
             handlePackets();
         }
-        if (maxInputSize > 0) {
+        if (!input.releaseIfEmpty() && maxInputSize > 0) {
             input.shrink(maxInputSize);
         }
     }
@@ -324,27 +374,40 @@ class Connection extends Target {
             queue.flush(myQueue);
         }
         for (int i = 0; i < WRITE_REDO; i++) {
-            while (output.bytes() < WRITE_SIZE) {
+            while (largePacket == null && output.bytes() < WRITE_SIZE) {
                 Packet packet = (Packet) myQueue.dequeue();
                 if (packet == null) {
                     break;
                 }
                 PacketInfo info = packet.getPacketInfo();
-                ByteBuffer wb = output.getWritable(info.packetLength());
                 owner.writePacket(info);
-                info.encodePacket(packet, wb);
+                if (info.packetLength() > WRITE_SIZE) {
+                    DataReferences references = new DataReferences(WRITE_SIZE);
+                    largePacket = info.encodePacket(packet, references);
+                    largePacketIndex = 0;
+                    metrics.addUnbufferedDataBytesWritten(references.referencedBytes());
+                } else {
+                    ByteBuffer wb = output.getWritable(info.packetLength());
+                    info.encodePacket(packet, wb);
+                }
             }
             ByteBuffer rb = output.getChannelReadable();
-            if (rb.remaining() == 0) {
-                break;
-            }
-            socket.write(rb);
-            if (rb.remaining() > 0) {
-                break;
+            if (largePacket != null) {
+                if (!writeLargePacket(rb)) {
+                    break;
+                }
+            } else {
+                if (rb.remaining() == 0) {
+                    break;
+                }
+                socket.write(rb);
+                if (rb.remaining() > 0) {
+                    break;
+                }
             }
         }
         int myWriteWork = 0;
-        if (output.bytes() > 0) {
+        if (output.bytes() > 0 || largePacket != null) {
             myWriteWork++;
         }
         if (socket.flush() == CryptoSocket.FlushResult.NEED_WRITE) {
@@ -360,11 +423,48 @@ class Connection extends Target {
         if (disableWrite) {
             disableWrite();
         }
-        if (maxOutputSize > 0) {
+        if (!output.releaseIfEmpty() && maxOutputSize > 0) {
             output.shrink(maxOutputSize);
         }
     }
 
+    /**
+     * Write the readable bytes of the output buffer followed by the
+     * buffers of the large packet being written, with a single
+     * gathering write of at most MAX_IO bytes. Large packets are only
+     * started when the output buffer holds less than WRITE_SIZE
+     * bytes, so all of it fits in the given readable buffer.
+     *
+     * @return whether all the bytes passed to the socket were written
+     * @param rb the readable bytes of the output buffer
+     **/
+    private boolean writeLargePacket(ByteBuffer rb) throws IOException {
+        int count = largePacket.length - largePacketIndex;
+        ByteBuffer[] srcs = new ByteBuffer[count + 1];
+        srcs[0] = rb;
+        int budget = Buffer.MAX_IO - rb.remaining();
+        for (int i = 0; i < count; i++) {
+            ByteBuffer src = largePacket[largePacketIndex + i].duplicate();
+            src.limit(src.position() + Math.max(0, Math.min(src.remaining(), budget)));
+            budget -= src.remaining();
+            srcs[i + 1] = src;
+        }
+        socket.write(srcs);
+        boolean complete = !rb.hasRemaining();
+        for (int i = 0; i < count; i++) {
+            largePacket[largePacketIndex + i].position(srcs[i + 1].position());
+            complete &= !srcs[i + 1].hasRemaining();
+        }
+        while (largePacketIndex < largePacket.length && !largePacket[largePacketIndex].hasRemaining()) {
+            largePacketIndex++;
+        }
+        if (largePacketIndex == largePacket.length) {
+            largePacket = null;
+            largePacketIndex = 0;
+        }
+        return complete;
+    }
+
     public void handleWriteEvent() throws IOException {
         if (state == CONNECTED) {
             write();
@@ -377,6 +477,9 @@ class Connection extends Target {
 
     public void fini() {
         setState(CLOSED);
+        input.release();
+        output.release();
+        largePacket = null;
         if (selectionKey != null) {
             selectionKey.cancel();
         }
@@ -415,6 +518,7 @@ class Connection extends Target {
 
     public boolean completeRequest(TieBreaker done) {
         boolean signalFini = false;
+        boolean resumeRead = false;
         synchronized (this) {
             if (!done.first()) {
                 return false;
@@ -422,10 +526,17 @@ class Connection extends Target {
             if (--activeReqs == 0 && state == CLOSED) {
                 signalFini = true;
             }
+            if (readPaused && activeReqs < maxPendingRequests) {
+                readPaused = false;
+                resumeRead = true;
+            }
         }
         if (signalFini) {
             owner.sessionFini(this);
         }
+        if (resumeRead) {
+            parent.resumeRead(this);
+        }
         return true;
     }
 
@@ -82,6 +82,23 @@ public interface CryptoSocket {
      **/
     public int write(ByteBuffer src) throws IOException;
 
+    /**
+     * Write the given buffers in order, as a single gathering write
+     * if the output pipeline supports it. The semantics are the same
+     * as with a normal socket gathering write; a buffer is only
+     * written from when all buffers before it are fully written.
+     **/
+    default public long write(ByteBuffer[] srcs) throws IOException {
+        long written = 0;
+        for (ByteBuffer src : srcs) {
+            written += write(src);
+            if (src.hasRemaining()) {
+                break;
+            }
+        }
+        return written;
+    }
+
     public enum FlushResult { DONE, NEED_WRITE }
 
     /**
@@ -0,0 +1,91 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Collects the buffers of a packet encoded such that the bytes of
+ * large data values are referenced rather than copied into the
+ * encoding buffer. The packet is then written with a gathering write
+ * of the returned buffers in order.
+ **/
+class DataReferences
+{
+    private final int minSize;
+    private final List<ByteBuffer> buffers = new ArrayList<>();
+    private int start = 0;
+    private long referencedBytes = 0;
+
+    /**
+     * @param minSize the size of the smallest data value to reference
+     **/
+    DataReferences(int minSize) {
+        this.minSize = minSize;
+    }
+
+    /**
+     * @return whether the given value is referenced rather than copied
+     * @param value the value to check
+     **/
+    boolean isReferenced(Value value) {
+        return (value instanceof DataValue) && ((DataValue)value).length() >= minSize;
+    }
+
+    /**
+     * @return the number of bytes of the given values which will not
+     *         be copied into the encoding buffer
+     * @param values the values to check
+     **/
+    int referencedBytes(Values values) {
+        int bytes = 0;
+        for (int i = 0; i < values.size(); i++) {
+            if (isReferenced(values.get(i))) {
+                bytes += ((DataValue)values.get(i)).length();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Encode the length of the given value into the encoding buffer,
+     * and reference its bytes after the bytes encoded so far.
+     *
+     * @param value the value to reference
+     * @param dst the encoding buffer
+     **/
+    void encode(DataValue value, ByteBuffer dst) {
+        dst.putInt(value.length());
+        buffers.add(segment(dst));
+        ByteBuffer data = value.buffer();
+        referencedBytes += data.remaining();
+        buffers.add(data);
+    }
+
+    /**
+     * @return the buffers holding the encoded packet, in order
+     * @param dst the encoding buffer, positioned after the packet
+     **/
+    ByteBuffer[] finish(ByteBuffer dst) {
+        buffers.add(segment(dst));
+        return buffers.toArray(new ByteBuffer[0]);
+    }
+
+    /**
+     * @return the total number of bytes referenced so far
+     **/
+    long referencedBytes() {
+        return referencedBytes;
+    }
+
+    private ByteBuffer segment(ByteBuffer dst) {
+        ByteBuffer segment = dst.duplicate();
+        segment.limit(dst.position());
+        segment.position(start);
+        start = dst.position();
+        return segment.slice();
+    }
+}
@@ -11,6 +11,7 @@ import java.nio.ByteBuffer;
 public class DataValue extends Value
 {
     private byte[] value;
+    private ByteBuffer buffer;
 
     /**
      * Create from a Java-type value
@@ -19,6 +20,24 @@ public class DataValue extends Value
      **/
     public DataValue(byte[] value) { this.value = value; }
 
+    private DataValue() {}
+
+    /**
+     * Create a value referencing the remaining bytes of the given
+     * buffer without copying them. The bytes are written directly
+     * from the buffer when the value is sent, and are only copied if
+     * {@link #asData} is called. The buffer content must not be
+     * changed while the value is in use.
+     *
+     * @return a value referencing the content of the given buffer
+     * @param buffer the buffer holding the value
+     **/
+    public static DataValue wrap(ByteBuffer buffer) {
+        DataValue value = new DataValue();
+        value.buffer = buffer.slice();
+        return value;
+    }
+
     /**
      * Create by decoding the value from the given buffer
      *
@@ -36,17 +55,38 @@ public class DataValue extends Value
     public byte type() { return DATA; }
     public int count() { return 1; }
 
-    int bytes() { return 4 + value.length; }
+    /**
+     * @return the number of bytes in this value
+     **/
+    int length() { return (buffer != null) ? buffer.remaining() : value.length; }
+
+    /**
+     * @return a buffer holding the bytes of this value, which is not
+     *         a copy, but may be read from independently of other users
+     **/
+    ByteBuffer buffer() { return (buffer != null) ? buffer.duplicate() : ByteBuffer.wrap(value); }
+
+    int bytes() { return 4 + length(); }
     void encode(ByteBuffer dst) {
-        dst.putInt(value.length);
-        dst.put(value);
+        dst.putInt(length());
+        if (buffer != null) {
+            dst.put(buffer.duplicate());
+        } else {
+            dst.put(value);
+        }
     }
 
-    public byte[] asData() { return value; }
+    public byte[] asData() {
+        if (value == null) {
+            value = new byte[buffer.remaining()];
+            buffer.duplicate().get(value);
+        }
+        return value;
+    }
 
     @Override
     public String toString() {
-        return String.valueOf(value);
+        return String.valueOf(asData());
     }
 
 }
@@ -0,0 +1,74 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import com.yahoo.concurrent.ThreadFactoryFactory;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded pool of threads doing the handshake work (e.g. key
+ * exchange and certificate verification) of the connections of a
+ * {@link Transport}. When all threads are busy and the queue is full,
+ * as during a reconnect storm, connections needing more handshake work
+ * are closed rather than delaying the handshakes of all other
+ * connections; their peers will reconnect later.
+ **/
+class HandshakeWorkers {
+
+    static final int THREADS    = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors() / 2));
+    static final int MAX_QUEUED = 1024;
+
+    private final TransportMetrics metrics = TransportMetrics.getInstance();
+    private final ThreadPoolExecutor executor;
+
+    HandshakeWorkers(int threads, int maxQueued) {
+        executor = new ThreadPoolExecutor(threads, threads, 1L, TimeUnit.SECONDS,
+                                          new ArrayBlockingQueue<>(maxQueued),
+                                          ThreadFactoryFactory.getDaemonThreadFactory("jrt.handshake"));
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    HandshakeWorkers() {
+        this(THREADS, MAX_QUEUED);
+    }
+
+    /**
+     * Call {@link Connection#doHandshakeWork()} in a worker thread,
+     * followed by a call to {@link Connection#handleHandshakeWorkDone()}
+     * from the transport thread, or close the connection if no more
+     * work can be queued.
+     *
+     * @param conn the connection needing handshake work
+     **/
+    void doHandshakeWork(Connection conn) {
+        try {
+            executor.execute(() -> {
+                conn.doHandshakeWork();
+                conn.transportThread().handshakeWorkDone(conn);
+            });
+        } catch (RejectedExecutionException e) {
+            metrics.incrementHandshakeWorkRejected();
+            conn.setLostReason(new IOException("jrt: too much pending handshake work"));
+            conn.transportThread().closeConnection(conn);
+        }
+    }
+
+    HandshakeWorkers shutdown() {
+        executor.shutdown();
+        return this;
+    }
+
+    void join() {
+        while (true) {
+            try {
+                if (executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {}
+        }
+    }
+}
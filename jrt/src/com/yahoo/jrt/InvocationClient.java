@@ -58,7 +58,7 @@ class InvocationClient implements ReplyHandler, Runnable {
                 req.setError(ep.errorCode(), ep.errorMessage());
             }
         }
-        reqWaiter.handleRequestDone(req);
+        conn.owner().handleRequestDone(reqWaiter, req);
     }
 
     /**
@@ -79,7 +79,7 @@ class InvocationClient implements ReplyHandler, Runnable {
     public void handleConnectionDown() {
         timeoutTask.kill();
         req.setError(ErrorCode.CONNECTION, "Connection error");
-        reqWaiter.handleRequestDone(req);
+        conn.owner().handleRequestDone(reqWaiter, req);
     }
 
     /**
@@ -90,6 +90,6 @@ class InvocationClient implements ReplyHandler, Runnable {
             return;
         }
         req.setError(ErrorCode.TIMEOUT, "Request timed out after " + timeout + " seconds.");
-        reqWaiter.handleRequestDone(req);
+        conn.owner().handleRequestDone(reqWaiter, req);
     }
 }
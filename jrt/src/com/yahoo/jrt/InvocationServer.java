@@ -43,6 +43,15 @@ class InvocationServer {
         }
     }
 
+    /**
+     * Fail this invocation without invoking the method, as it could
+     * not be queued for invocation.
+     **/
+    public void reject() {
+        request.setError(ErrorCode.OVERLOAD, "Invocation of " + request.methodName() + " rejected: Too many queued invocations");
+        returnRequest();
+    }
+
     public void returnRequest() {
         if (!conn.completeRequest(done)) {
             throw new IllegalStateException("Request already returned");
@@ -2,6 +2,9 @@
 package com.yahoo.jrt;
 
 
+import java.util.concurrent.Executor;
+
+
 /**
  * <p>A Method encapsulates the reflective information about a single RPC
  * method.</p>
@@ -29,6 +32,7 @@ package com.yahoo.jrt;
 public class Method {
 
     private final MethodHandler            handler;
+    private Executor                       executor = null;
 
     private String name;
     private String paramTypes;
@@ -85,6 +89,31 @@ public class Method {
         init(name, paramTypes, returnTypes);
     }
 
+    /**
+     * Set the executor used to invoke the handler of this method,
+     * overriding the invocation executor of the {@link Supervisor}.
+     * This may be used to keep slow methods from delaying other
+     * methods.
+     *
+     * @return this Method, to allow chaining
+     * @param executor the executor invoking the handler, or null to
+     *        use the invocation executor of the Supervisor
+     * @see Supervisor#setInvocationExecutor
+     **/
+    public Method executor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Obtain the executor used to invoke the handler of this method
+     *
+     * @return the executor, or null if not set
+     **/
+    Executor executor() {
+        return executor;
+    }
+
     /**
      * Obtain the name of this method
      *
@@ -44,6 +44,22 @@ abstract class Packet
     public abstract int packetCode();
     public abstract void encode(ByteBuffer dst);
 
+    /**
+     * @return the number of bytes of this packet which are referenced
+     *         rather than copied when encoded with the given references
+     **/
+    int referencedBytes(DataReferences references) {
+        return 0;
+    }
+
+    /**
+     * Encode this packet into the given buffer, except for the bytes
+     * referenced by the given references.
+     **/
+    void encode(ByteBuffer dst, DataReferences references) {
+        encode(dst);
+    }
+
     public PacketInfo getPacketInfo() {
         return new PacketInfo(bytes(), flags, packetCode(), requestId);
     }
@@ -106,4 +106,27 @@ class PacketInfo
             dst.limit(limit);
         }
     }
+
+    /**
+     * Encode the given packet into buffers to be written in order.
+     * The bytes of the data values referenced by the given references
+     * are not copied, so only the rest of the packet is encoded into
+     * a new buffer.
+     *
+     * @return the buffers holding the encoded packet
+     * @param packet the packet to encode
+     * @param references the references to the bytes not copied
+     **/
+    public ByteBuffer[] encodePacket(Packet packet, DataReferences references) {
+        ByteBuffer dst = ByteBuffer.allocate(packetLength - packet.referencedBytes(references));
+        dst.putInt(packetLength - 4);
+        dst.putShort((short)flags);
+        dst.putShort((short)packetCode);
+        dst.putInt(requestId);
+        if (reverseByteOrder()) {
+            dst.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        packet.encode(dst, references);
+        return references.finish(dst);
+    }
 }
@@ -36,6 +36,16 @@ class ReplyPacket extends Packet
         returnValues.encode(dst);
     }
 
+    @Override
+    int referencedBytes(DataReferences references) {
+        return references.referencedBytes(returnValues);
+    }
+
+    @Override
+    void encode(ByteBuffer dst, DataReferences references) {
+        returnValues.encode(dst, references);
+    }
+
     public Values returnValues() {
         return returnValues;
     }
@@ -42,6 +42,17 @@ class RequestPacket extends Packet
         parameters.encode(dst);
     }
 
+    @Override
+    int referencedBytes(DataReferences references) {
+        return references.referencedBytes(parameters);
+    }
+
+    @Override
+    void encode(ByteBuffer dst, DataReferences references) {
+        methodName.encode(dst);
+        parameters.encode(dst, references);
+    }
+
     public String methodName() {
         return methodName.asString();
     }
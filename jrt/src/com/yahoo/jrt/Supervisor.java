@@ -3,6 +3,9 @@ package com.yahoo.jrt;
 
 
 import java.util.HashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -22,6 +25,12 @@ public class Supervisor {
     private final AtomicReference<HashMap<String, Method>> methodMap = new AtomicReference<>(new HashMap<>());
     private int                     maxInputBufferSize  = 0;
     private int                     maxOutputBufferSize = 0;
+    private int                     maxPendingRequests  = 0;
+    private volatile Executor       invocationExecutor  = null;
+    private volatile Executor       replyExecutor       = null;
+    private final AtomicInteger     queuedInvocations   = new AtomicInteger(0);
+    private final AtomicInteger     queuedReplies       = new AtomicInteger(0);
+    private final TransportMetrics  metrics = TransportMetrics.getInstance();
 
     /**
      * Create a new Supervisor based on the given {@link Transport}
@@ -62,6 +71,70 @@ public class Supervisor {
         maxOutputBufferSize = bytes;
     }
 
+    /**
+     * Set the maximum number of incoming requests being handled at
+     * the same time for each connection. When a connection reaches
+     * this number, no more packets are read from it until one of its
+     * requests is returned, such that a peer sending many requests to
+     * slow methods is not served at the expense of other peers.
+     *
+     * @param requests max pending requests per connection. 0 means
+     *        unlimited.
+     **/
+    public void setMaxPendingRequests(int requests) {
+        maxPendingRequests = requests;
+    }
+
+    /**
+     * Set the executor used to invoke the handlers of the methods of
+     * this Supervisor. By default, handlers are invoked by the
+     * transport thread reading the request, which must then not block.
+     * An executor with a bounded queue should be used to limit the
+     * number of waiting invocations; invocations rejected by the
+     * executor fail with {@link ErrorCode#OVERLOAD}. A method may
+     * override this with {@link Method#executor}.
+     *
+     * @param executor the executor invoking method handlers, or null
+     *        to invoke them in the transport thread
+     **/
+    public void setInvocationExecutor(Executor executor) {
+        invocationExecutor = executor;
+    }
+
+    /**
+     * Set the executor used to notify {@link RequestWaiter}s of
+     * completed requests sent from this Supervisor. By default,
+     * waiters are notified by the transport thread reading the
+     * reply, which must then not block. Waiters are notified in the
+     * transport thread if the executor rejects them.
+     *
+     * @param executor the executor notifying request waiters, or null
+     *        to notify them in the transport thread
+     **/
+    public void setReplyExecutor(Executor executor) {
+        replyExecutor = executor;
+    }
+
+    /**
+     * Obtain the number of invocations which are waiting to be run by
+     * an invocation executor.
+     *
+     * @return the number of queued invocations
+     **/
+    public int queuedInvocations() {
+        return queuedInvocations.get();
+    }
+
+    /**
+     * Obtain the number of request waiter notifications which are
+     * waiting to be run by the reply executor.
+     *
+     * @return the number of queued replies
+     **/
+    public int queuedReplies() {
+        return queuedReplies.get();
+    }
+
     /**
      * Obtain the method map for this Supervisor
      *
@@ -195,6 +268,7 @@ public class Supervisor {
             Connection conn = (Connection) target;
             conn.setMaxInputSize(maxInputBufferSize);
             conn.setMaxOutputSize(maxOutputBufferSize);
+            conn.setMaxPendingRequests(maxPendingRequests);
         }
         SessionHandler handler = sessionHandler;
         if (handler != null) {
@@ -271,8 +345,46 @@ public class Supervisor {
         RequestPacket rp = (RequestPacket) packet;
         Request req = new Request(rp.methodName(), rp.parameters());
         Method method = methodMap().get(req.methodName());
-        new InvocationServer(conn, req, method,
-                             packet.requestId(),
-                             packet.noReply()).invoke();
+        InvocationServer invocation = new InvocationServer(conn, req, method,
+                                                           packet.requestId(),
+                                                           packet.noReply());
+        Executor executor = (method != null && method.executor() != null) ? method.executor() : invocationExecutor;
+        if (executor == null) {
+            invocation.invoke();
+        } else if (execute(executor, queuedInvocations, invocation::invoke)) {
+            metrics.incrementInvocationsQueued();
+        } else {
+            metrics.incrementInvocationsRejected();
+            invocation.reject();
+        }
+    }
+
+    /**
+     * Notify the given waiter that the given request is done, using
+     * the reply executor if one is set.
+     *
+     * @param waiter the waiter to notify
+     * @param req the completed request
+     **/
+    void handleRequestDone(RequestWaiter waiter, Request req) {
+        Executor executor = replyExecutor;
+        if (executor == null || waiter instanceof SingleRequestWaiter // only wakes up the waiting thread
+            || ! execute(executor, queuedReplies, () -> waiter.handleRequestDone(req))) {
+            waiter.handleRequestDone(req);
+        }
+    }
+
+    private static boolean execute(Executor executor, AtomicInteger queued, Runnable task) {
+        queued.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                queued.decrementAndGet();
+                task.run();
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            return false;
+        }
     }
 }
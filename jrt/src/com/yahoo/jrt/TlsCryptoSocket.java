@@ -31,7 +31,7 @@ import static javax.net.ssl.SSLEngineResult.Status;
  */
 public class TlsCryptoSocket implements CryptoSocket {
 
-    private static final ByteBuffer NULL_BUFFER = ByteBuffer.allocate(0);
+    private static final ByteBuffer[] NULL_BUFFERS = { ByteBuffer.allocate(0) };
 
     private static final Logger log = Logger.getLogger(TlsCryptoSocket.class.getName());
 
@@ -46,6 +46,7 @@ public class TlsCryptoSocket implements CryptoSocket {
     private int sessionApplicationBufferSize;
     private ByteBuffer handshakeDummyBuffer;
     private HandshakeState handshakeState;
+    private long handshakeStartTime;
     private AuthorizationResult authorizationResult;
 
     public TlsCryptoSocket(SocketChannel channel, SSLEngine sslEngine) {
@@ -91,6 +92,7 @@ public class TlsCryptoSocket implements CryptoSocket {
             switch (state) {
                 case NOT_STARTED:
                     log.fine(() -> "Initiating handshake");
+                    handshakeStartTime = System.currentTimeMillis();
                     sslEngine.beginHandshake();
                     break;
                 case NEED_WRITE:
@@ -125,7 +127,11 @@ public class TlsCryptoSocket implements CryptoSocket {
                         SSLSession session = sslEngine.getSession();
                         sessionApplicationBufferSize = session.getApplicationBufferSize();
                         sessionPacketBufferSize = session.getPacketBufferSize();
-                        log.fine(() -> String.format("Handshake complete: protocol=%s, cipherSuite=%s", session.getProtocol(), session.getCipherSuite()));
+                        boolean resumed = session.getCreationTime() < handshakeStartTime; // a resumed session was created by an earlier handshake
+                        log.fine(() -> String.format("Handshake complete: protocol=%s, cipherSuite=%s, resumed=%s", session.getProtocol(), session.getCipherSuite(), resumed));
+                        if (resumed) {
+                            metrics.incrementTlsSessionsResumed();
+                        }
                         if (sslEngine.getUseClientMode()) {
                             metrics.incrementClientTlsConnectionsEstablished();
                         } else {
@@ -199,12 +205,18 @@ public class TlsCryptoSocket implements CryptoSocket {
 
     @Override
     public int write(ByteBuffer src) throws IOException {
+        return (int) write(new ByteBuffer[] { src });
+    }
+
+    // Wraps the buffers together, such that small buffers (e.g. packet headers) share records
+    @Override
+    public long write(ByteBuffer[] srcs) throws IOException {
         verifyHandshakeCompleted();
         if (flush() == FlushResult.NEED_WRITE) return 0;
-        int totalBytesWrapped = 0;
+        long totalBytesWrapped = 0;
         int bytesWrapped;
         do {
-            bytesWrapped = applicationDataWrap(src);
+            bytesWrapped = applicationDataWrap(srcs);
             totalBytesWrapped += bytesWrapped;
         } while (bytesWrapped > 0 && wrapBuffer.bytes() < sessionPacketBufferSize);
         return totalBytesWrapped;
@@ -234,7 +246,7 @@ public class TlsCryptoSocket implements CryptoSocket {
     }
 
     private boolean handshakeWrap() throws IOException {
-        SSLEngineResult result = sslEngineWrap(NULL_BUFFER);
+        SSLEngineResult result = sslEngineWrap(NULL_BUFFERS);
         switch (result.getStatus()) {
             case OK:
                 return true;
@@ -247,11 +259,15 @@ public class TlsCryptoSocket implements CryptoSocket {
         }
     }
 
-    private int applicationDataWrap(ByteBuffer src) throws IOException {
-        SSLEngineResult result = sslEngineWrap(src);
+    private int applicationDataWrap(ByteBuffer[] srcs) throws IOException {
+        SSLEngineResult result = sslEngineWrap(srcs);
         if (result.getHandshakeStatus() != HandshakeStatus.NOT_HANDSHAKING) throw new SSLException("Renegotiation detected");
         switch (result.getStatus()) {
             case OK:
+                if (result.bytesConsumed() > 0) { // each wrap produces at most one record
+                    metrics.incrementTlsRecordsWritten();
+                    metrics.addTlsRecordBytesWritten(result.bytesConsumed());
+                }
                 return result.bytesConsumed();
             case BUFFER_OVERFLOW:
                 return 0;
@@ -260,8 +276,8 @@ public class TlsCryptoSocket implements CryptoSocket {
         }
     }
 
-    private SSLEngineResult sslEngineWrap(ByteBuffer src) throws IOException {
-        SSLEngineResult result = sslEngine.wrap(src, wrapBuffer.getWritable(sessionPacketBufferSize));
+    private SSLEngineResult sslEngineWrap(ByteBuffer[] srcs) throws IOException {
+        SSLEngineResult result = sslEngine.wrap(srcs, wrapBuffer.getWritable(sessionPacketBufferSize));
         if (result.getStatus() == Status.CLOSED) throw new ClosedChannelException();
         return result;
     }
@@ -25,6 +25,7 @@ public class Transport {
     private final CryptoEngine      cryptoEngine;
     private final Connector         connector;
     private final Worker            worker;
+    private final HandshakeWorkers  handshakeWorkers;
     private final AtomicInteger     runCnt;
 
     private final TransportMetrics metrics = TransportMetrics.getInstance();
@@ -48,6 +49,7 @@ public class Transport {
         this.cryptoEngine = cryptoEngine;
         connector = new Connector();
         worker = new Worker(this);
+        handshakeWorkers = new HandshakeWorkers();
         runCnt = new AtomicInteger(numThreads);
         for (int i = 0; i < numThreads; ++i) {
             threads.add(new TransportThread(this));
@@ -143,11 +145,12 @@ public class Transport {
     /**
      * Request that {@link Connection#doHandshakeWork()} be called (in any thread)
      * followed by a call to {@link Connection#handleHandshakeWorkDone()} from the transport thread.
+     * The connection is closed instead if there is too much pending handshake work.
      *
      * @param conn the connection needing handshake work
      */
     void doHandshakeWork(Connection conn) {
-        worker.doHandshakeWork(conn);
+        handshakeWorkers.doHandshakeWork(conn);
     }
 
     /**
@@ -192,6 +195,7 @@ public class Transport {
 
     void notifyDone(TransportThread self) {
         if (runCnt.decrementAndGet() == 0) {
+            handshakeWorkers.shutdown().join();
             worker.shutdown().join();
             try { cryptoEngine.close(); } catch (Exception e) {}
         }
@@ -19,6 +19,17 @@ public class TransportMetrics {
     private final AtomicLong clientTlsConnectionsEstablished = new AtomicLong(0);
     private final AtomicLong serverUnencryptedConnectionsEstablished = new AtomicLong(0);
     private final AtomicLong clientUnencryptedConnectionsEstablished = new AtomicLong(0);
+    private final AtomicLong pooledBuffersAllocated = new AtomicLong(0);
+    private final AtomicLong pooledBuffersAcquired = new AtomicLong(0);
+    private final AtomicLong pooledBuffersReleased = new AtomicLong(0);
+    private final AtomicLong unbufferedDataBytesWritten = new AtomicLong(0);
+    private final AtomicLong invocationsQueued = new AtomicLong(0);
+    private final AtomicLong invocationsRejected = new AtomicLong(0);
+    private final AtomicLong connectionReadsPaused = new AtomicLong(0);
+    private final AtomicLong tlsSessionsResumed = new AtomicLong(0);
+    private final AtomicLong tlsRecordsWritten = new AtomicLong(0);
+    private final AtomicLong tlsRecordBytesWritten = new AtomicLong(0);
+    private final AtomicLong handshakeWorkRejected = new AtomicLong(0);
 
     private TransportMetrics() {}
 
@@ -48,6 +59,50 @@ public class TransportMetrics {
         return clientUnencryptedConnectionsEstablished.get();
     }
 
+    public long pooledBuffersAllocated() {
+        return pooledBuffersAllocated.get();
+    }
+
+    public long pooledBuffersAcquired() {
+        return pooledBuffersAcquired.get();
+    }
+
+    public long pooledBuffersReleased() {
+        return pooledBuffersReleased.get();
+    }
+
+    public long unbufferedDataBytesWritten() {
+        return unbufferedDataBytesWritten.get();
+    }
+
+    public long invocationsQueued() {
+        return invocationsQueued.get();
+    }
+
+    public long invocationsRejected() {
+        return invocationsRejected.get();
+    }
+
+    public long connectionReadsPaused() {
+        return connectionReadsPaused.get();
+    }
+
+    public long tlsSessionsResumed() {
+        return tlsSessionsResumed.get();
+    }
+
+    public long tlsRecordsWritten() {
+        return tlsRecordsWritten.get();
+    }
+
+    public long tlsRecordBytesWritten() {
+        return tlsRecordBytesWritten.get();
+    }
+
+    public long handshakeWorkRejected() {
+        return handshakeWorkRejected.get();
+    }
+
     public Snapshot snapshot() { return new Snapshot(this); }
 
     void incrementTlsCertificateVerificationFailures() {
@@ -74,6 +129,50 @@ public class TransportMetrics {
         clientUnencryptedConnectionsEstablished.incrementAndGet();
     }
 
+    void incrementPooledBuffersAllocated() {
+        pooledBuffersAllocated.incrementAndGet();
+    }
+
+    void incrementPooledBuffersAcquired() {
+        pooledBuffersAcquired.incrementAndGet();
+    }
+
+    void incrementPooledBuffersReleased() {
+        pooledBuffersReleased.incrementAndGet();
+    }
+
+    void addUnbufferedDataBytesWritten(long bytes) {
+        unbufferedDataBytesWritten.addAndGet(bytes);
+    }
+
+    void incrementInvocationsQueued() {
+        invocationsQueued.incrementAndGet();
+    }
+
+    void incrementInvocationsRejected() {
+        invocationsRejected.incrementAndGet();
+    }
+
+    void incrementConnectionReadsPaused() {
+        connectionReadsPaused.incrementAndGet();
+    }
+
+    void incrementTlsSessionsResumed() {
+        tlsSessionsResumed.incrementAndGet();
+    }
+
+    void incrementTlsRecordsWritten() {
+        tlsRecordsWritten.incrementAndGet();
+    }
+
+    void addTlsRecordBytesWritten(long bytes) {
+        tlsRecordBytesWritten.addAndGet(bytes);
+    }
+
+    void incrementHandshakeWorkRejected() {
+        handshakeWorkRejected.incrementAndGet();
+    }
+
     @Override
     public String toString() {
         return "TransportMetrics{" +
@@ -83,11 +182,22 @@ public class TransportMetrics {
                 ", clientTlsConnectionsEstablished=" + clientTlsConnectionsEstablished +
                 ", serverUnencryptedConnectionsEstablished=" + serverUnencryptedConnectionsEstablished +
                 ", clientUnencryptedConnectionsEstablished=" + clientUnencryptedConnectionsEstablished +
+                ", pooledBuffersAllocated=" + pooledBuffersAllocated +
+                ", pooledBuffersAcquired=" + pooledBuffersAcquired +
+                ", pooledBuffersReleased=" + pooledBuffersReleased +
+                ", unbufferedDataBytesWritten=" + unbufferedDataBytesWritten +
+                ", invocationsQueued=" + invocationsQueued +
+                ", invocationsRejected=" + invocationsRejected +
+                ", connectionReadsPaused=" + connectionReadsPaused +
+                ", tlsSessionsResumed=" + tlsSessionsResumed +
+                ", tlsRecordsWritten=" + tlsRecordsWritten +
+                ", tlsRecordBytesWritten=" + tlsRecordBytesWritten +
+                ", handshakeWorkRejected=" + handshakeWorkRejected +
                 '}';
     }
 
     public static class Snapshot {
-        public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0);
+        public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
 
         private final long tlsCertificateVerificationFailures;
         private final long peerAuthorizationFailures;
@@ -95,6 +205,17 @@ public class TransportMetrics {
         private final long clientTlsConnectionsEstablished;
         private final long serverUnencryptedConnectionsEstablished;
         private final long clientUnencryptedConnectionsEstablished;
+        private final long pooledBuffersAllocated;
+        private final long pooledBuffersAcquired;
+        private final long pooledBuffersReleased;
+        private final long unbufferedDataBytesWritten;
+        private final long invocationsQueued;
+        private final long invocationsRejected;
+        private final long connectionReadsPaused;
+        private final long tlsSessionsResumed;
+        private final long tlsRecordsWritten;
+        private final long tlsRecordBytesWritten;
+        private final long handshakeWorkRejected;
 
         private Snapshot(TransportMetrics metrics) {
             this(metrics.tlsCertificateVerificationFailures.get(),
@@ -102,7 +223,18 @@ public class TransportMetrics {
                  metrics.serverTlsConnectionsEstablished.get(),
                  metrics.clientTlsConnectionsEstablished.get(),
                  metrics.serverUnencryptedConnectionsEstablished.get(),
-                 metrics.clientUnencryptedConnectionsEstablished.get());
+                 metrics.clientUnencryptedConnectionsEstablished.get(),
+                 metrics.pooledBuffersAllocated.get(),
+                 metrics.pooledBuffersAcquired.get(),
+                 metrics.pooledBuffersReleased.get(),
+                 metrics.unbufferedDataBytesWritten.get(),
+                 metrics.invocationsQueued.get(),
+                 metrics.invocationsRejected.get(),
+                 metrics.connectionReadsPaused.get(),
+                 metrics.tlsSessionsResumed.get(),
+                 metrics.tlsRecordsWritten.get(),
+                 metrics.tlsRecordBytesWritten.get(),
+                 metrics.handshakeWorkRejected.get());
         }
 
         private Snapshot(long tlsCertificateVerificationFailures,
@@ -110,13 +242,35 @@ public class TransportMetrics {
                         long serverTlsConnectionsEstablished,
                         long clientTlsConnectionsEstablished,
                         long serverUnencryptedConnectionsEstablished,
-                        long clientUnencryptedConnectionsEstablished) {
+                        long clientUnencryptedConnectionsEstablished,
+                        long pooledBuffersAllocated,
+                        long pooledBuffersAcquired,
+                        long pooledBuffersReleased,
+                        long unbufferedDataBytesWritten,
+                        long invocationsQueued,
+                        long invocationsRejected,
+                        long connectionReadsPaused,
+                        long tlsSessionsResumed,
+                        long tlsRecordsWritten,
+                        long tlsRecordBytesWritten,
+                        long handshakeWorkRejected) {
             this.tlsCertificateVerificationFailures = tlsCertificateVerificationFailures;
             this.peerAuthorizationFailures = peerAuthorizationFailures;
             this.serverTlsConnectionsEstablished = serverTlsConnectionsEstablished;
             this.clientTlsConnectionsEstablished = clientTlsConnectionsEstablished;
             this.serverUnencryptedConnectionsEstablished = serverUnencryptedConnectionsEstablished;
             this.clientUnencryptedConnectionsEstablished = clientUnencryptedConnectionsEstablished;
+            this.pooledBuffersAllocated = pooledBuffersAllocated;
+            this.pooledBuffersAcquired = pooledBuffersAcquired;
+            this.pooledBuffersReleased = pooledBuffersReleased;
+            this.unbufferedDataBytesWritten = unbufferedDataBytesWritten;
+            this.invocationsQueued = invocationsQueued;
+            this.invocationsRejected = invocationsRejected;
+            this.connectionReadsPaused = connectionReadsPaused;
+            this.tlsSessionsResumed = tlsSessionsResumed;
+            this.tlsRecordsWritten = tlsRecordsWritten;
+            this.tlsRecordBytesWritten = tlsRecordBytesWritten;
+            this.handshakeWorkRejected = handshakeWorkRejected;
         }
 
         public long tlsCertificateVerificationFailures() { return tlsCertificateVerificationFailures; }
@@ -125,6 +279,17 @@ public class TransportMetrics {
         public long clientTlsConnectionsEstablished() { return clientTlsConnectionsEstablished; }
         public long serverUnencryptedConnectionsEstablished() { return serverUnencryptedConnectionsEstablished; }
         public long clientUnencryptedConnectionsEstablished() { return clientUnencryptedConnectionsEstablished; }
+        public long pooledBuffersAllocated() { return pooledBuffersAllocated; }
+        public long pooledBuffersAcquired() { return pooledBuffersAcquired; }
+        public long pooledBuffersReleased() { return pooledBuffersReleased; }
+        public long unbufferedDataBytesWritten() { return unbufferedDataBytesWritten; }
+        public long invocationsQueued() { return invocationsQueued; }
+        public long invocationsRejected() { return invocationsRejected; }
+        public long connectionReadsPaused() { return connectionReadsPaused; }
+        public long tlsSessionsResumed() { return tlsSessionsResumed; }
+        public long tlsRecordsWritten() { return tlsRecordsWritten; }
+        public long tlsRecordBytesWritten() { return tlsRecordBytesWritten; }
+        public long handshakeWorkRejected() { return handshakeWorkRejected; }
 
         public Snapshot changesSince(Snapshot base) {
             return new Snapshot(
@@ -133,7 +298,18 @@ public class TransportMetrics {
                 changesSince(base, Snapshot::serverTlsConnectionsEstablished),
                 changesSince(base, Snapshot::clientTlsConnectionsEstablished),
                 changesSince(base, Snapshot::serverUnencryptedConnectionsEstablished),
-                changesSince(base, Snapshot::clientUnencryptedConnectionsEstablished));
+                changesSince(base, Snapshot::clientUnencryptedConnectionsEstablished),
+                changesSince(base, Snapshot::pooledBuffersAllocated),
+                changesSince(base, Snapshot::pooledBuffersAcquired),
+                changesSince(base, Snapshot::pooledBuffersReleased),
+                changesSince(base, Snapshot::unbufferedDataBytesWritten),
+                changesSince(base, Snapshot::invocationsQueued),
+                changesSince(base, Snapshot::invocationsRejected),
+                changesSince(base, Snapshot::connectionReadsPaused),
+                changesSince(base, Snapshot::tlsSessionsResumed),
+                changesSince(base, Snapshot::tlsRecordsWritten),
+                changesSince(base, Snapshot::tlsRecordBytesWritten),
+                changesSince(base, Snapshot::handshakeWorkRejected));
         }
 
         private long changesSince(Snapshot base, ToLongFunction<Snapshot> metricProperty) {
@@ -149,6 +325,17 @@ public class TransportMetrics {
                     ", clientTlsConnectionsEstablished=" + clientTlsConnectionsEstablished +
                     ", serverUnencryptedConnectionsEstablished=" + serverUnencryptedConnectionsEstablished +
                     ", clientUnencryptedConnectionsEstablished=" + clientUnencryptedConnectionsEstablished +
+                    ", pooledBuffersAllocated=" + pooledBuffersAllocated +
+                    ", pooledBuffersAcquired=" + pooledBuffersAcquired +
+                    ", pooledBuffersReleased=" + pooledBuffersReleased +
+                    ", unbufferedDataBytesWritten=" + unbufferedDataBytesWritten +
+                    ", invocationsQueued=" + invocationsQueued +
+                    ", invocationsRejected=" + invocationsRejected +
+                    ", connectionReadsPaused=" + connectionReadsPaused +
+                    ", tlsSessionsResumed=" + tlsSessionsResumed +
+                    ", tlsRecordsWritten=" + tlsRecordsWritten +
+                    ", tlsRecordBytesWritten=" + tlsRecordBytesWritten +
+                    ", handshakeWorkRejected=" + handshakeWorkRejected +
                     '}';
         }
     }
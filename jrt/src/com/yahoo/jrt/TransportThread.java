@@ -49,6 +49,12 @@ public class TransportThread {
         public void run() { handleEnableWrite(conn); }
     }
 
+    private class ResumeReadCmd implements Runnable {
+        private Connection conn;
+        ResumeReadCmd(Connection conn) { this.conn = conn; }
+        public void run() { handleResumeRead(conn); }
+    }
+
     private class HandshakeWorkDoneCmd implements Runnable {
         private Connection conn;
         HandshakeWorkDoneCmd(Connection conn) { this.conn = conn; }
@@ -77,6 +83,7 @@ public class TransportThread {
     private final Scheduler scheduler;
     private int             state;
     private final Selector  selector;
+    private final BufferPool bufferPool = new BufferPool();
 
     private void handleAddConnection(Connection conn) {
         if (conn.isClosed()) {
@@ -107,6 +114,18 @@ public class TransportThread {
         conn.enableWrite();
     }
 
+    private void handleResumeRead(Connection conn) {
+        if (conn.isClosed()) {
+            return;
+        }
+        try {
+            conn.handleResumeRead();
+        } catch (IOException e) {
+            conn.setLostReason(e);
+            handleCloseConnection(conn);
+        }
+    }
+
     private void handleHandshakeWorkDone(Connection conn) {
         if (conn.isClosed()) {
             return;
@@ -187,6 +206,14 @@ public class TransportThread {
         return parent;
     }
 
+    /**
+     * @return the pool of buffers used by the connections handled by
+     *         this thread, which must only be used by this thread
+     **/
+    BufferPool bufferPool() {
+        return bufferPool;
+    }
+
     /**
      * Proxy method used to dispatch fatal errors to the enclosing
      * Transport.
@@ -233,6 +260,16 @@ public class TransportThread {
         }
     }
 
+    /**
+     * Request an asynchronous resume of reading from a connection
+     * which paused reading because it had too many pending requests.
+     *
+     * @param conn the connection to resume reading from
+     **/
+    void resumeRead(Connection conn) {
+        postCommand(new ResumeReadCmd(conn));
+    }
+
     void handshakeWorkDone(Connection conn) {
         postCommand(new HandshakeWorkDoneCmd(conn));
     }
@@ -110,6 +110,30 @@ public class Values
         }
     }
 
+    /**
+     * Encode this value sequence into the given buffer, except for
+     * the bytes of the data values referenced by the given
+     * references, which are not copied.
+     *
+     * @param dst where to encode this value sequence
+     * @param references the references to the bytes not copied
+     **/
+    void encode(ByteBuffer dst, DataReferences references) {
+        byte[] types = new byte[values.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = get(i).type();
+        }
+        dst.putInt(types.length);
+        dst.put(types);
+        for (int i = 0; i < types.length; i++) {
+            if (references.isReferenced(get(i))) {
+                references.encode((DataValue)get(i), dst);
+            } else {
+                get(i).encode(dst);
+            }
+        }
+    }
+
     /**
      * Decode a value sequence from the given buffer into this object
      *
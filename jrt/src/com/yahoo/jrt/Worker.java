@@ -26,17 +26,6 @@ class Worker {
         }
     }
 
-    private static class DoHandshakeWork implements Runnable {
-        private Connection connection;
-        DoHandshakeWork(Connection c) {
-            connection = c;
-        }
-        public void run() {
-            connection.doHandshakeWork();
-            connection.transportThread().handshakeWorkDone(connection);
-        }
-    }
-
     private static void preloadClassRequiredAtShutDown() {
         new CloseSocket(null);
     }
@@ -62,10 +51,6 @@ class Worker {
         doLater(new CloseSocket(c));
     }
 
-    public void doHandshakeWork(Connection c) {
-        doLater(new DoHandshakeWork(c));
-    }
-
     private void run() {
         try {
             while (true) {
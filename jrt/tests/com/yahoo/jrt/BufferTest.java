@@ -278,4 +278,60 @@ public class BufferTest {
         }
     }
 
+    @org.junit.Test
+    public void testPooledBuffer() {
+        BufferPool pool = new BufferPool(100, 1);
+        Buffer buf = new Buffer(pool);
+        assertEquals(0, buf.bytes());
+        assertEquals(0, buf.getReadable().remaining());
+        assertTrue(buf.releaseIfEmpty());
+
+        ByteBuffer b = buf.getWritable(10);
+        assertTrue(b.isDirect());
+        assertEquals(100, b.capacity());
+        b.put((byte)10);
+        assertFalse(buf.releaseIfEmpty());
+        b = buf.getReadable();
+        assertEquals(10, b.get());
+        assertTrue(buf.releaseIfEmpty());
+        assertEquals(1, pool.idle());
+
+        ByteBuffer slab = buf.getWritable(10);
+        assertEquals(0, pool.idle());
+        slab.put((byte)20);
+        b = buf.getWritable(150);
+        assertFalse(b.isDirect());
+        assertEquals(1, pool.idle());
+        b.put((byte)30);
+        assertTrue(buf.shrink(100));
+        b = buf.getReadable();
+        assertTrue(b.isDirect());
+        assertEquals(0, pool.idle());
+        assertEquals(20, b.get());
+        assertEquals(30, b.get());
+
+        buf.getWritable(10).put((byte)40);
+        buf.release();
+        assertEquals(0, buf.bytes());
+        assertEquals(1, pool.idle());
+    }
+
+    @org.junit.Test
+    public void testBufferPool() {
+        BufferPool pool = new BufferPool(100, 1);
+        ByteBuffer a = pool.acquire();
+        ByteBuffer b = pool.acquire();
+        assertTrue(a.isDirect());
+        assertEquals(100, a.capacity());
+        a.put((byte)1);
+        assertTrue(pool.release(a));
+        assertTrue(pool.release(b));
+        assertFalse(pool.release(ByteBuffer.allocate(100)));
+        assertEquals(1, pool.idle());
+        ByteBuffer c = pool.acquire();
+        assertTrue(c == a);
+        assertEquals(0, c.position());
+        assertEquals(100, c.remaining());
+    }
+
 }
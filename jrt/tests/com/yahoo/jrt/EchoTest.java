@@ -9,10 +9,12 @@ import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameter;
 import org.junit.runners.Parameterized.Parameters;
 
+import java.nio.ByteBuffer;
 import java.security.cert.X509Certificate;
 import java.util.List;
 
 import static com.yahoo.jrt.CryptoUtils.createTestTlsContext;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -149,6 +151,23 @@ public class EchoTest {
         securityContext = req.target().getSecurityContext().orElse(null);
     }
 
+    @org.junit.Test
+    public void testEchoLargeData() {
+        server.addMethod(new Method("echoData", "x", "x", req -> req.returnValues().add(req.parameters().get(0))));
+        byte[] data = new byte[1000000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte)i;
+        }
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+        Request req = new Request("echoData");
+        req.parameters().add(DataValue.wrap(direct));
+        target.invokeSync(req, 60.0);
+        assertTrue(req.checkReturnTypes("x"));
+        assertArrayEquals(data, req.returnValues().get(0).asData());
+        assertTrue(metrics.snapshot().changesSince(startSnapshot).unbufferedDataBytesWritten() >= 2 * data.length);
+    }
+
     @org.junit.Test
     public void testEcho() {
         Request req = new Request("echo");
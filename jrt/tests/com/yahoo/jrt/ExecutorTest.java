@@ -0,0 +1,131 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import org.junit.After;
+import org.junit.Before;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExecutorTest {
+
+    Supervisor      server;
+    Acceptor        acceptor;
+    Supervisor      client;
+    Target          target;
+    ExecutorService executor;
+    ExecutorService methodExecutor;
+    BlockingQueue<Request> detached = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() throws ListenFailedException {
+        server   = new Supervisor(new Transport());
+        client   = new Supervisor(new Transport());
+        acceptor = server.listen(new Spec(0));
+        executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "executor"));
+        methodExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "method-executor"));
+        server.addMethod(new Method("thread", "", "s", this::rpc_thread));
+        server.addMethod(new Method("method_thread", "", "s", this::rpc_thread).executor(methodExecutor));
+        server.addMethod(new Method("detach", "", "", this::rpc_detach));
+    }
+
+    @After
+    public void tearDown() {
+        target.close();
+        acceptor.shutdown().join();
+        client.transport().shutdown().join();
+        server.transport().shutdown().join();
+        executor.shutdown();
+        methodExecutor.shutdown();
+    }
+
+    private void connect() {
+        target = client.connect(new Spec("localhost", acceptor.port()));
+    }
+
+    private void rpc_thread(Request req) {
+        req.returnValues().add(new StringValue(Thread.currentThread().getName()));
+    }
+
+    private void rpc_detach(Request req) {
+        req.detach();
+        detached.add(req);
+    }
+
+    private String invokeThread(String method) {
+        Request req = new Request(method);
+        target.invokeSync(req, 5.0);
+        assertFalse(req.errorMessage(), req.isError());
+        return req.returnValues().get(0).asString();
+    }
+
+    @org.junit.Test
+    public void testInvocationExecutor() {
+        connect();
+        assertTrue(invokeThread("thread").startsWith("<jrt-transport>"));
+        assertEquals("method-executor", invokeThread("method_thread"));
+        server.setInvocationExecutor(executor);
+        assertEquals("executor", invokeThread("thread"));
+        assertEquals("method-executor", invokeThread("method_thread"));
+        assertEquals(0, server.queuedInvocations());
+    }
+
+    @org.junit.Test
+    public void testRejectedInvocation() {
+        connect();
+        TransportMetrics.Snapshot before = TransportMetrics.getInstance().snapshot();
+        server.setInvocationExecutor(task -> { throw new RejectedExecutionException(); });
+        Request req = new Request("thread");
+        target.invokeSync(req, 5.0);
+        assertTrue(req.isError());
+        assertEquals(ErrorCode.OVERLOAD, req.errorCode());
+        assertEquals(1, TransportMetrics.getInstance().snapshot().changesSince(before).invocationsRejected());
+        assertEquals(0, server.queuedInvocations());
+    }
+
+    @org.junit.Test
+    public void testReplyExecutor() throws InterruptedException {
+        connect();
+        client.setReplyExecutor(executor);
+        BlockingQueue<String> threads = new LinkedBlockingQueue<>();
+        target.invokeAsync(new Request("thread"), 5.0, req -> threads.add(Thread.currentThread().getName()));
+        assertEquals("executor", threads.poll(5, TimeUnit.SECONDS));
+        assertEquals(0, client.queuedReplies());
+    }
+
+    @org.junit.Test
+    public void testMaxPendingRequests() throws InterruptedException {
+        server.setMaxPendingRequests(1);
+        connect();
+        TransportMetrics.Snapshot before = TransportMetrics.getInstance().snapshot();
+        Test.Waiter w1 = new Test.Waiter();
+        Test.Waiter w2 = new Test.Waiter();
+        target.invokeAsync(new Request("detach"), 5.0, w1);
+        target.invokeAsync(new Request("detach"), 5.0, w2);
+
+        Request req1 = detached.poll(5, TimeUnit.SECONDS);
+        assertNotNull(req1);
+        assertNull(detached.poll(100, TimeUnit.MILLISECONDS));
+        assertTrue(TransportMetrics.getInstance().snapshot().changesSince(before).connectionReadsPaused() > 0);
+
+        req1.returnRequest();
+        w1.waitDone();
+        Request req2 = detached.poll(5, TimeUnit.SECONDS);
+        assertNotNull(req2);
+        req2.returnRequest();
+        w2.waitDone();
+        assertFalse(req1.isError());
+        assertFalse(req2.isError());
+    }
+
+}
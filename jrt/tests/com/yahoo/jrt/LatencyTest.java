@@ -187,6 +187,37 @@ public class LatencyTest {
         }
     }
 
+    private static void measureConnectionStorm(Network network, int numConnections, String prefix) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(numConnections);
+        Request[] requests = new Request[numConnections];
+        Target[] targets = new Target[numConnections];
+        long start = System.nanoTime();
+        for (int i = 0; i < numConnections; ++i) {
+            targets[i] = network.connect();
+            requests[i] = new Request("inc");
+            requests[i].parameters().add(new Int32Value(i));
+            targets[i].invokeAsync(requests[i], 60.0, req -> latch.countDown());
+        }
+        latch.await();
+        double ms = (System.nanoTime() - start) / 1000_000.0;
+        for (int i = 0; i < numConnections; ++i) {
+            assertTrue(requests[i].checkReturnTypes("i"));
+            assertEquals(i + 1, requests[i].returnValues().get(0).asInt32());
+            targets[i].close();
+        }
+        log.info(prefix + "all connected and served in " + ms + " ms");
+    }
+
+    @org.junit.Test
+    public void testTlsConnectionStorm() throws Throwable {
+        try (Network network = new Network(new TlsCryptoEngine(createTestTlsContext()), 4)) {
+            TransportMetrics.Snapshot before = TransportMetrics.getInstance().snapshot();
+            measureConnectionStorm(network, 200, "[tls crypto, 200 connections, new sessions] ");
+            measureConnectionStorm(network, 200, "[tls crypto, 200 connections, resumed sessions] ");
+            log.info("[tls crypto] " + TransportMetrics.getInstance().snapshot().changesSince(before));
+        }
+    }
+
     @org.junit.Test
     public void testTransportThreadScaling() throws Throwable {
         try (Network network = new Network(new NullCryptoEngine(), 1)) {
@@ -2,6 +2,7 @@
 package com.yahoo.jrt;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -50,6 +51,45 @@ public class PacketTest {
         assertEquals(params2.get(0).asInt32(), 123);
     }
 
+    @org.junit.Test
+    public void testReferencedDataEncoding() {
+        byte[] small = { 1, 2, 3 };
+        byte[] large = new byte[100];
+        Arrays.fill(large, (byte)7);
+        ByteBuffer direct = ByteBuffer.allocateDirect(large.length);
+        direct.put(large).flip();
+        Values params = new Values();
+        params.add(new DataValue(small));
+        params.add(DataValue.wrap(direct));
+        params.add(new Int32Value(123));
+        params.add(new DataValue(large));
+
+        Packet packet = new RequestPacket(0, 42, "foobar", params);
+        PacketInfo info = packet.getPacketInfo();
+        ByteBuffer ref = ByteBuffer.allocate(info.packetLength());
+        info.encodePacket(packet, ref);
+        ref.flip();
+
+        DataReferences references = new DataReferences(large.length);
+        ByteBuffer[] buffers = info.encodePacket(packet, references);
+        assertEquals(5, buffers.length);
+        assertTrue(buffers[1].isDirect());
+        assertEquals(2 * large.length, references.referencedBytes());
+        ByteBuffer buf = ByteBuffer.allocate(info.packetLength());
+        for (ByteBuffer b : buffers) {
+            buf.put(b);
+        }
+        assertEquals(0, buf.remaining());
+        buf.flip();
+        assertTrue(buf.equals(ref));
+        assertEquals(large.length, direct.remaining());
+
+        Packet packet2 = info.decodePacket(buf);
+        Values params2 = ((RequestPacket)packet2).parameters();
+        assertTrue(Arrays.equals(large, params2.get(1).asData()));
+        assertTrue(Arrays.equals(large, params2.get(3).asData()));
+    }
+
     @org.junit.Test
     public void testReplyPacket() {
         Values ret = new Values();
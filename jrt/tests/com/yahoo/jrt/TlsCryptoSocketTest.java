@@ -0,0 +1,80 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import org.junit.After;
+import org.junit.Before;
+
+import java.nio.ByteBuffer;
+
+import static com.yahoo.jrt.CryptoUtils.createTestTlsContext;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TlsCryptoSocketTest {
+
+    Supervisor server;
+    Acceptor   acceptor;
+    Supervisor client;
+
+    @Before
+    public void setUp() throws ListenFailedException {
+        CryptoEngine crypto = new TlsCryptoEngine(createTestTlsContext()); // shared, so the client resumes sessions created by the server
+        server   = new Supervisor(new Transport(crypto, 1));
+        client   = new Supervisor(new Transport(crypto, 1));
+        acceptor = server.listen(new Spec(0));
+        server.addMethod(new Method("echo", "x", "x", req -> req.returnValues().add(req.parameters().get(0))));
+    }
+
+    @After
+    public void tearDown() {
+        acceptor.shutdown().join();
+        client.transport().shutdown().join();
+        server.transport().shutdown().join();
+    }
+
+    private Request echo(Target target, DataValue value) {
+        Request req = new Request("echo");
+        req.parameters().add(value);
+        target.invokeSync(req, 60.0);
+        assertFalse(req.errorMessage(), req.isError());
+        return req;
+    }
+
+    @org.junit.Test
+    public void testSessionResumption() {
+        TransportMetrics.Snapshot before = TransportMetrics.getInstance().snapshot();
+        for (int i = 0; i < 3; i++) {
+            Target target = client.connect(new Spec("localhost", acceptor.port()));
+            echo(target, new DataValue(new byte[] { 1, 2, 3 }));
+            target.close();
+        }
+        TransportMetrics.Snapshot changes = TransportMetrics.getInstance().snapshot().changesSince(before);
+        assertEquals(3, changes.clientTlsConnectionsEstablished());
+        assertEquals(3, changes.serverTlsConnectionsEstablished());
+        assertEquals(4, changes.tlsSessionsResumed()); // all but the first handshake, on both sides
+    }
+
+    @org.junit.Test
+    public void testLargeDataIsWrittenInFullRecords() {
+        Target target = client.connect(new Spec("localhost", acceptor.port()));
+        echo(target, new DataValue(new byte[] { 1 }));
+        byte[] data = new byte[1000000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte)i;
+        }
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+        TransportMetrics.Snapshot before = TransportMetrics.getInstance().snapshot();
+        Request req = echo(target, DataValue.wrap(direct));
+        assertArrayEquals(data, req.returnValues().get(0).asData());
+        TransportMetrics.Snapshot changes = TransportMetrics.getInstance().snapshot().changesSince(before);
+        assertTrue(changes.tlsRecordBytesWritten() > 2 * data.length);
+        // The packet headers share records with the data; records are only short at the end of each write
+        long maxRecords = 2 * (data.length / 16384 + data.length / Buffer.MAX_IO + 2);
+        assertTrue(changes.tlsRecordsWritten() + " records", changes.tlsRecordsWritten() <= maxRecords);
+        target.close();
+    }
+
+}
@@ -4,6 +4,8 @@ package com.yahoo.messagebus;
 import com.yahoo.concurrent.SystemTimer;
 import com.yahoo.concurrent.Timer;
 import com.yahoo.log.LogLevel;
+
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 /**
@@ -12,20 +14,23 @@ import java.util.logging.Logger;
  *
  * <b>NOTE:</b> By context, "pending" is refering to the number of sent messages that have not been replied to yet.
  *
+ * This is thread safe: Messages and replies are counted atomically, and only the periodic window resize, and the
+ * shrinking of the window after an idle period, synchronize.
+ *
  * @author Simon Thoresen Hult
  */
 public class DynamicThrottlePolicy extends StaticThrottlePolicy {
 
     private static final long IDLE_TIME_MILLIS = 60000;
     private final Timer timer;
-    private int numSent = 0;
-    private int numOk = 0;
+    private final AtomicInteger numSent = new AtomicInteger(0);
+    private final AtomicInteger numOk = new AtomicInteger(0);
     private double resizeRate = 3;
     private long resizeTime = 0;
-    private long timeOfLastMessage;
+    private volatile long timeOfLastMessage;
     private double efficiencyThreshold = 1.0;
     private double windowSizeIncrement = 20;
-    private double windowSize = windowSizeIncrement;
+    private volatile double windowSize = windowSizeIncrement;
     private double minWindowSize = windowSizeIncrement;
     private double maxWindowSize = Integer.MAX_VALUE;
     private double windowSizeBackOff = 0.9;
@@ -70,64 +75,81 @@ public class DynamicThrottlePolicy extends StaticThrottlePolicy {
              return false;
         }
         long time = timer.milliTime();
-        double elapsed = (time - timeOfLastMessage);
-        if (elapsed > IDLE_TIME_MILLIS) {
-            windowSize = Math.min(windowSize, pendingCount + windowSizeIncrement);
+        if (time - timeOfLastMessage > IDLE_TIME_MILLIS) {
+            shrinkIdleWindow(pendingCount, time);
+        }
+        if (pendingCount >= windowSize) {
+            return false;
         }
         timeOfLastMessage = time;
-        return pendingCount < windowSize;
+        return true;
+    }
+
+    /** Shrinks the window to what is pending after an idle period, under the same lock as resizing */
+    private synchronized void shrinkIdleWindow(int pendingCount, long time) {
+        if (time - timeOfLastMessage <= IDLE_TIME_MILLIS) {
+            return; // another sender has sent since
+        }
+        windowSize = Math.min(windowSize, pendingCount + windowSizeIncrement);
     }
 
     @Override
     public void processMessage(Message message) {
         super.processMessage(message);
-        if (++numSent < windowSize * resizeRate) {
+        if (numSent.incrementAndGet() < windowSize * resizeRate) {
             return;
         }
+        resize();
+    }
+
+    private synchronized void resize() {
+        if (numSent.get() < windowSize * resizeRate) {
+            return; // already resized by another sender
+        }
 
         long time = timer.milliTime();
         double elapsed = time - resizeTime;
         resizeTime = time;
 
-        double throughput = numOk / elapsed;
-        numSent = 0;
-        numOk = 0;
+        double throughput = numOk.getAndSet(0) / elapsed;
+        numSent.set(0);
 
         if (log.isLoggable(LogLevel.DEBUG)) {
             log.log(LogLevel.DEBUG, "windowSize " + windowSize + " throughput " + throughput);
         }
 
+        double size = windowSize;
         if (maxThroughput > 0 && throughput > maxThroughput * 0.95) {
             // No need to increase window when we're this close to max.
         } else if (throughput > localMaxThroughput * 1.01) {
             localMaxThroughput = throughput;
-            windowSize += weight*windowSizeIncrement;
+            size += weight*windowSizeIncrement;
         } else {
             // scale up/down throughput for comparing to window size
             double period = 1;
-            while(throughput * period/windowSize < 2) {
+            while(throughput * period/size < 2) {
                 period *= 10;
             }
-            while(throughput * period/windowSize > 2) {
+            while(throughput * period/size > 2) {
                 period *= 0.1;
             }
-            double efficiency = throughput*period/windowSize;
+            double efficiency = throughput*period/size;
             if (efficiency < efficiencyThreshold) {
-                windowSize = Math.min(windowSize * windowSizeBackOff, windowSize - 2* windowSizeIncrement);
+                size = Math.min(size * windowSizeBackOff, size - 2* windowSizeIncrement);
                 localMaxThroughput = 0;
             } else {
-                windowSize += weight*windowSizeIncrement;
+                size += weight*windowSizeIncrement;
             }
         }
-        windowSize = Math.max(minWindowSize, windowSize);
-        windowSize = Math.min(maxWindowSize, windowSize);
+        size = Math.max(minWindowSize, size);
+        windowSize = Math.min(maxWindowSize, size); // published once, as senders read it concurrently
     }
 
     @Override
     public void processReply(Reply reply) {
         super.processReply(reply);
         if ( ! reply.hasErrors()) {
-            ++numOk;
+            numOk.incrementAndGet();
         }
     }
 
@@ -1,8 +1,10 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.messagebus;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -13,13 +15,18 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * id, and messages are only sent when they are at the front of their list. When a reply arrives, the current front of
  * the list is removed and the next message, if any, is sent.
  *
+ * The sequencing state is split into shards by sequencing id, each guarded by its own lock, such that messages with
+ * different ids sent and replied to concurrently rarely contend.
+ *
  * @author Simon Thoresen Hult
  */
 public class Sequencer implements MessageHandler, ReplyHandler {
 
+    private static final int SHARDS = 16; // a power of 2
+
     private final AtomicBoolean destroyed = new AtomicBoolean(false);
     private final MessageHandler sender;
-    private final Map<Long, Queue<Message>> seqMap = new HashMap<>();
+    private final List<Map<Long, Queue<Message>>> seqMaps = new ArrayList<>(SHARDS);
 
     /**
      * Constructs a new sequencer on top of the given async sender.
@@ -28,6 +35,14 @@ public class Sequencer implements MessageHandler, ReplyHandler {
      */
     public Sequencer(MessageHandler sender) {
         this.sender = sender;
+        for (int i = 0; i < SHARDS; i++) {
+            seqMaps.add(new HashMap<>());
+        }
+    }
+
+    /** Returns the shard of the sequencing state holding the given id, which is also the lock of that shard */
+    private Map<Long, Queue<Message>> seqMap(long seqId) {
+        return seqMaps.get(Long.hashCode(seqId) & (SHARDS - 1));
     }
 
     /**
@@ -38,15 +53,17 @@ public class Sequencer implements MessageHandler, ReplyHandler {
      */
     public boolean destroy() {
         if (!destroyed.getAndSet(true)) {
-            synchronized (this) {
-                for (Queue<Message> queue : seqMap.values()) {
-                    if (queue != null) {
-                        for (Message msg : queue) {
-                            msg.discard();
+            for (Map<Long, Queue<Message>> seqMap : seqMaps) {
+                synchronized (seqMap) {
+                    for (Queue<Message> queue : seqMap.values()) {
+                        if (queue != null) {
+                            for (Message msg : queue) {
+                                msg.discard();
+                            }
                         }
                     }
+                    seqMap.clear();
                 }
-                seqMap.clear();
             }
             return true;
         }
@@ -65,7 +82,8 @@ public class Sequencer implements MessageHandler, ReplyHandler {
     private boolean filter(Message msg) {
         long seqId = msg.getSequenceId();
         msg.setContext(seqId);
-        synchronized (this) {
+        Map<Long, Queue<Message>> seqMap = seqMap(seqId);
+        synchronized (seqMap) {
             if (seqMap.containsKey(seqId)) {
                 Queue<Message> queue = seqMap.get(seqId);
                 if (queue == null) {
@@ -138,7 +156,8 @@ public class Sequencer implements MessageHandler, ReplyHandler {
                                    "Sequencer received reply with sequence id '" + seqId + "'.");
         }
         Message msg = null;
-        synchronized (this) {
+        Map<Long, Queue<Message>> seqMap = seqMap(seqId);
+        synchronized (seqMap) {
             Queue<Message> queue = seqMap.get(seqId);
             if (queue == null || queue.isEmpty()) {
                 seqMap.remove(seqId);
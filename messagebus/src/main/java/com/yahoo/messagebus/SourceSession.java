@@ -5,13 +5,18 @@ import com.yahoo.messagebus.routing.Route;
 import com.yahoo.messagebus.routing.RoutingTable;
 
 import java.util.Deque;
-import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A session supporting sending new messages.
  *
+ * Sending and replies do not synchronize on the session: The pending count is updated atomically, throttle
+ * policies known to be thread safe are called concurrently, and messages waiting in {@link #sendBlocking} are
+ * kept in a concurrent queue.
+ *
  * @author Simon Thoresen Hult
  */
 public final class SourceSession implements ReplyHandler, MessageBus.SendBlockedMessages {
@@ -19,15 +24,15 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
     private final AtomicBoolean destroyed = new AtomicBoolean(false);
     private final CountDownLatch done = new CountDownLatch(1);
     private final AtomicBoolean sendingBlockedToken = new AtomicBoolean(false);
-    private final Object lock = new Object();
     private final MessageBus mbus;
     private final Sequencer sequencer;
     private final ReplyHandler replyHandler;
     private final ThrottlePolicy throttlePolicy;
+    private final boolean throttlePolicyIsThreadSafe;
     private volatile double timeout;  // volatile only for tests
-    private volatile int pendingCount = 0;
+    private final AtomicInteger pendingCount = new AtomicInteger(0);
     private volatile boolean closed = false;
-    private final Deque<BlockedMessage> blockedQ = new LinkedList<>();
+    private final Deque<BlockedMessage> blockedQ = new ConcurrentLinkedDeque<>();
     private final static class Counter {
         private int count = 0;
         void inc() { count ++; }
@@ -54,6 +59,7 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
         }
         replyHandler = params.getReplyHandler();
         throttlePolicy = params.getThrottlePolicy();
+        throttlePolicyIsThreadSafe = isThreadSafe(throttlePolicy);
         timeout = params.getTimeout();
         mbus.register(this);
     }
@@ -70,9 +76,7 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
         if (destroyed.getAndSet(true)) {
             return false;
         }
-        synchronized (lock) {
-            closed = true;
-        }
+        closed = true;
         sequencer.destroy();
         mbus.sync();
         return true;
@@ -83,10 +87,8 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
      * returning, this method calls {@link #destroy()}.
      */
     public void close() {
-        synchronized (lock) {
-            closed = true;
-        }
-        if (pendingCount == 0) {
+        closed = true;
+        if (pendingCount.get() == 0) {
             done.countDown();
         }
         try {
@@ -135,25 +137,33 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
     }
 
     private Result sendInternal(Message message) {
-        synchronized (lock) {
-            if (closed) {
-                return new Result(ErrorCode.SEND_QUEUE_CLOSED,
-                                  "Source session is closed.");
-            }
-            if (throttlePolicy != null && ! throttlePolicy.canSend(message, pendingCount)) {
+        if (closed) {
+            return new Result(ErrorCode.SEND_QUEUE_CLOSED,
+                              "Source session is closed.");
+        }
+        int pending;
+        do {
+            pending = pendingCount.get();
+            if (throttlePolicy != null && ! canSend(message, pending)) {
                 return new Result(ErrorCode.SEND_QUEUE_FULL,
-                                  "Too much pending data (" + pendingCount + " messages).");
+                                  "Too much pending data (" + pending + " messages).");
             }
-            message.pushHandler(replyHandler);
-            if (throttlePolicy != null) {
-                throttlePolicy.processMessage(message);
+        } while ( ! pendingCount.compareAndSet(pending, pending + 1));
+        if (closed) { // closed after the check above, before this was counted as pending
+            if (pendingCount.decrementAndGet() == 0) {
+                done.countDown();
             }
-            ++pendingCount;
+            return new Result(ErrorCode.SEND_QUEUE_CLOSED,
+                              "Source session is closed.");
+        }
+        message.pushHandler(replyHandler);
+        if (throttlePolicy != null) {
+            processMessage(message);
         }
         if (message.getTrace().shouldTrace(TraceLevel.COMPONENT)) {
             message.getTrace().trace(TraceLevel.COMPONENT,
                                  "Source session accepted a " + message.getApproxSize() + " byte message. " +
-                                 pendingCount + " message(s) now pending.");
+                                 (pending + 1) + " message(s) now pending.");
         }
         message.pushHandler(this);
         sequencer.handleMessage(message);
@@ -241,23 +251,19 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
         Result res = send(msg);
         if (isSendQFull(res)) {
             BlockedMessage blockedMessage = new BlockedMessage(msg);
-            synchronized (blockedQ) {
-                blockedQ.add(blockedMessage);
-            }
+            blockedQ.add(blockedMessage);
             res = blockedMessage.waitComplete();
         }
         return res;
     }
 
+    /** Messages are only removed from the blocked queue by the thread holding the sending blocked token */
     private void expireStalledBlockedMessages() {
-        synchronized (blockedQ) {
+        if (sendingBlockedToken.getAndSet(true)) return;
+        try {
             blockedQ.removeIf(BlockedMessage::notifyIfExpired);
-        }
-    }
-
-    private BlockedMessage getNextBlockedMessage() {
-        synchronized (blockedQ) {
-            return blockedQ.poll();
+        } finally {
+            sendingBlockedToken.set(false);
         }
     }
 
@@ -268,16 +274,14 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
         if (someoneElseIsTakingCareOfIt) return;
         try {
             recurselevel.inc();
-            BlockedMessage msg = getNextBlockedMessage();
+            BlockedMessage msg = blockedQ.poll();
             for (boolean success = true; success && msg != null; ) {
                 success = msg.sendOrExpire();
                 if (!success) {
                     // Failed sending, put it back at the head of the Q.
-                    synchronized (blockedQ) {
-                        blockedQ.addFirst(msg);
-                    }
+                    blockedQ.addFirst(msg);
                 } else {
-                    msg = getNextBlockedMessage();
+                    msg = blockedQ.poll();
                 }
             }
         } finally {
@@ -292,18 +296,15 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
             reply.discard();
             return;
         }
-        boolean done;
-        synchronized (lock) {
-            --pendingCount;
-            if (throttlePolicy != null) {
-                throttlePolicy.processReply(reply);
-            }
-            done = (closed && pendingCount == 0);
+        if (throttlePolicy != null) {
+            processReply(reply);
         }
+        int pending = pendingCount.decrementAndGet();
+        boolean done = (closed && pending == 0);
         sendBlockedMessages();
         if (reply.getTrace().shouldTrace(TraceLevel.COMPONENT)) {
             reply.getTrace().trace(TraceLevel.COMPONENT,
-                                   "Source session received reply. " + pendingCount + " message(s) now pending.");
+                                   "Source session received reply. " + pending + " message(s) now pending.");
         }
         ReplyHandler handler = reply.popHandler();
         handler.handleReply(reply);
@@ -312,6 +313,44 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
         }
     }
 
+    /**
+     * Returns whether the given policy may be called concurrently. The policies of this package which are not
+     * known to be so, and policies of other packages, are called while synchronized on the policy.
+     */
+    private static boolean isThreadSafe(ThrottlePolicy policy) {
+        return policy == null ||
+               policy.getClass() == StaticThrottlePolicy.class ||
+               policy.getClass() == DynamicThrottlePolicy.class ||
+               policy.getClass() == AllPassThrottlePolicy.class;
+    }
+
+    private boolean canSend(Message message, int pending) {
+        if (throttlePolicyIsThreadSafe) return throttlePolicy.canSend(message, pending);
+        synchronized (throttlePolicy) {
+            return throttlePolicy.canSend(message, pending);
+        }
+    }
+
+    private void processMessage(Message message) {
+        if (throttlePolicyIsThreadSafe) {
+            throttlePolicy.processMessage(message);
+            return;
+        }
+        synchronized (throttlePolicy) {
+            throttlePolicy.processMessage(message);
+        }
+    }
+
+    private void processReply(Reply reply) {
+        if (throttlePolicyIsThreadSafe) {
+            throttlePolicy.processReply(reply);
+            return;
+        }
+        synchronized (throttlePolicy) {
+            throttlePolicy.processReply(reply);
+        }
+    }
+
     /**
      * This is a convenience function to assign a given route to the given
      * message, and then pass it to the other {@link #send(Message)} method of
@@ -380,7 +419,7 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
 
     /** Returns the number of messages sent that have not been replied to yet */
     public int getPendingCount() {
-        return pendingCount;
+        return pendingCount.get();
     }
 
     /**
@@ -1,6 +1,8 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.messagebus;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * This is an implementation of the {@link ThrottlePolicy} that offers static limits to the amount of pending data a
  * {@link SourceSession} is allowed to have. You may choose to set a limit to the total number of pending messages (by
@@ -9,20 +11,24 @@ package com.yahoo.messagebus;
  *
  * <b>NOTE:</b> By context, "pending" is refering to the number of sent messages that have not been replied to yet.
  *
+ * This is thread safe, such that a {@link SourceSession} can send and receive replies concurrently without
+ * synchronizing on it. The size limit is checked before the size of the message is added, so concurrent senders may
+ * exceed it by up to the size of one message each.
+ *
  * @author Simon Thoresen Hult
  */
 public class StaticThrottlePolicy implements ThrottlePolicy {
 
-    private int maxPendingCount = 0;
-    private long maxPendingSize = 0;
-    private long pendingSize = 0;
+    private volatile int maxPendingCount = 0;
+    private volatile long maxPendingSize = 0;
+    private final AtomicLong pendingSize = new AtomicLong(0);
 
     @Override
     public boolean canSend(Message message, int pendingCount) {
         if (maxPendingCount > 0 && pendingCount >= maxPendingCount) {
             return false;
         }
-        if (maxPendingSize > 0 && pendingSize >= maxPendingSize) {
+        if (maxPendingSize > 0 && pendingSize.get() >= maxPendingSize) {
             return false;
         }
         return true;
@@ -32,13 +38,13 @@ public class StaticThrottlePolicy implements ThrottlePolicy {
     public void processMessage(Message message) {
         int size = message.getApproxSize();
         message.setContext(size);
-        pendingSize += size;
+        pendingSize.addAndGet(size);
     }
 
     @Override
     public void processReply(Reply reply) {
         int size = (Integer)reply.getContext();
-        pendingSize -= size;
+        pendingSize.addAndGet(-size);
     }
 
     /**
@@ -88,7 +94,7 @@ public class StaticThrottlePolicy implements ThrottlePolicy {
      * @return The size.
      */
     public long getPendingSize() {
-        return pendingSize;
+        return pendingSize.get();
     }
 
 }
@@ -0,0 +1,132 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus.network.rpc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Metric values produced by sending messages in batches, see {@link RPCNetworkParams#setBatchWindowSecs(double)}.
+ * The average batch size is the number of messages batched over the number of batches sent, and the average latency
+ * added by batching is the wait time over the number of messages batched.
+ */
+public class RPCBatchMetrics {
+
+    private static final RPCBatchMetrics instance = new RPCBatchMetrics();
+
+    private final AtomicLong batchesSent = new AtomicLong(0);
+    private final AtomicLong messagesBatched = new AtomicLong(0);
+    private final AtomicLong batchBytesSent = new AtomicLong(0);
+    private final AtomicLong batchWaitMicros = new AtomicLong(0);
+    private final AtomicLong batchesRejected = new AtomicLong(0);
+
+    private RPCBatchMetrics() {}
+
+    public static RPCBatchMetrics getInstance() { return instance; }
+
+    /** Returns the number of batch requests sent */
+    public long batchesSent() {
+        return batchesSent.get();
+    }
+
+    /** Returns the number of messages sent in batches */
+    public long messagesBatched() {
+        return messagesBatched.get();
+    }
+
+    /** Returns the number of compressed bytes sent in batches */
+    public long batchBytesSent() {
+        return batchBytesSent.get();
+    }
+
+    /** Returns the total number of microseconds messages waited to be sent in batches */
+    public long batchWaitMicros() {
+        return batchWaitMicros.get();
+    }
+
+    /** Returns the number of batches rejected by targets not supporting them, and resent message by message */
+    public long batchesRejected() {
+        return batchesRejected.get();
+    }
+
+    public Snapshot snapshot() { return new Snapshot(this); }
+
+    void addBatchSent(int messages, long bytes, long waitMicros) {
+        batchesSent.incrementAndGet();
+        messagesBatched.addAndGet(messages);
+        batchBytesSent.addAndGet(bytes);
+        batchWaitMicros.addAndGet(waitMicros);
+    }
+
+    void incrementBatchesRejected() {
+        batchesRejected.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return "RPCBatchMetrics{" +
+                "batchesSent=" + batchesSent +
+                ", messagesBatched=" + messagesBatched +
+                ", batchBytesSent=" + batchBytesSent +
+                ", batchWaitMicros=" + batchWaitMicros +
+                ", batchesRejected=" + batchesRejected +
+                '}';
+    }
+
+    public static class Snapshot {
+        public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0);
+
+        private final long batchesSent;
+        private final long messagesBatched;
+        private final long batchBytesSent;
+        private final long batchWaitMicros;
+        private final long batchesRejected;
+
+        private Snapshot(RPCBatchMetrics metrics) {
+            this(metrics.batchesSent.get(),
+                 metrics.messagesBatched.get(),
+                 metrics.batchBytesSent.get(),
+                 metrics.batchWaitMicros.get(),
+                 metrics.batchesRejected.get());
+        }
+
+        private Snapshot(long batchesSent, long messagesBatched, long batchBytesSent, long batchWaitMicros,
+                         long batchesRejected) {
+            this.batchesSent = batchesSent;
+            this.messagesBatched = messagesBatched;
+            this.batchBytesSent = batchBytesSent;
+            this.batchWaitMicros = batchWaitMicros;
+            this.batchesRejected = batchesRejected;
+        }
+
+        public long batchesSent() { return batchesSent; }
+        public long messagesBatched() { return messagesBatched; }
+        public long batchBytesSent() { return batchBytesSent; }
+        public long batchWaitMicros() { return batchWaitMicros; }
+        public long batchesRejected() { return batchesRejected; }
+
+        public Snapshot changesSince(Snapshot base) {
+            return new Snapshot(
+                changesSince(base, Snapshot::batchesSent),
+                changesSince(base, Snapshot::messagesBatched),
+                changesSince(base, Snapshot::batchBytesSent),
+                changesSince(base, Snapshot::batchWaitMicros),
+                changesSince(base, Snapshot::batchesRejected));
+        }
+
+        private long changesSince(Snapshot base, ToLongFunction<Snapshot> metricProperty) {
+            return metricProperty.applyAsLong(this) - metricProperty.applyAsLong(base);
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{" +
+                    "batchesSent=" + batchesSent +
+                    ", messagesBatched=" + messagesBatched +
+                    ", batchBytesSent=" + batchBytesSent +
+                    ", batchWaitMicros=" + batchWaitMicros +
+                    ", batchesRejected=" + batchesRejected +
+                    '}';
+        }
+    }
+
+}
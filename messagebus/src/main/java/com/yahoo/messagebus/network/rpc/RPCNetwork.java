@@ -38,6 +38,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -67,6 +69,10 @@ public class RPCNetwork implements Network, MethodHandler {
             new ThreadPoolExecutor(getNumThreads(), getNumThreads(), 0L, TimeUnit.SECONDS,
                                    new SynchronousQueue<>(false),
                                    ThreadFactoryFactory.getDaemonThreadFactory("mbus.net"), new ThreadPoolExecutor.CallerRunsPolicy());
+    private final double batchWindowSecs;
+    private final int maxBatchBytes;
+    private final int maxBatchMessages;
+    private final ScheduledThreadPoolExecutor batchScheduler;
     private static int getNumThreads() {
         return Math.max(2, Runtime.getRuntime().availableProcessors()/2);
     }
@@ -87,6 +93,15 @@ public class RPCNetwork implements Network, MethodHandler {
         orb.setMaxOutputBufferSize(params.getMaxOutputBufferSize());
         targetPool = new RPCTargetPool(params.getConnectionExpireSecs(), params.getNumTargetsPerSpec());
         servicePool = new RPCServicePool(this, 4096);
+        batchWindowSecs = params.getBatchWindowSecs();
+        maxBatchBytes = params.getMaxBatchBytes();
+        maxBatchMessages = params.getMaxBatchMessages();
+        if (batchWindowSecs > 0) {
+            batchScheduler = new ScheduledThreadPoolExecutor(1, ThreadFactoryFactory.getDaemonThreadFactory("mbus.batch"));
+            batchScheduler.setRemoveOnCancelPolicy(true);
+        } else {
+            batchScheduler = null;
+        }
 
         Method method = new Method("mbus.getVersion", "", "s", this);
         method.methodDesc("Retrieves the message bus version.");
@@ -275,6 +290,9 @@ public class RPCNetwork implements Network, MethodHandler {
             orb.transport().shutdown().join();
             targetPool.flushTargets(true);
             executor.shutdown();
+            if (batchScheduler != null) {
+                batchScheduler.shutdown();
+            }
             return true;
         }
         return false;
@@ -400,6 +418,42 @@ public class RPCNetwork implements Network, MethodHandler {
         return executor;
     }
 
+    /**
+     * Returns the number of seconds a message may wait to be sent in a batch, or 0 if messages are not batched.
+     *
+     * @return The number of seconds.
+     */
+    double getBatchWindowSecs() {
+        return batchWindowSecs;
+    }
+
+    /**
+     * Returns the number of message payload bytes at which a batch is sent without waiting for the batch window.
+     *
+     * @return The maximum number of bytes.
+     */
+    int getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    /**
+     * Returns the number of messages at which a batch is sent without waiting for the batch window.
+     *
+     * @return The maximum number of messages.
+     */
+    int getMaxBatchMessages() {
+        return maxBatchMessages;
+    }
+
+    /**
+     * Returns the scheduler used to send batches when their window expires, or null if messages are not batched.
+     *
+     * @return The scheduler.
+     */
+    ScheduledExecutorService getBatchScheduler() {
+        return batchScheduler;
+    }
+
     private class SendTask implements Runnable {
 
         final Protocol protocol;
@@ -20,6 +20,9 @@ public class RPCNetworkParams {
     private int maxOutputBufferSize = 256 * 1024;
     private double connectionExpireSecs = 30;
     private int numTargetsPerSpec = 1;
+    private double batchWindowSecs = 0;
+    private int maxBatchBytes = 256 * 1024;
+    private int maxBatchMessages = 256;
 
     /**
      * Constructs a new instance of this class with reasonable default values.
@@ -42,6 +45,9 @@ public class RPCNetworkParams {
         maxInputBufferSize = params.maxInputBufferSize;
         maxOutputBufferSize = params.maxOutputBufferSize;
         numTargetsPerSpec = params.numTargetsPerSpec;
+        batchWindowSecs = params.batchWindowSecs;
+        maxBatchBytes = params.maxBatchBytes;
+        maxBatchMessages = params.maxBatchMessages;
     }
 
     /**
@@ -152,6 +158,74 @@ public class RPCNetworkParams {
         return numTargetsPerSpec;
     }
 
+    /**
+     * Returns the number of seconds a message may wait to be sent in a batch with other messages to the same target.
+     *
+     * @return The number of seconds, where 0 means that messages are not batched.
+     */
+    public double getBatchWindowSecs() {
+        return batchWindowSecs;
+    }
+
+    /**
+     * Sets the number of seconds a message may wait to be sent in a batch with other messages to the same target.
+     * Batching is disabled by default, and is enabled by setting this to a value larger than 0. A batch is sent as a
+     * single compressed request, which saves the overhead of a request per message at the cost of the added latency.
+     * The replies to a batch are returned together, so each message in it also waits for the slowest message of the
+     * batch to be replied to, and the batch is sent with the largest timeout of its messages. Use
+     * {@link #setMaxBatchMessages(int)} to bound this. Messages are sent one by one to targets which do not support
+     * batches.
+     *
+     * @param secs The number of seconds, where 0 means that messages are not batched.
+     * @return This, to allow chaining.
+     */
+    public RPCNetworkParams setBatchWindowSecs(double secs) {
+        this.batchWindowSecs = secs;
+        return this;
+    }
+
+    /**
+     * Returns the number of message payload bytes at which a batch is sent without waiting for the batch window.
+     *
+     * @return The maximum number of bytes.
+     */
+    public int getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    /**
+     * Sets the number of message payload bytes at which a batch is sent without waiting for the batch window.
+     *
+     * @param maxBatchBytes The maximum number of bytes.
+     * @return This, to allow chaining.
+     */
+    public RPCNetworkParams setMaxBatchBytes(int maxBatchBytes) {
+        this.maxBatchBytes = maxBatchBytes;
+        return this;
+    }
+
+    /**
+     * Returns the number of messages at which a batch is sent without waiting for the batch window.
+     *
+     * @return The maximum number of messages.
+     */
+    public int getMaxBatchMessages() {
+        return maxBatchMessages;
+    }
+
+    /**
+     * Sets the number of messages at which a batch is sent without waiting for the batch window. As no reply to a
+     * batch is returned before all its messages are replied to, this also bounds how many messages may be held up by
+     * a single slow message.
+     *
+     * @param maxBatchMessages The maximum number of messages.
+     * @return This, to allow chaining.
+     */
+    public RPCNetworkParams setMaxBatchMessages(int maxBatchMessages) {
+        this.maxBatchMessages = maxBatchMessages;
+        return this;
+    }
+
     /**
      * Returns the maximum input buffer size allowed for the underlying FNET connection.
      *
@@ -50,6 +50,25 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
             serverIdent = clientIdent;
         }
         net.getSupervisor().addMethod(buildMethod());
+        attachBatching(net);
+    }
+
+    /**
+     * Called when this is attached to a network, to set up sending and receiving messages in batches. Adapters which
+     * do not support batches send each message as a request of its own.
+     *
+     * @param net The network this is attached to.
+     */
+    protected void attachBatching(RPCNetwork net) { }
+
+    /**
+     * Adds a message to a batch of messages to the same target, unless it should be sent as a request of its own.
+     *
+     * @return True if the message was added to a batch, which will deliver its reply.
+     */
+    boolean sendBatched(SendContext ctx, RPCServiceAddress address, Version version, Route route, Message msg,
+                        byte[] payload) {
+        return false;
     }
 
     @Override
@@ -60,8 +79,6 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
         Route route = new Route(recipient.getRoute());
         Hop hop = route.removeHop(0);
 
-        Request req = encodeRequest(version, route, address,msg, timeRemaining, payload, ctx.trace.getLevel());
-
         if (ctx.trace.shouldTrace(TraceLevel.SEND_RECEIVE)) {
             ctx.trace.trace(TraceLevel.SEND_RECEIVE,
                     "Sending message (version " + version + ") from " + clientIdent + " to '" +
@@ -69,6 +86,7 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
         }
 
         if (hop.getIgnoreResult()) {
+            Request req = encodeRequest(version, route, address,msg, timeRemaining, payload, ctx.trace.getLevel());
             address.getTarget().getJRTTarget().invokeVoid(req);
             if (ctx.trace.shouldTrace(TraceLevel.SEND_RECEIVE)) {
                 ctx.trace.trace(TraceLevel.SEND_RECEIVE,
@@ -77,13 +95,26 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
             Reply reply = new EmptyReply();
             reply.getTrace().swap(ctx.trace);
             net.getOwner().deliverReply(reply, recipient);
-        } else {
-            req.setContext(ctx);
-            address.getTarget().getJRTTarget().invokeAsync(req, ctx.timeout, this);
+            req.discardParameters(); // allow garbage collection of request parameters
+        } else if ( ! sendBatched(ctx, address, version, route, msg, payload)) {
+            sendRequest(ctx, address, version, route, msg, payload, timeRemaining);
         }
+    }
+
+    /** Sends a message as a request of its own, and delivers its reply to the recipient of the given context */
+    final void sendRequest(SendContext ctx, RPCServiceAddress address, Version version, Route route, Message msg,
+                           byte[] payload, long timeRemaining) {
+        Request req = encodeRequest(version, route, address,msg, timeRemaining, payload, ctx.trace.getLevel());
+        req.setContext(ctx);
+        address.getTarget().getJRTTarget().invokeAsync(req, timeRemaining * 0.001, this);
         req.discardParameters(); // allow garbage collection of request parameters
     }
 
+    /** Returns the network this is attached to */
+    final RPCNetwork getNetwork() {
+        return net;
+    }
+
     protected final Object decode(Utf8Array protocolName, Version version, byte [] payload) {
         Protocol protocol = net.getOwner().getProtocol(protocolName);
         if (protocol != null) {
@@ -112,29 +143,32 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
 
     private void doRequestDone(Request req) {
         SendContext ctx = (SendContext)req.getContext();
-        String serviceName = ((RPCServiceAddress)ctx.recipient.getServiceAddress()).getServiceName();
-        Reply reply;
-        Error error = null;
         if (!req.checkReturnTypes(getReturnSpec())) {
-            // Map all known JRT errors to the appropriate message bus error.
-            reply = new EmptyReply();
-            switch (req.errorCode()) {
-                case com.yahoo.jrt.ErrorCode.TIMEOUT:
-                    error = new Error(ErrorCode.TIMEOUT,
-                            "A timeout occured while waiting for '" + serviceName + "' (" +
-                                    ctx.timeout + " seconds expired); " + req.errorMessage());
-                    break;
-                case com.yahoo.jrt.ErrorCode.CONNECTION:
-                    error = new Error(ErrorCode.CONNECTION_ERROR,
-                            "A connection error occured for '" + serviceName + "'; " + req.errorMessage());
-                    break;
-                default:
-                    error = new Error(ErrorCode.NETWORK_ERROR,
-                            "A network error occured for '" + serviceName + "'; " + req.errorMessage());
-            }
+            deliverReply(ctx, new EmptyReply(), toError(req, ctx));
         } else {
-            reply = createReply(req.returnValues(), serviceName, ctx.trace);
+            deliverReply(ctx, createReply(req.returnValues(), ctx.serviceName(), ctx.trace), null);
         }
+    }
+
+    /** Maps all known JRT errors of the given failed request to the appropriate message bus error */
+    final Error toError(Request req, SendContext ctx) {
+        String serviceName = ctx.serviceName();
+        switch (req.errorCode()) {
+            case com.yahoo.jrt.ErrorCode.TIMEOUT:
+                return new Error(ErrorCode.TIMEOUT,
+                        "A timeout occured while waiting for '" + serviceName + "' (" +
+                                ctx.timeout + " seconds expired); " + req.errorMessage());
+            case com.yahoo.jrt.ErrorCode.CONNECTION:
+                return new Error(ErrorCode.CONNECTION_ERROR,
+                        "A connection error occured for '" + serviceName + "'; " + req.errorMessage());
+            default:
+                return new Error(ErrorCode.NETWORK_ERROR,
+                        "A network error occured for '" + serviceName + "'; " + req.errorMessage());
+        }
+    }
+
+    /** Delivers the reply to a sent message, with the given error if not null, to the recipient of the message */
+    final void deliverReply(SendContext ctx, Reply reply, Error error) {
         if (ctx.trace.shouldTrace(TraceLevel.SEND_RECEIVE)) {
             ctx.trace.trace(TraceLevel.SEND_RECEIVE,
                     "Reply (type " + reply.getType() + ") received at " + clientIdent + ".");
@@ -169,23 +203,28 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
 
         request.discardParameters(); // allow garbage collection of request parameters
 
+        receive(p, new RequestReplyContext(request, p.version));
+    }
+
+    /** Delivers a received message to its session, and returns its reply through the given context */
+    final void receive(Params p, ReplyContext ctx) {
         // Make sure that the owner understands the protocol.
         Protocol protocol = net.getOwner().getProtocol(p.protocolName);
         if (protocol == null) {
-            replyError(request, p.version, p.traceLevel,
+            replyError(ctx, p.traceLevel,
                     new Error(ErrorCode.UNKNOWN_PROTOCOL,
                             "Protocol '" + p.protocolName + "' is not known by " + serverIdent + "."));
             return;
         }
         Routable routable = protocol.decode(p.version, p.payload);
         if (routable == null) {
-            replyError(request, p.version, p.traceLevel,
+            replyError(ctx, p.traceLevel,
                     new Error(ErrorCode.DECODE_ERROR,
                             "Protocol '" + protocol.getName() + "' failed to decode routable."));
             return;
         }
         if (routable instanceof Reply) {
-            replyError(request, p.version, p.traceLevel,
+            replyError(ctx, p.traceLevel,
                     new Error(ErrorCode.DECODE_ERROR,
                             "Payload decoded to a reply when expecting a message."));
             return;
@@ -194,7 +233,7 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
         if (p.route != null && p.route.length() > 0) {
             msg.setRoute(net.getRoute(p.route));
         }
-        msg.setContext(new ReplyContext(request, p.version));
+        msg.setContext(ctx);
         msg.pushHandler(this);
         msg.setRetryEnabled(p.retryEnabled);
         msg.setRetry(p.retry);
@@ -231,27 +270,25 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
                         "An error occured while encoding the reply."));
             }
         }
-        createResponse(ctx.request.returnValues(), reply, ctx.version, payload);
-        ctx.request.returnRequest();
+        ctx.returnReply(reply, payload);
     }
 
     /**
      * Send an error reply for a given request.
      *
-     * @param request    The JRT request to reply to.
-     * @param version    The version to serialize for.
+     * @param ctx        The context to return the reply through.
      * @param traceLevel The trace level to set in the reply.
      * @param err        The error to reply with.
      */
-    private void replyError(Request request, Version version, int traceLevel, Error err) {
+    private void replyError(ReplyContext ctx, int traceLevel, Error err) {
         Reply reply = new EmptyReply();
-        reply.setContext(new ReplyContext(request, version));
+        reply.setContext(ctx);
         reply.getTrace().setLevel(traceLevel);
         reply.addError(err);
         handleReply(reply);
     }
 
-    private static class SendContext {
+    static class SendContext {
 
         final RoutingNode recipient;
         final Trace trace;
@@ -262,16 +299,37 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
             trace = new Trace(recipient.getTrace().getLevel());
             timeout = timeRemaining * 0.001;
         }
+
+        String serviceName() {
+            return ((RPCServiceAddress)recipient.getServiceAddress()).getServiceName();
+        }
     }
 
-    private static class ReplyContext {
+    /** The context of a received message, through which its encoded reply is returned to the sender */
+    abstract static class ReplyContext {
 
-        final Request request;
         final Version version;
 
-        ReplyContext(Request request, Version version) {
-            this.request = request;
+        ReplyContext(Version version) {
             this.version = version;
         }
+
+        abstract void returnReply(Reply reply, byte[] payload);
+    }
+
+    private class RequestReplyContext extends ReplyContext {
+
+        final Request request;
+
+        RequestReplyContext(Request request, Version version) {
+            super(version);
+            this.request = request;
+        }
+
+        @Override
+        void returnReply(Reply reply, byte[] payload) {
+            createResponse(request.returnValues(), reply, version, payload);
+            request.returnRequest();
+        }
     }
 }
@@ -0,0 +1,218 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus.network.rpc;
+
+import com.yahoo.component.Version;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.RequestWaiter;
+import com.yahoo.messagebus.EmptyReply;
+import com.yahoo.messagebus.Error;
+import com.yahoo.messagebus.ErrorCode;
+import com.yahoo.messagebus.Message;
+import com.yahoo.messagebus.TraceLevel;
+import com.yahoo.messagebus.routing.Route;
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Inspector;
+import com.yahoo.slime.Slime;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces the messages sent by {@link RPCSendV2} to the same {@link RPCTarget} into batches, each sent as a single
+ * "mbus.slime.batch" request. A batch is sent when the batch window of its first message expires, or as soon as the
+ * payloads of its messages reach the max batch size, or its messages reach the max batch message count. The replies
+ * in the response are delivered to the recipients of the messages in the batch as if each had been sent on its own.
+ *
+ * The response is returned only when all the messages of the batch are replied to, so the reply to each message is
+ * delayed until the slowest message in its batch is done, and the batch request uses the largest timeout of its
+ * messages. The max batch message count bounds how many messages one slow message may hold up.
+ *
+ * Targets which do not know the batch method are marked as not accepting batches when the first batch is rejected,
+ * and the messages of that batch, and all later messages to the target, are sent as requests of their own.
+ */
+class RPCSendBatcher implements RequestWaiter {
+
+    private final RPCSendV2 adapter;
+    private final RPCNetwork net;
+    private final long windowNanos;
+    private final int maxBytes;
+    private final int maxMessages;
+    private final RPCBatchMetrics metrics = RPCBatchMetrics.getInstance();
+    private final Map<RPCTarget, Batch> batches = new HashMap<>(); // guarded by this
+
+    RPCSendBatcher(RPCSendV2 adapter, RPCNetwork net) {
+        this.adapter = adapter;
+        this.net = net;
+        this.windowNanos = (long)(net.getBatchWindowSecs() * 1e9);
+        this.maxBytes = net.getMaxBatchBytes();
+        this.maxMessages = net.getMaxBatchMessages();
+    }
+
+    /**
+     * Adds a message to the batch of its target.
+     *
+     * @return True if the message was added, or false if it must be sent on its own as the target does not accept batches.
+     */
+    boolean add(RPCSend.SendContext ctx, RPCServiceAddress address, Version version, Route route, Message msg,
+                byte[] payload) {
+        RPCTarget target = address.getTarget();
+        if ( ! target.acceptsBatches()) {
+            return false;
+        }
+        Entry entry = new Entry(ctx, address, version, route, msg, payload);
+        Batch full = null;
+        synchronized (this) {
+            Batch batch = batches.get(target);
+            if (batch == null) {
+                batch = new Batch(target);
+                batches.put(target, batch);
+                Batch scheduled = batch;
+                try {
+                    batch.timer = net.getBatchScheduler().schedule(() -> flush(scheduled), windowNanos, TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    // network is shutting down; send at once, to have the message fail as other messages do
+                }
+            }
+            batch.add(entry);
+            if (batch.bytes >= maxBytes || batch.entries.size() >= maxMessages || batch.timer == null) {
+                batches.remove(target);
+                if (batch.timer != null) {
+                    batch.timer.cancel(false);
+                }
+                full = batch;
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return true;
+    }
+
+    private void flush(Batch batch) {
+        synchronized (this) {
+            if ( ! batches.remove(batch.target, batch)) {
+                return; // already sent when full
+            }
+        }
+        // encode and compress on the network threads, to keep the single scheduler thread free to flush other batches
+        if (net.getExecutor().isShutdown()) {
+            send(batch); // to have the messages fail as other messages do
+        } else {
+            net.getExecutor().execute(() -> send(batch));
+        }
+    }
+
+    private void send(Batch batch) {
+        Slime slime = new Slime();
+        Cursor messages = RPCSendV2.newBatch(slime);
+        double timeout = 0;
+        long waitNanos = 0;
+        long now = System.nanoTime();
+        for (Entry entry : batch.entries) {
+            adapter.encodeMessage(messages.addObject(), entry.version, entry.route, entry.address, entry.msg,
+                                  entry.payload, entry.ctx.trace.getLevel());
+            if (entry.ctx.trace.shouldTrace(TraceLevel.SEND_RECEIVE)) {
+                entry.ctx.trace.trace(TraceLevel.SEND_RECEIVE,
+                                      "Sending message in a batch of " + batch.entries.size() + " messages.");
+            }
+            timeout = Math.max(timeout, entry.ctx.timeout);
+            waitNanos += now - entry.addedNanos;
+        }
+        Request req = adapter.encodeBatchRequest(slime);
+        metrics.addBatchSent(batch.entries.size(), req.parameters().get(2).asData().length, waitNanos / 1000);
+        req.setContext(batch);
+        batch.target.getJRTTarget().invokeAsync(req, timeout, this);
+        req.discardParameters(); // allow garbage collection of request parameters
+    }
+
+    @Override
+    public void handleRequestDone(Request req) {
+        net.getExecutor().execute(() -> doRequestDone(req));
+    }
+
+    private void doRequestDone(Request req) {
+        Batch batch = (Batch)req.getContext();
+        if (req.errorCode() == com.yahoo.jrt.ErrorCode.NO_SUCH_METHOD) {
+            batch.target.rejectBatches();
+            metrics.incrementBatchesRejected();
+            for (Entry entry : batch.entries) {
+                long timeRemaining = entry.msg.getTimeRemainingNow(); // time has passed since the batch was sent
+                if (timeRemaining <= 0) {
+                    adapter.deliverReply(entry.ctx, new EmptyReply(),
+                                         new Error(ErrorCode.TIMEOUT, "Aborting transmission because zero time remains."));
+                } else {
+                    adapter.sendRequest(entry.ctx, entry.address, entry.version, entry.route, entry.msg,
+                                        entry.payload, timeRemaining);
+                }
+            }
+            return;
+        }
+        if ( ! req.checkReturnTypes("bix")) {
+            for (Entry entry : batch.entries) {
+                adapter.deliverReply(entry.ctx, new EmptyReply(), adapter.toError(req, entry.ctx));
+            }
+            return;
+        }
+        Inspector replies = adapter.decodeBatchResponse(req.returnValues());
+        for (int i = 0; i < batch.entries.size(); i++) {
+            Entry entry = batch.entries.get(i);
+            if (i < replies.entries()) {
+                adapter.deliverReply(entry.ctx,
+                                     adapter.decodeReply(replies.entry(i), entry.ctx.serviceName(), entry.ctx.trace),
+                                     null);
+            } else {
+                adapter.deliverReply(entry.ctx, new EmptyReply(),
+                                     new Error(ErrorCode.NETWORK_ERROR,
+                                               "A network error occured for '" + entry.ctx.serviceName() + "'; " +
+                                               "the response to a batch of " + batch.entries.size() + " messages " +
+                                               "had only " + replies.entries() + " replies."));
+            }
+        }
+    }
+
+    /** A message waiting to be sent in a batch */
+    private static class Entry {
+
+        final RPCSend.SendContext ctx;
+        final RPCServiceAddress address;
+        final Version version;
+        final Route route;
+        final Message msg;
+        final byte[] payload;
+        final long addedNanos = System.nanoTime();
+
+        Entry(RPCSend.SendContext ctx, RPCServiceAddress address, Version version, Route route, Message msg,
+              byte[] payload) {
+            this.ctx = ctx;
+            this.address = address;
+            this.version = version;
+            this.route = route;
+            this.msg = msg;
+            this.payload = payload;
+        }
+    }
+
+    /** The messages to one target which are sent together */
+    private static class Batch {
+
+        final RPCTarget target;
+        final List<Entry> entries = new ArrayList<>();
+        int bytes = 0;
+        ScheduledFuture<?> timer;
+
+        Batch(RPCTarget target) {
+            this.target = target;
+        }
+
+        void add(Entry entry) {
+            entries.add(entry);
+            bytes += entry.payload.length;
+        }
+    }
+
+}
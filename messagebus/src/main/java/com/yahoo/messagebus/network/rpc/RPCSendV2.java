@@ -24,8 +24,11 @@ import com.yahoo.slime.Slime;
 import com.yahoo.text.Utf8;
 import com.yahoo.text.Utf8Array;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * Implements the request adapter for method "mbus.slime".
+ * Implements the request adapter for method "mbus.slime", and for method "mbus.slime.batch", which sends a batch of
+ * messages to the same target in a single request, and returns their replies in a single response.
  *
  * @author baldersheim
  */
@@ -34,6 +37,9 @@ public class RPCSendV2 extends RPCSend {
     private final static String METHOD_NAME = "mbus.slime";
     private final static String METHOD_PARAMS = "bixbix";
     private final static String METHOD_RETURN = "bixbix";
+    private final static String BATCH_METHOD_NAME = "mbus.slime.batch";
+    private final static String BATCH_METHOD_PARAMS = "bix";
+    private final static String BATCH_METHOD_RETURN = "bix";
     private final Compressor compressor = new Compressor(CompressionType.LZ4, 3, 0.90, 1024);
 
     @Override
@@ -72,6 +78,32 @@ public class RPCSendV2 extends RPCSend {
     private static final String CODE_F = new String("code");
     private static final String BLOB_F = new String("msg");
     private static final String MSG_F = new String("msg");
+    private static final String MSGS_F = new String("msgs");
+    private static final String REPLIES_F = new String("replies");
+
+    private RPCSendBatcher batcher = null;
+
+    @Override
+    protected void attachBatching(RPCNetwork net) {
+        Method method = new Method(BATCH_METHOD_NAME, BATCH_METHOD_PARAMS, BATCH_METHOD_RETURN, this::invokeBatch);
+        method.methodDesc("Send a batch of message bus requests and get their replies back.");
+        method.paramDesc(0, "encoding", "Encoding type of the batch.")
+                .paramDesc(1, "decoded_size", "Number of bytes after batch decoding.")
+                .paramDesc(2, "payload", "Slime encoded array of messages, each as the header of mbus.slime with its body.");
+        method.returnDesc(0, "encoding", "Encoding type of the batch.")
+                .returnDesc(1, "decoded_size", "Number of bytes after batch decoding.")
+                .returnDesc(2, "payload", "Slime encoded array of the replies to the messages, in order.");
+        net.getSupervisor().addMethod(method);
+        if (net.getBatchWindowSecs() > 0) {
+            batcher = new RPCSendBatcher(this, net);
+        }
+    }
+
+    @Override
+    boolean sendBatched(SendContext ctx, RPCServiceAddress address, Version version, Route route, Message msg,
+                        byte[] payload) {
+        return batcher != null && batcher.add(ctx, address, version, route, msg, payload);
+    }
 
     @Override
     protected Request encodeRequest(Version version, Route route, RPCServiceAddress address, Message msg,
@@ -86,8 +118,32 @@ public class RPCSendV2 extends RPCSend {
         v.add(new DataValue(new byte[0]));
 
         Slime slime = new Slime();
-        Cursor root = slime.setObject();
+        encodeMessage(slime.setObject(), version, route, address, msg, payload, traceLevel);
+        addSlime(v, slime);
+
+        return req;
+    }
+
+    /** Encodes a batch of messages, each encoded by {@link #encodeMessage} into the given array, as a request */
+    Request encodeBatchRequest(Slime messages) {
+        Request req = new Request(BATCH_METHOD_NAME);
+        addSlime(req.parameters(), messages);
+        return req;
+    }
+
+    /** Returns a new slime object holding an empty array to add the messages of a batch to */
+    static Cursor newBatch(Slime slime) {
+        return slime.setObject().setArray(MSGS_F);
+    }
 
+    /** Returns the array of replies in the response to a batch */
+    Inspector decodeBatchResponse(Values ret) {
+        return decodeSlime(ret, 0).field(REPLIES_F);
+    }
+
+    /** Encodes the header and payload of a message into the given object */
+    void encodeMessage(Cursor root, Version version, Route route, RPCServiceAddress address, Message msg,
+                       byte[] payload, int traceLevel) {
         root.setString(VERSION_F, version.toString());
         root.setString(ROUTE_F, route.toString());
         root.setString(SESSION_F, address.getSessionName());
@@ -97,24 +153,32 @@ public class RPCSendV2 extends RPCSend {
         root.setLong(TIMEREMAINING_F, msg.getTimeRemaining());
         root.setLong(TRACELEVEL_F, traceLevel);
         root.setData(BLOB_F, payload);
+    }
 
+    /** Adds the compressed encoding of the given slime to the given values, as encoding type, size and payload */
+    private void addSlime(Values v, Slime slime) {
         byte[] serializedSlime = BinaryFormat.encode(slime);
         Compressor.Compression compressionResult = compressor.compress(serializedSlime);
 
         v.add(new Int8Value(compressionResult.type().getCode()));
         v.add(new Int32Value(compressionResult.uncompressedSize()));
         v.add(new DataValue(compressionResult.data()));
+    }
 
-        return req;
+    /** Returns the slime whose compressed encoding is given by the encoding type, size and payload at the index */
+    private Inspector decodeSlime(Values v, int index) {
+        CompressionType compression = CompressionType.valueOf(v.get(index).asInt8());
+        byte[] slimeBytes = compressor.decompress(v.get(index + 2).asData(), compression, v.get(index + 1).asInt32());
+        return BinaryFormat.decode(slimeBytes).get();
     }
 
     @Override
     protected Reply createReply(Values ret, String serviceName, Trace trace) {
-        CompressionType compression = CompressionType.valueOf(ret.get(3).asInt8());
-        byte[] slimeBytes = compressor.decompress(ret.get(5).asData(), compression, ret.get(4).asInt32());
-        Slime slime = BinaryFormat.decode(slimeBytes);
-        Inspector root = slime.get();
+        return decodeReply(decodeSlime(ret, 3), serviceName, trace);
+    }
 
+    /** Decodes a reply from the given object */
+    Reply decodeReply(Inspector root, String serviceName, Trace trace) {
         Version version = new Version(root.field(VERSION_F).asString());
         byte[] payload = root.field(BLOB_F).asData();
 
@@ -151,10 +215,10 @@ public class RPCSendV2 extends RPCSend {
     }
 
     protected Params toParams(Values args) {
-        CompressionType compression = CompressionType.valueOf(args.get(3).asInt8());
-        byte[] slimeBytes = compressor.decompress(args.get(5).asData(), compression, args.get(4).asInt32());
-        Slime slime = BinaryFormat.decode(slimeBytes);
-        Inspector root = slime.get();
+        return toParams(decodeSlime(args, 3));
+    }
+
+    private Params toParams(Inspector root) {
         Params p = new Params();
         p.version = new Version(root.field(VERSION_F).asString());
         p.route = root.field(ROUTE_F).asString();
@@ -175,8 +239,12 @@ public class RPCSendV2 extends RPCSend {
         ret.add(new DataValue(new byte[0]));
 
         Slime slime = new Slime();
-        Cursor root = slime.setObject();
+        encodeReply(slime.setObject(), reply, version, payload);
+        addSlime(ret, slime);
+    }
 
+    /** Encodes a reply into the given object */
+    private void encodeReply(Cursor root, Reply reply, Version version, byte [] payload) {
         root.setString(VERSION_F, version.toString());
         root.setDouble(RETRYDELAY_F, reply.getRetryDelay());
         root.setString(PROTOCOL_F, reply.getProtocol().toString());
@@ -197,13 +265,80 @@ public class RPCSendV2 extends RPCSend {
                 }
             }
         }
+    }
 
-        byte[] serializedSlime = BinaryFormat.encode(slime);
-        Compressor.Compression compressionResult = compressor.compress(serializedSlime);
+    private void invokeBatch(Request request) {
+        request.detach();
+        getNetwork().getExecutor().execute(() -> doInvokeBatch(request));
+    }
+
+    private void doInvokeBatch(Request request) {
+        Inspector messages = decodeSlime(request.parameters(), 0).field(MSGS_F);
+
+        request.discardParameters(); // allow garbage collection of request parameters
+
+        BatchReplies replies = new BatchReplies(request, messages.entries());
+        for (int i = 0; i < messages.entries(); i++) {
+            Params p = toParams(messages.entry(i));
+            receive(p, new BatchReplyContext(replies, i, p.version));
+        }
+        if (messages.entries() == 0) {
+            replies.returnReplies();
+        }
+    }
+
+    /** The replies to a received batch of messages, which are returned together when all have arrived */
+    private class BatchReplies {
+
+        final Request request;
+        final Reply[] replies;
+        final Version[] versions;
+        final byte[][] payloads;
+        final AtomicInteger pending;
+
+        BatchReplies(Request request, int size) {
+            this.request = request;
+            replies = new Reply[size];
+            versions = new Version[size];
+            payloads = new byte[size][];
+            pending = new AtomicInteger(size);
+        }
+
+        void returnReply(int index, Reply reply, Version version, byte[] payload) {
+            replies[index] = reply;
+            versions[index] = version;
+            payloads[index] = payload;
+            if (pending.decrementAndGet() == 0) {
+                returnReplies();
+            }
+        }
 
-        ret.add(new Int8Value(compressionResult.type().getCode()));
-        ret.add(new Int32Value(compressionResult.uncompressedSize()));
-        ret.add(new DataValue(compressionResult.data()));
+        void returnReplies() {
+            Slime slime = new Slime();
+            Cursor array = slime.setObject().setArray(REPLIES_F);
+            for (int i = 0; i < replies.length; i++) {
+                encodeReply(array.addObject(), replies[i], versions[i], payloads[i]);
+            }
+            addSlime(request.returnValues(), slime);
+            request.returnRequest();
+        }
+    }
+
+    private static class BatchReplyContext extends ReplyContext {
+
+        final BatchReplies replies;
+        final int index;
+
+        BatchReplyContext(BatchReplies replies, int index, Version version) {
+            super(version);
+            this.replies = replies;
+            this.index = index;
+        }
+
+        @Override
+        void returnReply(Reply reply, byte[] payload) {
+            replies.returnReply(index, reply, version, payload);
+        }
     }
 
 }
@@ -28,6 +28,7 @@ public class RPCTarget implements RequestWaiter {
     private final String name;
     private final Target target;
     private boolean targetInvoked = false;
+    private volatile boolean acceptsBatches = true;
     private Version version = null;
     private List<VersionHandler> versionHandlers = new LinkedList<>();
 
@@ -75,6 +76,24 @@ public class RPCTarget implements RequestWaiter {
         }
     }
 
+    /**
+     * <p>Returns whether messages to this target may be sent in batches. This
+     * is true until a batch is rejected by the target.</p>
+     *
+     * @return True if batches may be sent.
+     */
+    boolean acceptsBatches() {
+        return acceptsBatches;
+    }
+
+    /**
+     * <p>Marks this target as not supporting batches, such that all further
+     * messages are sent to it one by one.</p>
+     */
+    void rejectBatches() {
+        acceptsBatches = false;
+    }
+
     /**
      * <p>Returns the current reference count of this target. If this ever
      * returns 0 it means the underlying connection is closed and invalid.</p>
@@ -178,6 +178,26 @@ public class ThrottlerTestCase {
 
     }
 
+    @Test
+    public void testIdleTimePeriodIsNotResetByRejectedSends() {
+        CustomTimer timer = new CustomTimer();
+        DynamicThrottlePolicy policy = new DynamicThrottlePolicy(timer);
+
+        policy.setWindowSizeIncrement(5)
+              .setResizeRate(1);
+
+        double windowSize = getWindowSize(policy, timer, 100);
+        assertTrue(windowSize >= 90 && windowSize <= 110);
+
+        Message msg = new SimpleMessage("foo");
+        timer.millis += 30 * 1000;
+        assertFalse(policy.canSend(msg, 1000));
+
+        timer.millis += 30 * 1000 + 1;
+        assertTrue(policy.canSend(msg, 50));
+        assertEquals(55, policy.getMaxPendingCount());
+    }
+
     @Test
     public void testMinWindowSize() {
         CustomTimer timer = new CustomTimer();
@@ -0,0 +1,92 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus.network.local;
+
+import com.yahoo.messagebus.DestinationSession;
+import com.yahoo.messagebus.DestinationSessionParams;
+import com.yahoo.messagebus.DynamicThrottlePolicy;
+import com.yahoo.messagebus.Message;
+import com.yahoo.messagebus.MessageBus;
+import com.yahoo.messagebus.MessageBusParams;
+import com.yahoo.messagebus.Reply;
+import com.yahoo.messagebus.SourceSession;
+import com.yahoo.messagebus.SourceSessionParams;
+import com.yahoo.messagebus.routing.Route;
+import com.yahoo.messagebus.test.SimpleMessage;
+import com.yahoo.messagebus.test.SimpleProtocol;
+import com.yahoo.messagebus.test.SimpleReply;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the number of messages per second sent through a single source session over the local network,
+ * as the number of threads sending on the session grows.
+ *
+ * Run with e.g. <code>java -cp ... com.yahoo.messagebus.network.local.LocalNetworkBenchmark</code>
+ */
+public class LocalNetworkBenchmark {
+
+    private static final int[] SENDER_THREADS = { 1, 2, 4, 8, 16 };
+    private static final long WARMUP_MILLIS = 1000;
+    private static final long RUN_MILLIS = 3000;
+
+    public static void main(String[] args) throws InterruptedException {
+        LocalWire wire = new LocalWire();
+        MessageBus sourceBus = new MessageBus(new LocalNetwork(wire),
+                                              new MessageBusParams().addProtocol(new SimpleProtocol())
+                                                                    .setRetryPolicy(null));
+        MessageBus destinationBus = new MessageBus(new LocalNetwork(wire),
+                                                   new MessageBusParams().addProtocol(new SimpleProtocol())
+                                                                         .setRetryPolicy(null));
+        DestinationSession[] destination = new DestinationSession[1];
+        destination[0] = destinationBus.createDestinationSession(new DestinationSessionParams().setMessageHandler(msg -> {
+            Reply reply = new SimpleReply("bar");
+            reply.swapState(msg);
+            destination[0].reply(reply);
+        }));
+        Route route = Route.parse(destination[0].getConnectionSpec());
+
+        System.out.println("Messages per second through one source session:");
+        for (int threads : SENDER_THREADS) {
+            AtomicLong replies = new AtomicLong();
+            SourceSession source = sourceBus.createSourceSession(new SourceSessionParams()
+                    .setTimeout(600.0)
+                    .setThrottlePolicy(new DynamicThrottlePolicy().setMaxPendingCount(10000))
+                    .setReplyHandler(reply -> replies.incrementAndGet()));
+            AtomicBoolean stop = new AtomicBoolean(false);
+            List<Thread> senders = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Thread sender = new Thread(() -> {
+                    try {
+                        while ( ! stop.get()) {
+                            Message msg = new SimpleMessage("foo").setRoute(route);
+                            source.sendBlocking(msg);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                sender.start();
+                senders.add(sender);
+            }
+            Thread.sleep(WARMUP_MILLIS);
+            long startReplies = replies.get();
+            long startTime = System.nanoTime();
+            Thread.sleep(RUN_MILLIS);
+            long count = replies.get() - startReplies;
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            stop.set(true);
+            for (Thread sender : senders) {
+                sender.join();
+            }
+            source.close();
+            System.out.println(String.format(Locale.US, "    %2d sender threads %12.0f ops/s", threads, count / seconds));
+        }
+        sourceBus.destroy();
+        destinationBus.destroy();
+    }
+
+}
@@ -10,9 +10,13 @@ import com.yahoo.messagebus.test.SimpleProtocol;
 import com.yahoo.messagebus.test.SimpleReply;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
@@ -146,6 +150,59 @@ public class LocalNetworkTest {
 
     }
 
+    @Test
+    public void requireThatConcurrentSendersDoNotExceedMaxPendingCount() throws Exception {
+        final LocalWire wire = new LocalWire();
+
+        final Server serverA = new Server(wire);
+        final SourceSession source = serverA.newSourceSession(new StaticThrottlePolicy().setMaxPendingCount(100));
+
+        final Server serverB = new Server(wire);
+        final DestinationSession destination = serverB.newDestinationSession();
+
+        final int threads = 8;
+        final AtomicInteger accepted = new AtomicInteger();
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        List<Thread> senders = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread sender = new Thread(() -> {
+                try {
+                    barrier.await();
+                    for (int j = 0; j < 1000; j++) {
+                        Message msg = new SimpleMessage("foo").setRoute(Route.parse(destination.getConnectionSpec()));
+                        if (source.send(msg).isAccepted()) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            sender.start();
+            senders.add(sender);
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        assertEquals(100, accepted.get());
+        assertEquals(100, source.getPendingCount());
+
+        for (int i = 0; i < 100; i++) {
+            Message msg = serverB.messages.poll(60, TimeUnit.SECONDS);
+            Reply reply = new SimpleReply("bar");
+            reply.swapState(msg);
+            destination.reply(reply);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertThat(serverA.replies.poll(60, TimeUnit.SECONDS), instanceOf(SimpleReply.class));
+        }
+        assertEquals(0, source.getPendingCount());
+        source.close();
+
+        serverA.mbus.destroy();
+        serverB.mbus.destroy();
+    }
+
     private static class Server implements MessageHandler, ReplyHandler {
 
         final MessageBus mbus;
@@ -0,0 +1,157 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus.network.rpc;
+
+import com.yahoo.jrt.ListenFailedException;
+import com.yahoo.jrt.slobrok.server.Slobrok;
+import com.yahoo.messagebus.DestinationSession;
+import com.yahoo.messagebus.DestinationSessionParams;
+import com.yahoo.messagebus.Message;
+import com.yahoo.messagebus.MessageBusParams;
+import com.yahoo.messagebus.Reply;
+import com.yahoo.messagebus.SourceSession;
+import com.yahoo.messagebus.SourceSessionParams;
+import com.yahoo.messagebus.network.Identity;
+import com.yahoo.messagebus.network.rpc.test.TestServer;
+import com.yahoo.messagebus.routing.Route;
+import com.yahoo.messagebus.test.Receptor;
+import com.yahoo.messagebus.test.SimpleMessage;
+import com.yahoo.messagebus.test.SimpleProtocol;
+import com.yahoo.messagebus.test.SimpleReply;
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.UnknownHostException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class BatchingTestCase {
+
+    private static final int MESSAGES = 20;
+
+    private Slobrok slobrok;
+    private TestServer srcServer, dstServer;
+    private SourceSession srcSession;
+    private DestinationSession dstSession;
+
+    private void setUp(RPCNetworkParams srcParams) throws ListenFailedException, UnknownHostException {
+        slobrok = new Slobrok();
+        dstServer = new TestServer(new MessageBusParams().addProtocol(new SimpleProtocol()),
+                                   new RPCNetworkParams().setIdentity(new Identity("dst"))
+                                                         .setSlobrokConfigId(TestServer.getSlobrokConfig(slobrok)));
+        dstSession = dstServer.mb.createDestinationSession(
+                new DestinationSessionParams().setName("session").setMessageHandler(new Receptor()));
+        srcServer = new TestServer(new MessageBusParams().addProtocol(new SimpleProtocol()),
+                                   srcParams.setSlobrokConfigId(TestServer.getSlobrokConfig(slobrok)));
+        srcSession = srcServer.mb.createSourceSession(
+                new SourceSessionParams().setTimeout(600.0).setReplyHandler(new Receptor()));
+        assertTrue(srcServer.waitSlobrok("dst/session", 1));
+    }
+
+    @After
+    public void tearDown() {
+        slobrok.stop();
+        dstSession.destroy();
+        dstServer.destroy();
+        srcSession.destroy();
+        srcServer.destroy();
+    }
+
+    @Test
+    public void requireThatMessagesAreSentInBatchesAndRepliesReachTheirSenders() throws Exception {
+        setUp(new RPCNetworkParams().setBatchWindowSecs(0.2));
+        RPCBatchMetrics.Snapshot before = RPCBatchMetrics.getInstance().snapshot();
+
+        sendAndReply(MESSAGES);
+
+        RPCBatchMetrics.Snapshot changes = RPCBatchMetrics.getInstance().snapshot().changesSince(before);
+        assertEquals(MESSAGES, changes.messagesBatched());
+        assertTrue(changes.batchesSent() < MESSAGES);
+        assertTrue(changes.batchBytesSent() > 0);
+        assertTrue(changes.batchWaitMicros() > 0);
+        assertEquals(0, changes.batchesRejected());
+    }
+
+    @Test
+    public void requireThatBatchIsSentWithoutWaitingWhenFull() throws Exception {
+        setUp(new RPCNetworkParams().setBatchWindowSecs(600).setMaxBatchBytes(1));
+        RPCBatchMetrics.Snapshot before = RPCBatchMetrics.getInstance().snapshot();
+
+        sendAndReply(MESSAGES);
+
+        RPCBatchMetrics.Snapshot changes = RPCBatchMetrics.getInstance().snapshot().changesSince(before);
+        assertEquals(MESSAGES, changes.messagesBatched());
+        assertEquals(MESSAGES, changes.batchesSent());
+    }
+
+    @Test
+    public void requireThatBatchIsSentWithoutWaitingWhenItHasMaxMessages() throws Exception {
+        setUp(new RPCNetworkParams().setBatchWindowSecs(600).setMaxBatchMessages(5));
+        RPCBatchMetrics.Snapshot before = RPCBatchMetrics.getInstance().snapshot();
+
+        sendAndReply(MESSAGES);
+
+        RPCBatchMetrics.Snapshot changes = RPCBatchMetrics.getInstance().snapshot().changesSince(before);
+        assertEquals(MESSAGES, changes.messagesBatched());
+        assertEquals(MESSAGES / 5, changes.batchesSent());
+    }
+
+    @Test
+    public void requireThatMessagesAreSentOneByOneToTargetsNotAcceptingBatches() throws Exception {
+        setUp(new RPCNetworkParams().setBatchWindowSecs(0.2));
+        ((RPCNetwork)dstServer.net).getSupervisor().removeMethod("mbus.slime.batch");
+        RPCBatchMetrics.Snapshot before = RPCBatchMetrics.getInstance().snapshot();
+
+        sendAndReply(MESSAGES);
+
+        RPCBatchMetrics.Snapshot after = RPCBatchMetrics.getInstance().snapshot();
+        RPCBatchMetrics.Snapshot changes = after.changesSince(before);
+        assertTrue(changes.batchesRejected() > 0);
+        assertEquals(changes.batchesSent(), changes.batchesRejected());
+
+        sendAndReply(MESSAGES);
+
+        changes = RPCBatchMetrics.getInstance().snapshot().changesSince(after);
+        assertEquals(0, changes.batchesSent());
+    }
+
+    @Test
+    public void requireThatMessagesAreNotBatchedByDefault() throws Exception {
+        setUp(new RPCNetworkParams());
+        RPCBatchMetrics.Snapshot before = RPCBatchMetrics.getInstance().snapshot();
+
+        sendAndReply(MESSAGES);
+
+        RPCBatchMetrics.Snapshot changes = RPCBatchMetrics.getInstance().snapshot().changesSince(before);
+        assertEquals(0, changes.batchesSent());
+    }
+
+    private void sendAndReply(int count) {
+        for (int i = 0; i < count; i++) {
+            assertTrue(srcSession.send(new SimpleMessage("msg" + i), Route.parse("dst/session")).isAccepted());
+        }
+        Receptor dstReceptor = (Receptor)dstSession.getMessageHandler();
+        for (int i = 0; i < count; i++) {
+            Message msg = dstReceptor.getMessage(60);
+            assertNotNull(msg);
+            Reply reply = new SimpleReply(((SimpleMessage)msg).getValue() + "-reply");
+            reply.swapState(msg);
+            dstSession.reply(reply);
+        }
+        Receptor srcReceptor = (Receptor)srcSession.getReplyHandler();
+        Set<String> replied = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            Reply reply = srcReceptor.getReply(60);
+            assertNotNull(reply);
+            assertFalse(reply.getTrace().toString(), reply.hasErrors());
+            assertEquals(((SimpleMessage)reply.getMessage()).getValue() + "-reply", ((SimpleReply)reply).getValue());
+            replied.add(((SimpleReply)reply).getValue());
+        }
+        assertEquals(count, replied.size());
+    }
+
+}
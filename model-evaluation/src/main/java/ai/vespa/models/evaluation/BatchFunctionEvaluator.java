@@ -0,0 +1,330 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.StringValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.TensorValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.Value;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForest;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestNode;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorAddress;
+import com.yahoo.tensor.TensorType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * An evaluator which can be used to evaluate a function over a batch of argument values.
+ *
+ * Arguments are either bound to a single value used for every row in the batch, or to a column
+ * with one value per row. The same context is reused for each row, and for each subsequent batch,
+ * such that evaluating a batch does not repeat the setup done when creating an evaluator.
+ * Bindings remain in effect between batches until rebound.
+ *
+ * This is not multithread safe.
+ */
+// This wraps all access to the context and the ranking expression to avoid incorrect usage
+public class BatchFunctionEvaluator {
+
+    private final ExpressionFunction function;
+    private final LazyArrayContext context;
+
+    /** The values to bind for each row, by argument name */
+    private final Map<String, Value[]> columns = new LinkedHashMap<>();
+
+    BatchFunctionEvaluator(ExpressionFunction function, LazyArrayContext context) {
+        this.function = function;
+        this.context = context;
+    }
+
+    /**
+     * Binds the given variable referred in this expression to the given value in all rows.
+     *
+     * @param name the variable to bind
+     * @param value the value this becomes bound to
+     * @return this for chaining
+     */
+    public BatchFunctionEvaluator bind(String name, Tensor value) {
+        FunctionEvaluator.validateArgument(function, name, value.type());
+        context.put(name, new TensorValue(value));
+        columns.remove(name);
+        return this;
+    }
+
+    /**
+     * Binds the given variable referred in this expression to the given value in all rows.
+     * This is equivalent to <code>bind(name, Tensor.Builder.of(TensorType.empty).cell(value).build())</code>
+     *
+     * @param name the variable to bind
+     * @param value the value this becomes bound to
+     * @return this for chaining
+     */
+    public BatchFunctionEvaluator bind(String name, double value) {
+        return bind(name, Tensor.Builder.of(TensorType.empty).cell(value).build());
+    }
+
+    /**
+     * Binds the given variable referred in this expression to the given value in all rows.
+     * String values are not yet supported in tensors.
+     *
+     * @param name the variable to bind
+     * @param value the value this becomes bound to
+     * @return this for chaining
+     */
+    public BatchFunctionEvaluator bind(String name, String value) {
+        context.put(name, new StringValue(value));
+        columns.remove(name);
+        return this;
+    }
+
+    /**
+     * Binds the given variable referred in this expression to one value per row.
+     *
+     * @param name the variable to bind
+     * @param values the values this becomes bound to, one per row
+     * @return this for chaining
+     * @throws IllegalArgumentException if the number of values is different from that of the other columns
+     */
+    public BatchFunctionEvaluator bindColumn(String name, List<Tensor> values) {
+        Value[] column = new Value[values.size()];
+        for (int row = 0; row < column.length; row++) {
+            Tensor value = values.get(row);
+            FunctionEvaluator.validateArgument(function, name, value.type());
+            column[row] = new TensorValue(value).freeze();
+        }
+        return bindColumn(name, column);
+    }
+
+    /**
+     * Binds the given variable referred in this expression to one scalar value per row.
+     *
+     * @param name the variable to bind
+     * @param values the values this becomes bound to, one per row
+     * @return this for chaining
+     * @throws IllegalArgumentException if the number of values is different from that of the other columns
+     */
+    public BatchFunctionEvaluator bindColumn(String name, double[] values) {
+        FunctionEvaluator.validateArgument(function, name, TensorType.empty);
+        Value[] column = new Value[values.length];
+        for (int row = 0; row < column.length; row++)
+            column[row] = DoubleValue.frozen(values[row]);
+        return bindColumn(name, column);
+    }
+
+    /**
+     * Binds the given variable referred in this expression to one value per row, given as a single tensor
+     * where each subspace along the given indexed dimension is the value of one row.
+     *
+     * @param name the variable to bind
+     * @param values the values this becomes bound to, with the given batch dimension in addition to the dimensions
+     *               of the argument
+     * @param batchDimension the name of the indexed dimension in values which enumerates the rows
+     * @return this for chaining
+     * @throws IllegalArgumentException if values does not have the given indexed dimension, or
+     *                                  if the number of values is different from that of the other columns
+     */
+    public BatchFunctionEvaluator bindBatch(String name, Tensor values, String batchDimension) {
+        return bindColumn(name, split(values, batchDimension));
+    }
+
+    private BatchFunctionEvaluator bindColumn(String name, Value[] column) {
+        context.getIndex(name); // verify that the name can be bound
+        int rows = rows();
+        if ( ! columns.isEmpty() && ! (columns.size() == 1 && columns.containsKey(name)) && column.length != rows)
+            throw new IllegalArgumentException("Column '" + name + "' has " + column.length + " values, but the " +
+                                               "other columns have " + rows);
+        columns.put(name, column);
+        return this;
+    }
+
+    /**
+     * Sets the default value to use for variables which are not bound
+     *
+     * @param value the default value
+     * @return this for chaining
+     */
+    public BatchFunctionEvaluator setMissingValue(Tensor value) {
+        context.setMissingValue(value);
+        return this;
+    }
+
+    /**
+     * Sets the default value to use for variables which are not bound
+     *
+     * @param value the default value
+     * @return this for chaining
+     */
+    public BatchFunctionEvaluator setMissingValue(double value) {
+        return setMissingValue(Tensor.Builder.of(TensorType.empty).cell(value).build());
+    }
+
+    /** Returns the number of rows in the batch bound in this, which is 1 if no columns are bound */
+    public int rows() {
+        if (columns.isEmpty()) return 1;
+        return columns.values().iterator().next().length;
+    }
+
+    /**
+     * Evaluates the function of this once for each row in the bound batch.
+     *
+     * @return the result of each row, in row order
+     * @throws IllegalStateException if some argument is not bound
+     */
+    public List<Tensor> evaluate() {
+        int rows = rows();
+        if (rows == 0) return List.of();
+
+        int[] indexes = new int[columns.size()];
+        Value[][] values = new Value[columns.size()][];
+        int column = 0;
+        for (Map.Entry<String, Value[]> entry : columns.entrySet()) {
+            indexes[column] = context.getIndex(entry.getKey());
+            values[column] = entry.getValue();
+            column++;
+        }
+
+        if (function.getBody().getRoot() instanceof GBDTForestNode) {
+            List<Tensor> results = evaluateForest(((GBDTForestNode)function.getBody().getRoot()).forest(),
+                                                  rows, indexes, values);
+            if (results != null) return results;
+        }
+
+        List<Tensor> results = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            for (int i = 0; i < indexes.length; i++)
+                context.put(indexes[i], values[i][row]);
+            context.resetFunctionValues();
+            if (row == 0)
+                FunctionEvaluator.validateBoundArguments(function, context);
+            results.add(function.getBody().evaluate(context).asTensor());
+        }
+        return results;
+    }
+
+    /**
+     * Evaluates a function consisting of a forest of trees over all the rows at once, which is faster than
+     * evaluating row by row as each tree is traversed for every row before moving on to the next.
+     *
+     * @return the result of each row, or null if some feature is computed by a function and so must be
+     *         evaluated row by row
+     */
+    private List<Tensor> evaluateForest(GBDTForest forest, int rows, int[] indexes, Value[][] values) {
+        for (int i = 0; i < indexes.length; i++)
+            context.put(indexes[i], values[i][0]);
+        FunctionEvaluator.validateBoundArguments(function, context);
+
+        int[] columnOfIndex = new int[context.size()];
+        Arrays.fill(columnOfIndex, -1);
+        for (int i = 0; i < indexes.length; i++)
+            columnOfIndex[indexes[i]] = i;
+
+        double[][] features = new double[rows][context.size()];
+        for (int feature : forest.referencedFeatures()) {
+            if (context.get(feature) instanceof LazyValue) return null;
+            int column = columnOfIndex[feature];
+            if (column >= 0) {
+                for (int row = 0; row < rows; row++)
+                    features[row][feature] = values[column][row].asDouble();
+            }
+            else {
+                double value = context.getDouble(feature);
+                for (int row = 0; row < rows; row++)
+                    features[row][feature] = value;
+            }
+        }
+
+        double[] sums = new double[rows];
+        forest.evaluate(features, sums);
+        List<Tensor> results = new ArrayList<>(rows);
+        for (double sum : sums)
+            results.add(new DoubleValue(sum).asTensor());
+        return results;
+    }
+
+    /**
+     * Evaluates the function of this once for each row in the bound batch, and returns the results as a single
+     * tensor having each result as the subspace along an indexed batch dimension.
+     *
+     * @param batchDimension the name of the indexed dimension to add to the results
+     * @return the results of all rows
+     * @throws IllegalStateException if some argument is not bound
+     * @throws IllegalArgumentException if the results already have the given dimension
+     */
+    public Tensor evaluate(String batchDimension) {
+        return join(evaluate(), batchDimension);
+    }
+
+    /** Returns the function evaluated by this */
+    public ExpressionFunction function() { return function; }
+
+    public LazyArrayContext context() { return context; }
+
+    /** Splits the given tensor into the subspaces along the given indexed dimension */
+    static Value[] split(Tensor values, String batchDimension) {
+        TensorType type = values.type();
+        int batchIndex = type.indexOfDimension(batchDimension)
+                             .orElseThrow(() -> new IllegalArgumentException("Batch dimension '" + batchDimension +
+                                                                             "' is not present in " + type));
+        if ( ! type.dimensions().get(batchIndex).isIndexed())
+            throw new IllegalArgumentException("Batch dimension '" + batchDimension + "' in " + type + " is not indexed");
+
+        TensorType rowType = new TensorType.Builder(type.valueType(),
+                                                    type.dimensions().stream()
+                                                        .filter(d -> ! d.name().equals(batchDimension))
+                                                        .collect(Collectors.toList())).build();
+        int rows = type.dimensions().get(batchIndex).size().orElse(0L).intValue();
+        if (rows == 0) { // unbound: the number of rows is determined by the cells present
+            for (Iterator<Tensor.Cell> i = values.cellIterator(); i.hasNext(); )
+                rows = Math.max(rows, (int)i.next().getKey().numericLabel(batchIndex) + 1);
+        }
+
+        Tensor.Builder[] builders = new Tensor.Builder[rows];
+        for (int row = 0; row < rows; row++)
+            builders[row] = Tensor.Builder.of(rowType);
+        for (Iterator<Tensor.Cell> i = values.cellIterator(); i.hasNext(); ) {
+            Tensor.Cell cell = i.next();
+            TensorAddress address = cell.getKey();
+            String[] labels = new String[address.size() - 1];
+            for (int d = 0, rowD = 0; d < address.size(); d++)
+                if (d != batchIndex)
+                    labels[rowD++] = address.label(d);
+            builders[(int)address.numericLabel(batchIndex)].cell(TensorAddress.of(labels), cell.getValue());
+        }
+
+        Value[] column = new Value[rows];
+        for (int row = 0; row < rows; row++)
+            column[row] = new TensorValue(builders[row].build()).freeze();
+        return column;
+    }
+
+    /** Joins the given results into a single tensor along a new indexed dimension */
+    static Tensor join(List<Tensor> results, String batchDimension) {
+        TensorType resultType = results.isEmpty() ? TensorType.empty : results.get(0).type();
+        if (resultType.dimension(batchDimension).isPresent())
+            throw new IllegalArgumentException("Cannot join results of type " + resultType + " along batch dimension '" +
+                                               batchDimension + "' as they already have this dimension");
+        List<TensorType.Dimension> dimensions = new ArrayList<>(resultType.dimensions());
+        dimensions.add(TensorType.Dimension.indexed(batchDimension, results.size()));
+        TensorType type = new TensorType.Builder(resultType.valueType(), dimensions).build();
+
+        Tensor.Builder builder = Tensor.Builder.of(type);
+        for (int row = 0; row < results.size(); row++) {
+            for (Iterator<Tensor.Cell> i = results.get(row).cellIterator(); i.hasNext(); ) {
+                Tensor.Cell cell = i.next();
+                Tensor.Builder.CellBuilder cellBuilder = builder.cell();
+                for (int d = 0; d < resultType.rank(); d++)
+                    cellBuilder.label(resultType.dimensions().get(d).name(), cell.getKey().label(d));
+                cellBuilder.label(batchDimension, row).value(cell.getValue());
+            }
+        }
+        return builder.build();
+    }
+
+}
@@ -8,10 +8,12 @@ import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
- * An evaluator which can be used to evaluate a single function once.
+ * An evaluator which can be used to evaluate a single function once,
+ * or again with new bindings after being {@link #reset}.
  *
  * @author bratseth
  */
@@ -37,14 +39,7 @@ public class FunctionEvaluator {
     public FunctionEvaluator bind(String name, Tensor value) {
         if (evaluated)
             throw new IllegalStateException("Cannot bind a new value in a used evaluator");
-        TensorType requiredType = function.argumentTypes().get(name);
-        if (requiredType == null)
-            throw new IllegalArgumentException("'" + name + "' is not a valid argument in " + function +
-                                               ". Expected arguments: " + function.argumentTypes().entrySet().stream()
-                                                                                  .map(e -> e.getKey() + ": " + e.getValue())
-                                                                                  .collect(Collectors.joining(", ")));
-        if ( ! value.type().isAssignableTo(requiredType))
-            throw new IllegalArgumentException("'" + name + "' must be of type " + requiredType + ", not " + value.type());
+        validateArgument(function, name, value.type());
         context.put(name, new TensorValue(value));
         return this;
     }
@@ -99,7 +94,54 @@ public class FunctionEvaluator {
         return setMissingValue(Tensor.Builder.of(TensorType.empty).cell(value).build());
     }
 
+    /**
+     * Removes all bindings and the missing value set in this, such that it can be used for another evaluation.
+     * This is cheaper than creating a new evaluator.
+     *
+     * @return this for chaining
+     */
+    public FunctionEvaluator reset() {
+        context.reset();
+        evaluated = false;
+        return this;
+    }
+
     public Tensor evaluate() {
+        validateBoundArguments(function, context);
+        evaluated = true;
+        return function.getBody().evaluate(context).asTensor();
+    }
+
+    /**
+     * Evaluates the function of this, computing the functions it references which do not depend on each other
+     * in parallel in the given executor. This reduces the latency of evaluating models having independent branches,
+     * such as separate towers which are combined at the end, at the cost of using more threads.
+     * Functions returning a scalar are cheap and are always computed in the thread which computed their dependencies.
+     *
+     * The tasks submitted to the executor never wait for each other, so a bounded pool, such as a
+     * {@link java.util.concurrent.ForkJoinPool} with the desired parallelism, can be shared by all evaluators.
+     */
+    public Tensor evaluate(Executor executor) {
+        validateBoundArguments(function, context);
+        evaluated = true;
+        context.computeFunctionValues(executor);
+        return function.getBody().evaluate(context).asTensor();
+    }
+
+    /** Throws an IllegalArgumentException if the given function does not accept a value of the given type as the given argument */
+    static void validateArgument(ExpressionFunction function, String name, TensorType type) {
+        TensorType requiredType = function.argumentTypes().get(name);
+        if (requiredType == null)
+            throw new IllegalArgumentException("'" + name + "' is not a valid argument in " + function +
+                                               ". Expected arguments: " + function.argumentTypes().entrySet().stream()
+                                                                                  .map(e -> e.getKey() + ": " + e.getValue())
+                                                                                  .collect(Collectors.joining(", ")));
+        if ( ! type.isAssignableTo(requiredType))
+            throw new IllegalArgumentException("'" + name + "' must be of type " + requiredType + ", not " + type);
+    }
+
+    /** Throws an IllegalStateException if some argument of the given function is not bound to a valid value in the context */
+    static void validateBoundArguments(ExpressionFunction function, LazyArrayContext context) {
         for (Map.Entry<String, TensorType> argument : function.argumentTypes().entrySet()) {
             if (context.isMissing(argument.getKey()))
                 throw new IllegalStateException("Missing argument '" + argument.getKey() +
@@ -109,8 +151,6 @@ public class FunctionEvaluator {
                                                 "' must be bound to a value of type " + argument.getValue());
 
         }
-        evaluated = true;
-        return function.getBody().evaluate(context).asTensor();
     }
 
     /** Returns the function evaluated by this */
@@ -0,0 +1,81 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of reusable evaluators of a function, which avoids creating a new context for each evaluation.
+ * This is multithread safe, but each evaluator acquired from it is owned by the thread acquiring it until released.
+ *
+ * Usage:
+ * <pre>
+ * FunctionEvaluator evaluator = pool.acquire();
+ * try {
+ *     Tensor result = evaluator.bind("foo", value).bind("bar", value).evaluate();
+ * }
+ * finally {
+ *     pool.release(evaluator);
+ * }
+ * </pre>
+ */
+public class FunctionEvaluatorPool {
+
+    /** The default max number of idle evaluators kept in a pool */
+    static final int defaultMaxIdle = 128;
+
+    private final ExpressionFunction function;
+    private final LazyArrayContext prototype;
+    private final int maxIdle;
+
+    private final Queue<FunctionEvaluator> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger(0);
+
+    FunctionEvaluatorPool(ExpressionFunction function, LazyArrayContext prototype, int maxIdle) {
+        this.function = function;
+        this.prototype = prototype;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Returns an evaluator of the function of this with no bindings.
+     * The evaluator is owned by the caller until it is passed to {@link #release}.
+     */
+    public FunctionEvaluator acquire() {
+        FunctionEvaluator evaluator = idle.poll();
+        if (evaluator == null)
+            return new FunctionEvaluator(function, prototype.copy());
+        idleCount.decrementAndGet();
+        return evaluator;
+    }
+
+    /**
+     * Returns an evaluator acquired from this to the pool. The evaluator is reset, and must not be used
+     * by the caller after this is called.
+     *
+     * @throws IllegalArgumentException if the evaluator does not evaluate the function of this pool
+     */
+    public void release(FunctionEvaluator evaluator) {
+        if (evaluator.function() != function)
+            throw new IllegalArgumentException("Cannot release an evaluator of " + evaluator.function() +
+                                               " to a pool of " + function);
+        if (idleCount.incrementAndGet() > maxIdle) {
+            idleCount.decrementAndGet();
+            return;
+        }
+        idle.offer(evaluator.reset());
+    }
+
+    /** Returns the number of evaluators currently available for reuse in this */
+    public int idle() { return idleCount.get(); }
+
+    /** Returns the function evaluated by the evaluators of this */
+    public ExpressionFunction function() { return function; }
+
+    @Override
+    public String toString() { return "pool of evaluators of " + function; }
+
+}
@@ -16,11 +16,15 @@ import com.yahoo.searchlib.rankingexpression.rule.ReferenceNode;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * An array context supporting functions invocations implemented as lazy values.
@@ -133,6 +137,25 @@ public final class LazyArrayContext extends Context implements ContextIndex {
         return indexedBindings.missingValue;
     }
 
+    /** Makes the referenced functions of this compute their values again, after some value has been rebound */
+    void resetFunctionValues() {
+        indexedBindings.resetFunctionValues();
+    }
+
+    /**
+     * Computes the values of all the functions referenced (directly or indirectly) by the function of this,
+     * such that functions which do not depend on each other are computed concurrently in the given executor,
+     * and returns when all are computed.
+     */
+    void computeFunctionValues(Executor executor) {
+        indexedBindings.computeFunctionValues(executor);
+    }
+
+    /** Returns this to the state it had when created, such that it can be reused to evaluate with new bindings */
+    void reset() {
+        indexedBindings.reset();
+    }
+
     /**
      * Creates a copy of this context suitable for evaluating against the same ranking expression
      * in a different thread or for re-binding free variables.
@@ -149,21 +172,43 @@ public final class LazyArrayContext extends Context implements ContextIndex {
         /** The names which needs to be bound externally when invoking this (i.e not constant or invocation */
         private final ImmutableSet<String> arguments;
 
+        /** The indexes of the referenced functions, ordered such that each comes after the functions it references */
+        private final int[] functionOrder;
+
+        /** The indexes of the functions directly referenced by each referenced function, by index */
+        private final int[][] functionDependencies;
+
+        /** Whether each referenced function returns a tensor of rank above 0, by index */
+        private final boolean[] tensorFunctions;
+
         /** The current values set */
         private final Value[] values;
 
+        /** The values set when this was created, which are restored on reset */
+        private final Value[] initialValues;
+
         /** The object instance which encodes "no value is set". The actual value of this is never used. */
         private static final Value missing = new DoubleValue(Double.NaN).freeze();
 
+        /** The default value to return for lookups where no value is set */
+        private static final Value defaultMissingValue = new DoubleValue(Double.NaN).freeze();
+
         /** The value to return for lookups where no value is set (default: NaN) */
-        private Value missingValue = new DoubleValue(Double.NaN).freeze();
+        private Value missingValue = defaultMissingValue;
 
         private IndexedBindings(ImmutableMap<String, Integer> nameToIndex,
                                 Value[] values,
-                                ImmutableSet<String> arguments) {
+                                ImmutableSet<String> arguments,
+                                int[] functionOrder,
+                                int[][] functionDependencies,
+                                boolean[] tensorFunctions) {
             this.nameToIndex = nameToIndex;
             this.values = values;
+            this.initialValues = values.clone();
             this.arguments = arguments;
+            this.functionOrder = functionOrder;
+            this.functionDependencies = functionDependencies;
+            this.tensorFunctions = tensorFunctions;
         }
 
         /**
@@ -205,6 +250,14 @@ public final class LazyArrayContext extends Context implements ContextIndex {
                     values[index] = new LazyValue(referencedFunction.getKey(), owner, model);
                 }
             }
+            initialValues = values.clone();
+
+            // 3. Determine the order in which the referenced functions can be computed
+            List<Integer> functionOrder = new ArrayList<>();
+            functionDependencies = new int[values.length][];
+            tensorFunctions = new boolean[values.length];
+            addFunctions(function.getBody().getRoot(), referencedFunctions, functionOrder);
+            this.functionOrder = functionOrder.stream().mapToInt(Integer::intValue).toArray();
         }
 
         private void setMissingValue(Tensor value) {
@@ -235,6 +288,41 @@ public final class LazyArrayContext extends Context implements ContextIndex {
             }
         }
 
+        /**
+         * Adds the functions referenced by the given node, and the functions they reference, to the given order
+         * such that each is added after its dependencies, and returns the indexes of the functions referenced by the node.
+         */
+        private int[] addFunctions(ExpressionNode node,
+                                   Map<FunctionReference, ExpressionFunction> functions,
+                                   List<Integer> functionOrder) {
+            Set<FunctionReference> references = new LinkedHashSet<>();
+            extractFunctionReferences(node, references);
+            int[] indexes = new int[references.size()];
+            int i = 0;
+            for (FunctionReference reference : references) {
+                int index = nameToIndex.get(reference.serialForm());
+                indexes[i++] = index;
+                if (functionDependencies[index] != null) continue; // already added
+
+                ExpressionFunction referenced = functions.get(reference);
+                functionDependencies[index] = addFunctions(referenced.getBody().getRoot(), functions, functionOrder);
+                tensorFunctions[index] = referenced.returnType().map(type -> type.rank() > 0).orElse(true);
+                functionOrder.add(index);
+            }
+            return indexes;
+        }
+
+        /** Adds the functions referenced by the given node, without following the references */
+        private void extractFunctionReferences(ExpressionNode node, Set<FunctionReference> references) {
+            if (isFunctionReference(node)) {
+                references.add(FunctionReference.fromSerial(node.toString()).get());
+            }
+            else if (node instanceof CompositeNode) {
+                for (ExpressionNode child : ((CompositeNode)node).children())
+                    extractFunctionReferences(child, references);
+            }
+        }
+
         private boolean isFunctionReference(ExpressionNode node) {
             if ( ! (node instanceof ReferenceNode)) return false;
 
@@ -258,6 +346,46 @@ public final class LazyArrayContext extends Context implements ContextIndex {
             values[index] = value;
         }
 
+        void resetFunctionValues() {
+            for (Value value : values)
+                if (value instanceof LazyValue)
+                    ((LazyValue)value).reset();
+        }
+
+        void computeFunctionValues(Executor executor) {
+            CompletableFuture<?>[] computed = new CompletableFuture<?>[values.length];
+            for (int index : functionOrder) {
+                if ( ! (values[index] instanceof LazyValue)) { // rebound to a value
+                    computed[index] = CompletableFuture.completedFuture(null);
+                    continue;
+                }
+                LazyValue value = (LazyValue)values[index];
+                CompletableFuture<?>[] dependencies = new CompletableFuture<?>[functionDependencies[index].length];
+                for (int i = 0; i < dependencies.length; i++)
+                    dependencies[i] = computed[functionDependencies[index][i]];
+                CompletableFuture<Void> ready = CompletableFuture.allOf(dependencies);
+                // Computing a scalar is cheaper than handing it over to another thread
+                computed[index] = tensorFunctions[index] ? ready.thenRunAsync(value::compute, executor)
+                                                         : ready.thenRun(value::compute);
+            }
+
+            try {
+                CompletableFuture.allOf(Arrays.stream(functionOrder).mapToObj(index -> computed[index])
+                                                                     .toArray(CompletableFuture<?>[]::new)).join();
+            }
+            catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+                if (e.getCause() instanceof Error) throw (Error)e.getCause();
+                throw e;
+            }
+        }
+
+        void reset() {
+            System.arraycopy(initialValues, 0, values, 0, values.length);
+            missingValue = defaultMissingValue;
+            resetFunctionValues();
+        }
+
         Set<String> names() { return nameToIndex.keySet(); }
         Set<String> arguments() { return arguments; }
         Integer indexOf(String name) { return nameToIndex.get(name); }
@@ -266,7 +394,8 @@ public final class LazyArrayContext extends Context implements ContextIndex {
             Value[] valueCopy = new Value[values.length];
             for (int i = 0; i < values.length; i++)
                 valueCopy[i] = values[i] instanceof LazyValue ? ((LazyValue) values[i]).copyFor(context) : values[i];
-            return new IndexedBindings(nameToIndex, valueCopy, arguments);
+            return new IndexedBindings(nameToIndex, valueCopy, arguments,
+                                       functionOrder, functionDependencies, tensorFunctions);
         }
 
     }
@@ -11,7 +11,8 @@ import com.yahoo.tensor.TensorType;
 
 /**
  * A Value which is computed from an expression when first requested.
- * This is not multithread safe.
+ * This is not multithread safe, except that values may be computed in different threads as long as
+ * each is computed before the values depending on it, see {@link LazyArrayContext#computeFunctionValues}.
  *
  * @author bratseth
  */
@@ -147,6 +148,16 @@ class LazyValue extends Value {
         return computedValue().hashCode();
     }
 
+    /** Computes the value of this now, if it is not already computed */
+    void compute() {
+        computedValue();
+    }
+
+    /** Forgets the computed value, such that it is computed again from the current context when requested */
+    void reset() {
+        computedValue = null;
+    }
+
     LazyValue copyFor(Context context) {
         return new LazyValue(this.function, context, model);
     }
@@ -5,17 +5,23 @@ import com.google.common.annotations.Beta;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.Reference;
 import com.yahoo.searchlib.rankingexpression.evaluation.ContextIndex;
 import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
 import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionOptimizer;
 import com.yahoo.searchlib.rankingexpression.evaluation.Value;
 import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.TypeContext;
 
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -43,6 +49,9 @@ public class Model {
     /** Context prototypes, indexed by function name (as all invocations of the same function share the same context prototype) */
     private final ImmutableMap<String, LazyArrayContext> contextPrototypes;
 
+    /** Pools of reusable evaluators, by function name, created on first use */
+    private final Map<String, FunctionEvaluatorPool> evaluatorPools = new ConcurrentHashMap<>();
+
     private final ExpressionOptimizer expressionOptimizer = new ExpressionOptimizer();
 
     /** Programmatically create a model containing functions without constant of function references only */
@@ -57,6 +66,20 @@ public class Model {
           Map<FunctionReference, ExpressionFunction> functions,
           Map<FunctionReference, ExpressionFunction> referencedFunctions,
           List<Constant> constants) {
+        this(name, functions, referencedFunctions, constants, false);
+    }
+
+    /**
+     * Creates a model
+     *
+     * @param compileScalars whether to compile the operators of the functions of this which are only applied to
+     *                       values whose types are known to be scalars, to primitive double arithmetic
+     */
+    Model(String name,
+          Map<FunctionReference, ExpressionFunction> functions,
+          Map<FunctionReference, ExpressionFunction> referencedFunctions,
+          List<Constant> constants,
+          boolean compileScalars) {
         this.name = name;
 
         // Build context and add missing function arguments (missing because it is legal to omit scalar type arguments)
@@ -93,19 +116,25 @@ public class Model {
                                                                       .collect(Collectors.toList()));
 
         // Optimize functions
+        TypeContext<Reference> types = compileScalars ? new FunctionTypes(this.functions, referencedFunctions, constants)
+                                                      : null;
         ImmutableMap.Builder<FunctionReference, ExpressionFunction> functionsBuilder = new ImmutableMap.Builder<>();
         for (Map.Entry<FunctionReference, ExpressionFunction> function : referencedFunctions.entrySet()) {
             ExpressionFunction optimizedFunction = optimize(function.getValue(),
-                                                            contextPrototypes.get(function.getKey().functionName()));
+                                                            contextPrototypes.get(function.getKey().functionName()),
+                                                            types);
             functionsBuilder.put(function.getKey(), optimizedFunction);
         }
         this.referencedFunctions = functionsBuilder.build();
     }
 
-    /** Returns an optimized version of the given function */
-    private ExpressionFunction optimize(ExpressionFunction function, ContextIndex context) {
+    /** Returns an optimized version of the given function, with scalar operators compiled if types are given */
+    private ExpressionFunction optimize(ExpressionFunction function, ContextIndex context, TypeContext<Reference> types) {
         // Note: Optimization is in-place but we do not depend on that outside this method
-        expressionOptimizer.optimize(function.getBody(), context);
+        if (types != null)
+            expressionOptimizer.optimize(function.getBody(), context, types);
+        else
+            expressionOptimizer.optimize(function.getBody(), context);
         return function;
     }
 
@@ -173,22 +202,62 @@ public class Model {
      * @throws IllegalArgumentException if the function is not present, or not uniquely identified by the names given
      */
     public FunctionEvaluator evaluatorOf(String ... names) {  // TODO: Parameter overloading?
+        return evaluatorOf(requireFunction(names));
+    }
+
+    /**
+     * Returns a pool of evaluators of the given function, which can be acquired and released by multiple threads.
+     * This avoids the cost of setting up an evaluator for each evaluation, which may be larger than the cost of the
+     * evaluation itself for small functions. The same pool is returned on each invocation for the same function.
+     *
+     * Usage:
+     * <code>FunctionEvaluator evaluator = model.evaluatorPoolOf("myFunction").acquire()</code>,
+     * followed by <code>pool.release(evaluator)</code> when done.
+     *
+     * @param names the names identifying the function, as in {@link #evaluatorOf}
+     * @throws IllegalArgumentException if the function is not present, or not uniquely identified by the names given
+     */
+    public FunctionEvaluatorPool evaluatorPoolOf(String ... names) {
+        ExpressionFunction function = requireFunction(names);
+        return evaluatorPools.computeIfAbsent(function.getName(),
+                                              functionName -> new FunctionEvaluatorPool(function,
+                                                                              requireContextProprotype(function.getName()),
+                                                                              FunctionEvaluatorPool.defaultMaxIdle));
+    }
+
+    /**
+     * Returns an evaluator which can be used to evaluate the given function over a batch of argument values.
+     * The returned evaluator can be reused for any number of batches, but only by a single thread.
+     *
+     * Usage:
+     * <code>List&lt;Tensor&gt; results = model.batchEvaluatorOf("myFunction").bindColumn("foo", values).bind("bar", value).evaluate()</code>
+     *
+     * @param names the names identifying the function, as in {@link #evaluatorOf}
+     * @throws IllegalArgumentException if the function is not present, or not uniquely identified by the names given
+     */
+    public BatchFunctionEvaluator batchEvaluatorOf(String ... names) {
+        ExpressionFunction function = requireFunction(names);
+        return new BatchFunctionEvaluator(function, requireContextProprotype(function.getName()).copy());
+    }
+
+    /** Returns the function identified by the given names, as specified in {@link #evaluatorOf} */
+    private ExpressionFunction requireFunction(String ... names) {
         if (names.length == 0) {
             if (functions.size() > 1)
                 throwUndeterminedFunction("More than one function is available in " + this + ", but no name is given");
-            return evaluatorOf(functions.get(0));
+            return functions.get(0);
         }
         else if (names.length == 1) {
             String name = names[0];
             ExpressionFunction function = function(name);
-            if (function != null) return evaluatorOf(function);
+            if (function != null) return function;
 
             List<ExpressionFunction> functionsStartingByName =
                     functions.stream().filter(f -> f.getName().startsWith(name + ".")).collect(Collectors.toList());
             if (functionsStartingByName.size() == 0)
                 throwUndeterminedFunction("No function '" + name + "' in " + this);
             else if (functionsStartingByName.size() == 1)
-                return evaluatorOf(functionsStartingByName.get(0));
+                return functionsStartingByName.get(0);
             else
                 throwUndeterminedFunction("Multiple functions start by '" + name + "' in " + this);
 
@@ -197,7 +266,7 @@ public class Model {
             String name = names[0] + "." + names[1];
             ExpressionFunction function = function(name);
             if (function == null) throwUndeterminedFunction("No function '" + name + "' in " + this);
-            return evaluatorOf(function);
+            return function;
         }
         throw new IllegalArgumentException("No more than 2 names can be given when choosing a function, got " +
                                            Arrays.toString(names));
@@ -216,4 +285,43 @@ public class Model {
     @Override
     public String toString() { return "model '" + name + "'"; }
 
+    /**
+     * The types of the values the functions of a model may reference, where known: Constants, referenced functions
+     * declaring their return type, and arguments which have the same type in all the functions declaring them.
+     * Referenced functions are evaluated in the context of the function invoking them, so they see the same arguments.
+     */
+    private static class FunctionTypes implements TypeContext<Reference> {
+
+        private final Map<String, TensorType> types = new HashMap<>();
+
+        FunctionTypes(List<ExpressionFunction> functions,
+                      Map<FunctionReference, ExpressionFunction> referencedFunctions,
+                      List<Constant> constants) {
+            Set<String> conflicting = new HashSet<>();
+            for (ExpressionFunction function : functions) {
+                for (Map.Entry<String, TensorType> argument : function.argumentTypes().entrySet()) {
+                    TensorType existing = types.putIfAbsent(argument.getKey(), argument.getValue());
+                    if (existing != null && ! existing.equals(argument.getValue()))
+                        conflicting.add(argument.getKey());
+                }
+            }
+            types.keySet().removeAll(conflicting);
+            for (Map.Entry<FunctionReference, ExpressionFunction> function : referencedFunctions.entrySet())
+                function.getValue().returnType().ifPresent(type -> types.put(function.getKey().serialForm(), type));
+            for (Constant constant : constants)
+                types.put("constant(" + constant.name() + ")", constant.value().type());
+        }
+
+        @Override
+        public TensorType getType(Reference reference) {
+            return types.get(reference.toString());
+        }
+
+        @Override
+        public TensorType getType(String name) {
+            return types.get(name);
+        }
+
+    }
+
 }
@@ -4,8 +4,6 @@ package ai.vespa.models.evaluation;
 import com.yahoo.collections.Pair;
 import com.yahoo.config.FileReference;
 import com.yahoo.filedistribution.fileacquirer.FileAcquirer;
-import com.yahoo.io.GrowableByteBuffer;
-import com.yahoo.io.IOUtils;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
 import com.yahoo.searchlib.rankingexpression.RankingExpression;
 import com.yahoo.searchlib.rankingexpression.parser.ParseException;
@@ -18,6 +16,8 @@ import com.yahoo.vespa.config.search.core.RankingConstantsConfig;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -38,6 +38,13 @@ import java.util.regex.Pattern;
  */
 public class RankProfilesConfigImporter {
 
+    /**
+     * The rank profile property which, when "true", makes the model of the profile compile the scalar operators
+     * of its functions to primitive double arithmetic. This is only done where the types of the values they are
+     * applied to are known to be scalars.
+     */
+    public static final String compileScalarsProperty = "vespa.model.compile-scalars";
+
     private final FileAcquirer fileAcquirer;
 
     public RankProfilesConfigImporter(FileAcquirer fileAcquirer) {
@@ -72,6 +79,7 @@ public class RankProfilesConfigImporter {
         SmallConstantsInfo smallConstantsInfo = new SmallConstantsInfo();
         ExpressionFunction firstPhase = null;
         ExpressionFunction secondPhase = null;
+        boolean compileScalars = false;
         for (RankProfilesConfig.Rankprofile.Fef.Property property : profile.fef().property()) {
             Optional<FunctionReference> reference = FunctionReference.fromSerial(property.name());
             Optional<Pair<FunctionReference, String>> argumentType = FunctionReference.fromTypeArgumentSerial(property.name());
@@ -110,6 +118,9 @@ public class RankProfilesConfigImporter {
                 secondPhase = new ExpressionFunction("secondphase", new ArrayList<>(),
                                                      new RankingExpression("second-phase", property.value()));
             }
+            else if (property.name().equals(compileScalarsProperty)) {
+                compileScalars = Boolean.parseBoolean(property.value());
+            }
             else {
                 smallConstantsInfo.addIfSmallConstantInfo(property.name(), property.value());
             }
@@ -122,7 +133,7 @@ public class RankProfilesConfigImporter {
         constants.addAll(smallConstantsInfo.asConstants());
 
         try {
-            return new Model(profile.name(), functions, referencedFunctions, constants);
+            return new Model(profile.name(), functions, referencedFunctions, constants, compileScalars);
         }
         catch (RuntimeException e) {
             throw new IllegalArgumentException("Could not load model '" + profile.name() + "'", e);
@@ -152,8 +163,7 @@ public class RankProfilesConfigImporter {
         try {
             File file = fileAcquirer.waitFor(fileReference, 7, TimeUnit.DAYS);
             if (file.getName().endsWith(".tbf"))
-                return TypedBinaryFormat.decode(Optional.of(type),
-                                                GrowableByteBuffer.wrap(IOUtils.readFileBytes(file)));
+                return readTensorFromBinaryFile(type, file);
             else
                 throw new IllegalArgumentException("Constant files on other formats than .tbf are not supported, got " +
                                                    file + " for constant " + name);
@@ -167,6 +177,18 @@ public class RankProfilesConfigImporter {
         }
     }
 
+    /**
+     * Returns the tensor in the given file in typed binary format. The file is memory mapped and the cells of
+     * dense tensors are read from the mapping, such that large constants are not copied to the heap and are paged in
+     * on demand, with the pages shared by all processes using the same file.
+     */
+    static Tensor readTensorFromBinaryFile(TensorType type, File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed, until the buffer is garbage collected
+            return TypedBinaryFormat.wrap(Optional.of(type), channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
     /** Collected information about small constants */
     private static class SmallConstantsInfo {
 
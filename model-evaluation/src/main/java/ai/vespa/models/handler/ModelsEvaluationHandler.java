@@ -1,12 +1,16 @@
 // Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package ai.vespa.models.handler;
 
+import ai.vespa.models.evaluation.BatchFunctionEvaluator;
 import ai.vespa.models.evaluation.FunctionEvaluator;
+import ai.vespa.models.evaluation.FunctionEvaluatorPool;
 import ai.vespa.models.evaluation.Model;
 import ai.vespa.models.evaluation.ModelsEvaluator;
+import com.google.inject.Inject;
 import com.yahoo.container.jdisc.HttpRequest;
 import com.yahoo.container.jdisc.HttpResponse;
 import com.yahoo.container.jdisc.ThreadedHttpRequestHandler;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
 import com.yahoo.slime.Cursor;
 import com.yahoo.slime.Slime;
@@ -19,7 +23,9 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Executor;
@@ -29,14 +35,32 @@ public class ModelsEvaluationHandler extends ThreadedHttpRequestHandler {
     /** A dash in this key ensures it does not collide with feature names */
     private static final String missingValueKey = "missing-value";
 
+    /**
+     * The name of the indexed dimension enumerating the rows of a batch, when evaluating a batch.
+     * Arguments having this dimension in addition to those of their type gets one value per row,
+     * and the result has this dimension in addition to those of the function result.
+     */
+    private static final String batchDimensionKey = "batch-dimension";
+
     public static final String API_ROOT = "model-evaluation";
     public static final String VERSION_V1 = "v1";
     public static final String EVALUATE = "eval";
 
+    /** The time spent acquiring evaluators and binding arguments, per model, in milliseconds */
+    static final String SETUP_LATENCY_METRIC = "model_evaluation.setup_latency";
+
+    /** The time spent evaluating bound functions, per model, in milliseconds */
+    static final String EVALUATION_LATENCY_METRIC = "model_evaluation.evaluation_latency";
+
     private final ModelsEvaluator modelsEvaluator;
 
     public ModelsEvaluationHandler(ModelsEvaluator modelsEvaluator, Executor executor) {
-        super(executor);
+        this(modelsEvaluator, executor, null);
+    }
+
+    @Inject
+    public ModelsEvaluationHandler(ModelsEvaluator modelsEvaluator, Executor executor, Metric metric) {
+        super(executor, metric);
         this.modelsEvaluator = modelsEvaluator;
     }
 
@@ -72,24 +96,82 @@ public class ModelsEvaluationHandler extends ThreadedHttpRequestHandler {
     }
 
     private HttpResponse evaluateModel(HttpRequest request, Model model, String[] function)  {
-        FunctionEvaluator evaluator = model.evaluatorOf(function);
+        Optional<String> batchDimension = property(request, batchDimensionKey);
+        if (batchDimension.isPresent())
+            return evaluateModelBatch(request, model, function, batchDimension.get());
+
+        long startTime = System.nanoTime();
+        FunctionEvaluatorPool pool = model.evaluatorPoolOf(function);
+        FunctionEvaluator evaluator = pool.acquire();
+        try {
+            property(request, missingValueKey).ifPresent(missingValue -> evaluator.setMissingValue(Tensor.from(missingValue)));
+
+            for (Map.Entry<String, TensorType> argument : evaluator.function().argumentTypes().entrySet()) {
+                Optional<String> value = property(request, argument.getKey());
+                if (value.isPresent()) {
+                    try {
+                        evaluator.bind(argument.getKey(), Tensor.from(argument.getValue(), value.get()));
+                    } catch (IllegalArgumentException e) {
+                        evaluator.bind(argument.getKey(), value.get());  // since we don't yet support tensors with string values
+                    }
+                }
+            }
+            long bindTime = System.nanoTime();
+            Tensor result = evaluator.evaluate();
+            reportLatencies(model, startTime, bindTime, System.nanoTime());
+            return new Response(200, JsonFormat.encode(result));
+        }
+        finally {
+            pool.release(evaluator);
+        }
+    }
+
+    private HttpResponse evaluateModelBatch(HttpRequest request, Model model, String[] function, String batchDimension)  {
+        long startTime = System.nanoTime();
+        BatchFunctionEvaluator evaluator = model.batchEvaluatorOf(function);
 
         property(request, missingValueKey).ifPresent(missingValue -> evaluator.setMissingValue(Tensor.from(missingValue)));
 
         for (Map.Entry<String, TensorType> argument : evaluator.function().argumentTypes().entrySet()) {
             Optional<String> value = property(request, argument.getKey());
-            if (value.isPresent()) {
+            if (value.isEmpty()) continue;
+
+            Tensor batch;
+            try {
+                batch = Tensor.from(batchTypeOf(argument.getValue(), batchDimension), value.get());
+            } catch (IllegalArgumentException e) { // not a batch: The same value is used for all rows
                 try {
                     evaluator.bind(argument.getKey(), Tensor.from(argument.getValue(), value.get()));
-                } catch (IllegalArgumentException e) {
+                } catch (IllegalArgumentException e2) {
                     evaluator.bind(argument.getKey(), value.get());  // since we don't yet support tensors with string values
                 }
+                continue;
+            }
+            try {
+                evaluator.bindBatch(argument.getKey(), batch, batchDimension);
+            } catch (IllegalArgumentException e) {
+                return new ErrorResponse(400, Exceptions.toMessageString(e));
             }
         }
-        Tensor result = evaluator.evaluate();
+        long bindTime = System.nanoTime();
+        Tensor result = evaluator.evaluate(batchDimension);
+        reportLatencies(model, startTime, bindTime, System.nanoTime());
         return new Response(200, JsonFormat.encode(result));
     }
 
+    private void reportLatencies(Model model, long startNanos, long bindNanos, long endNanos) {
+        Metric.Context context = metric.createContext(Map.of("model", model.name()));
+        metric.set(SETUP_LATENCY_METRIC, (bindNanos - startNanos) / 1_000_000.0, context);
+        metric.set(EVALUATION_LATENCY_METRIC, (endNanos - bindNanos) / 1_000_000.0, context);
+    }
+
+    /** Returns the given argument type with an unbound batch dimension added */
+    private TensorType batchTypeOf(TensorType argumentType, String batchDimension) {
+        List<TensorType.Dimension> dimensions = new ArrayList<>(argumentType.dimensions());
+        dimensions.add(TensorType.Dimension.indexed(batchDimension));
+        return new TensorType.Builder(argumentType.valueType(), dimensions).build();
+    }
+
     private HttpResponse listAllModels(HttpRequest request) {
         Slime slime = new Slime();
         Cursor root = slime.setObject();
@@ -7,10 +7,12 @@ import com.yahoo.tensor.TensorType;
 import org.junit.Test;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests instantiating models from rank-profiles configs.
@@ -133,7 +135,52 @@ public class MlModelsImportingTest {
             FunctionEvaluator evaluator = tfMnist.evaluatorOf("serving_default");
             evaluator.bind("input", inputTensor());
             assertEquals(-0.714629131972222, evaluator.evaluate().sum().asDouble(), delta);
+
+            // Parallel evaluation
+            FunctionEvaluator parallelEvaluator = tfMnist.evaluatorOf("serving_default");
+            parallelEvaluator.bind("input", inputTensor());
+            assertEquals(-0.714629131972222, parallelEvaluator.evaluate(ForkJoinPool.commonPool()).sum().asDouble(), delta);
+        }
+    }
+
+    @Test
+    public void testBatchEvaluationOfForests() {
+        ModelTester tester = new ModelTester("src/test/resources/config/models/");
+        double[] numerical1 = { 0.1, 0.5, 0.9, Double.NaN };
+        double[] numerical2 = { 0.3, 0.0, 0.7, 0.5 };
+
+        Model lightgbm = tester.models().get("lightgbm_regression");
+        BatchFunctionEvaluator batchEvaluator = lightgbm.batchEvaluatorOf();
+        batchEvaluator.bind("categorical_1", "d").bind("categorical_2", "k");
+        batchEvaluator.bindColumn("numerical_1", numerical1).bindColumn("numerical_2", numerical2);
+        List<Tensor> results = batchEvaluator.evaluate();
+        assertEquals(numerical1.length, results.size());
+        for (int row = 0; row < numerical1.length; row++) {
+            FunctionEvaluator evaluator = lightgbm.evaluatorOf();
+            evaluator.bind("categorical_1", "d").bind("categorical_2", "k");
+            evaluator.bind("numerical_1", numerical1[row]).bind("numerical_2", numerical2[row]);
+            assertEquals(evaluator.evaluate().asDouble(), results.get(row).asDouble(), delta);
         }
+
+        Model xgboost = tester.models().get("xgboost_2_2");
+        batchEvaluator = xgboost.batchEvaluatorOf();
+        batchEvaluator.bindColumn("f29", numerical1).bindColumn("f56", numerical2).bind("f60", -0.5);
+        results = batchEvaluator.evaluate();
+        for (int row = 0; row < numerical1.length; row++) {
+            FunctionEvaluator evaluator = xgboost.evaluatorOf();
+            evaluator.bind("f29", numerical1[row]).bind("f56", numerical2[row]).bind("f60", -0.5);
+            assertEquals(evaluator.evaluate().asDouble(), results.get(row).asDouble(), delta);
+        }
+    }
+
+    @Test
+    public void testBatchEvaluationOfForestsWithEmptyBatch() {
+        ModelTester tester = new ModelTester("src/test/resources/config/models/");
+        Model xgboost = tester.models().get("xgboost_2_2");
+        BatchFunctionEvaluator batchEvaluator = xgboost.batchEvaluatorOf();
+        batchEvaluator.bindColumn("f29", new double[0]).bindColumn("f56", new double[0]).bind("f60", -0.5);
+        assertEquals(0, batchEvaluator.rows());
+        assertTrue(batchEvaluator.evaluate().isEmpty());
     }
 
     private Tensor inputTensor() {
@@ -6,19 +6,15 @@ import com.yahoo.config.subscription.ConfigGetter;
 import com.yahoo.config.subscription.FileSource;
 import com.yahoo.filedistribution.fileacquirer.FileAcquirer;
 import com.yahoo.filedistribution.fileacquirer.MockFileAcquirer;
-import com.yahoo.io.GrowableByteBuffer;
-import com.yahoo.io.IOUtils;
 import com.yahoo.path.Path;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
-import com.yahoo.tensor.serialization.TypedBinaryFormat;
 import com.yahoo.vespa.config.search.RankProfilesConfig;
 import com.yahoo.vespa.config.search.core.RankingConstantsConfig;
 
 import java.io.IOException;
 import java.util.Map;
-import java.util.Optional;
 import java.util.logging.Logger;
 
 import static org.junit.Assert.assertEquals;
@@ -79,8 +75,7 @@ public class ModelTester {
         @Override
         protected Tensor readTensorFromFile(String name, TensorType type, FileReference fileReference) {
             try {
-                return TypedBinaryFormat.decode(Optional.of(type),
-                                                GrowableByteBuffer.wrap(IOUtils.readFileBytes(constantsPath.append(name).toFile())));
+                return readTensorFromBinaryFile(type, constantsPath.append(name).toFile());
             }
             catch (IOException e) {
                 log.warning("Missing a mocked tensor constant for '" + name + "': " + e.getMessage() +
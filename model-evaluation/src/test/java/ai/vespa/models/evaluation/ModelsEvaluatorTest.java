@@ -7,6 +7,8 @@ import com.yahoo.filedistribution.fileacquirer.MockFileAcquirer;
 import com.yahoo.path.Path;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
 import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.scalaroptimization.CompiledScalarNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.vespa.config.search.RankProfilesConfig;
@@ -15,10 +17,17 @@ import com.yahoo.yolean.Exceptions;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author bratseth
@@ -122,6 +131,190 @@ public class ModelsEvaluatorTest {
 
     }
 
+    @Test
+    public void testEvaluatorReset() {
+        ModelsEvaluator models = createModels("src/test/resources/config/rankexpression/");
+        FunctionEvaluator function = models.evaluatorOf("macros", "secondphase");
+        function.bind("match", 3);
+        function.bind("rankBoost", 5);
+        assertEquals(32.0, function.evaluate().asDouble(), delta);
+
+        function.reset();
+        assertTrue(Double.isNaN(function.evaluate().asDouble()));
+
+        function.reset();
+        function.bind("match", 1);
+        function.setMissingValue(2);
+        assertEquals(12.0, function.evaluate().asDouble(), delta);
+    }
+
+    @Test
+    public void testEvaluatorPool() {
+        ModelsEvaluator models = createModels("src/test/resources/config/rankexpression/");
+        FunctionEvaluatorPool pool = models.evaluatorPoolOf("macros", "secondphase");
+        assertSame(pool, models.evaluatorPoolOf("macros", "secondphase"));
+
+        FunctionEvaluator first = pool.acquire();
+        FunctionEvaluator second = pool.acquire();
+        assertNotSame(first, second);
+        assertEquals(32.0, first.bind("match", 3).bind("rankBoost", 5).evaluate().asDouble(), delta);
+        assertEquals(24.0, second.bind("match", 1).bind("rankBoost", 5).evaluate().asDouble(), delta);
+        pool.release(first);
+        pool.release(second);
+        assertEquals(2, pool.idle());
+
+        FunctionEvaluator reused = pool.acquire();
+        assertEquals(1, pool.idle());
+        assertTrue(reused == first || reused == second);
+        assertTrue("Bindings are reset on release", Double.isNaN(reused.evaluate().asDouble()));
+        assertEquals(8.0, reused.reset().bind("match", 1).bind("rankBoost", 1).evaluate().asDouble(), delta);
+        pool.release(reused);
+
+        try {
+            models.evaluatorPoolOf("macros", "firstphase").release(reused);
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Cannot release an evaluator of function 'secondphase' to a pool of function 'firstphase'",
+                         Exceptions.toMessageString(e));
+        }
+    }
+
+    @Test
+    public void testBatchEvaluation() {
+        ModelsEvaluator models = createModels("src/test/resources/config/rankexpression/");
+        BatchFunctionEvaluator function = models.batchEvaluatorOf("macros", "secondphase");
+        function.bindColumn("match", new double[] { 3, 1, 0 });
+        function.bind("rankBoost", 5);
+        List<Tensor> results = function.evaluate();
+        assertEquals(3, results.size());
+        assertEquals(32.0, results.get(0).asDouble(), delta);
+        assertEquals(24.0, results.get(1).asDouble(), delta);
+        assertEquals(20.0, results.get(2).asDouble(), delta);
+
+        // The evaluator can be reused
+        function.bindColumn("rankBoost", new double[] { 1, 2, 3 });
+        assertEquals(Tensor.from("tensor(batch[3]):[16, 12, 12]"), function.evaluate("batch"));
+    }
+
+    @Test
+    public void testBatchBindingValidation() {
+        List<ExpressionFunction> functions = new ArrayList<>();
+        ExpressionFunction function = new ExpressionFunction("test", RankingExpression.from("sum(arg1 * arg2)"));
+        function = function.withArgument("arg1", TensorType.fromSpec("tensor(d0[2])"));
+        function = function.withArgument("arg2", TensorType.fromSpec("tensor(d1{})"));
+        functions.add(function);
+        Model model = new Model("test-model", functions);
+
+        BatchFunctionEvaluator evaluator = model.batchEvaluatorOf("test");
+        evaluator.bindBatch("arg1", Tensor.from("tensor(d0[2],row[3]):[[1, 2, 3], [4, 5, 6]]"), "row");
+        evaluator.bind("arg2", Tensor.from("tensor(d1{}):{{d1:foo}:2}"));
+        assertEquals(3, evaluator.rows());
+        assertEquals(Tensor.from("tensor(row[3]):[10, 14, 18]"), evaluator.evaluate("row"));
+
+        try { // Column of a different size
+            evaluator.bindColumn("arg2", List.of(Tensor.from("tensor(d1{}):{{d1:foo}:2}")));
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Column 'arg2' has 1 values, but the other columns have 3", Exceptions.toMessageString(e));
+        }
+
+        try { // Wrong column type
+            evaluator.bindColumn("arg2", new double[] { 1, 2, 3 });
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("'arg2' must be of type tensor(d1{}), not tensor()", Exceptions.toMessageString(e));
+        }
+
+        try { // Missing batch dimension
+            evaluator.bindBatch("arg1", Tensor.from("tensor(d0[2]):[1, 2]"), "row");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Batch dimension 'row' is not present in tensor(d0[2])", Exceptions.toMessageString(e));
+        }
+    }
+
+    @Test
+    public void testParallelEvaluation() {
+        TensorType vector = TensorType.fromSpec("tensor(d0[3])");
+        Map<FunctionReference, ExpressionFunction> referencedFunctions = new HashMap<>();
+        addFunction("tower1", "x * 2", vector, referencedFunctions);
+        addFunction("tower2", "x + 1", vector, referencedFunctions);
+        addFunction("scale", "reduce(x, max)", TensorType.empty, referencedFunctions);
+        addFunction("combined",
+                    "join(join(rankingExpression(tower1), rankingExpression(tower2), f(a,b)(a * b)), rankingExpression(scale), f(a,b)(a * b))",
+                    vector, referencedFunctions);
+        Map<FunctionReference, ExpressionFunction> functions = new HashMap<>(referencedFunctions);
+        addFunction("output", "reduce(join(rankingExpression(combined), rankingExpression(tower1), f(a,b)(a + b)), sum)", TensorType.empty, functions);
+        functions.put(FunctionReference.fromName("output"),
+                      functions.get(FunctionReference.fromName("output")).withArgument("x", vector));
+        Model model = new Model("test-model", functions, referencedFunctions, List.of());
+
+        ForkJoinPool executor = new ForkJoinPool(2);
+        try {
+            Tensor x = Tensor.from(vector, "[1, 2, 3]");
+            double expected = model.evaluatorOf("output").bind("x", x).evaluate().asDouble();
+            assertEquals(3 * (2 * 2 + 4 * 3 + 6 * 4) + 2 + 4 + 6, expected, delta);
+
+            FunctionEvaluator evaluator = model.evaluatorOf("output");
+            assertEquals(expected, evaluator.bind("x", x).evaluate(executor).asDouble(), delta);
+            evaluator.reset().bind("x", Tensor.from(vector, "[0, 0, 1]"));
+            assertEquals(2 * 2 * 1 + 2, evaluator.evaluate(executor).asDouble(), delta);
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCompilingScalars() {
+        for (boolean compile : new boolean[] { false, true }) {
+            ModelsEvaluator models = new ModelsEvaluator(scalarsConfig(compile),
+                                                         new RankingConstantsConfig.Builder().build(),
+                                                         MockFileAcquirer.returnFile(null));
+            Model model = models.requireModel("scalars");
+            assertEquals(compile, root("score", model) instanceof CompiledScalarNode);
+            assertFalse("Operators on tensors are not compiled", root("tensorsum", model) instanceof CompiledScalarNode);
+
+            FunctionEvaluator evaluator = models.evaluatorOf("scalars", "score");
+            evaluator.bind("a", 3).bind("b", 1).bind("t", Tensor.from("tensor(x[2]):[1, 2]"));
+            assertEquals(3 * 2 + (1 * 2 + 2 * 2), evaluator.evaluate().asDouble(), delta);
+
+            evaluator = models.evaluatorOf("scalars", "score");
+            evaluator.bind("a", 0).bind("b", 1).bind("t", Tensor.from("tensor(x[2]):[1, 2]"));
+            assertEquals(1 - 1, evaluator.evaluate().asDouble(), delta);
+        }
+    }
+
+    private RankProfilesConfig scalarsConfig(boolean compileScalars) {
+        RankProfilesConfig.Rankprofile.Fef.Builder fef = new RankProfilesConfig.Rankprofile.Fef.Builder();
+        addProperty("rankingExpression(tensorsum).rankingScript", "sum(t * 2)", fef);
+        addProperty("rankingExpression(tensorsum).t.type", "tensor(x[2])", fef);
+        addProperty("rankingExpression(tensorsum).type", "tensor()", fef);
+        addProperty("rankingExpression(score).rankingScript", "if (a > b, a * 2 + rankingExpression(tensorsum), b - 1)", fef);
+        addProperty("rankingExpression(score).t.type", "tensor(x[2])", fef);
+        addProperty("rankingExpression(score).type", "tensor()", fef);
+        if (compileScalars)
+            addProperty(RankProfilesConfigImporter.compileScalarsProperty, "true", fef);
+        return new RankProfilesConfig.Builder().rankprofile(new RankProfilesConfig.Rankprofile.Builder().name("scalars")
+                                                                                                 .fef(fef))
+                                               .build();
+    }
+
+    private void addProperty(String name, String value, RankProfilesConfig.Rankprofile.Fef.Builder fef) {
+        fef.property(new RankProfilesConfig.Rankprofile.Fef.Property.Builder().name(name).value(value));
+    }
+
+    private ExpressionNode root(String function, Model model) {
+        return model.requireReferencedFunction(FunctionReference.fromName(function)).getBody().getRoot();
+    }
+
+    private void addFunction(String name, String expression, TensorType returnType,
+                             Map<FunctionReference, ExpressionFunction> functions) {
+        functions.put(FunctionReference.fromName(name),
+                      new ExpressionFunction(name, RankingExpression.from(expression)).withReturnType(returnType));
+    }
+
     // TODO: Test argument-less function
     // TODO: Test with nested functions
 
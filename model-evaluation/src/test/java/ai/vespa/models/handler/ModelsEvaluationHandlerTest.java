@@ -93,6 +93,29 @@ public class ModelsEvaluationHandlerTest {
         assertResponse(url, properties, 200, expected);
     }
 
+    @Test
+    public void testXgBoostBatchEvaluation() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("batch-dimension", "row");
+        properties.put("f29", "{{row:0}:-1.0,{row:1}:0.5}");
+        properties.put("f56", "0.2");
+        properties.put("f60", "0.3");
+        properties.put("f109", "0.4");
+        String url = "http://localhost/model-evaluation/v1/xgboost_2_2/eval";
+        String expected = "{\"cells\":[{\"address\":{\"row\":\"0\"},\"value\":-7.936679999999999},{\"address\":{\"row\":\"1\"},\"value\":-8.17695}]}";
+        assertResponse(url, properties, 200, expected);
+    }
+
+    @Test
+    public void testBatchEvaluationWithDifferentNumberOfRows() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("batch-dimension", "row");
+        properties.put("f29", "{{row:0}:-1.0,{row:1}:0.5}");
+        properties.put("f56", "{{row:0}:0.2,{row:1}:0.2,{row:2}:0.2}");
+        String url = "http://localhost/model-evaluation/v1/xgboost_2_2/eval";
+        assertResponse(url, properties, 400, null);
+    }
+
     @Test
     public void testLightGBMEvaluationWithoutBindings() {
         String url = "http://localhost/model-evaluation/v1/lightgbm_regression/eval";
@@ -0,0 +1,138 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.rankingexpression.importer;
+
+import ai.vespa.rankingexpression.importer.lightgbm.LightGBMImporter;
+import ai.vespa.rankingexpression.importer.onnx.OnnxImporter;
+import ai.vespa.rankingexpression.importer.xgboost.XGBoostImporter;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.Reference;
+import com.yahoo.searchlib.rankingexpression.evaluation.ArrayContext;
+import com.yahoo.searchlib.rankingexpression.evaluation.Context;
+import com.yahoo.searchlib.rankingexpression.evaluation.ContextIndex;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionOptimizer;
+import com.yahoo.searchlib.rankingexpression.evaluation.MapContext;
+import com.yahoo.searchlib.rankingexpression.evaluation.MapTypeContext;
+import com.yahoo.searchlib.rankingexpression.evaluation.StringValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.TensorValue;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Compares the time to evaluate imported models when interpreted as imported, when optimized without
+ * compiling scalar expressions, and when fully optimized.
+ *
+ * Run with e.g. <code>java -cp ... ai.vespa.rankingexpression.importer.ImportedModelEvaluationBenchmark</code>
+ * from the model-integration directory.
+ */
+public class ImportedModelEvaluationBenchmark {
+
+    private static final String models = "src/test/models/";
+
+    /** The number of timed rounds of each benchmark, of which the fastest is reported */
+    private static final int rounds = 5;
+
+    public static void main(String[] args) {
+        benchmark("lightgbm regression",
+                  new LightGBMImporter().importModel("lightgbm", models + "lightgbm/regression.json").expressions().get("lightgbm"),
+                  ImportedModelEvaluationBenchmark::lightGBMFeatures, 200000);
+        benchmark("lightgbm classification",
+                  new LightGBMImporter().importModel("lightgbm", models + "lightgbm/classification.json").expressions().get("lightgbm"),
+                  ImportedModelEvaluationBenchmark::lightGBMFeatures, 200000);
+        benchmark("xgboost",
+                  new XGBoostImporter().importModel("xgb", models + "xgboost/xgboost.2.2.json").expressions().get("xgb"),
+                  context -> { context.put("f29", 0.5); context.put("f56", 1.0); context.put("f60", 0.2); context.put("f109", 0.1); },
+                  200000);
+
+        ImportedModel mnist = new OnnxImporter().importModel("test", models + "onnx/mnist_softmax/mnist_softmax.onnx");
+        benchmark("onnx mnist softmax",
+                  mnist.expressions().get("add"),
+                  expression -> new MapIndexContext(),
+                  context -> {
+                      mnist.largeConstants().forEach((name, tensor) -> context.put("constant(" + name + ")", new TensorValue(Tensor.from(tensor))));
+                      context.put("Placeholder", new TensorValue(mnistInput()));
+                  },
+                  2000);
+    }
+
+    private static void lightGBMFeatures(Context context) {
+        context.put("numerical_1", 0.7);
+        context.put("numerical_2", 0.8);
+        context.put("categorical_1", new StringValue("b"));
+        context.put("categorical_2", new StringValue("m"));
+    }
+
+    private static void benchmark(String name, RankingExpression model, Consumer<Context> features, int iterations) {
+        benchmark(name, model, expression -> new ArrayContext(expression, true, DoubleValue.NaN), features, iterations);
+    }
+
+    private static void benchmark(String name, RankingExpression model, Function<RankingExpression, Context> contexts,
+                                  Consumer<Context> features, int iterations) {
+        System.out.println(name + ":");
+        run("interpreted", model.copy(), null, contexts, features, iterations);
+        run("optimized, not compiled", model.copy(), Optimization.optimize, contexts, features, iterations);
+        run("optimized and compiled", model.copy(), Optimization.optimizeAndCompile, contexts, features, iterations);
+    }
+
+    private static void run(String name, RankingExpression expression, Optimization optimization,
+                            Function<RankingExpression, Context> contexts, Consumer<Context> features, int iterations) {
+        Context context = contexts.apply(expression);
+        features.accept(context);
+        if (optimization == Optimization.optimize)
+            new ExpressionOptimizer().optimize(expression, (ContextIndex)context);
+        else if (optimization == Optimization.optimizeAndCompile)
+            new ExpressionOptimizer().optimize(expression, (ContextIndex)context, typesOf(context));
+
+        double result = evaluate(expression, context, iterations); // warmup
+        long bestNanos = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long startTime = System.nanoTime();
+            result += evaluate(expression, context, iterations);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - startTime);
+        }
+        System.out.println(String.format(Locale.US, "    %-24s %10.3f us per evaluation (%s)",
+                                         name, bestNanos / 1000.0 / iterations, result));
+    }
+
+    /** Returns the types of the values bound in the given context */
+    private static MapTypeContext typesOf(Context context) {
+        MapTypeContext types = new MapTypeContext();
+        for (String name : context.names())
+            types.setType(Reference.simple(name).orElse(Reference.fromIdentifier(name)), context.get(name).type());
+        return types;
+    }
+
+    private static double evaluate(RankingExpression expression, Context context, int iterations) {
+        double result = 0;
+        for (int i = 0; i < iterations; i++)
+            result += expression.evaluate(context).asTensor().sum().asDouble();
+        return result;
+    }
+
+    private static Tensor mnistInput() {
+        Tensor.Builder b = Tensor.Builder.of(TensorType.fromSpec("tensor<float>(d0[1],d1[784])"));
+        for (int d1 = 0; d1 < 784; d1++)
+            b.cell(d1 * 1.0 / 784, 0, d1);
+        return b.build();
+    }
+
+    private enum Optimization { optimize, optimizeAndCompile }
+
+    /** A map context which can be passed to the optimizers, for expressions which are not optimized using indexes */
+    private static class MapIndexContext extends MapContext implements ContextIndex {
+
+        @Override
+        public int size() { return bindings().size(); }
+
+        @Override
+        public int getIndex(String name) {
+            throw new UnsupportedOperationException(this + " does not support index lookup by name");
+        }
+
+    }
+
+}
@@ -2,9 +2,12 @@
 package com.yahoo.searchlib.rankingexpression.evaluation;
 
 import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.Reference;
 import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestOptimizer;
 import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTOptimizer;
+import com.yahoo.searchlib.rankingexpression.evaluation.scalaroptimization.ScalarOptimizer;
 import com.yahoo.searchlib.rankingexpression.evaluation.tensoroptimization.TensorOptimizer;
+import com.yahoo.tensor.evaluation.TypeContext;
 
 /**
  * This class will perform various optimizations on the ranking expressions. Clients using optimized expressions
@@ -35,6 +38,7 @@ public class ExpressionOptimizer {
     private GBDTOptimizer gbdtOptimizer = new GBDTOptimizer();
     private GBDTForestOptimizer gbdtForestOptimizer = new GBDTForestOptimizer();
     private TensorOptimizer tensorOptimizer = new TensorOptimizer();
+    private ScalarOptimizer scalarOptimizer = new ScalarOptimizer();
 
     /** Gets an optimizer instance used by this by class name, or null if the optimizer is not known */
     public Optimizer getOptimizer(Class<?> clazz) {
@@ -44,6 +48,8 @@ public class ExpressionOptimizer {
             return gbdtForestOptimizer;
         if (clazz == tensorOptimizer.getClass())
             return tensorOptimizer;
+        if (clazz == scalarOptimizer.getClass())
+            return scalarOptimizer;
         return null;
     }
 
@@ -56,6 +62,16 @@ public class ExpressionOptimizer {
         return report;
     }
 
+    /**
+     * Optimizes the given expression, and also compiles its scalar operators where the given types show
+     * that they are only applied to scalars, see {@link ScalarOptimizer}.
+     */
+    public OptimizationReport optimize(RankingExpression expression, ContextIndex contextIndex, TypeContext<Reference> types) {
+        OptimizationReport report = optimize(expression, contextIndex);
+        scalarOptimizer.optimize(expression, types, report);
+        return report;
+    }
+
     public OptimizationReport optimize(RankingExpression expression, AbstractArrayContext arrayContext) {
         return optimize(expression, (ContextIndex)arrayContext);
     }
@@ -21,9 +21,9 @@ public class OptimizationReport {
         metrics.put(name,value);
     }
 
-    /** Returns the value of a metric, or null if it is not set */
+    /** Returns the value of a metric, or 0 if it is not set */
     public int getMetric(String name) {
-        return metrics.get(name);
+        return metrics.getOrDefault(name, 0);
     }
 
     /**
@@ -0,0 +1,208 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization;
+
+import com.yahoo.searchlib.rankingexpression.evaluation.Context;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * A sum of decision trees stored as parallel arrays of node attributes rather than as instructions
+ * interpreted in order: The nodes of all trees are numbered consecutively, each tree in depth first order,
+ * and the nodes to continue to from node n when its condition is true and false are
+ * children[2n] and children[2n+1]. Negative child numbers are the complement of the index of a leaf value.
+ *
+ * Trees are traversed by computing the index of the next node from the outcome of the condition,
+ * rather than by jumping over the nodes of the branch not taken, and a batch of feature vectors
+ * can be evaluated tree by tree, such that each tree is read into the cache once per batch.
+ *
+ * This is immutable and multithread safe.
+ */
+public final class GBDTForest {
+
+    private static final byte LESS = 0;
+    private static final byte EQUAL = 1;
+    private static final byte IN = 2;
+    private static final byte NOT_GREATER_OR_EQUAL = 3;
+
+    /** The root node (or leaf) of each tree */
+    private final int[] roots;
+
+    /** The index of the feature in the context compared by each node */
+    private final int[] features;
+
+    /** The kind of comparison made by each node */
+    private final byte[] operations;
+
+    /** The value compared to by each node, or 0 for nodes comparing to a set */
+    private final double[] compareValues;
+
+    /** The values compared to by each node comparing to a set, by node, or null for other nodes */
+    private final double[][] sets;
+
+    /** The node (or leaf) to continue to for each outcome of each node */
+    private final int[] children;
+
+    /** The value of each leaf */
+    private final double[] leafValues;
+
+    /** Whether all nodes of this are less than comparisons, such that the operation need not be checked */
+    private final boolean onlyLess;
+
+    /** The distinct feature indexes referenced by the nodes of this, in increasing order */
+    private final int[] referencedFeatures;
+
+    private GBDTForest(Builder builder) {
+        roots = builder.roots.stream().mapToInt(Integer::intValue).toArray();
+        features = builder.features.stream().mapToInt(Integer::intValue).toArray();
+        operations = new byte[builder.operations.size()];
+        for (int i = 0; i < operations.length; i++)
+            operations[i] = builder.operations.get(i);
+        compareValues = builder.compareValues.stream().mapToDouble(Double::doubleValue).toArray();
+        sets = builder.sets.toArray(new double[0][]);
+        children = builder.children.stream().mapToInt(Integer::intValue).toArray();
+        leafValues = builder.leafValues.stream().mapToDouble(Double::doubleValue).toArray();
+        onlyLess = ! builder.operations.stream().anyMatch(operation -> operation != LESS);
+        referencedFeatures = new TreeSet<>(builder.features).stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /** Returns the number of trees in this */
+    public int trees() { return roots.length; }
+
+    /** Returns the distinct indexes of the features in the context read by this, in increasing order */
+    public int[] referencedFeatures() { return referencedFeatures.clone(); }
+
+    /** Returns the sum of the trees of this in the given context */
+    public double evaluate(Context context) {
+        double sum = 0;
+        for (int root : roots) {
+            int node = root;
+            while (node >= 0)
+                node = children[2 * node + (isTrue(node, context.getDouble(features[node])) ? 0 : 1)];
+            sum += leafValues[~node];
+        }
+        return sum;
+    }
+
+    /** Returns the sum of the trees of this given feature values by context index */
+    public double evaluate(double[] featureValues) {
+        double sum = 0;
+        for (int root : roots)
+            sum += leafValues[~leafOf(root, featureValues)];
+        return sum;
+    }
+
+    /**
+     * Computes the sum of the trees of this for each of a batch of feature vectors.
+     * The trees are evaluated one at a time over all the feature vectors, so each tree is only
+     * read into the cache once for the batch.
+     *
+     * @param featureValues the feature values of each vector in the batch, by context index
+     * @param results the array to write the sum of each vector to, which must be at least as long as the batch
+     */
+    public void evaluate(double[][] featureValues, double[] results) {
+        Arrays.fill(results, 0, featureValues.length, 0);
+        for (int root : roots)
+            for (int i = 0; i < featureValues.length; i++)
+                results[i] += leafValues[~leafOf(root, featureValues[i])];
+    }
+
+    /** Returns the complement of the index of the leaf reached from the given node */
+    private int leafOf(int node, double[] featureValues) {
+        if (onlyLess) {
+            while (node >= 0)
+                node = children[2 * node + (featureValues[features[node]] < compareValues[node] ? 0 : 1)];
+            return node;
+        }
+        while (node >= 0)
+            node = children[2 * node + (isTrue(node, featureValues[features[node]]) ? 0 : 1)];
+        return node;
+    }
+
+    private boolean isTrue(int node, double value) {
+        switch (operations[node]) {
+            case LESS: return value < compareValues[node];
+            case EQUAL: return value == compareValues[node];
+            case NOT_GREATER_OR_EQUAL: return ! (value >= compareValues[node]);
+            default: return contains(sets[node], value);
+        }
+    }
+
+    private static boolean contains(double[] set, double value) {
+        for (double setValue : set)
+            if (value == setValue) return true;
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "forest of " + roots.length + " trees with " + features.length + " nodes and " + leafValues.length + " leaves";
+    }
+
+    /**
+     * Creates a forest from the instructions of a {@link GBDTForestNode}: A sequence of trees,
+     * each prefixed by its size, where each tree is encoded as by {@link GBDTNode}.
+     */
+    public static GBDTForest fromInstructions(double[] values) {
+        Builder builder = new Builder(values);
+        int pc = 0;
+        while (pc < values.length) {
+            int treeSize = (int)values[pc++];
+            builder.roots.add(builder.add(pc));
+            pc += treeSize;
+        }
+        return new GBDTForest(builder);
+    }
+
+    private static class Builder {
+
+        private final double[] values;
+
+        private final List<Integer> roots = new ArrayList<>();
+        private final List<Integer> features = new ArrayList<>();
+        private final List<Byte> operations = new ArrayList<>();
+        private final List<Double> compareValues = new ArrayList<>();
+        private final List<double[]> sets = new ArrayList<>();
+        private final List<Integer> children = new ArrayList<>();
+        private final List<Double> leafValues = new ArrayList<>();
+
+        Builder(double[] values) {
+            this.values = values;
+        }
+
+        /** Adds the node or leaf whose instructions start at the given position and returns its number */
+        int add(int pc) {
+            double value = values[pc++];
+            if (value < GBDTNode.MAX_LEAF_VALUE) {
+                leafValues.add(value);
+                return ~(leafValues.size() - 1);
+            }
+
+            int node = features.size();
+            int offset = (int)value - GBDTNode.MAX_LEAF_VALUE;
+            byte operation = (byte)(offset / GBDTNode.MAX_VARIABLES);
+            features.add(offset % GBDTNode.MAX_VARIABLES);
+            operations.add(operation);
+            if (operation == IN) {
+                int setSize = (int)values[pc++];
+                compareValues.add(0.0);
+                sets.add(Arrays.copyOfRange(values, pc, pc + setSize));
+                pc += setSize;
+            }
+            else {
+                compareValues.add(values[pc++]);
+                sets.add(null);
+            }
+            children.add(0);
+            children.add(0);
+            int falseBranch = pc + (int)values[pc];
+            children.set(2 * node, add(pc + 1));
+            children.set(2 * node + 1, add(falseBranch));
+            return node;
+        }
+
+    }
+
+}
@@ -20,30 +20,35 @@ import java.util.Deque;
  */
 public class GBDTForestNode extends ExpressionNode {
 
-    private final double[] values;
+    /** The size of the instructions this was created from */
+    private final int size;
+
+    private final GBDTForest forest;
 
     public GBDTForestNode(double[] values) {
-        this.values=values;
+        this.size = values.length;
+        this.forest = GBDTForest.fromInstructions(values);
     }
 
+    /** Returns the trees of this */
+    public GBDTForest forest() { return forest; }
+
     @Override
     public final TensorType type(TypeContext<Reference> context) { return TensorType.empty; }
 
     @Override
     public final Value evaluate(Context context) {
-        int pc = 0;
-        double treeSum = 0;
-        while (pc < values.length) {
-            int nextTree = (int)values[pc++];
-            treeSum += GBDTNode.evaluate(values, pc, context);
-            pc += nextTree;
-        }
-        return new DoubleValue(treeSum);
+        return new DoubleValue(evaluateDouble(context));
+    }
+
+    /** Returns the sum of the trees of this in the given context */
+    public final double evaluateDouble(Context context) {
+        return forest.evaluate(context);
     }
 
     /** Returns (optimized sum of condition trees) */
     public StringBuilder toString(StringBuilder string, SerializationContext context, Deque<String> path, CompositeNode parent) {
-        return string.append("(optimized sum of condition trees of size ").append(values.length*8).append(" bytes)");
+        return string.append("(optimized sum of condition trees of size ").append(size*8).append(" bytes)");
     }
 
 }
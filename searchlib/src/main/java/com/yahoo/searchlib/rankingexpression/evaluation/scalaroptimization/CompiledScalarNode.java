@@ -0,0 +1,67 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.scalaroptimization;
+
+import com.yahoo.searchlib.rankingexpression.Reference;
+import com.yahoo.searchlib.rankingexpression.evaluation.BooleanValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.Context;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.Value;
+import com.yahoo.searchlib.rankingexpression.rule.CompositeNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.SerializationContext;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.TypeContext;
+
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A scalar expression compiled to primitive double arithmetic, which does not create intermediate values.
+ *
+ * All the values the expression depends on are scalars, see {@link ScalarOptimizer}. This node is otherwise
+ * equivalent to, and serializes as, the original expression, which is its only child.
+ */
+public final class CompiledScalarNode extends CompositeNode {
+
+    private final ExpressionNode original;
+    private final DoubleEvaluator evaluator;
+    private final boolean isBoolean;
+
+    CompiledScalarNode(ExpressionNode original, DoubleEvaluator evaluator, boolean isBoolean) {
+        this.original = original;
+        this.evaluator = evaluator;
+        this.isBoolean = isBoolean;
+    }
+
+    /** Returns the expression this is a compiled version of */
+    public ExpressionNode original() { return original; }
+
+    @Override
+    public List<ExpressionNode> children() { return Collections.singletonList(original); }
+
+    /**
+     * Returns this with the original expression replaced by the given single child, compiled.
+     * The operators of the child must only be applied to values which are scalars.
+     */
+    @Override
+    public CompiledScalarNode setChildren(List<ExpressionNode> children) {
+        if (children.size() != 1) throw new IllegalArgumentException("Expected 1 child but got " + children.size());
+        return ScalarOptimizer.compiled(children.get(0));
+    }
+
+    @Override
+    public Value evaluate(Context context) {
+        double value = evaluator.evaluate(context);
+        return isBoolean ? new BooleanValue(value != 0) : new DoubleValue(value);
+    }
+
+    @Override
+    public TensorType type(TypeContext<Reference> context) { return original.type(context); }
+
+    @Override
+    public StringBuilder toString(StringBuilder string, SerializationContext context, Deque<String> path, CompositeNode parent) {
+        return original.toString(string, context, path, parent);
+    }
+
+}
@@ -0,0 +1,19 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.scalaroptimization;
+
+import com.yahoo.searchlib.rankingexpression.evaluation.Context;
+
+import java.io.Serializable;
+
+/**
+ * A compiled scalar expression, evaluated to a primitive double.
+ *
+ * @see ScalarOptimizer
+ */
+@FunctionalInterface
+interface DoubleEvaluator extends Serializable {
+
+    /** Returns the value of this in the given context */
+    double evaluate(Context context);
+
+}
@@ -0,0 +1,282 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.scalaroptimization;
+
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.Reference;
+import com.yahoo.searchlib.rankingexpression.evaluation.BooleanValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.ContextIndex;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleCompatibleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.OptimizationReport;
+import com.yahoo.searchlib.rankingexpression.evaluation.Optimizer;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestNode;
+import com.yahoo.searchlib.rankingexpression.rule.ArithmeticNode;
+import com.yahoo.searchlib.rankingexpression.rule.ArithmeticOperator;
+import com.yahoo.searchlib.rankingexpression.rule.ComparisonNode;
+import com.yahoo.searchlib.rankingexpression.rule.CompositeNode;
+import com.yahoo.searchlib.rankingexpression.rule.ConstantNode;
+import com.yahoo.searchlib.rankingexpression.rule.EmbracedNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.Function;
+import com.yahoo.searchlib.rankingexpression.rule.FunctionNode;
+import com.yahoo.searchlib.rankingexpression.rule.IfNode;
+import com.yahoo.searchlib.rankingexpression.rule.NegativeNode;
+import com.yahoo.searchlib.rankingexpression.rule.NotNode;
+import com.yahoo.searchlib.rankingexpression.rule.ReferenceNode;
+import com.yahoo.searchlib.rankingexpression.rule.TruthOperator;
+import com.yahoo.tensor.evaluation.TypeContext;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Compiles the scalar operators of an expression - arithmetic, comparisons, conditions and functions -
+ * to primitive double arithmetic, such that evaluating them does not create a value object per node.
+ *
+ * Only operators whose values are all known to be scalars from their types are compiled, so this must be given
+ * the types of the values referenced in the expression, see {@link #optimize(RankingExpression, TypeContext, OptimizationReport)}.
+ * Operators applied to values which may be tensors, or whose type is not known, are left as they are.
+ * The values the compiled operators are applied to are evaluated as before. The compiled expressions give the
+ * same results as the original ones, including the operator precedence rules of {@link ArithmeticNode}.
+ *
+ * This should run after the other optimizers, as it hides the nodes they look for.
+ */
+public class ScalarOptimizer extends Optimizer {
+
+    private TypeContext<Reference> types;
+    private OptimizationReport report;
+
+    /** Does nothing, as compiling requires the types of the values in the expression */
+    @Override
+    public void optimize(RankingExpression expression, ContextIndex context, OptimizationReport report) { }
+
+    /**
+     * Compiles the scalar operators of the given expression
+     *
+     * @param expression the expression to optimize in place
+     * @param types the types of the values referenced in the expression. Operators applied to values which
+     *              have no type in this context are not compiled.
+     * @param report the report to add the metrics of this optimization to
+     */
+    public void optimize(RankingExpression expression, TypeContext<Reference> types, OptimizationReport report) {
+        if ( ! isEnabled()) return;
+
+        this.types = types;
+        this.report = report;
+        expression.setRoot(optimize(expression.getRoot()));
+        report.note("Scalar expression compilation done");
+    }
+
+    private ExpressionNode optimize(ExpressionNode node) {
+        if (isScalarOperator(node)) {
+            ExpressionNode region = optimizeLeaves(node);
+            report.incMetric("Scalar expressions compiled", 1);
+            return compiled(region);
+        }
+        if (node instanceof CompiledScalarNode) return node;
+        if (node instanceof CompositeNode && ! (node instanceof ReferenceNode))
+            return optimizeChildren((CompositeNode)node);
+        return node;
+    }
+
+    private ExpressionNode optimizeChildren(CompositeNode node) {
+        List<ExpressionNode> children = new ArrayList<>(node.children().size());
+        for (ExpressionNode child : node.children())
+            children.add(optimize(child));
+        return node.setChildren(children);
+    }
+
+    /** Returns the given scalar operator node with the expressions below its leaf values optimized */
+    private ExpressionNode optimizeLeaves(ExpressionNode node) {
+        if ( ! isOperator(node)) return optimize(node);
+
+        CompositeNode composite = (CompositeNode)node;
+        List<ExpressionNode> children = new ArrayList<>(composite.children().size());
+        for (ExpressionNode child : composite.children())
+            children.add(optimizeLeaves(child));
+        return composite.setChildren(children);
+    }
+
+    /** Returns whether the given node is an operator which is only applied to values known to be scalars */
+    private boolean isScalarOperator(ExpressionNode node) {
+        if ( ! isOperator(node)) return false;
+        for (ExpressionNode child : ((CompositeNode)node).children()) {
+            if ( ! isScalarOperator(child) && ! isScalar(child)) return false;
+        }
+        return true;
+    }
+
+    /** Returns whether the type of the given node is known to be a scalar */
+    private boolean isScalar(ExpressionNode node) {
+        try {
+            return node.type(types).rank() == 0;
+        }
+        catch (RuntimeException e) { // not resolvable in this context
+            return false;
+        }
+    }
+
+    private static boolean isOperator(ExpressionNode node) {
+        return node instanceof ArithmeticNode ||
+               node instanceof ComparisonNode ||
+               node instanceof IfNode ||
+               node instanceof NegativeNode ||
+               node instanceof NotNode ||
+               node instanceof EmbracedNode ||
+               node instanceof FunctionNode;
+    }
+
+    /** Returns the given expression compiled to a single node */
+    static CompiledScalarNode compiled(ExpressionNode node) {
+        return new CompiledScalarNode(node, compile(node), isBoolean(node));
+    }
+
+    private static DoubleEvaluator compile(ExpressionNode node) {
+        if (node instanceof ArithmeticNode)
+            return compileArithmetic((ArithmeticNode)node);
+        if (node instanceof ComparisonNode)
+            return compileComparison((ComparisonNode)node);
+        if (node instanceof IfNode)
+            return compileIf((IfNode)node);
+        if (node instanceof NegativeNode) {
+            DoubleEvaluator value = compile(((NegativeNode)node).getValue());
+            return context -> - value.evaluate(context);
+        }
+        if (node instanceof NotNode) {
+            DoubleEvaluator value = compile(((NotNode)node).getValue());
+            return context -> value.evaluate(context) != 0 ? 0 : 1;
+        }
+        if (node instanceof EmbracedNode)
+            return compile(((EmbracedNode)node).getValue());
+        if (node instanceof FunctionNode)
+            return compileFunction((FunctionNode)node);
+        if (node instanceof ConstantNode && ((ConstantNode)node).getValue() instanceof DoubleCompatibleValue) {
+            double value = ((ConstantNode)node).getValue().asDouble();
+            return context -> value;
+        }
+        if (node instanceof GBDTForestNode) {
+            GBDTForestNode forest = (GBDTForestNode)node;
+            return forest::evaluateDouble;
+        }
+        return context -> node.evaluate(context).asDouble();
+    }
+
+    /** Compiles the children and operators of the given node in the same order as {@link ArithmeticNode#evaluate} */
+    private static DoubleEvaluator compileArithmetic(ArithmeticNode node) {
+        Iterator<ExpressionNode> child = node.children().iterator();
+
+        Deque<Operand> stack = new ArrayDeque<>();
+        stack.push(new Operand(ArithmeticOperator.OR, compile(child.next())));
+        for (Iterator<ArithmeticOperator> it = node.operators().iterator(); it.hasNext() && child.hasNext();) {
+            ArithmeticOperator op = it.next();
+            while (stack.peek().op.hasPrecedenceOver(op))
+                popStack(stack);
+            stack.push(new Operand(op, compile(child.next())));
+        }
+        while (stack.size() > 1)
+            popStack(stack);
+        return stack.getFirst().evaluator;
+    }
+
+    private static void popStack(Deque<Operand> stack) {
+        Operand rhs = stack.pop();
+        Operand lhs = stack.peek();
+        lhs.evaluator = compile(lhs.evaluator, rhs.op, rhs.evaluator);
+    }
+
+    private static DoubleEvaluator compile(DoubleEvaluator x, ArithmeticOperator operator, DoubleEvaluator y) {
+        switch (operator) {
+            case OR: return binary(x, y, (xValue, yValue) -> xValue != 0 || yValue != 0 ? 1 : 0);
+            case AND: return binary(x, y, (xValue, yValue) -> xValue != 0 && yValue != 0 ? 1 : 0);
+            case PLUS: return binary(x, y, (xValue, yValue) -> xValue + yValue);
+            case MINUS: return binary(x, y, (xValue, yValue) -> xValue - yValue);
+            case MULTIPLY: return binary(x, y, (xValue, yValue) -> xValue * yValue);
+            case DIVIDE: return binary(x, y, (xValue, yValue) -> xValue / yValue);
+            case MODULO: return binary(x, y, (xValue, yValue) -> xValue % yValue);
+            case POWER: return binary(x, y, Math::pow);
+            default: throw new IllegalArgumentException("Unknown operator " + operator);
+        }
+    }
+
+    /** Returns an evaluator applying the given function to the values of x and y */
+    private static DoubleEvaluator binary(DoubleEvaluator x, DoubleEvaluator y, DoubleBinaryOperator function) {
+        return context -> function.applyAsDouble(x.evaluate(context), y.evaluate(context));
+    }
+
+    private static DoubleEvaluator compileComparison(ComparisonNode node) {
+        DoubleEvaluator left = compile(node.getLeftCondition());
+        DoubleEvaluator right = compile(node.getRightCondition());
+        TruthOperator operator = node.getOperator();
+        return context -> operator.evaluate(left.evaluate(context), right.evaluate(context)) ? 1 : 0;
+    }
+
+    private static DoubleEvaluator compileIf(IfNode node) {
+        DoubleEvaluator condition = compile(node.getCondition());
+        DoubleEvaluator trueExpression = compile(node.getTrueExpression());
+        DoubleEvaluator falseExpression = compile(node.getFalseExpression());
+        return context -> condition.evaluate(context) != 0 ? trueExpression.evaluate(context)
+                                                            : falseExpression.evaluate(context);
+    }
+
+    private static DoubleEvaluator compileFunction(FunctionNode node) {
+        Function function = node.getFunction();
+        List<ExpressionNode> arguments = node.children();
+        if (arguments.size() == 0) {
+            double value = function.evaluate(0, 0);
+            return context -> value;
+        }
+        DoubleEvaluator x = compile(arguments.get(0));
+        if (arguments.size() == 1)
+            return context -> function.evaluate(x.evaluate(context), 0);
+        DoubleEvaluator y = compile(arguments.get(1));
+        return context -> function.evaluate(x.evaluate(context), y.evaluate(context));
+    }
+
+    /** Returns whether the given node, which is not a leaf, returns a boolean value when evaluated */
+    private static boolean isBoolean(ExpressionNode node) {
+        if (node instanceof ComparisonNode || node instanceof NotNode)
+            return true;
+        if (node instanceof EmbracedNode)
+            return isBoolean(((EmbracedNode)node).getValue());
+        if (node instanceof IfNode)
+            return isBoolean(((IfNode)node).getTrueExpression()) && isBoolean(((IfNode)node).getFalseExpression());
+        if (node instanceof ConstantNode)
+            return ((ConstantNode)node).getValue() instanceof BooleanValue;
+        if (node instanceof ArithmeticNode) {
+            ArithmeticOperator last = lastOperatorApplied((ArithmeticNode)node);
+            return last == ArithmeticOperator.AND || last == ArithmeticOperator.OR;
+        }
+        return false;
+    }
+
+    /** Returns the operator which is applied last when evaluating the given node */
+    private static ArithmeticOperator lastOperatorApplied(ArithmeticNode node) {
+        Deque<ArithmeticOperator> stack = new ArrayDeque<>();
+        ArithmeticOperator last = null;
+        stack.push(ArithmeticOperator.OR);
+        for (ArithmeticOperator op : node.operators().subList(0, Math.min(node.operators().size(), node.children().size() - 1))) {
+            while (stack.peek().hasPrecedenceOver(op))
+                last = stack.pop();
+            stack.push(op);
+        }
+        while (stack.size() > 1)
+            last = stack.pop();
+        return last;
+    }
+
+    private static class Operand {
+
+        final ArithmeticOperator op;
+        DoubleEvaluator evaluator;
+
+        Operand(ArithmeticOperator op, DoubleEvaluator evaluator) {
+            this.op = op;
+            this.evaluator = evaluator;
+        }
+
+    }
+
+}
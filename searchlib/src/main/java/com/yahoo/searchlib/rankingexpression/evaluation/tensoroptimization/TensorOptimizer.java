@@ -9,7 +9,9 @@ import com.yahoo.searchlib.rankingexpression.evaluation.Optimizer;
 import com.yahoo.searchlib.rankingexpression.rule.CompositeNode;
 import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
 import com.yahoo.searchlib.rankingexpression.rule.TensorFunctionNode;
+import com.yahoo.tensor.functions.FusedTensorFunction;
 import com.yahoo.tensor.functions.Join;
+import com.yahoo.tensor.functions.Map;
 import com.yahoo.tensor.functions.Reduce;
 import com.yahoo.tensor.functions.ReduceJoin;
 import com.yahoo.tensor.functions.TensorFunction;
@@ -36,6 +38,7 @@ public class TensorOptimizer extends Optimizer {
 
     private ExpressionNode optimize(ExpressionNode node, ContextIndex context) {
         node = optimizeReduceJoin(node);
+        node = optimizeFusion(node);
         if (node instanceof CompositeNode) {
             return optimizeChildren((CompositeNode)node, context);
         }
@@ -84,4 +87,75 @@ public class TensorOptimizer extends Optimizer {
         return node;
     }
 
+    /**
+     * Recognizes trees of map, join and rename functions, optionally followed by a reduce,
+     * and replaces them by a function evaluating them in a single loop, avoiding the cost of
+     * the temporary tensors. This is done after replacing reduce->join as those
+     * are already evaluated without temporary tensors.
+     *
+     * Only trees containing a map are fused: Joins of indexed tensors on their own are mostly evaluated
+     * by dense kernels which are as fast as, or faster than, the fused loop, while maps are evaluated
+     * cell by cell into a new tensor, which the fused loop is several times faster than
+     * (see FusedTensorFunctionBenchmark).
+     */
+    private ExpressionNode optimizeFusion(ExpressionNode node) {
+        if ( ! (node instanceof TensorFunctionNode)) {
+            return node;
+        }
+        TensorFunction<Reference> function = withFusableArgumentsUnwrapped(((TensorFunctionNode) node).function());
+        if ( ! containsMap(function)) {
+            return node;
+        }
+        TensorFunction<Reference> fused = FusedTensorFunction.fuse(function);
+        if ( ! (fused instanceof FusedTensorFunction)) {
+            return node;
+        }
+        report.incMetric("Fused tensor functions", 1);
+        return new TensorFunctionNode(fused);
+    }
+
+    /**
+     * Returns the given function where arguments which are expressions of fusable functions
+     * are replaced by those functions, recursively.
+     */
+    private TensorFunction<Reference> withFusableArgumentsUnwrapped(TensorFunction<Reference> function) {
+        if ( ! (function instanceof Reduce) && ! FusedTensorFunction.isFusable(function)) {
+            return function;
+        }
+        List<TensorFunction<Reference>> arguments = new ArrayList<>();
+        for (TensorFunction<Reference> argument : function.arguments()) {
+            TensorFunction<Reference> unwrapped = unwrapped(argument);
+            if (FusedTensorFunction.isFusable(unwrapped))
+                arguments.add(withFusableArgumentsUnwrapped(unwrapped));
+            else
+                arguments.add(argument);
+        }
+        return function.withArguments(arguments);
+    }
+
+    /** Returns whether the given function is or contains a map in the part of it which may be fused */
+    private boolean containsMap(TensorFunction<Reference> function) {
+        if (function instanceof Map) {
+            return true;
+        }
+        if ( ! (function instanceof Reduce) && ! FusedTensorFunction.isFusable(function)) {
+            return false;
+        }
+        for (TensorFunction<Reference> argument : function.arguments())
+            if (containsMap(argument)) return true;
+        return false;
+    }
+
+    /** Returns the function of an argument which is a tensor function expression, or the argument itself otherwise */
+    private TensorFunction<Reference> unwrapped(TensorFunction<Reference> argument) {
+        if ( ! (argument instanceof TensorFunctionNode.ExpressionTensorFunction)) {
+            return argument;
+        }
+        ExpressionNode expression = ((TensorFunctionNode.ExpressionTensorFunction) argument).expression();
+        if ( ! (expression instanceof TensorFunctionNode)) {
+            return argument;
+        }
+        return ((TensorFunctionNode) expression).function();
+    }
+
 }
@@ -202,6 +202,9 @@ public class TensorFunctionNode extends CompositeNode {
             this.expression = expression;
         }
 
+        /** Returns the expression producing the tensor of this */
+        public ExpressionNode expression() { return expression; }
+
         @Override
         public List<TensorFunction<Reference>> arguments() {
             if (expression instanceof CompositeNode)
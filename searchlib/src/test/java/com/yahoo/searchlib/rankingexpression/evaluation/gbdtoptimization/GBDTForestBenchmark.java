@@ -0,0 +1,124 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization;
+
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.ArrayContext;
+import com.yahoo.searchlib.rankingexpression.parser.ParseException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the time to evaluate a forest of the size of a large ranking model by interpreting the
+ * instructions of the trees, by traversing the flattened forest, and by traversing it for a batch of documents.
+ *
+ * Run with e.g. <code>java -cp ... com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestBenchmark</code>
+ */
+public class GBDTForestBenchmark {
+
+    private static final int TREES = 1000;
+    private static final int DEPTH = 8;
+    private static final int FEATURES = 100;
+    private static final int DOCUMENTS = 1000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws ParseException {
+        Random random = new Random(42);
+        String features = IntStream.range(0, FEATURES).mapToObj(i -> "f" + i).collect(Collectors.joining(" + "));
+        ArrayContext prototype = new ArrayContext(new RankingExpression(features));
+
+        double[] instructions = forest(random, prototype);
+        GBDTForest forest = new GBDTForestNode(instructions).forest();
+
+        ArrayContext[] contexts = new ArrayContext[DOCUMENTS];
+        double[][] featureValues = new double[DOCUMENTS][prototype.size()];
+        for (int document = 0; document < DOCUMENTS; document++) {
+            contexts[document] = prototype.clone();
+            for (int feature = 0; feature < FEATURES; feature++) {
+                double value = random.nextDouble();
+                contexts[document].put("f" + feature, value);
+                featureValues[document][prototype.getIndex("f" + feature)] = value;
+            }
+        }
+
+        System.out.println(forest + ", " + DOCUMENTS + " documents:");
+        run("instructions", () -> {
+            double sum = 0;
+            for (ArrayContext context : contexts) {
+                int pc = 0;
+                while (pc < instructions.length) {
+                    int treeSize = (int)instructions[pc++];
+                    sum += GBDTNode.evaluate(instructions, pc, context);
+                    pc += treeSize;
+                }
+            }
+            return sum;
+        });
+        run("forest", () -> {
+            double sum = 0;
+            for (ArrayContext context : contexts)
+                sum += forest.evaluate(context);
+            return sum;
+        });
+        double[] results = new double[DOCUMENTS];
+        run("batch", () -> {
+            forest.evaluate(featureValues, results);
+            double sum = 0;
+            for (double result : results)
+                sum += result;
+            return sum;
+        });
+    }
+
+    private static void run(String name, Evaluation evaluation) {
+        double result = 0;
+        for (int i = 0; i < 20; i++) // warmup
+            result += evaluation.evaluate();
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long startTime = System.nanoTime();
+            result += evaluation.evaluate();
+            best = Math.min(best, System.nanoTime() - startTime);
+        }
+        System.out.println(String.format(Locale.US, "    %-12s %8.2f us per document (%s)",
+                                         name, best / 1000.0 / DOCUMENTS, result));
+    }
+
+    /** Returns the instructions of a forest of complete trees, as created by {@link GBDTForestOptimizer} */
+    private static double[] forest(Random random, ArrayContext context) {
+        List<Double> values = new ArrayList<>();
+        for (int tree = 0; tree < TREES; tree++) {
+            List<Double> treeValues = new ArrayList<>();
+            addTree(DEPTH, random, context, treeValues);
+            values.add((double)treeValues.size());
+            values.addAll(treeValues);
+        }
+        return values.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    private static void addTree(int depth, Random random, ArrayContext context, List<Double> values) {
+        if (depth == 0) {
+            values.add(random.nextDouble() - 0.5);
+            return;
+        }
+        int feature = context.getIndex("f" + random.nextInt(FEATURES));
+        values.add((double)GBDTNode.MAX_LEAF_VALUE + feature); // feature < value
+        values.add(random.nextDouble());
+        int jumpIndex = values.size();
+        values.add(0.0);
+        addTree(depth - 1, random, context, values);
+        values.set(jumpIndex, (double)(values.size() - jumpIndex));
+        addTree(depth - 1, random, context, values);
+    }
+
+    private interface Evaluation {
+
+        double evaluate();
+
+    }
+
+}
@@ -108,6 +108,54 @@ public class GBDTForestOptimizerTestCase {
         assertEqualish(result3, oResult3);
     }
 
+    @Test
+    public void testBatchEvaluation() throws ParseException {
+        String gbdtString =
+                "if (a < 1.5, if (b == 2, 0.5, 0.25), if (c in [1, 3], 1.5, 2.5)) + \n" +
+                "if (!(b >= 2), if (a < 0.5, 3.0, 4.0), 5.0) + \n" +
+                "if (c < 2, 6.0, 7.0)";
+        RankingExpression gbdt = new RankingExpression(gbdtString);
+        RankingExpression optimizedGbdt = new RankingExpression(gbdtString);
+        ArrayContext context = new ArrayContext(optimizedGbdt, DoubleValue.NaN);
+        new ExpressionOptimizer().optimize(optimizedGbdt, context);
+        assertTrue(optimizedGbdt.getRoot() instanceof GBDTForestNode);
+        GBDTForest forest = ((GBDTForestNode)optimizedGbdt.getRoot()).forest();
+        assertEquals(3, forest.trees());
+
+        double[] values = { 0, 1, 2, 3, Double.NaN };
+        double[][] batch = new double[values.length * values.length * values.length][context.size()];
+        double[] expected = new double[batch.length];
+        int row = 0;
+        for (double a : values) {
+            for (double b : values) {
+                for (double c : values) {
+                    MapContext arguments = new MapContext(DoubleValue.NaN);
+                    arguments.put("a", a);
+                    arguments.put("b", b);
+                    arguments.put("c", c);
+                    expected[row] = gbdt.evaluate(arguments).asDouble();
+
+                    ArrayContext rowContext = context.clone(); // NaN is represented by not setting a value
+                    if ( ! Double.isNaN(a)) rowContext.put("a", a);
+                    if ( ! Double.isNaN(b)) rowContext.put("b", b);
+                    if ( ! Double.isNaN(c)) rowContext.put("c", c);
+                    assertEquals(expected[row], optimizedGbdt.evaluate(rowContext).asDouble(), 0.000001);
+
+                    batch[row][context.getIndex("a")] = a;
+                    batch[row][context.getIndex("b")] = b;
+                    batch[row][context.getIndex("c")] = c;
+                    assertEquals(expected[row], forest.evaluate(batch[row]), 0.000001);
+                    row++;
+                }
+            }
+        }
+
+        double[] results = new double[batch.length];
+        forest.evaluate(batch, results);
+        for (int i = 0; i < batch.length; i++)
+            assertEquals(expected[i], results[i], 0.000001);
+    }
+
     private void assertEqualish(double a, double b) {
         assertTrue("Almost equal to " + a + ": " + b, Math.abs(a - b) < ((a + b) / 100000000));
     }
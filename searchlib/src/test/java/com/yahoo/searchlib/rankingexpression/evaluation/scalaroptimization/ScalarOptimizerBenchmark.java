@@ -0,0 +1,70 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.scalaroptimization;
+
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.Reference;
+import com.yahoo.searchlib.rankingexpression.evaluation.ArrayContext;
+import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionOptimizer;
+import com.yahoo.searchlib.rankingexpression.evaluation.MapTypeContext;
+import com.yahoo.searchlib.rankingexpression.parser.ParseException;
+import com.yahoo.tensor.TensorType;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compares the time to evaluate a typical hand written scalar expression with and without compiling it.
+ * See also ImportedModelEvaluationBenchmark in model-integration.
+ *
+ * Run with e.g. <code>java -cp ... com.yahoo.searchlib.rankingexpression.evaluation.scalaroptimization.ScalarOptimizerBenchmark</code>
+ */
+public class ScalarOptimizerBenchmark {
+
+    private static final String expression =
+            "sigmoid(0.3 * a + 0.2 * b * b - 0.1 * c + if (d > 0.5, 1.2 * a, -0.4 * b) + 2 * log(1 + e)) * 100 + " +
+            "pow(a - b, 2) / (1 + c * c)";
+
+    private static final int ITERATIONS = 5000000;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws ParseException {
+        for (int round = 0; round < ROUNDS; round++) {
+            run("interpreted", false);
+            run("compiled", true);
+        }
+    }
+
+    private static void run(String name, boolean compile) throws ParseException {
+        RankingExpression expression = new RankingExpression(ScalarOptimizerBenchmark.expression);
+        ArrayContext context = new ArrayContext(expression);
+        if (compile) {
+            MapTypeContext types = new MapTypeContext();
+            for (String feature : List.of("a", "b", "c", "d", "e"))
+                types.setType(Reference.fromIdentifier(feature), TensorType.empty);
+            new ExpressionOptimizer().optimize(expression, context, types);
+        }
+        else {
+            new ExpressionOptimizer().optimize(expression, context);
+        }
+        context.put("a", 0.4);
+        context.put("b", 0.7);
+        context.put("c", 1.3);
+        context.put("d", 0.6);
+        context.put("e", 2.5);
+
+        double result = evaluate(expression, context); // warmup
+        long startTime = System.nanoTime();
+        result += evaluate(expression, context);
+        long endTime = System.nanoTime();
+        System.out.println(String.format(Locale.US, "%-12s %8.1f ns per evaluation (%s)",
+                                         name, (double)(endTime - startTime) / ITERATIONS, result));
+    }
+
+    private static double evaluate(RankingExpression expression, ArrayContext context) {
+        double result = 0;
+        for (int i = 0; i < ITERATIONS; i++)
+            result += expression.evaluate(context).asDouble();
+        return result;
+    }
+
+}
@@ -0,0 +1,197 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.scalaroptimization;
+
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.Reference;
+import com.yahoo.searchlib.rankingexpression.evaluation.ArrayContext;
+import com.yahoo.searchlib.rankingexpression.evaluation.BooleanValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionOptimizer;
+import com.yahoo.searchlib.rankingexpression.evaluation.MapContext;
+import com.yahoo.searchlib.rankingexpression.evaluation.MapTypeContext;
+import com.yahoo.searchlib.rankingexpression.evaluation.OptimizationReport;
+import com.yahoo.searchlib.rankingexpression.evaluation.TensorValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.Value;
+import com.yahoo.searchlib.rankingexpression.parser.ParseException;
+import com.yahoo.searchlib.rankingexpression.rule.CompositeNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.ReferenceNode;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScalarOptimizerTestCase {
+
+    @Test
+    public void testCompiledExpressionsGiveTheSameResultsAsTheOriginal() throws ParseException {
+        assertCompiledEquals("a + b * c");
+        assertCompiledEquals("a - b - c + a / b % c");
+        assertCompiledEquals("a * b ^ c - -a");
+        assertCompiledEquals("(a + b) * (c - a) / 3");
+        assertCompiledEquals("a && b || !c");
+        assertCompiledEquals("a < b && b <= c || a == c");
+        assertCompiledEquals("a ~= b");
+        assertCompiledEquals("a != c");
+        assertCompiledEquals("if (a > b, c * 2, if (c >= 3.5, a, b - 1))");
+        assertCompiledEquals("sigmoid(a * 0.3 + b) + max(a, c) - min(b, 1) + pow(a, 2) + fmod(c, a)");
+        assertCompiledEquals("exp(log(a)) + sqrt(c) + atan2(a, b) + ldexp(a, 3) + isNan(missing)");
+        assertCompiledEquals("relu(-a) + elu(a - 4) + sign(b - c) + round(c * 1.5) + 1 / (b - b)");
+        assertCompiledEquals("10 + if (a in [1, 2, 3], 1, 0)");
+        assertCompiledEquals("if (a > 1, true, false)");
+        assertCompiledEquals("1 + 2 * 3");
+    }
+
+    @Test
+    public void testBooleanResultsRemainBooleans() throws ParseException {
+        assertEquals(new BooleanValue(true).toString(), evaluateCompiled("a < b").toString());
+        assertEquals(new BooleanValue(false).toString(), evaluateCompiled("a && !b").toString());
+        assertEquals(new DoubleValue(4).toString(), evaluateCompiled("a + 2").toString());
+    }
+
+    @Test
+    public void testCompiledExpressionsSerializeAsTheOriginal() throws ParseException {
+        String expressionString = "10 * if (a > 35, if (a > b, 4, 8), if (a == 478, 90, 91)) + sigmoid(-c)";
+        RankingExpression expression = new RankingExpression(expressionString);
+        optimize(expression);
+        assertTrue(expression.getRoot() instanceof CompiledScalarNode);
+        assertEquals(new RankingExpression(expressionString).toString(), expression.toString());
+    }
+
+    @Test
+    public void testForestsAreCompiledAsLeaves() throws ParseException {
+        String expressionString = "if (a < 2, 0.1, 0.2) + if (b < 3, if (c < 4, 0.3, 0.4), 0.5) - 1";
+        RankingExpression expression = new RankingExpression(expressionString);
+        OptimizationReport report = optimize(expression);
+        assertEquals(2, report.getMetric("Number of forests"));
+        assertEquals(1, report.getMetric("Scalar expressions compiled"));
+        assertCompiledEquals(expressionString);
+    }
+
+    @Test
+    public void testScalarTensorsAreCompiledAsScalars() throws ParseException {
+        RankingExpression expression = new RankingExpression("a * t + 1");
+        MapTypeContext types = types();
+        types.setType(Reference.fromIdentifier("t"), TensorType.empty);
+        new ExpressionOptimizer().optimize(expression, new ArrayContext(expression), types);
+        assertTrue(expression.getRoot() instanceof CompiledScalarNode);
+        MapContext context = context();
+        context.put("t", new TensorValue(Tensor.from(1.5)));
+        assertEquals(4.0, expression.evaluate(context).asDouble(), 0);
+    }
+
+    @Test
+    public void testOperatorsOnTensorsAreNotCompiled() throws ParseException {
+        RankingExpression expression = new RankingExpression("t * 2 + (a + b)");
+        OptimizationReport report = new ExpressionOptimizer().optimize(expression, new ArrayContext(expression),
+                                                                       typesWithTensor());
+        assertEquals(1, report.getMetric("Scalar expressions compiled"));
+        assertFalse(expression.getRoot() instanceof CompiledScalarNode);
+        List<ExpressionNode> children = ((CompositeNode)expression.getRoot()).children();
+        assertTrue(children.get(children.size() - 1) instanceof CompiledScalarNode);
+
+        MapContext context = context();
+        context.put("t", new TensorValue(Tensor.from("tensor(x[2]):[1, 2]")));
+        assertEquals(Tensor.from("tensor(x[2]):[7, 9]"), expression.evaluate(context).asTensor());
+    }
+
+    @Test
+    public void testOperatorsOnValuesOfUnknownTypeAreNotCompiled() throws ParseException {
+        RankingExpression expression = new RankingExpression("a * 2 + unknown");
+        OptimizationReport report = optimize(expression);
+        assertEquals(0, report.getMetric("Scalar expressions compiled"));
+        assertFalse(expression.getRoot() instanceof CompiledScalarNode);
+    }
+
+    @Test
+    public void testCompiledNodesExposeTheOriginalExpression() throws ParseException {
+        RankingExpression expression = new RankingExpression("a * 2 + b");
+        optimize(expression);
+        CompiledScalarNode compiled = (CompiledScalarNode)expression.getRoot();
+        assertEquals(List.of(compiled.original()), compiled.children());
+        assertEquals(Set.of("a", "b"), referenceNames(compiled, new HashSet<>()));
+
+        CompositeNode replaced = compiled.setChildren(List.of(new RankingExpression("a - 1").getRoot()));
+        MapContext context = context();
+        assertEquals(1.0, replaced.evaluate(context).asDouble(), 0);
+    }
+
+    @Test
+    public void testIsNotCompiledWithoutTypes() throws ParseException {
+        RankingExpression expression = new RankingExpression("a * 2 + b");
+        OptimizationReport report = new ExpressionOptimizer().optimize(expression, new ArrayContext(expression));
+        assertEquals(0, report.getMetric("Scalar expressions compiled"));
+        assertFalse(expression.getRoot() instanceof CompiledScalarNode);
+    }
+
+    @Test
+    public void testScalarOperatorsOnTensorsInsideTensorFunctions() throws ParseException {
+        RankingExpression expression = new RankingExpression("sum(t * (a + 1))");
+        OptimizationReport report = new ExpressionOptimizer().optimize(expression, new ArrayContext(expression),
+                                                                       typesWithTensor());
+        assertEquals(1, report.getMetric("Scalar expressions compiled"));
+        MapContext context = context();
+        context.put("t", new TensorValue(Tensor.from("tensor(x[2]):[1, 2]")));
+        assertEquals(9.0, expression.evaluate(context).asDouble(), 0);
+    }
+
+    private void assertCompiledEquals(String expressionString) throws ParseException {
+        Value expected = new RankingExpression(expressionString).evaluate(context());
+        Value compiled = evaluateCompiled(expressionString);
+        assertEquals(expressionString, expected.asDouble(), compiled.asDouble(), 0);
+    }
+
+    /** Evaluates the given expression after optimization, in an array context as that may be required by GBDT nodes */
+    private Value evaluateCompiled(String expressionString) throws ParseException {
+        RankingExpression expression = new RankingExpression(expressionString);
+        ArrayContext context = new ArrayContext(expression, DoubleValue.NaN);
+        OptimizationReport report = new ExpressionOptimizer().optimize(expression, context, types());
+        assertTrue(expressionString, report.getMetric("Scalar expressions compiled") > 0);
+        for (String name : context().names())
+            if (context.names().contains(name))
+                context.put(name, context().get(name));
+        return expression.evaluate(context);
+    }
+
+    private static OptimizationReport optimize(RankingExpression expression) {
+        return new ExpressionOptimizer().optimize(expression, new ArrayContext(expression), types());
+    }
+
+    /** Returns the types of the values in {@link #context}, which are all scalars */
+    private static MapTypeContext types() {
+        MapTypeContext types = new MapTypeContext();
+        for (String name : List.of("a", "b", "c", "missing"))
+            types.setType(Reference.fromIdentifier(name), TensorType.empty);
+        return types;
+    }
+
+    private static MapTypeContext typesWithTensor() {
+        MapTypeContext types = types();
+        types.setType(Reference.fromIdentifier("t"), TensorType.fromSpec("tensor(x[2])"));
+        return types;
+    }
+
+    private static Set<String> referenceNames(ExpressionNode node, Set<String> names) {
+        if (node instanceof ReferenceNode)
+            names.add(((ReferenceNode)node).getName());
+        else if (node instanceof CompositeNode)
+            ((CompositeNode)node).children().forEach(child -> referenceNames(child, names));
+        return names;
+    }
+
+    private MapContext context() {
+        MapContext context = new MapContext(DoubleValue.NaN);
+        context.put("a", 2);
+        context.put("b", 3);
+        context.put("c", 5.5);
+        return context;
+    }
+
+}
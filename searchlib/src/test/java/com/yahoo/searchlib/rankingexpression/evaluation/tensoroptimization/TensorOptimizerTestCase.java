@@ -10,11 +10,13 @@ import com.yahoo.searchlib.rankingexpression.parser.ParseException;
 import com.yahoo.searchlib.rankingexpression.rule.TensorFunctionNode;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.functions.FusedTensorFunction;
 import com.yahoo.tensor.functions.Reduce;
 import com.yahoo.tensor.functions.ReduceJoin;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 /**
  * @author lesters
@@ -52,6 +54,37 @@ public class TensorOptimizerTestCase {
         assertCantOptimize("d0[1],d1[2],d2[3]", "d0[1],d1[2],d2[3]", "d1,d2");  // reducing on less then joining on
     }
 
+    @Test
+    public void testFusionOptimization() throws ParseException {
+        assertFused("reduce(map(join(a, b, f(x,y)(x + y)), f(x)(x * x)), sum, d1)", "d0[2],d1[3]", "d1[3]");
+        assertFused("map(join(a, b, f(x,y)(x + y)), f(x)(x * x))", "d0[2],d1[3]", "d1[3]");
+        assertFused("join(map(a, f(x)(x * x)), rename(b, d1, d0), f(x,y)(x - y))", "d0[2],d1[3]", "d1[2]");
+
+        // Joins without maps are left to the dense kernels
+        assertNotFused("join(join(a, b, f(x,y)(x + y)), b, f(x,y)(x * y))", "d0[2],d1[3]", "d1[3]");
+        assertNotFused("join(a, rename(b, d1, d0), f(x,y)(x - y))", "d0[2],d1[3]", "d1[2]");
+    }
+
+    private void assertNotFused(String expressionString, String aType, String bType) throws ParseException {
+        RankingExpression expression = new RankingExpression(expressionString);
+        ArrayContext context = generateContext(generateRandomTensor(aType), generateRandomTensor(bType), expression);
+        new ExpressionOptimizer().optimize(expression, context);
+        assertFalse(((TensorFunctionNode)expression.getRoot()).function() instanceof FusedTensorFunction);
+    }
+
+    private void assertFused(String expressionString, String aType, String bType) throws ParseException {
+        RankingExpression expression = new RankingExpression(expressionString);
+        ArrayContext context = generateContext(generateRandomTensor(aType), generateRandomTensor(bType), expression);
+        Tensor result = expression.evaluate(context).asTensor();
+        String serialized = expression.toString();
+
+        OptimizationReport report = new ExpressionOptimizer().optimize(expression, context);
+        assertEquals(1, report.getMetric("Fused tensor functions"));
+        assert ((TensorFunctionNode)expression.getRoot()).function() instanceof FusedTensorFunction;
+        assertEquals(result, expression.evaluate(context).asTensor());
+        assertEquals(serialized, expression.toString());
+    }
+
     private void assertWillOptimize(String aType, String bType) throws ParseException {
         assertWillOptimize(aType, bType, "", "sum");
     }
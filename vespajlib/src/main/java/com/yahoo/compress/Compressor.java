@@ -124,6 +124,32 @@ public class Compressor {
                 throw new IllegalArgumentException(compression + " is not supported");
         }
     }
+    /**
+     * Decompresses some data into a buffer owned by the caller, without allocating
+     *
+     * @param compression the compression type used
+     * @param compressedData the compressed data. This array is only read by this method.
+     * @param compressedDataOffset the offset in the compressed data at which to start decompression
+     * @param expectedUncompressedSize the uncompressed size in bytes of this data
+     * @param target the buffer to decompress into, starting at index 0, which must hold at least expectedUncompressedSize bytes
+     * @throws IllegalArgumentException if the compression type is not supported, or the target is too small
+     */
+    public void decompress(CompressionType compression, byte[] compressedData, int compressedDataOffset,
+                           int expectedUncompressedSize, byte[] target) {
+        if (target.length < expectedUncompressedSize)
+            throw new IllegalArgumentException("Target buffer of size " + target.length + " cannot hold " +
+                                               expectedUncompressedSize + " uncompressed bytes");
+        switch (compression) {
+            case NONE: case INCOMPRESSIBLE:
+                System.arraycopy(compressedData, compressedDataOffset, target, 0, expectedUncompressedSize);
+                return;
+            case LZ4:
+                factory.fastDecompressor().decompress(compressedData, compressedDataOffset, target, 0, expectedUncompressedSize);
+                return;
+            default:
+                throw new IllegalArgumentException(compression + " is not supported");
+        }
+    }
     /** Decompresses some data */
     public byte[] decompress(byte[] compressedData, CompressionType compressionType, int uncompressedSize) {
         return decompress(compressionType, compressedData, 0, uncompressedSize, Optional.empty());
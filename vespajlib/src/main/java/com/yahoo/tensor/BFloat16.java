@@ -0,0 +1,31 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+/**
+ * Conversions between floats and the bits of the bfloat16 ("brain floating point") value type,
+ * which is a float with the lower 16 bits of the mantissa removed: It has the range of a float
+ * and 8 bits of precision, and is used to halve the size of tensors whose values tolerate it.
+ */
+public final class BFloat16 {
+
+    private BFloat16() {}
+
+    /** Returns the bfloat16 bits of the given float, rounded to the nearest bfloat16, with ties to even */
+    public static short fromFloat(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        if (Float.isNaN(value)) return (short)((bits >>> 16) | 0x0040); // keep the sign and make sure the result is NaN
+        int roundingBias = 0x7fff + ((bits >>> 16) & 1);
+        return (short)((bits + roundingBias) >>> 16);
+    }
+
+    /** Returns the float having the given bfloat16 bits. This is exact. */
+    public static float toFloat(short bits) {
+        return Float.intBitsToFloat((bits & 0xffff) << 16);
+    }
+
+    /** Returns the given value rounded to the nearest value representable as a bfloat16 */
+    public static float round(float value) {
+        return toFloat(fromFloat(value));
+    }
+
+}
@@ -0,0 +1,110 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import java.util.Arrays;
+
+/**
+ * An indexed tensor implementation holding values as the bits of bfloat16 values, see {@link BFloat16}
+ */
+class IndexedBFloat16Tensor extends IndexedTensor {
+
+    private final short[] values;
+
+    IndexedBFloat16Tensor(TensorType type, DimensionSizes dimensionSizes, short[] values) {
+        super(type, dimensionSizes);
+        this.values = values;
+    }
+
+    @Override
+    public long size() {
+        return values.length;
+    }
+
+    @Override
+    public double get(long valueIndex) { return getFloat(valueIndex); }
+
+    @Override
+    public float getFloat(long valueIndex) { return BFloat16.toFloat(values[(int)valueIndex]); }
+
+    @Override
+    public IndexedTensor withType(TensorType type) {
+        throwOnIncompatibleType(type);
+        return new IndexedBFloat16Tensor(type, dimensionSizes(), values);
+    }
+
+    @Override
+    public int hashCode() { return Arrays.hashCode(values); }
+
+    /** A bound builder can create the bfloat16 array directly */
+    public static class BoundBFloat16Builder extends BoundBuilder {
+
+        private short[] values;
+
+        BoundBFloat16Builder(TensorType type, DimensionSizes sizes) {
+            super(type, sizes);
+            this.values = new short[(int)sizes.totalSize()];
+        }
+
+        @Override
+        public IndexedTensor.BoundBuilder cell(double value, long ... indexes) {
+            return cell((float)value, indexes);
+        }
+
+        @Override
+        public IndexedTensor.BoundBuilder cell(float value, long ... indexes) {
+            values[(int)toValueIndex(indexes, sizes())] = BFloat16.fromFloat(value);
+            return this;
+        }
+
+        @Override
+        public CellBuilder cell() {
+            return new CellBuilder(type, this);
+        }
+
+        @Override
+        public Builder cell(TensorAddress address, double value) {
+            return cell(address, (float)value);
+        }
+
+        @Override
+        public Builder cell(TensorAddress address, float value) {
+            values[(int)toValueIndex(address, sizes(), type)] = BFloat16.fromFloat(value);
+            return this;
+        }
+
+        @Override
+        public IndexedTensor build() {
+            IndexedTensor tensor = new IndexedBFloat16Tensor(type, sizes(), values);
+            // prevent further modification
+            values = null;
+            return tensor;
+        }
+
+        @Override
+        public Builder cell(Cell cell, double value) {
+            return cell(cell, (float)value);
+        }
+
+        @Override
+        public Builder cell(Cell cell, float value) {
+            long directIndex = cell.getDirectIndex();
+            if (directIndex >= 0) // optimization
+                values[(int)directIndex] = BFloat16.fromFloat(value);
+            else
+                super.cell(cell, value);
+            return this;
+        }
+
+        @Override
+        public void cellByDirectIndex(long index, double value) {
+            cellByDirectIndex(index, (float)value);
+        }
+
+        @Override
+        public void cellByDirectIndex(long index, float value) {
+            values[(int)index] = BFloat16.fromFloat(value);
+        }
+
+    }
+
+}
@@ -0,0 +1,118 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An indexed tensor implementation reading its values directly from a byte buffer, which is typically
+ * a memory mapped file. The values are never copied to the heap, so pages of a mapped file are read on demand
+ * and shared between all processes mapping the same file.
+ *
+ * Values are read by absolute indexing, so the buffer can be shared between threads,
+ * but its content must not be changed while this is in use.
+ */
+class IndexedBufferTensor extends IndexedTensor {
+
+    /** The values of this in the standard value order, as doubles, floats or bfloat16s as given by the value type */
+    private final ByteBuffer values;
+
+    /** The value type the values are stored as */
+    private final TensorType.Value valueType;
+
+    private final int size;
+
+    /** Creates a tensor reading the remaining bytes of the given buffer as values of the value type of the given type */
+    IndexedBufferTensor(TensorType type, DimensionSizes dimensionSizes, ByteBuffer values) {
+        this(type, dimensionSizes, values.slice().order(values.order()), type.valueType());
+        long bytes = dimensionSizes.totalSize() * cellSize(valueType);
+        if (bytes != values.remaining())
+            throw new IllegalArgumentException("Invalid size(" + values.remaining() + " bytes) of supplied value buffer." +
+                                               " Type specifies that size should be " + bytes + " bytes");
+    }
+
+    private IndexedBufferTensor(TensorType type, DimensionSizes dimensionSizes, ByteBuffer values, TensorType.Value valueType) {
+        super(type, dimensionSizes);
+        this.values = values;
+        this.valueType = valueType;
+        this.size = (int)dimensionSizes.totalSize();
+    }
+
+    @Override
+    public long size() { return size; }
+
+    @Override
+    public double get(long valueIndex) {
+        if (valueType == TensorType.Value.DOUBLE)
+            return values.getDouble((int)valueIndex * Double.BYTES);
+        return getFloat(valueIndex);
+    }
+
+    @Override
+    public float getFloat(long valueIndex) {
+        switch (valueType) {
+            case FLOAT: return values.getFloat((int)valueIndex * Float.BYTES);
+            case BFLOAT16: return BFloat16.toFloat(values.getShort((int)valueIndex * Short.BYTES));
+            default: return (float)values.getDouble((int)valueIndex * Double.BYTES);
+        }
+    }
+
+    @Override
+    public boolean readsFromBuffer() { return true; }
+
+    /** Returns a copy of the values of this, as this has no array holding them */
+    @Override
+    public double[] doubleValues() {
+        double[] doubles = new double[size];
+        if (valueType == TensorType.Value.DOUBLE) {
+            values.asDoubleBuffer().get(doubles);
+        }
+        else {
+            for (int i = 0; i < size; i++)
+                doubles[i] = getFloat(i);
+        }
+        return doubles;
+    }
+
+    /** Returns a copy of the values of this, as this has no array holding them */
+    @Override
+    public float[] floatValues() {
+        float[] floats = new float[size];
+        if (valueType == TensorType.Value.FLOAT) {
+            values.asFloatBuffer().get(floats);
+        }
+        else {
+            for (int i = 0; i < size; i++)
+                floats[i] = getFloat(i);
+        }
+        return floats;
+    }
+
+    @Override
+    public IndexedTensor withType(TensorType type) {
+        throwOnIncompatibleType(type);
+        return new IndexedBufferTensor(type, dimensionSizes(), values, valueType);
+    }
+
+    /** Returns the same hash code as an indexed tensor holding the same values in an array */
+    @Override
+    public int hashCode() {
+        int hashCode = 1; // as in Arrays.hashCode
+        for (int i = 0; i < size; i++) {
+            switch (valueType) {
+                case FLOAT: hashCode = 31 * hashCode + Float.hashCode(values.getFloat(i * Float.BYTES)); break;
+                case BFLOAT16: hashCode = 31 * hashCode + values.getShort(i * Short.BYTES); break;
+                default: hashCode = 31 * hashCode + Double.hashCode(values.getDouble(i * Double.BYTES));
+            }
+        }
+        return hashCode;
+    }
+
+    private static int cellSize(TensorType.Value valueType) {
+        switch (valueType) {
+            case FLOAT: return Float.BYTES;
+            case BFLOAT16: return Short.BYTES;
+            default: return Double.BYTES;
+        }
+    }
+
+}
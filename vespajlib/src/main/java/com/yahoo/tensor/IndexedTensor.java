@@ -4,6 +4,7 @@ package com.yahoo.tensor;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -134,6 +135,45 @@ public abstract class IndexedTensor implements Tensor {
      */
     public abstract float getFloat(long valueIndex);
 
+    /**
+     * Returns the values of this as doubles in the <i>standard value order</i>.
+     * This may return the array holding the values of this tensor, which <b>must not be modified</b> by the caller.
+     */
+    public double[] doubleValues() {
+        double[] values = new double[(int)size()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = get(i);
+        return values;
+    }
+
+    /**
+     * Returns the values of this as floats in the <i>standard value order</i>.
+     * This may return the array holding the values of this tensor, which <b>must not be modified</b> by the caller.
+     */
+    public float[] floatValues() {
+        float[] values = new float[(int)size()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = getFloat(i);
+        return values;
+    }
+
+    /**
+     * Returns whether this reads its values from a buffer, see {@link #wrap}, rather than holding them in an array.
+     * Getting the values of such a tensor as an array copies all of them, so operations should read them one by one.
+     */
+    public boolean readsFromBuffer() { return false; }
+
+    /**
+     * Returns a tensor reading its values directly from the remaining bytes of the given buffer, without copying them.
+     * The values must be in the <i>standard value order</i>, as doubles, floats or bfloat16s as given by the value type,
+     * in the byte order of the buffer. The content of the buffer must not be changed while the tensor is in use.
+     *
+     * @throws IllegalArgumentException if the number of remaining bytes in the buffer does not match the sizes
+     */
+    public static IndexedTensor wrap(TensorType type, DimensionSizes sizes, ByteBuffer values) {
+        return new IndexedBufferTensor(type, sizes, values);
+    }
+
     static long toValueIndex(long[] indexes, DimensionSizes sizes) {
         if (indexes.length == 1) return indexes[0]; // for speed
         if (indexes.length == 0) return 0; // for speed
@@ -225,7 +265,8 @@ public abstract class IndexedTensor implements Tensor {
             // value
             if (tensor.type().valueType() == TensorType.Value.DOUBLE)
                 b.append(tensor.get(index));
-            else if (tensor.type().valueType() == TensorType.Value.FLOAT)
+            else if (tensor.type().valueType() == TensorType.Value.FLOAT ||
+                     tensor.type().valueType() == TensorType.Value.BFLOAT16)
                 b.append(tensor.getFloat(index));
             else
                 throw new IllegalStateException("Unexpected value type " + tensor.type().valueType());
@@ -297,6 +338,8 @@ public abstract class IndexedTensor implements Tensor {
 
             if (type.valueType() == TensorType.Value.FLOAT)
                 return new IndexedFloatTensor.BoundFloatBuilder(type, sizes);
+            else if (type.valueType() == TensorType.Value.BFLOAT16)
+                return new IndexedBFloat16Tensor.BoundBFloat16Builder(type, sizes);
             else if (type.valueType() == TensorType.Value.DOUBLE)
                 return new IndexedDoubleTensor.BoundDoubleBuilder(type, sizes);
             else
@@ -317,6 +360,8 @@ public abstract class IndexedTensor implements Tensor {
 
             if (type.valueType() == TensorType.Value.FLOAT)
                 return new IndexedFloatTensor.BoundFloatBuilder(type, sizes, values);
+            else if (type.valueType() == TensorType.Value.BFLOAT16)
+                return new IndexedBFloat16Tensor.BoundBFloat16Builder(type, sizes).fill(values);
             else if (type.valueType() == TensorType.Value.DOUBLE)
                 return new IndexedDoubleTensor.BoundDoubleBuilder(type, sizes).fill(values);
             else
@@ -337,6 +382,8 @@ public abstract class IndexedTensor implements Tensor {
 
             if (type.valueType() == TensorType.Value.FLOAT)
                 return new IndexedFloatTensor.BoundFloatBuilder(type, sizes).fill(values);
+            else if (type.valueType() == TensorType.Value.BFLOAT16)
+                return new IndexedBFloat16Tensor.BoundBFloat16Builder(type, sizes).fill(values);
             else if (type.valueType() == TensorType.Value.DOUBLE)
                 return new IndexedDoubleTensor.BoundDoubleBuilder(type, sizes, values);
             else
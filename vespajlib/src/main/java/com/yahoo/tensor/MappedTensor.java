@@ -2,46 +2,89 @@
 package com.yahoo.tensor;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.function.DoubleBinaryOperator;
 
 /**
- * A sparse implementation of a tensor backed by a Map of cells to values.
+ * A sparse implementation of a tensor backed by an open addressing hash table of cells.
+ *
+ * The labels of each cell are stored in a single array, and the values in a double array, both in the order
+ * the cells were added. Equal labels share a single string instance across tensors, and the addresses of the
+ * cells returned from this are views of the label array rather than copies.
  *
  * @author bratseth
  */
 public class MappedTensor implements Tensor {
 
+    /**
+     * The single instance of each label used in some mapped tensor. Tensors hold strong references to their labels,
+     * so labels are removed when no tensor uses them any more.
+     */
+    private static final Interner<String> labelInstances = Interners.newWeakInterner();
+
     private final TensorType type;
 
-    private final ImmutableMap<TensorAddress, Double> cells;
+    /** The number of dimensions in the type of this */
+    private final int rank;
+
+    /** The number of cells in this */
+    private final int size;
+
+    /** The labels of each cell, rank entries per cell */
+    private final String[] labels;
+
+    /** The value of each cell */
+    private final double[] values;
+
+    /** The hash of the labels of each cell */
+    private final int[] hashes;
 
-    /** Creates a sparse tensor. The cell addresses must match the type. */
-    private MappedTensor(TensorType type, Map<TensorAddress, Double> cells) {
+    /** The hash table from cell labels to the index of the cell, where empty slots are -1 */
+    private final int[] index;
+
+    /** Creates a sparse tensor. The cell labels must match the type. */
+    private MappedTensor(TensorType type, int size, String[] labels, double[] values, int[] hashes, int[] index) {
         this.type = type;
-        this.cells = ImmutableMap.copyOf(cells);
+        this.rank = type.rank();
+        this.size = size;
+        this.labels = labels;
+        this.values = values;
+        this.hashes = hashes;
+        this.index = index;
     }
 
     @Override
     public TensorType type() { return type; }
 
     @Override
-    public long size() { return cells.size(); }
+    public long size() { return size; }
 
     @Override
-    public double get(TensorAddress address) { return cells.getOrDefault(address, Double.NaN); }
+    public double get(TensorAddress address) {
+        if (address.size() != rank) return Double.NaN;
+        int cell = find(address, hash(address), labels, hashes, rank, index);
+        return cell < 0 ? Double.NaN : values[cell];
+    }
 
     @Override
-    public Iterator<Cell> cellIterator() { return new CellIteratorAdaptor(cells.entrySet().iterator()); }
+    public Iterator<Cell> cellIterator() { return new CellIterator(); }
 
     @Override
-    public Iterator<Double> valueIterator() { return cells.values().iterator(); }
+    public Iterator<Double> valueIterator() { return new ValueIterator(); }
 
     @Override
-    public Map<TensorAddress, Double> cells() { return cells; }
+    public Map<TensorAddress, Double> cells() {
+        ImmutableMap.Builder<TensorAddress, Double> builder = new ImmutableMap.Builder<>();
+        for (int cell = 0; cell < size; cell++)
+            builder.put(address(cell), values[cell]);
+        return builder.build();
+    }
 
     @Override
     public Tensor withType(TensorType other) {
@@ -49,7 +92,7 @@ public class MappedTensor implements Tensor {
             throw new IllegalArgumentException("MappedTensor.withType: types are not compatible. Current type: '" +
                     this.type.toString() + "', requested type: '" + type.toString() + "'");
         }
-        return new MappedTensor(other, cells);
+        return new MappedTensor(other, size, labels, values, hashes, index);
     }
 
     @Override
@@ -65,8 +108,18 @@ public class MappedTensor implements Tensor {
         return builder.build();
     }
 
+    /** Returns the same hash code as the map returned from {@link #cells} */
     @Override
-    public int hashCode() { return cells.hashCode(); }
+    public int hashCode() {
+        int hashCode = 0;
+        for (int cell = 0; cell < size; cell++) {
+            int addressHashCode = 1; // as in TensorAddress
+            for (int i = 0; i < rank; i++)
+                addressHashCode = 31 * addressHashCode + labels[cell * rank + i].hashCode();
+            hashCode += addressHashCode ^ Double.hashCode(values[cell]);
+        }
+        return hashCode;
+    }
 
     @Override
     public String toString() { return Tensor.toStandardString(this); }
@@ -77,15 +130,58 @@ public class MappedTensor implements Tensor {
         return Tensor.equals(this, ((Tensor)other));
     }
 
+    private TensorAddress address(int cell) {
+        return TensorAddress.ofRange(labels, cell * rank, rank); // a view, as the labels are never changed
+    }
+
+    /** Returns the index of the cell having the labels of the given address, or -1 if none */
+    private static int find(TensorAddress address, int hash, String[] labels, int[] hashes, int rank, int[] index) {
+        int mask = index.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int cell = index[slot];
+            if (cell < 0 || (hashes[cell] == hash && hasLabels(cell, address, labels, rank))) return cell;
+        }
+    }
+
+    private static boolean hasLabels(int cell, TensorAddress address, String[] labels, int rank) {
+        for (int i = 0; i < rank; i++)
+            if ( ! labels[cell * rank + i].equals(address.label(i))) return false;
+        return true;
+    }
+
+    private static int hash(TensorAddress address) {
+        int hash = 0;
+        for (int i = 0; i < address.size(); i++) {
+            // Multiply by the golden ratio rather than a small prime, as labels are often numbers whose string hashes
+            // are small and consecutive, which would cause many different addresses to have the same hash and cluster
+            hash = (hash + address.label(i).hashCode()) * 0x9e3779b9;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
     public static class Builder implements Tensor.Builder {
 
+        private static final int initialCapacity = 16;
+
         private final TensorType type;
-        private final ImmutableMap.Builder<TensorAddress, Double> cells = new ImmutableMap.Builder<>();
+        private final int rank;
+
+        private int size = 0;
+        private String[] labels;
+        private double[] values;
+        private int[] hashes;
+        private int[] index;
+
 
         public static Builder of(TensorType type) { return new Builder(type); }
 
         private Builder(TensorType type) {
             this.type = type;
+            this.rank = type.rank();
+            this.labels = new String[initialCapacity * rank];
+            this.values = new double[initialCapacity];
+            this.hashes = new int[initialCapacity];
+            this.index = emptyIndex(initialCapacity * 2);
         }
 
         public CellBuilder cell() {
@@ -102,7 +198,24 @@ public class MappedTensor implements Tensor {
 
         @Override
         public Builder cell(TensorAddress address, double value) {
-            cells.put(address, value);
+            if (address.size() != rank)
+                throw new IllegalArgumentException("Cannot add a cell with " + address + " to a tensor of type " + type);
+
+            int hash = hash(address);
+            int cell = find(address, hash, labels, hashes, rank, index);
+            if (cell >= 0) {
+                values[cell] = value;
+                return this;
+            }
+
+            if (size == values.length)
+                grow();
+            for (int i = 0; i < rank; i++)
+                labels[size * rank + i] = labelInstances.intern(address.label(i));
+            values[size] = value;
+            hashes[size] = hash;
+            insert(size, index);
+            size++;
             return this;
         }
 
@@ -113,32 +226,69 @@ public class MappedTensor implements Tensor {
 
         @Override
         public Builder cell(double value, long... labels) {
-            cells.put(TensorAddress.of(labels), value);
-            return this;
+            return cell(TensorAddress.of(labels), value);
+        }
+
+        /** Doubles the capacity of this, keeping the index at most half full */
+        private void grow() {
+            labels = Arrays.copyOf(labels, labels.length * 2);
+            values = Arrays.copyOf(values, values.length * 2);
+            hashes = Arrays.copyOf(hashes, hashes.length * 2);
+            index = emptyIndex(index.length * 2);
+            for (int cell = 0; cell < size; cell++)
+                insert(cell, index);
+        }
+
+        private void insert(int cell, int[] index) {
+            int mask = index.length - 1;
+            int slot = hashes[cell] & mask;
+            while (index[slot] >= 0)
+                slot = (slot + 1) & mask;
+            index[slot] = cell;
+        }
+
+        private static int[] emptyIndex(int capacity) {
+            int[] index = new int[capacity];
+            Arrays.fill(index, -1);
+            return index;
         }
 
         @Override
         public MappedTensor build() {
-            return new MappedTensor(type, cells.build());
+            return new MappedTensor(type, size, Arrays.copyOf(labels, size * rank), Arrays.copyOf(values, size),
+                                    Arrays.copyOf(hashes, size), index.clone());
         }
 
     }
 
-    private static class CellIteratorAdaptor implements Iterator<Cell> {
+    private class CellIterator implements Iterator<Cell> {
+
+        private int cell = 0;
 
-        private final Iterator<Map.Entry<TensorAddress, Double>> adaptedIterator;
+        @Override
+        public boolean hasNext() { return cell < size; }
 
-        private CellIteratorAdaptor(Iterator<Map.Entry<TensorAddress, Double>> adaptedIterator) {
-            this.adaptedIterator = adaptedIterator;
+        @Override
+        public Cell next() {
+            if ( ! hasNext()) throw new NoSuchElementException();
+            Cell next = new Cell(address(cell), values[cell]);
+            cell++;
+            return next;
         }
 
+    }
+
+    private class ValueIterator implements Iterator<Double> {
+
+        private int cell = 0;
+
         @Override
-        public boolean hasNext() { return adaptedIterator.hasNext(); }
+        public boolean hasNext() { return cell < size; }
 
         @Override
-        public Cell next() {
-            Map.Entry<TensorAddress, Double> entry = adaptedIterator.next();
-            return new Cell(entry.getKey(), entry.getValue());
+        public Double next() {
+            if ( ! hasNext()) throw new NoSuchElementException();
+            return values[cell++];
         }
 
     }
@@ -532,7 +532,8 @@ public class MixedTensor implements Tensor {
                 // value
                 if (type.valueType() == TensorType.Value.DOUBLE)
                     b.append(getDouble(subspaceIndex, index, tensor));
-                else if (tensor.type().valueType() == TensorType.Value.FLOAT)
+                else if (tensor.type().valueType() == TensorType.Value.FLOAT ||
+                         tensor.type().valueType() == TensorType.Value.BFLOAT16)
                     b.append(getDouble(subspaceIndex, index, tensor)); // TODO: Really use floats
                 else
                     throw new IllegalStateException("Unexpected value type " + type.valueType());
@@ -16,6 +16,7 @@ import com.yahoo.tensor.functions.Merge;
 import com.yahoo.tensor.functions.Random;
 import com.yahoo.tensor.functions.Range;
 import com.yahoo.tensor.functions.Reduce;
+import com.yahoo.tensor.functions.ScalarFunctions;
 import com.yahoo.tensor.functions.Rename;
 import com.yahoo.tensor.functions.Softmax;
 import com.yahoo.tensor.functions.XwPlusB;
@@ -215,10 +216,10 @@ public interface Tensor {
 
     // ----------------- Composite tensor functions mapped to primitives here on the fly
 
-    default Tensor multiply(Tensor argument) { return join(argument, (a, b) -> (a * b )); }
-    default Tensor add(Tensor argument) { return join(argument, (a, b) -> (a + b )); }
-    default Tensor divide(Tensor argument) { return join(argument, (a, b) -> (a / b )); }
-    default Tensor subtract(Tensor argument) { return join(argument, (a, b) -> (a - b )); }
+    default Tensor multiply(Tensor argument) { return join(argument, ScalarFunctions.multiply()); }
+    default Tensor add(Tensor argument) { return join(argument, ScalarFunctions.add()); }
+    default Tensor divide(Tensor argument) { return join(argument, ScalarFunctions.divide()); }
+    default Tensor subtract(Tensor argument) { return join(argument, ScalarFunctions.subtract()); }
     default Tensor max(Tensor argument) { return join(argument, (a, b) -> (a > b ? a : b )); }
     default Tensor min(Tensor argument) { return join(argument, (a, b) -> (a < b ? a : b )); }
     default Tensor atan2(Tensor argument) { return join(argument, Math::atan2); }
@@ -26,6 +26,14 @@ public abstract class TensorAddress implements Comparable<TensorAddress> {
         return new NumericTensorAddress(labels);
     }
 
+    /**
+     * Returns an address of the given number of labels starting at the given offset in the given array,
+     * which is not copied and must not be changed later.
+     */
+    static TensorAddress ofRange(String[] labels, int offset, int size) {
+        return new StringTensorAddress(labels, offset, size);
+    }
+
     /** Returns the number of labels in this */
     public abstract int size();
 
@@ -101,38 +109,49 @@ public abstract class TensorAddress implements Comparable<TensorAddress> {
     private static final class StringTensorAddress extends TensorAddress {
 
         private final String[] labels;
+        private final int offset;
+        private final int size;
 
         private StringTensorAddress(String ... labels) {
-            this.labels = Arrays.copyOf(labels, labels.length);
+            this(Arrays.copyOf(labels, labels.length), 0, labels.length);
+        }
+
+        private StringTensorAddress(String[] labels, int offset, int size) {
+            this.labels = labels;
+            this.offset = offset;
+            this.size = size;
         }
 
         @Override
-        public int size() { return labels.length; }
+        public int size() { return size; }
 
         @Override
-        public String label(int i) { return labels[i]; }
+        public String label(int i) {
+            if (i < 0 || i >= size) throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + size);
+            return labels[offset + i];
+        }
 
         @Override
         public long numericLabel(int i) {
             try {
-                return Long.parseLong(labels[i]);
+                return Long.parseLong(label(i));
             }
             catch (NumberFormatException e) {
-                throw new IllegalArgumentException("Expected an integer label in " + this + " at position " + i + " but got '" + labels[i] + "'");
+                throw new IllegalArgumentException("Expected an integer label in " + this + " at position " + i + " but got '" + label(i) + "'");
             }
         }
 
         @Override
         public TensorAddress withLabel(int index, long label) {
-            String[] labels = Arrays.copyOf(this.labels, this.labels.length);
+            String[] labels = Arrays.copyOfRange(this.labels, offset, offset + size);
             labels[index] = String.valueOf(label);
-            return new StringTensorAddress(labels);
+            return new StringTensorAddress(labels, 0, size);
         }
 
 
         @Override
         public String toString() {
-            return "cell address (" + String.join(",", labels) + ")";
+            return "cell address (" + String.join(",", Arrays.asList(labels).subList(offset, offset + size)) + ")";
         }
 
     }
@@ -133,6 +133,11 @@ class TensorParser {
         return builder.build();
     }
 
+    /** Returns whether values of this type are parsed as floats */
+    private static boolean isFloat(TensorType.Value valueType) {
+        return valueType == TensorType.Value.FLOAT || valueType == TensorType.Value.BFLOAT16;
+    }
+
     private static abstract class ValueParser {
 
         protected final String string;
@@ -199,7 +204,7 @@ class TensorParser {
                 try {
                     if (cellValueType == TensorType.Value.DOUBLE)
                         return Double.parseDouble(cellValueString);
-                    else if (cellValueType == TensorType.Value.FLOAT)
+                    else if (isFloat(cellValueType))
                         return Float.parseFloat(cellValueString);
                     else
                         throw new IllegalArgumentException(cellValueType + " is not supported");
@@ -289,7 +294,7 @@ class TensorParser {
             Number number = consumeNumber(builder.type().valueType());
             if (builder.type().valueType() == TensorType.Value.DOUBLE)
                 builder.cellByDirectIndex(indexes.toSourceValueIndex(), (Double)number);
-            else if (builder.type().valueType() == TensorType.Value.FLOAT)
+            else if (isFloat(builder.type().valueType()))
                 builder.cellByDirectIndex(indexes.toSourceValueIndex(), (Float)number);
         }
 
@@ -353,7 +358,7 @@ class TensorParser {
             Number number = consumeNumber(builder.type().valueType());
             if (builder.type().valueType() == TensorType.Value.DOUBLE)
                 builder.cell(address, (Double)number);
-            else if (builder.type().valueType() == TensorType.Value.FLOAT)
+            else if (isFloat(builder.type().valueType()))
                 builder.cell(address, (Float)number);
         }
 
@@ -390,7 +395,7 @@ class TensorParser {
                 try {
                     if (cellValueType == TensorType.Value.DOUBLE)
                         builder.cell(address, Double.parseDouble(cellValueString));
-                    else if (cellValueType == TensorType.Value.FLOAT)
+                    else if (isFloat(cellValueType))
                         builder.cell(address, Float.parseFloat(cellValueString));
                     else
                         throw new IllegalArgumentException(cellValueType + " is not supported");
@@ -33,7 +33,7 @@ public class TensorType {
     public enum Value {
 
         // Types added must also be added to TensorTypeParser.parseValueTypeSpec, serialization, and largestOf below
-        DOUBLE("double"), FLOAT("float");
+        DOUBLE("double"), FLOAT("float"), BFLOAT16("bfloat16");
 
         private final String id;
 
@@ -59,7 +59,8 @@ public class TensorType {
 
         public static Value largestOf(Value value1, Value value2) {
             if (value1 == DOUBLE || value2 == DOUBLE) return DOUBLE;
-            return FLOAT;
+            if (value1 == FLOAT || value2 == FLOAT) return FLOAT;
+            return BFLOAT16;
         }
 
         @Override
@@ -69,7 +70,8 @@ public class TensorType {
             switch (valueTypeString) {
                 case "double" : return Value.DOUBLE;
                 case "float" : return Value.FLOAT;
-                default : throw new IllegalArgumentException("Value type must be either 'double' or 'float'" +
+                case "bfloat16" : return Value.BFLOAT16;
+                default : throw new IllegalArgumentException("Value type must be either 'double', 'float' or 'bfloat16'" +
                                                              " but was '" + valueTypeString + "'");
             }
         }
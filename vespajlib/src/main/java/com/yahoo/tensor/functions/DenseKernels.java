@@ -0,0 +1,655 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import com.yahoo.tensor.DimensionSizes;
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Evaluation of common shapes of tensor functions over indexed tensors, as tight loops over
+ * the value arrays of the tensors which the JIT compiler can unroll and vectorize.
+ * These are chosen by the tensor functions from the types of their arguments.
+ *
+ * Each kernel returns null if it does not apply to the given arguments, in which case the general
+ * algorithm must be used. Values are combined and aggregated in the same order as by the general
+ * algorithms, such that the results are the same.
+ *
+ * Tensors of float and bfloat16 values are looped over as float arrays when all arguments and the result have
+ * such values, so float values are never widened to doubles in memory. The float results of add, subtract, multiply
+ * and divide are the same as when computing in double and narrowing, and sums are accumulated in doubles.
+ *
+ * Tensors reading their values from a buffer are never copied to arrays, as they are typically large constants
+ * evaluated over and over: Joins and reduces of such tensors are left to the general algorithms, and products
+ * read their values one row at a time.
+ */
+class DenseKernels {
+
+    private DenseKernels() {}
+
+    // ----------------- Join
+
+    /**
+     * Joins two indexed tensors which either have the same dimensions, where one is a scalar,
+     * or where one has the innermost dimensions of the other.
+     *
+     * @return the joined tensor, or null if this does not apply to these arguments
+     */
+    static Tensor join(Tensor a, Tensor b, TensorType joinedType, DoubleBinaryOperator combinator) {
+        if ( ! (a instanceof IndexedTensor) || ! (b instanceof IndexedTensor)) return null;
+        IndexedTensor indexedA = (IndexedTensor)a;
+        IndexedTensor indexedB = (IndexedTensor)b;
+        if (indexedA.size() == 0 || indexedB.size() == 0) return null;
+        if (indexedA.readsFromBuffer() || indexedB.readsFromBuffer()) return null;
+
+        if (dimensionNames(a.type()).equals(dimensionNames(b.type()))) {
+            if (a.type().rank() == 1)
+                return vectorJoin(indexedA, indexedB, joinedType, combinator);
+            if (indexedA.dimensionSizes().equals(indexedB.dimensionSizes()))
+                return sameSizeJoin(indexedA, indexedB, joinedType, combinator);
+            return null;
+        }
+        if (b.type().rank() == 0)
+            return scalarJoin(indexedA, indexedB.get(0), false, joinedType, combinator);
+        if (a.type().rank() == 0)
+            return scalarJoin(indexedB, indexedA.get(0), true, joinedType, combinator);
+        if (isInnermostSubspace(indexedB, indexedA))
+            return innermostSubspaceJoin(indexedB, indexedA, false, joinedType, combinator);
+        if (isInnermostSubspace(indexedA, indexedB))
+            return innermostSubspaceJoin(indexedA, indexedB, true, joinedType, combinator);
+        return null;
+    }
+
+    private static Tensor vectorJoin(IndexedTensor a, IndexedTensor b, TensorType joinedType, DoubleBinaryOperator combinator) {
+        int length = (int)Math.min(a.dimensionSizes().size(0), b.dimensionSizes().size(0));
+        DimensionSizes sizes = new DimensionSizes.Builder(1).set(0, length).build();
+        if (hasFloatValues(joinedType, a, b)) {
+            float[] result = new float[length];
+            combine(a.floatValues(), 0, b.floatValues(), 0, result, 0, length, combinator);
+            return tensor(joinedType, sizes, result);
+        }
+        double[] result = new double[length];
+        combine(a.doubleValues(), 0, b.doubleValues(), 0, result, 0, length, combinator);
+        return tensor(joinedType, sizes, result);
+    }
+
+    private static Tensor sameSizeJoin(IndexedTensor a, IndexedTensor b, TensorType joinedType, DoubleBinaryOperator combinator) {
+        if (hasFloatValues(joinedType, a, b)) {
+            float[] result = new float[(int)a.size()];
+            combine(a.floatValues(), 0, b.floatValues(), 0, result, 0, result.length, combinator);
+            return tensor(joinedType, a.dimensionSizes(), result);
+        }
+        double[] result = new double[(int)a.size()];
+        combine(a.doubleValues(), 0, b.doubleValues(), 0, result, 0, result.length, combinator);
+        return tensor(joinedType, a.dimensionSizes(), result);
+    }
+
+    private static Tensor scalarJoin(IndexedTensor tensor, double scalar, boolean scalarFirst,
+                                     TensorType joinedType, DoubleBinaryOperator combinator) {
+        if (hasFloatValues(joinedType, tensor)) { // the scalar has float precision since the result has
+            float[] values = tensor.floatValues();
+            float[] result = new float[values.length];
+            if (scalarFirst)
+                combine((float)scalar, values, result, combinator);
+            else
+                combine(values, (float)scalar, result, combinator);
+            return tensor(joinedType, tensor.dimensionSizes(), result);
+        }
+        double[] values = tensor.doubleValues();
+        double[] result = new double[values.length];
+        if (scalarFirst)
+            combine(scalar, values, result, combinator);
+        else
+            combine(values, scalar, result, combinator);
+        return tensor(joinedType, tensor.dimensionSizes(), result);
+    }
+
+    /** Returns whether the dimensions of the subspace are the innermost dimensions of the superspace, with the same sizes */
+    private static boolean isInnermostSubspace(IndexedTensor subspace, IndexedTensor superspace) {
+        int subspaceRank = subspace.type().rank();
+        int offset = superspace.type().rank() - subspaceRank;
+        if (offset <= 0) return false;
+        for (int i = 0; i < subspaceRank; i++) {
+            if ( ! subspace.type().dimensions().get(i).name().equals(superspace.type().dimensions().get(offset + i).name()))
+                return false;
+            if (subspace.dimensionSizes().size(i) != superspace.dimensionSizes().size(offset + i))
+                return false;
+        }
+        return true;
+    }
+
+    private static Tensor innermostSubspaceJoin(IndexedTensor subspace, IndexedTensor superspace, boolean subspaceFirst,
+                                                TensorType joinedType, DoubleBinaryOperator combinator) {
+        if (hasFloatValues(joinedType, subspace, superspace)) {
+            float[] subspaceValues = subspace.floatValues();
+            float[] superspaceValues = superspace.floatValues();
+            float[] result = new float[superspaceValues.length];
+            int length = subspaceValues.length;
+            for (int offset = 0; offset < result.length; offset += length) {
+                if (subspaceFirst)
+                    combine(subspaceValues, 0, superspaceValues, offset, result, offset, length, combinator);
+                else
+                    combine(superspaceValues, offset, subspaceValues, 0, result, offset, length, combinator);
+            }
+            return tensor(joinedType, superspace.dimensionSizes(), result);
+        }
+        double[] subspaceValues = subspace.doubleValues();
+        double[] superspaceValues = superspace.doubleValues();
+        double[] result = new double[superspaceValues.length];
+        int length = subspaceValues.length;
+        for (int offset = 0; offset < result.length; offset += length) {
+            if (subspaceFirst)
+                combine(subspaceValues, 0, superspaceValues, offset, result, offset, length, combinator);
+            else
+                combine(superspaceValues, offset, subspaceValues, 0, result, offset, length, combinator);
+        }
+        return tensor(joinedType, superspace.dimensionSizes(), result);
+    }
+
+    /** Sets result[resultOffset + i] = combinator(a[aOffset + i], b[bOffset + i]) for each i below length */
+    static void combine(double[] a, int aOffset, double[] b, int bOffset,
+                        double[] result, int resultOffset, int length,
+                        DoubleBinaryOperator combinator) {
+        if (combinator instanceof ScalarFunctions.Add) {
+            for (int i = 0; i < length; i++)
+                result[resultOffset + i] = a[aOffset + i] + b[bOffset + i];
+        }
+        else if (combinator instanceof ScalarFunctions.Subtract) {
+            for (int i = 0; i < length; i++)
+                result[resultOffset + i] = a[aOffset + i] - b[bOffset + i];
+        }
+        else if (combinator instanceof ScalarFunctions.Multiply) {
+            for (int i = 0; i < length; i++)
+                result[resultOffset + i] = a[aOffset + i] * b[bOffset + i];
+        }
+        else if (combinator instanceof ScalarFunctions.Divide) {
+            for (int i = 0; i < length; i++)
+                result[resultOffset + i] = a[aOffset + i] / b[bOffset + i];
+        }
+        else {
+            for (int i = 0; i < length; i++)
+                result[resultOffset + i] = combinator.applyAsDouble(a[aOffset + i], b[bOffset + i]);
+        }
+    }
+
+    /** Sets result[i] = combinator(a[i], b) for each i in a */
+    private static void combine(double[] a, double b, double[] result, DoubleBinaryOperator combinator) {
+        if (combinator instanceof ScalarFunctions.Add) {
+            for (int i = 0; i < a.length; i++)
+                result[i] = a[i] + b;
+        }
+        else if (combinator instanceof ScalarFunctions.Subtract) {
+            for (int i = 0; i < a.length; i++)
+                result[i] = a[i] - b;
+        }
+        else if (combinator instanceof ScalarFunctions.Multiply) {
+            for (int i = 0; i < a.length; i++)
+                result[i] = a[i] * b;
+        }
+        else if (combinator instanceof ScalarFunctions.Divide) {
+            for (int i = 0; i < a.length; i++)
+                result[i] = a[i] / b;
+        }
+        else {
+            for (int i = 0; i < a.length; i++)
+                result[i] = combinator.applyAsDouble(a[i], b);
+        }
+    }
+
+    /** Sets result[i] = combinator(a, b[i]) for each i in b */
+    private static void combine(double a, double[] b, double[] result, DoubleBinaryOperator combinator) {
+        if (combinator instanceof ScalarFunctions.Add) {
+            for (int i = 0; i < b.length; i++)
+                result[i] = a + b[i];
+        }
+        else if (combinator instanceof ScalarFunctions.Subtract) {
+            for (int i = 0; i < b.length; i++)
+                result[i] = a - b[i];
+        }
+        else if (combinator instanceof ScalarFunctions.Multiply) {
+            for (int i = 0; i < b.length; i++)
+                result[i] = a * b[i];
+        }
+        else if (combinator instanceof ScalarFunctions.Divide) {
+            for (int i = 0; i < b.length; i++)
+                result[i] = a / b[i];
+        }
+        else {
+            for (int i = 0; i < b.length; i++)
+                result[i] = combinator.applyAsDouble(a, b[i]);
+        }
+    }
+
+    /** Sets result[resultOffset + i] = combinator(a[aOffset + i], b[bOffset + i]) for each i below length */
+    private static void combine(float[] a, int aOffset, float[] b, int bOffset,
+                                float[] result, int resultOffset, int length,
+                                DoubleBinaryOperator combinator) {
+        if (combinator instanceof ScalarFunctions.Add) {
+            for (int i = 0; i < length; i++)
+                result[resultOffset + i] = a[aOffset + i] + b[bOffset + i];
+        }
+        else if (combinator instanceof ScalarFunctions.Subtract) {
+            for (int i = 0; i < length; i++)
+                result[resultOffset + i] = a[aOffset + i] - b[bOffset + i];
+        }
+        else if (combinator instanceof ScalarFunctions.Multiply) {
+            for (int i = 0; i < length; i++)
+                result[resultOffset + i] = a[aOffset + i] * b[bOffset + i];
+        }
+        else if (combinator instanceof ScalarFunctions.Divide) {
+            for (int i = 0; i < length; i++)
+                result[resultOffset + i] = a[aOffset + i] / b[bOffset + i];
+        }
+        else {
+            for (int i = 0; i < length; i++)
+                result[resultOffset + i] = (float)combinator.applyAsDouble(a[aOffset + i], b[bOffset + i]);
+        }
+    }
+
+    /** Sets result[i] = combinator(a[i], b) for each i in a */
+    private static void combine(float[] a, float b, float[] result, DoubleBinaryOperator combinator) {
+        if (combinator instanceof ScalarFunctions.Add) {
+            for (int i = 0; i < a.length; i++)
+                result[i] = a[i] + b;
+        }
+        else if (combinator instanceof ScalarFunctions.Subtract) {
+            for (int i = 0; i < a.length; i++)
+                result[i] = a[i] - b;
+        }
+        else if (combinator instanceof ScalarFunctions.Multiply) {
+            for (int i = 0; i < a.length; i++)
+                result[i] = a[i] * b;
+        }
+        else if (combinator instanceof ScalarFunctions.Divide) {
+            for (int i = 0; i < a.length; i++)
+                result[i] = a[i] / b;
+        }
+        else {
+            for (int i = 0; i < a.length; i++)
+                result[i] = (float)combinator.applyAsDouble(a[i], b);
+        }
+    }
+
+    /** Sets result[i] = combinator(a, b[i]) for each i in b */
+    private static void combine(float a, float[] b, float[] result, DoubleBinaryOperator combinator) {
+        if (combinator instanceof ScalarFunctions.Add) {
+            for (int i = 0; i < b.length; i++)
+                result[i] = a + b[i];
+        }
+        else if (combinator instanceof ScalarFunctions.Subtract) {
+            for (int i = 0; i < b.length; i++)
+                result[i] = a - b[i];
+        }
+        else if (combinator instanceof ScalarFunctions.Multiply) {
+            for (int i = 0; i < b.length; i++)
+                result[i] = a * b[i];
+        }
+        else if (combinator instanceof ScalarFunctions.Divide) {
+            for (int i = 0; i < b.length; i++)
+                result[i] = a / b[i];
+        }
+        else {
+            for (int i = 0; i < b.length; i++)
+                result[i] = (float)combinator.applyAsDouble(a, b[i]);
+        }
+    }
+
+    // ----------------- Reduce
+
+    /**
+     * Reduces an indexed tensor over all its dimensions, or over its innermost dimension only,
+     * using an aggregator which does not depend on the values seen so far.
+     *
+     * @return the reduced tensor, or null if this does not apply to these arguments
+     */
+    static Tensor reduce(Tensor argument, List<String> dimensions, Reduce.Aggregator aggregator) {
+        if ( ! (argument instanceof IndexedTensor)) return null;
+        if ( ! isSupported(aggregator)) return null;
+        IndexedTensor tensor = (IndexedTensor)argument;
+        if (tensor.size() == 0 || tensor.readsFromBuffer()) return null;
+
+        int rank = tensor.type().rank();
+        if (dimensions.isEmpty() || dimensions.size() == rank) {
+            double result;
+            if (hasFloatValues(tensor.type(), tensor)) {
+                float[] values = tensor.floatValues();
+                result = aggregate(values, 0, values.length, aggregator);
+            }
+            else {
+                double[] values = tensor.doubleValues();
+                result = aggregate(values, 0, values.length, aggregator);
+            }
+            return Tensor.Builder.of(TensorType.empty).cell(result).build();
+        }
+        if (dimensions.size() == 1 && dimensions.get(0).equals(tensor.type().dimensions().get(rank - 1).name()))
+            return reduceInnermost(tensor, dimensions, aggregator);
+        return null;
+    }
+
+    private static Tensor reduceInnermost(IndexedTensor tensor, List<String> dimensions, Reduce.Aggregator aggregator) {
+        int rank = tensor.type().rank();
+        DimensionSizes.Builder reducedSizes = new DimensionSizes.Builder(rank - 1);
+        for (int i = 0; i < rank - 1; i++)
+            reducedSizes.set(i, tensor.dimensionSizes().size(i));
+
+        TensorType reducedType = Reduce.outputType(tensor.type(), dimensions);
+        int rowLength = (int)tensor.dimensionSizes().size(rank - 1);
+        if (hasFloatValues(reducedType, tensor)) {
+            float[] values = tensor.floatValues();
+            float[] result = new float[values.length / rowLength];
+            for (int row = 0; row < result.length; row++)
+                result[row] = (float)aggregate(values, row * rowLength, rowLength, aggregator);
+            return tensor(reducedType, reducedSizes.build(), result);
+        }
+        double[] values = tensor.doubleValues();
+        double[] result = new double[values.length / rowLength];
+        for (int row = 0; row < result.length; row++)
+            result[row] = aggregate(values, row * rowLength, rowLength, aggregator);
+        return tensor(reducedType, reducedSizes.build(), result);
+    }
+
+    private static boolean isSupported(Reduce.Aggregator aggregator) {
+        switch (aggregator) {
+            case avg: case count: case prod: case sum: return true;
+            default: return false;
+        }
+    }
+
+    private static double aggregate(double[] values, int offset, int length, Reduce.Aggregator aggregator) {
+        switch (aggregator) {
+            case avg: return sum(values, offset, length) / length;
+            case count: return length;
+            case prod:
+                double product = 1.0;
+                for (int i = offset; i < offset + length; i++)
+                    product *= values[i];
+                return product;
+            case sum: return sum(values, offset, length);
+            default: throw new IllegalArgumentException("Aggregator " + aggregator + " is not supported here");
+        }
+    }
+
+    private static double sum(double[] values, int offset, int length) {
+        double sum = 0.0;
+        for (int i = offset; i < offset + length; i++)
+            sum += values[i];
+        return sum;
+    }
+
+    private static double aggregate(float[] values, int offset, int length, Reduce.Aggregator aggregator) {
+        switch (aggregator) {
+            case avg: return sum(values, offset, length) / length;
+            case count: return length;
+            case prod:
+                double product = 1.0;
+                for (int i = offset; i < offset + length; i++)
+                    product *= values[i];
+                return product;
+            case sum: return sum(values, offset, length);
+            default: throw new IllegalArgumentException("Aggregator " + aggregator + " is not supported here");
+        }
+    }
+
+    private static double sum(float[] values, int offset, int length) {
+        double sum = 0.0;
+        for (int i = offset; i < offset + length; i++)
+            sum += values[i];
+        return sum;
+    }
+
+    // ----------------- Reduce of join
+
+    /**
+     * Computes the sum over a single dimension of the product of two indexed tensors of rank 1 or 2,
+     * where that is the only dimension they have in common. This covers vector dot products, matrix-vector
+     * and matrix-matrix products with either layout of the matrices.
+     *
+     * @param reducedType the type of the result
+     * @return the product, or null if this does not apply to these arguments
+     */
+    static Tensor multiplySum(Tensor a, Tensor b, List<String> dimensions, TensorType reducedType) {
+        if ( ! (a instanceof IndexedTensor) || ! (b instanceof IndexedTensor)) return null;
+        if (a.type().rank() < 1 || a.type().rank() > 2 || b.type().rank() < 1 || b.type().rank() > 2) return null;
+
+        List<String> common = new ArrayList<>(dimensionNames(a.type()));
+        common.retainAll(dimensionNames(b.type()));
+        if (common.size() != 1) return null;
+        String dimension = common.get(0);
+        if (dimensions.isEmpty()) {
+            if (a.type().rank() != 1 || b.type().rank() != 1) return null;
+        }
+        else if ( ! dimensions.equals(common)) {
+            return null;
+        }
+
+        // Values read from buffers are read as doubles, which gives the same result as multiplying floats in double
+        boolean floats = hasFloatValues(reducedType, (IndexedTensor)a, (IndexedTensor)b)
+                         && ! ((IndexedTensor)a).readsFromBuffer() && ! ((IndexedTensor)b).readsFromBuffer();
+        Operand x = new Operand((IndexedTensor)a, dimension, floats);
+        Operand y = new Operand((IndexedTensor)b, dimension, floats);
+        if (x.size == 0 || y.size == 0) return null;
+
+        List<String> resultDimensions = new ArrayList<>();
+        if (x.otherDimension != null) resultDimensions.add(x.otherDimension);
+        if (y.otherDimension != null) resultDimensions.add(y.otherDimension);
+        if (reducedType.rank() != resultDimensions.size() || ! dimensionNames(reducedType).containsAll(resultDimensions))
+            return null;
+
+        int reduceSize = (int)Math.min(x.reduceSize, y.reduceSize);
+        double[] product = floats ? multiplySumFloats(x, y, reduceSize) : multiplySum(x, y, reduceSize);
+
+        if (resultDimensions.size() < 2) {
+            DimensionSizes.Builder sizes = new DimensionSizes.Builder(resultDimensions.size());
+            if (resultDimensions.size() == 1)
+                sizes.set(0, product.length);
+            return tensor(reducedType, sizes.build(), product);
+        }
+
+        DimensionSizes.Builder sizes = new DimensionSizes.Builder(2);
+        if (reducedType.dimensions().get(0).name().equals(x.otherDimension)) { // product is in the result order
+            sizes.set(0, x.otherSize).set(1, y.otherSize);
+            return tensor(reducedType, sizes.build(), product);
+        }
+        else { // transpose
+            sizes.set(0, y.otherSize).set(1, x.otherSize);
+            double[] transposed = new double[product.length];
+            for (int i = 0; i < x.otherSize; i++)
+                for (int j = 0; j < y.otherSize; j++)
+                    transposed[j * x.otherSize + i] = product[i * y.otherSize + j];
+            return tensor(reducedType, sizes.build(), transposed);
+        }
+    }
+
+    /** Returns the products of x and y as a [x other dimension][y other dimension] array */
+    private static double[] multiplySum(Operand x, Operand y, int reduceSize) {
+        int xSize = x.otherSize;
+        int ySize = y.otherSize;
+        double[] result = new double[xSize * ySize];
+        if (x.reduceStride == 1 && y.reduceStride == 1) { // dot products of contiguous rows
+            for (int i = 0; i < xSize; i++) {
+                double[] xValues = x.row(i * x.otherStride, reduceSize);
+                int xOffset = x.rowOffset(i * x.otherStride);
+                for (int j = 0; j < ySize; j++) {
+                    double[] yValues = y.row(j * y.otherStride, reduceSize);
+                    result[i * ySize + j] = dotProduct(xValues, xOffset, yValues, y.rowOffset(j * y.otherStride), reduceSize);
+                }
+            }
+        }
+        else if (y.otherStride == 1) { // add each row of y, scaled by the value of x, to the result row
+            for (int i = 0; i < xSize; i++) {
+                int resultOffset = i * ySize;
+                for (int k = 0; k < reduceSize; k++) {
+                    double xValue = x.value(i * x.otherStride + k * x.reduceStride);
+                    double[] yValues = y.row(k * y.reduceStride, ySize);
+                    int yOffset = y.rowOffset(k * y.reduceStride);
+                    for (int j = 0; j < ySize; j++)
+                        result[resultOffset + j] += xValue * yValues[yOffset + j];
+                }
+            }
+        }
+        else {
+            for (int i = 0; i < xSize; i++) {
+                for (int j = 0; j < ySize; j++) {
+                    double sum = 0.0;
+                    for (int k = 0; k < reduceSize; k++)
+                        sum += x.value(i * x.otherStride + k * x.reduceStride) * y.value(j * y.otherStride + k * y.reduceStride);
+                    result[i * ySize + j] = sum;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static double dotProduct(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        double sum = 0.0;
+        for (int i = 0; i < length; i++)
+            sum += a[aOffset + i] * b[bOffset + i];
+        return sum;
+    }
+
+    /** As multiplySum, for operands holding float values, multiplying and summing in double */
+    private static double[] multiplySumFloats(Operand x, Operand y, int reduceSize) {
+        int xSize = x.otherSize;
+        int ySize = y.otherSize;
+        double[] result = new double[xSize * ySize];
+        if (x.reduceStride == 1 && y.reduceStride == 1) {
+            for (int i = 0; i < xSize; i++)
+                for (int j = 0; j < ySize; j++)
+                    result[i * ySize + j] = dotProduct(x.floats, i * x.otherStride, y.floats, j * y.otherStride, reduceSize);
+        }
+        else if (y.otherStride == 1) {
+            for (int i = 0; i < xSize; i++) {
+                int resultOffset = i * ySize;
+                for (int k = 0; k < reduceSize; k++) {
+                    double xValue = x.floats[i * x.otherStride + k * x.reduceStride];
+                    int yOffset = k * y.reduceStride;
+                    for (int j = 0; j < ySize; j++)
+                        result[resultOffset + j] += xValue * y.floats[yOffset + j];
+                }
+            }
+        }
+        else {
+            for (int i = 0; i < xSize; i++) {
+                for (int j = 0; j < ySize; j++) {
+                    double sum = 0.0;
+                    for (int k = 0; k < reduceSize; k++)
+                        sum += (double)x.floats[i * x.otherStride + k * x.reduceStride] * y.floats[j * y.otherStride + k * y.reduceStride];
+                    result[i * ySize + j] = sum;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static double dotProduct(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        double sum = 0.0;
+        for (int i = 0; i < length; i++)
+            sum += (double)a[aOffset + i] * b[bOffset + i];
+        return sum;
+    }
+
+    /** The layout of an argument to a product over a single dimension */
+    private static class Operand {
+
+        /** The values of this, of which at most one is set, or none if the values are read from the tensor */
+        final double[] values;
+        final float[] floats;
+
+        /** The tensor of this if its values are read from it one row at a time, and the row they are read into */
+        private final IndexedTensor tensor;
+        private final double[] row;
+
+        /** The number of values of this */
+        final int size;
+
+        /** The size of the dimension summed over, and the distance between consecutive values along it */
+        final long reduceSize;
+        final int reduceStride;
+
+        /** The other dimension of this, or null if none, its size (1 if none), and the distance between values along it */
+        final String otherDimension;
+        final int otherSize;
+        final int otherStride;
+
+        Operand(IndexedTensor tensor, String reduceDimension, boolean floatValues) {
+            boolean readRows = tensor.readsFromBuffer();
+            this.values = floatValues || readRows ? null : tensor.doubleValues();
+            this.floats = floatValues ? tensor.floatValues() : null;
+            this.tensor = readRows ? tensor : null;
+            this.size = (int)tensor.size();
+            DimensionSizes sizes = tensor.dimensionSizes();
+            if (tensor.type().rank() == 1) {
+                reduceSize = sizes.size(0);
+                reduceStride = 1;
+                otherDimension = null;
+                otherSize = 1;
+                otherStride = 0;
+            }
+            else if (tensor.type().dimensions().get(1).name().equals(reduceDimension)) {
+                reduceSize = sizes.size(1);
+                reduceStride = 1;
+                otherDimension = tensor.type().dimensions().get(0).name();
+                otherSize = (int)sizes.size(0);
+                otherStride = (int)sizes.size(1);
+            }
+            else {
+                reduceSize = sizes.size(0);
+                reduceStride = (int)sizes.size(1);
+                otherDimension = tensor.type().dimensions().get(1).name();
+                otherSize = (int)sizes.size(1);
+                otherStride = 1;
+            }
+            this.row = readRows ? new double[(int)Math.max(reduceSize, otherSize)] : null;
+        }
+
+        /** Returns the value at the given index */
+        double value(int index) {
+            return values != null ? values[index] : tensor.get(index);
+        }
+
+        /**
+         * Returns an array holding the given number of values from the given index at {@link #rowOffset}:
+         * The values of this, or the row of this after reading those values into it.
+         */
+        double[] row(int index, int length) {
+            if (values != null) return values;
+            for (int i = 0; i < length; i++)
+                row[i] = tensor.get(index + i);
+            return row;
+        }
+
+        /** Returns the offset of the value at the given index in the array returned from {@link #row} */
+        int rowOffset(int index) {
+            return values != null ? index : 0;
+        }
+
+    }
+
+    private static List<String> dimensionNames(TensorType type) {
+        List<String> names = new ArrayList<>(type.rank());
+        for (TensorType.Dimension dimension : type.dimensions())
+            names.add(dimension.name());
+        return names;
+    }
+
+    /** Returns whether the given type and all the given tensors have values which are exactly representable as floats */
+    private static boolean hasFloatValues(TensorType type, IndexedTensor ... tensors) {
+        if (type.valueType() == TensorType.Value.DOUBLE) return false;
+        for (IndexedTensor tensor : tensors)
+            if (tensor.type().valueType() == TensorType.Value.DOUBLE) return false;
+        return true;
+    }
+
+    private static Tensor tensor(TensorType type, DimensionSizes sizes, double[] values) {
+        return IndexedTensor.Builder.of(type, sizes, values).build();
+    }
+
+    private static Tensor tensor(TensorType type, DimensionSizes sizes, float[] values) {
+        return IndexedTensor.Builder.of(type, sizes, values).build();
+    }
+
+}
@@ -0,0 +1,533 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import com.yahoo.tensor.DimensionSizes;
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.EvaluationContext;
+import com.yahoo.tensor.evaluation.Name;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A tree of map, join and rename functions, optionally followed by a reduce, which is evaluated
+ * in a single loop over the rows of the result without creating the intermediate tensors.
+ * Each function is applied to a whole row, the cells along the innermost dimension, at a time,
+ * such that joins are done by the loops of {@link DenseKernels}.
+ *
+ * The arguments of this are the functions producing the input tensors of the tree.
+ * The loop is used when all the arguments are indexed tensors where dimensions with the same name
+ * have the same size. Otherwise this is evaluated as the functions it is created from.
+ */
+public class FusedTensorFunction<NAMETYPE extends Name> extends CompositeTensorFunction<NAMETYPE> {
+
+    /** The functions producing the input tensors to the fused functions */
+    private final List<TensorFunction<NAMETYPE>> arguments;
+
+    /** The fused map, join and rename functions, producing a value from the values of the arguments */
+    private final Node root;
+
+    /** The aggregator of the reduce following the fused functions, or null if none */
+    private final Reduce.Aggregator aggregator;
+    private final List<String> reduceDimensions;
+
+    private FusedTensorFunction(List<TensorFunction<NAMETYPE>> arguments, Node root,
+                                Reduce.Aggregator aggregator, List<String> reduceDimensions) {
+        this.arguments = List.copyOf(arguments);
+        this.root = root;
+        this.aggregator = aggregator;
+        this.reduceDimensions = List.copyOf(reduceDimensions);
+    }
+
+    /**
+     * Returns a function fusing the map, join and rename functions at the root of the given function,
+     * and a reduce at the root if any, or the given function if it does not contain at least two such functions.
+     */
+    public static <NAMETYPE extends Name> TensorFunction<NAMETYPE> fuse(TensorFunction<NAMETYPE> function) {
+        Reduce.Aggregator aggregator = null;
+        List<String> reduceDimensions = List.of();
+        TensorFunction<NAMETYPE> fused = function;
+        if (function instanceof Reduce) {
+            aggregator = ((Reduce<NAMETYPE>)function).aggregator();
+            reduceDimensions = ((Reduce<NAMETYPE>)function).dimensions();
+            fused = ((Reduce<NAMETYPE>)function).argument();
+        }
+        if ( ! isFusable(fused)) return function;
+
+        List<TensorFunction<NAMETYPE>> arguments = new ArrayList<>();
+        Node root = toNode(fused, arguments);
+        if (root.functionCount() + (aggregator != null ? 1 : 0) < 2) return function;
+        return new FusedTensorFunction<>(arguments, root, aggregator, reduceDimensions);
+    }
+
+    /** Returns whether the given function can be fused into the loop of this */
+    public static boolean isFusable(TensorFunction<?> function) {
+        return function instanceof Map || function instanceof Join || function instanceof Rename;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <NAMETYPE extends Name> Node toNode(TensorFunction<NAMETYPE> function, List<TensorFunction<NAMETYPE>> arguments) {
+        if (function instanceof Map) {
+            Map<NAMETYPE> map = (Map<NAMETYPE>)function;
+            return new MapNode(toNode(map.argument(), arguments), map.mapper());
+        }
+        else if (function instanceof Join) {
+            Join<NAMETYPE> join = (Join<NAMETYPE>)function;
+            return new JoinNode(toNode(join.arguments().get(0), arguments),
+                                toNode(join.arguments().get(1), arguments),
+                                join.combinator());
+        }
+        else if (function instanceof Rename) {
+            Rename<NAMETYPE> rename = (Rename<NAMETYPE>)function;
+            return new RenameNode(toNode(rename.arguments().get(0), arguments), rename.fromDimensions(), rename.toDimensions());
+        }
+        else {
+            arguments.add(function);
+            return new ArgumentNode(arguments.size() - 1);
+        }
+    }
+
+    @Override
+    public List<TensorFunction<NAMETYPE>> arguments() { return arguments; }
+
+    @Override
+    public TensorFunction<NAMETYPE> withArguments(List<TensorFunction<NAMETYPE>> arguments) {
+        if ( arguments.size() != this.arguments.size())
+            throw new IllegalArgumentException("This fused function must have " + this.arguments.size() +
+                                               " arguments, got " + arguments.size());
+        return new FusedTensorFunction<>(arguments, root, aggregator, reduceDimensions);
+    }
+
+    @Override
+    public PrimitiveTensorFunction<NAMETYPE> toPrimitive() {
+        List<TensorFunction<NAMETYPE>> primitiveArguments = new ArrayList<>(arguments.size());
+        for (TensorFunction<NAMETYPE> argument : arguments)
+            primitiveArguments.add(argument.toPrimitive());
+        return (PrimitiveTensorFunction<NAMETYPE>)toFunction(primitiveArguments);
+    }
+
+    /** Returns the unfused functions of this applied to the given arguments */
+    private TensorFunction<NAMETYPE> toFunction(List<TensorFunction<NAMETYPE>> arguments) {
+        TensorFunction<NAMETYPE> function = root.toFunction(arguments);
+        if (aggregator == null) return function;
+        return new Reduce<>(function, aggregator, reduceDimensions);
+    }
+
+    @Override
+    public Tensor evaluate(EvaluationContext<NAMETYPE> context) {
+        Tensor[] tensors = new Tensor[arguments.size()];
+        for (int i = 0; i < tensors.length; i++)
+            tensors[i] = arguments.get(i).evaluate(context);
+
+        Optional<Tensor> result = evaluateFused(tensors);
+        if (result.isPresent()) return result.get();
+
+        List<TensorFunction<NAMETYPE>> constants = new ArrayList<>(tensors.length);
+        for (Tensor tensor : tensors)
+            constants.add(new ConstantTensor<>(tensor));
+        return toFunction(constants).evaluate(context);
+    }
+
+    /** Evaluates this in a single loop, or returns empty if the arguments do not allow it */
+    private Optional<Tensor> evaluateFused(Tensor[] tensors) {
+        TensorType[] types = new TensorType[tensors.length];
+        String[][] dimensionNames = new String[tensors.length][];
+        for (int i = 0; i < tensors.length; i++) {
+            if ( ! (tensors[i] instanceof IndexedTensor) || tensors[i].size() == 0) return Optional.empty();
+            types[i] = tensors[i].type();
+            dimensionNames[i] = new String[types[i].rank()];
+            for (int d = 0; d < dimensionNames[i].length; d++)
+                dimensionNames[i][d] = types[i].dimensions().get(d).name();
+        }
+        TensorType type = root.type(types);
+        root.rename(dimensionNames);
+
+        // Find the size of each dimension of the result, and the distance between values along it in each argument
+        int rank = type.rank();
+        int[] sizes = new int[rank];
+        int[][] strides = new int[tensors.length][rank];
+        for (int i = 0; i < tensors.length; i++) {
+            DimensionSizes argumentSizes = ((IndexedTensor)tensors[i]).dimensionSizes();
+            int stride = 1;
+            for (int d = dimensionNames[i].length - 1; d >= 0; d--) {
+                int size = (int)argumentSizes.size(d);
+                int dimension = type.indexOfDimension(dimensionNames[i][d]).get();
+                if (sizes[dimension] != 0 && sizes[dimension] != size) return Optional.empty();
+                sizes[dimension] = size;
+                strides[i][dimension] = stride;
+                stride *= size;
+            }
+        }
+
+        if (aggregator == null)
+            return Optional.of(evaluateJoin(tensors, type, sizes, strides));
+        for (String dimension : reduceDimensions)
+            if (type.dimension(dimension).isEmpty()) return Optional.empty(); // let reduce produce the error
+        return Optional.of(evaluateReduce(tensors, type, sizes, strides));
+    }
+
+    private Tensor evaluateJoin(Tensor[] tensors, TensorType type, int[] sizes, int[][] strides) {
+        double[] values = new double[size(sizes)];
+        Loop loop = new Loop(tensors, sizes, strides, null, root.rowCount());
+        for (int offset = 0; offset < values.length; offset += loop.rowLength, loop.next())
+            root.apply(loop, values, offset, 0);
+        return IndexedTensor.Builder.of(type, dimensionSizes(sizes), values).build();
+    }
+
+    private Tensor evaluateReduce(Tensor[] tensors, TensorType type, int[] sizes, int[][] strides) {
+        boolean reduceAll = reduceDimensions.isEmpty() || reduceDimensions.size() == type.rank();
+        TensorType reducedType = reduceAll ? TensorType.empty : Reduce.outputType(type, reduceDimensions);
+
+        // The sizes of the reduced dimensions, and the distance between reduced values along each dimension
+        int[] reducedSizes = new int[reducedType.rank()];
+        int[] reducedStrides = new int[sizes.length];
+        int stride = 1;
+        for (int d = sizes.length - 1, reducedD = reducedSizes.length - 1; d >= 0; d--) {
+            if (reduceAll || reduceDimensions.contains(type.dimensions().get(d).name())) continue;
+            reducedSizes[reducedD--] = sizes[d];
+            reducedStrides[d] = stride;
+            stride *= sizes[d];
+        }
+
+        Reduce.ValueAggregator[] aggregators = new Reduce.ValueAggregator[size(reducedSizes)];
+        for (int i = 0; i < aggregators.length; i++)
+            aggregators[i] = Reduce.ValueAggregator.ofType(aggregator);
+        int cells = size(sizes);
+        Loop loop = new Loop(tensors, sizes, strides, reducedStrides, root.rowCount());
+        double[] row = new double[loop.rowLength];
+        for (int cell = 0; cell < cells; cell += loop.rowLength, loop.next()) {
+            root.apply(loop, row, 0, 0);
+            for (int i = 0; i < row.length; i++)
+                aggregators[loop.reducedOffset + i * loop.reducedRowStride].aggregate(row[i]);
+        }
+
+        double[] values = new double[aggregators.length];
+        for (int i = 0; i < values.length; i++)
+            values[i] = aggregators[i].aggregatedValue();
+        return IndexedTensor.Builder.of(reducedType, dimensionSizes(reducedSizes), values).build();
+    }
+
+    private static int size(int[] sizes) {
+        int size = 1;
+        for (int dimensionSize : sizes)
+            size *= dimensionSize;
+        return size;
+    }
+
+    private static DimensionSizes dimensionSizes(int[] sizes) {
+        DimensionSizes.Builder builder = new DimensionSizes.Builder(sizes.length);
+        for (int i = 0; i < sizes.length; i++)
+            builder.set(i, sizes[i]);
+        return builder.build();
+    }
+
+    @Override
+    public String toString(ToStringContext context) {
+        return toFunction(arguments).toString(context);
+    }
+
+    /**
+     * Iterates over the rows of the result, the cells along its innermost dimension, in standard value order.
+     * This keeps track of the offset of the first value of the row in each argument, and optionally of the offset
+     * of the reduced cell of the first cell of the row.
+     */
+    private static class Loop {
+
+        /** The arguments, and their values, or null for those read one by one as they read from buffers */
+        private final IndexedTensor[] tensors;
+        private final double[][] arguments;
+        private final int[] sizes;
+        private final int[][] strides;
+        private final int[] reducedStrides;
+
+        private final int[] indexes;
+        private final int[] offsets;
+
+        /** The number of cells in each row, and the distance between the values of the row in each argument */
+        final int rowLength;
+        private final int[] rowStrides;
+
+        /** The offset of the reduced cell of the first cell in the current row, and the distance to those of the next cells */
+        int reducedOffset = 0;
+        final int reducedRowStride;
+
+        /** Rows holding the values of the second arguments of joins, see {@link Node#rowCount} */
+        final double[][] rows;
+
+        Loop(Tensor[] tensors, int[] sizes, int[][] strides, int[] reducedStrides, int rowCount) {
+            this.tensors = new IndexedTensor[tensors.length];
+            this.arguments = new double[tensors.length][];
+            for (int i = 0; i < tensors.length; i++) {
+                this.tensors[i] = (IndexedTensor)tensors[i];
+                arguments[i] = this.tensors[i].readsFromBuffer() ? null : this.tensors[i].doubleValues();
+            }
+            int innermost = sizes.length - 1;
+            this.sizes = sizes;
+            this.strides = strides;
+            this.reducedStrides = reducedStrides;
+            this.indexes = new int[sizes.length];
+            this.offsets = new int[tensors.length];
+            this.rowLength = innermost < 0 ? 1 : sizes[innermost];
+            this.rowStrides = new int[tensors.length];
+            for (int i = 0; i < tensors.length; i++)
+                rowStrides[i] = innermost < 0 ? 0 : strides[i][innermost];
+            this.reducedRowStride = innermost < 0 || reducedStrides == null ? 0 : reducedStrides[innermost];
+            this.rows = new double[rowCount][rowLength];
+        }
+
+        /** Moves to the next row */
+        void next() {
+            for (int d = sizes.length - 2; d >= 0; d--) {
+                if (++indexes[d] < sizes[d]) {
+                    move(d, 1);
+                    break;
+                }
+                move(d, -(sizes[d] - 1));
+                indexes[d] = 0;
+            }
+        }
+
+        private void move(int dimension, int steps) {
+            for (int i = 0; i < offsets.length; i++)
+                offsets[i] += strides[i][dimension] * steps;
+            if (reducedStrides != null)
+                reducedOffset += reducedStrides[dimension] * steps;
+        }
+
+        /** Copies the values of the given argument in the current row to the given array */
+        void read(int argument, double[] result, int resultOffset) {
+            double[] values = arguments[argument];
+            int offset = offsets[argument];
+            int stride = rowStrides[argument];
+            if (values == null) {
+                IndexedTensor tensor = tensors[argument];
+                for (int i = 0; i < rowLength; i++)
+                    result[resultOffset + i] = tensor.get(offset + i * stride);
+            }
+            else if (stride == 1) {
+                System.arraycopy(values, offset, result, resultOffset, rowLength);
+            }
+            else if (stride == 0) {
+                Arrays.fill(result, resultOffset, resultOffset + rowLength, values[offset]);
+            }
+            else {
+                for (int i = 0; i < rowLength; i++)
+                    result[resultOffset + i] = values[offset + i * stride];
+            }
+        }
+
+    }
+
+    /** A fused function */
+    private static abstract class Node {
+
+        /**
+         * Sets the values of this in the current row of the loop, starting at the given offset in the given array.
+         * Rows of the loop from the given depth and up may be used to hold intermediate values.
+         */
+        abstract void apply(Loop loop, double[] result, int offset, int depth);
+
+        /** Returns the number of rows of the loop needed to apply this at depth 0 */
+        abstract int rowCount();
+
+        /** Returns the type produced by this given the types of the arguments */
+        abstract TensorType type(TensorType[] arguments);
+
+        /**
+         * Applies the renames done by this to the dimension names of the arguments.
+         * After calling this on the root, the names are those of the corresponding dimensions of the result.
+         */
+        abstract void rename(String[][] argumentDimensionNames);
+
+        /** Adds the indexes of the arguments below this to the given list */
+        abstract void argumentIndexes(List<Integer> indexes);
+
+        /** Returns the number of functions in this */
+        abstract int functionCount();
+
+        /** Returns the unfused function equivalent to this applied to the given arguments */
+        abstract <NAMETYPE extends Name> TensorFunction<NAMETYPE> toFunction(List<TensorFunction<NAMETYPE>> arguments);
+
+    }
+
+    private static class ArgumentNode extends Node {
+
+        private final int index;
+
+        ArgumentNode(int index) {
+            this.index = index;
+        }
+
+        @Override
+        void apply(Loop loop, double[] result, int offset, int depth) { loop.read(index, result, offset); }
+
+        @Override
+        int rowCount() { return 0; }
+
+        @Override
+        TensorType type(TensorType[] arguments) { return arguments[index]; }
+
+        @Override
+        void rename(String[][] argumentDimensionNames) {}
+
+        @Override
+        void argumentIndexes(List<Integer> indexes) { indexes.add(index); }
+
+        @Override
+        int functionCount() { return 0; }
+
+        @Override
+        <NAMETYPE extends Name> TensorFunction<NAMETYPE> toFunction(List<TensorFunction<NAMETYPE>> arguments) {
+            return arguments.get(index);
+        }
+
+    }
+
+    private static class MapNode extends Node {
+
+        private final Node argument;
+        private final DoubleUnaryOperator mapper;
+
+        MapNode(Node argument, DoubleUnaryOperator mapper) {
+            this.argument = argument;
+            this.mapper = mapper;
+        }
+
+        @Override
+        void apply(Loop loop, double[] result, int offset, int depth) {
+            argument.apply(loop, result, offset, depth);
+            for (int i = offset; i < offset + loop.rowLength; i++)
+                result[i] = mapper.applyAsDouble(result[i]);
+        }
+
+        @Override
+        int rowCount() { return argument.rowCount(); }
+
+        @Override
+        TensorType type(TensorType[] arguments) { return Map.outputType(argument.type(arguments)); }
+
+        @Override
+        void rename(String[][] argumentDimensionNames) { argument.rename(argumentDimensionNames); }
+
+        @Override
+        void argumentIndexes(List<Integer> indexes) { argument.argumentIndexes(indexes); }
+
+        @Override
+        int functionCount() { return 1 + argument.functionCount(); }
+
+        @Override
+        <NAMETYPE extends Name> TensorFunction<NAMETYPE> toFunction(List<TensorFunction<NAMETYPE>> arguments) {
+            return new Map<>(argument.toFunction(arguments), mapper);
+        }
+
+    }
+
+    private static class JoinNode extends Node {
+
+        private final Node a, b;
+        private final DoubleBinaryOperator combinator;
+
+        JoinNode(Node a, Node b, DoubleBinaryOperator combinator) {
+            this.a = a;
+            this.b = b;
+            this.combinator = combinator;
+        }
+
+        @Override
+        void apply(Loop loop, double[] result, int offset, int depth) {
+            double[] bValues = loop.rows[depth];
+            a.apply(loop, result, offset, depth);
+            b.apply(loop, bValues, 0, depth + 1);
+            DenseKernels.combine(result, offset, bValues, 0, result, offset, loop.rowLength, combinator);
+        }
+
+        @Override
+        int rowCount() { return Math.max(a.rowCount(), 1 + b.rowCount()); }
+
+        @Override
+        TensorType type(TensorType[] arguments) { return Join.outputType(a.type(arguments), b.type(arguments)); }
+
+        @Override
+        void rename(String[][] argumentDimensionNames) {
+            a.rename(argumentDimensionNames);
+            b.rename(argumentDimensionNames);
+        }
+
+        @Override
+        void argumentIndexes(List<Integer> indexes) {
+            a.argumentIndexes(indexes);
+            b.argumentIndexes(indexes);
+        }
+
+        @Override
+        int functionCount() { return 1 + a.functionCount() + b.functionCount(); }
+
+        @Override
+        <NAMETYPE extends Name> TensorFunction<NAMETYPE> toFunction(List<TensorFunction<NAMETYPE>> arguments) {
+            return new Join<>(a.toFunction(arguments), b.toFunction(arguments), combinator);
+        }
+
+    }
+
+    private static class RenameNode extends Node {
+
+        private final Node argument;
+        private final List<String> fromDimensions;
+        private final List<String> toDimensions;
+
+        RenameNode(Node argument, List<String> fromDimensions, List<String> toDimensions) {
+            this.argument = argument;
+            this.fromDimensions = fromDimensions;
+            this.toDimensions = toDimensions;
+        }
+
+        @Override
+        void apply(Loop loop, double[] result, int offset, int depth) { argument.apply(loop, result, offset, depth); }
+
+        @Override
+        int rowCount() { return argument.rowCount(); }
+
+        @Override
+        TensorType type(TensorType[] arguments) {
+            TensorType type = argument.type(arguments);
+            TensorType.Builder builder = new TensorType.Builder(type.valueType());
+            for (TensorType.Dimension dimension : type.dimensions())
+                builder.dimension(dimension.withName(rename(dimension.name())));
+            return builder.build();
+        }
+
+        @Override
+        void rename(String[][] argumentDimensionNames) {
+            argument.rename(argumentDimensionNames);
+            List<Integer> indexes = new ArrayList<>();
+            argument.argumentIndexes(indexes);
+            for (int index : indexes)
+                for (int d = 0; d < argumentDimensionNames[index].length; d++)
+                    argumentDimensionNames[index][d] = rename(argumentDimensionNames[index][d]);
+        }
+
+        private String rename(String dimensionName) {
+            int index = fromDimensions.indexOf(dimensionName);
+            return index < 0 ? dimensionName : toDimensions.get(index);
+        }
+
+        @Override
+        void argumentIndexes(List<Integer> indexes) { argument.argumentIndexes(indexes); }
+
+        @Override
+        int functionCount() { return 1 + argument.functionCount(); }
+
+        @Override
+        <NAMETYPE extends Name> TensorFunction<NAMETYPE> toFunction(List<TensorFunction<NAMETYPE>> arguments) {
+            return new Rename<>(argument.toFunction(arguments), fromDimensions, toDimensions);
+        }
+
+    }
+
+}
@@ -2,7 +2,9 @@
 package com.yahoo.tensor.functions;
 
 import com.google.common.collect.ImmutableList;
+import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.Name;
 
 import java.util.List;
@@ -44,6 +46,19 @@ public class Matmul<NAMETYPE extends Name> extends CompositeTensorFunction<NAMET
                             dimension);
     }
 
+    @Override
+    public Tensor evaluate(EvaluationContext<NAMETYPE> context) {
+        return evaluate(argument1.evaluate(context), argument2.evaluate(context), dimension);
+    }
+
+    /** Returns the product of the given tensors over the given dimension */
+    static Tensor evaluate(Tensor a, Tensor b, String dimension) {
+        TensorType joinedType = Join.outputType(a.type(), b.type());
+        Tensor result = DenseKernels.multiplySum(a, b, List.of(dimension), Reduce.outputType(joinedType, List.of(dimension)));
+        if (result != null) return result;
+        return Reduce.evaluate(Join.evaluate(a, b, joinedType, ScalarFunctions.multiply()), List.of(dimension), Reduce.Aggregator.sum);
+    }
+
     @Override
     public String toString(ToStringContext context) {
         return "matmul(" + argument1.toString(context) + ", " + argument2.toString(context) + ", " + dimension + ")";
@@ -128,6 +128,9 @@ public class Reduce<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
             throw new IllegalArgumentException("Cannot reduce " + argument + " over dimensions " +
                                                dimensions + ": Not all those dimensions are present in this tensor");
 
+        Tensor result = DenseKernels.reduce(argument, dimensions, aggregator);
+        if (result != null) return result;
+
         // Special case: Reduce all
         if (dimensions.isEmpty() || dimensions.size() == argument.type().dimensions().size())
             if (argument.type().dimensions().size() == 1 && argument instanceof IndexedTensor)
@@ -73,6 +73,10 @@ public class ReduceJoin<NAMETYPE extends Name> extends CompositeTensorFunction<N
         Tensor b = argumentB.evaluate(context);
         TensorType joinedType = new TensorType.Builder(a.type(), b.type()).build();
 
+        if (combinator instanceof ScalarFunctions.Multiply && aggregator == Reduce.Aggregator.sum) {
+            Tensor result = DenseKernels.multiplySum(a, b, dimensions, Reduce.outputType(joinedType, dimensions));
+            if (result != null) return result;
+        }
         if (canOptimize(a, b)) {
             return evaluate((IndexedTensor)a, (IndexedTensor)b, joinedType);
         }
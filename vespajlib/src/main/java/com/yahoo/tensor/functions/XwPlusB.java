@@ -2,6 +2,8 @@
 package com.yahoo.tensor.functions;
 
 import com.google.common.collect.ImmutableList;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.Name;
 
 import java.util.List;
@@ -43,6 +45,13 @@ public class XwPlusB<NAMETYPE extends Name> extends CompositeTensorFunction<NAME
                           ScalarFunctions.add());
     }
 
+    @Override
+    public Tensor evaluate(EvaluationContext<NAMETYPE> context) {
+        Tensor product = Matmul.evaluate(x.evaluate(context), w.evaluate(context), dimension);
+        Tensor bTensor = b.evaluate(context);
+        return Join.evaluate(product, bTensor, Join.outputType(product.type(), bTensor.type()), ScalarFunctions.add());
+    }
+
     @Override
     public String toString(ToStringContext context) {
         return "xw_plus_b(" + x.toString(context) + ", " +
@@ -2,11 +2,14 @@
 package com.yahoo.tensor.serialization;
 
 import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.tensor.BFloat16;
 import com.yahoo.tensor.DimensionSizes;
 import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Iterator;
 import java.util.Optional;
 import java.util.function.Consumer;
@@ -53,6 +56,7 @@ public class DenseBinaryFormat implements BinaryFormat {
         switch (serializationValueType) {
             case DOUBLE: encodeDoubleCells(tensor, buffer); break;
             case FLOAT: encodeFloatCells(tensor, buffer); break;
+            case BFLOAT16: encodeBFloat16Cells(tensor, buffer); break;
         }
     }
 
@@ -66,31 +70,58 @@ public class DenseBinaryFormat implements BinaryFormat {
             buffer.putFloat(tensor.getFloat(i));
     }
 
+    private void encodeBFloat16Cells(IndexedTensor tensor, GrowableByteBuffer buffer) {
+        for (int i = 0; i < tensor.size(); i++)
+            buffer.putShort(BFloat16.fromFloat(tensor.getFloat(i)));
+    }
+
     @Override
     public Tensor decode(Optional<TensorType> optionalType, GrowableByteBuffer buffer) {
-        TensorType type;
-        DimensionSizes sizes;
-        if (optionalType.isPresent()) {
-            type = optionalType.get();
-            if (type.valueType() != this.serializationValueType) {
-                throw new IllegalArgumentException("Tensor value type mismatch. Value type " + type.valueType() +
-                                                   " is not " + this.serializationValueType);
-            }
-            TensorType serializedType = decodeType(buffer);
-            if ( ! serializedType.isAssignableTo(type))
-                throw new IllegalArgumentException("Type/instance mismatch: A tensor of type " + serializedType +
-                                                   " cannot be assigned to type " + type);
-            sizes = sizesFromType(serializedType);
-        }
-        else {
-            type = decodeType(buffer);
-            sizes = sizesFromType(type);
-        }
-        Tensor.Builder builder = Tensor.Builder.of(type, sizes);
+        TensorType serializedType = decodeType(optionalType, buffer);
+        DimensionSizes sizes = sizesFromType(serializedType);
+        Tensor.Builder builder = Tensor.Builder.of(optionalType.orElse(serializedType), sizes);
         decodeCells(sizes, buffer, (IndexedTensor.BoundBuilder)builder);
         return builder.build();
     }
 
+    /**
+     * Returns a tensor reading its cell values directly from the given buffer rather than copying them.
+     * The position of the buffer must be after the format and value type, as when passed to decode.
+     */
+    IndexedTensor wrap(Optional<TensorType> optionalType, GrowableByteBuffer buffer) {
+        TensorType serializedType = decodeType(optionalType, buffer);
+        DimensionSizes sizes = sizesFromType(serializedType);
+        long bytes = sizes.totalSize() * cellSize();
+        if (bytes > buffer.remaining())
+            throw new IllegalArgumentException("Expected " + bytes + " bytes of cell values for a tensor of type " +
+                                               serializedType + " but got " + buffer.remaining());
+        ByteBuffer cells = buffer.getByteBuffer().slice().order(ByteOrder.BIG_ENDIAN);
+        cells.limit((int)bytes);
+        return IndexedTensor.wrap(optionalType.orElse(serializedType), sizes, cells);
+    }
+
+    private int cellSize() {
+        switch (serializationValueType) {
+            case DOUBLE: return Double.BYTES;
+            case FLOAT: return Float.BYTES;
+            case BFLOAT16: return Short.BYTES;
+            default: throw new IllegalStateException("Unexpected value type " + serializationValueType);
+        }
+    }
+
+    /** Decodes the serialized type, and validates it against the given type if present */
+    private TensorType decodeType(Optional<TensorType> optionalType, GrowableByteBuffer buffer) {
+        if (optionalType.isPresent() && optionalType.get().valueType() != this.serializationValueType) {
+            throw new IllegalArgumentException("Tensor value type mismatch. Value type " + optionalType.get().valueType() +
+                                               " is not " + this.serializationValueType);
+        }
+        TensorType serializedType = decodeType(buffer);
+        if (optionalType.isPresent() && ! serializedType.isAssignableTo(optionalType.get()))
+            throw new IllegalArgumentException("Type/instance mismatch: A tensor of type " + serializedType +
+                                               " cannot be assigned to type " + optionalType.get());
+        return serializedType;
+    }
+
     private TensorType decodeType(GrowableByteBuffer buffer) {
         TensorType.Builder builder = new TensorType.Builder(serializationValueType);
         int dimensionCount = buffer.getInt1_4Bytes();
@@ -111,6 +142,7 @@ public class DenseBinaryFormat implements BinaryFormat {
         switch (serializationValueType) {
             case DOUBLE: decodeDoubleCells(sizes, builder, buffer); break;
             case FLOAT: decodeFloatCells(sizes, builder, buffer); break;
+            case BFLOAT16: decodeBFloat16Cells(sizes, builder, buffer); break;
         }
     }
 
@@ -124,4 +156,9 @@ public class DenseBinaryFormat implements BinaryFormat {
             builder.cellByDirectIndex(i, buffer.getFloat());
     }
 
+    private void decodeBFloat16Cells(DimensionSizes sizes, IndexedTensor.BoundBuilder builder, GrowableByteBuffer buffer) {
+        for (long i = 0; i < sizes.totalSize(); i++)
+            builder.cellByDirectIndex(i, BFloat16.toFloat(buffer.getShort()));
+    }
+
 }
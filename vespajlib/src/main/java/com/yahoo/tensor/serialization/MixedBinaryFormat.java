@@ -3,6 +3,7 @@
 package com.yahoo.tensor.serialization;
 
 import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.tensor.BFloat16;
 import com.yahoo.tensor.MixedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorAddress;
@@ -64,6 +65,7 @@ class MixedBinaryFormat implements BinaryFormat {
         switch (serializationValueType) {
             case DOUBLE: encodeCells(buffer, tensor, buffer::putDouble); break;
             case FLOAT: encodeCells(buffer, tensor, (val) -> buffer.putFloat(val.floatValue())); break;
+            case BFLOAT16: encodeCells(buffer, tensor, (val) -> buffer.putShort(BFloat16.fromFloat(val.floatValue()))); break;
         }
     }
 
@@ -127,6 +129,7 @@ class MixedBinaryFormat implements BinaryFormat {
         switch (serializationValueType) {
             case DOUBLE: decodeCells(buffer, builder, type, buffer::getDouble); break;
             case FLOAT: decodeCells(buffer, builder, type, () -> (double)buffer.getFloat()); break;
+            case BFLOAT16: decodeCells(buffer, builder, type, () -> (double)BFloat16.toFloat(buffer.getShort())); break;
         }
     }
 
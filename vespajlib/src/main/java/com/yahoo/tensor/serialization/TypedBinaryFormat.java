@@ -7,6 +7,7 @@ import com.yahoo.tensor.MixedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.nio.ByteBuffer;
 import java.util.Optional;
 
 /**
@@ -29,6 +30,7 @@ public class TypedBinaryFormat {
 
     private static final int DOUBLE_VALUE_TYPE = 0; // Not encoded as it is default, and you know the type when deserializing
     private static final int FLOAT_VALUE_TYPE = 1;
+    private static final int BFLOAT16_VALUE_TYPE = 2;
 
     public static byte[] encode(Tensor tensor) {
         GrowableByteBuffer buffer = new GrowableByteBuffer();
@@ -50,6 +52,26 @@ public class TypedBinaryFormat {
         return decoder.decode(type, buffer);
     }
 
+    /**
+     * Returns a tensor over the data in the given buffer. Dense tensors read their cell values directly from
+     * the buffer instead of copying them to the heap, such that when the buffer is a memory mapped file the values
+     * are read on demand and the pages holding them are shared by all processes mapping the file.
+     * Other tensors are decoded as by {@link #decode}.
+     *
+     * @param type the type to decode and validate to, or empty to use the type given in the data
+     * @param buffer the buffer containing the data from its current position. Its position is not changed, and
+     *               its content must not be changed while the returned tensor is in use
+     * @return the resulting tensor
+     * @throws IllegalArgumentException if the tensor data was invalid
+     */
+    public static Tensor wrap(Optional<TensorType> type, ByteBuffer buffer) {
+        GrowableByteBuffer growableBuffer = new GrowableByteBuffer(buffer.slice());
+        BinaryFormat decoder = getFormatDecoder(growableBuffer);
+        if (decoder instanceof DenseBinaryFormat)
+            return ((DenseBinaryFormat)decoder).wrap(type, growableBuffer);
+        return decoder.decode(type, growableBuffer);
+    }
+
     private static BinaryFormat getFormatEncoder(GrowableByteBuffer buffer, Tensor tensor) {
         if (tensor instanceof MixedTensor && tensor.type().valueType() == TensorType.Value.DOUBLE) {
             encodeFormatType(buffer, MIXED_BINARY_FORMAT_TYPE);
@@ -103,6 +125,7 @@ public class TypedBinaryFormat {
         switch (valueType) {
             case DOUBLE: buffer.putInt1_4Bytes(DOUBLE_VALUE_TYPE); break;
             case FLOAT: buffer.putInt1_4Bytes(FLOAT_VALUE_TYPE); break;
+            case BFLOAT16: buffer.putInt1_4Bytes(BFLOAT16_VALUE_TYPE); break;
             default:
                 throw new IllegalArgumentException("Attempt to encode unknown tensor value type: " + valueType);
         }
@@ -113,8 +136,9 @@ public class TypedBinaryFormat {
         switch (valueType) {
             case DOUBLE_VALUE_TYPE: return TensorType.Value.DOUBLE;
             case FLOAT_VALUE_TYPE: return TensorType.Value.FLOAT;
+            case BFLOAT16_VALUE_TYPE: return TensorType.Value.BFLOAT16;
         }
-        throw new IllegalArgumentException("Received tensor value type '" + valueType + "'. Only 0(double), or 1(float) are legal.");
+        throw new IllegalArgumentException("Received tensor value type '" + valueType + "'. Only 0(double), 1(float) or 2(bfloat16) are legal.");
     }
 
     private static byte[] asByteArray(GrowableByteBuffer buffer) {
@@ -22,4 +22,15 @@ public class LZ4CompressorTest {
         assertTrue(Arrays.equals(decompressed, Arrays.copyOf(toCompress, compressBytes)));
     }
 
+    @Test
+    public void can_decompress_into_larger_buffer() {
+        byte[] toCompress = "bbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbb".getBytes();
+        Compressor compressor = new Compressor();
+        Compressor.Compression compressed = compressor.compress(CompressionType.LZ4, toCompress);
+        assertEquals(CompressionType.LZ4, compressed.type());
+        byte[] target = new byte[100];
+        compressor.decompress(compressed.type(), compressed.data(), 0, compressed.uncompressedSize(), target);
+        assertTrue(Arrays.equals(toCompress, Arrays.copyOf(target, toCompress.length)));
+    }
+
 }
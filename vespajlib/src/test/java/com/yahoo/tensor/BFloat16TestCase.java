@@ -0,0 +1,37 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BFloat16TestCase {
+
+    @Test
+    public void testConversion() {
+        assertRoundTrip(0.0f);
+        assertRoundTrip(-0.0f);
+        assertRoundTrip(1.0f);
+        assertRoundTrip(-2.5f);
+        assertRoundTrip(256.0f);
+        assertRoundTrip(Float.POSITIVE_INFINITY);
+        assertRoundTrip(Float.NEGATIVE_INFINITY);
+        assertEquals(0x3f80, BFloat16.fromFloat(1.0f));
+        assertTrue(Float.isNaN(BFloat16.toFloat(BFloat16.fromFloat(Float.NaN))));
+    }
+
+    @Test
+    public void testRounding() {
+        assertEquals(1.0f, BFloat16.round(1.001f), 0.0f);
+        assertEquals(1.0078125f, BFloat16.round(1.006f), 0.0f); // rounds up to the next bfloat16
+        assertEquals(1.0f, BFloat16.round(1.00390625f), 0.0f); // tie, to even
+        assertEquals(1.015625f, BFloat16.round(1.01171875f), 0.0f); // tie, to even
+        assertEquals(Float.POSITIVE_INFINITY, BFloat16.round(Float.MAX_VALUE), 0.0f);
+    }
+
+    private void assertRoundTrip(float value) {
+        assertEquals(Float.floatToIntBits(value), Float.floatToIntBits(BFloat16.round(value)));
+    }
+
+}
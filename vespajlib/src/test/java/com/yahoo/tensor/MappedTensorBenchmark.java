@@ -0,0 +1,83 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.tensor.serialization.TypedBinaryFormat;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Measures the time to build, join, reduce and serialize large sparse tensors,
+ * and the memory used to hold them.
+ *
+ * Run with e.g. <code>java -cp ... com.yahoo.tensor.MappedTensorBenchmark</code>
+ */
+public class MappedTensorBenchmark {
+
+    private static final Random random = new Random(1);
+
+    /** The number of timed rounds of each benchmark, of which the median is reported */
+    private static final int rounds = 21;
+
+    public static void main(String[] args) {
+        TensorType vectorType = TensorType.fromSpec("tensor(x{})");
+        TensorType matrixType = TensorType.fromSpec("tensor(x{},y{})");
+        Tensor a = sparse(vectorType, 50000, 100000);
+        Tensor b = sparse(vectorType, 50000, 100000);
+        Tensor matrix = sparse(matrixType, 50000, 1000);
+        Tensor xy = sparse(matrixType, 20000, 2000);
+        Tensor yz = sparse(TensorType.fromSpec("tensor(y{},z{})"), 20000, 2000);
+        byte[] serialized = TypedBinaryFormat.encode(matrix);
+
+        run("build", () -> sparse(matrixType, 50000, 1000));
+        run("join", () -> a.multiply(b));
+        run("hash join", () -> xy.multiply(yz));
+        run("reduce", () -> matrix.sum("y"));
+        run("serialize", () -> TypedBinaryFormat.encode(matrix));
+        run("deserialize", () -> TypedBinaryFormat.decode(Optional.of(matrixType), GrowableByteBuffer.wrap(serialized)));
+        memory(matrixType, 50000, 1000);
+    }
+
+    private static void run(String name, Supplier<Object> operation) {
+        for (int round = 0; round < rounds; round++) // warmup
+            operation.get();
+        long[] nanos = new long[rounds];
+        for (int round = 0; round < rounds; round++) {
+            long startTime = System.nanoTime();
+            operation.get();
+            nanos[round] = System.nanoTime() - startTime;
+        }
+        Arrays.sort(nanos);
+        System.out.println(String.format(Locale.US, "%-12s %10.3f ms", name, nanos[rounds / 2] / 1000000.0));
+    }
+
+    private static void memory(TensorType type, int cells, int labels) {
+        Tensor[] tensors = new Tensor[10];
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        for (int i = 0; i < tensors.length; i++)
+            tensors[i] = sparse(type, cells, labels);
+        System.gc();
+        long after = runtime.totalMemory() - runtime.freeMemory();
+        System.out.println(String.format(Locale.US, "%-12s %10.1f bytes per cell",
+                                         "memory", (double)(after - before) / tensors.length / cells));
+    }
+
+    /** Returns a tensor with about the given number of cells with labels drawn from the given number of labels */
+    private static Tensor sparse(TensorType type, int cells, int labels) {
+        Tensor.Builder builder = Tensor.Builder.of(type);
+        String[] addressLabels = new String[type.rank()];
+        for (int cell = 0; cell < cells; cell++) {
+            for (int i = 0; i < addressLabels.length; i++)
+                addressLabels[i] = "label" + random.nextInt(labels);
+            builder.cell(TensorAddress.of(addressLabels), random.nextDouble());
+        }
+        return builder.build();
+    }
+
+}
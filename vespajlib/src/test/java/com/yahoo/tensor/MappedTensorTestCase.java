@@ -5,7 +5,9 @@ import com.google.common.collect.Sets;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Basic tensor tests. Tensor operations are tested in EvaluationTestCase
@@ -48,4 +50,95 @@ public class MappedTensorTestCase {
         assertEquals("tensor(x{},y{}):{{x:0,y:0}:1.0,{x:1,y:0}:2.0}", tensor.toString());
     }
 
+    @Test
+    public void testCellLookup() {
+        Tensor tensor = Tensor.from("tensor(x{},y{}):{{x:a,y:b}:1.0,{x:b,y:a}:2.0}");
+        assertEquals(1.0, tensor.get(TensorAddress.ofLabels("a", "b")), 0);
+        assertEquals(2.0, tensor.get(TensorAddress.ofLabels("b", "a")), 0);
+        assertTrue(Double.isNaN(tensor.get(TensorAddress.ofLabels("a", "a"))));
+        assertTrue(Double.isNaN(tensor.get(TensorAddress.ofLabels("a", "never-used-as-a-label"))));
+        assertTrue(Double.isNaN(tensor.get(TensorAddress.ofLabels("a"))));
+    }
+
+    @Test
+    public void testReplacingCells() {
+        TensorType type = new TensorType.Builder().mapped("x").build();
+        Tensor tensor = Tensor.Builder.of(type).
+                cell().label("x", "0").value(1).
+                cell().label("x", "1").value(2).
+                cell().label("x", "0").value(3).build();
+        assertEquals("tensor(x{}):{0:3.0,1:2.0}", tensor.toString());
+    }
+
+    @Test
+    public void testManyCells() {
+        TensorType type = new TensorType.Builder().mapped("x").mapped("y").build();
+        Tensor.Builder builder = Tensor.Builder.of(type);
+        for (int x = 0; x < 100; x++)
+            for (int y = 0; y < 100; y++)
+                builder.cell(TensorAddress.ofLabels("x" + x, "y" + y), x * 100 + y);
+        Tensor tensor = builder.build();
+        assertEquals(10000, tensor.size());
+        for (int x = 0; x < 100; x++)
+            for (int y = 0; y < 100; y++)
+                assertEquals(x * 100 + y, tensor.get(TensorAddress.ofLabels("x" + x, "y" + y)), 0);
+
+        int cell = 0;
+        for (var i = tensor.cellIterator(); i.hasNext(); cell++) {
+            Tensor.Cell next = i.next();
+            assertEquals(TensorAddress.ofLabels("x" + cell / 100, "y" + cell % 100), next.getKey());
+            assertEquals(cell, next.getValue(), 0);
+        }
+        assertEquals(10000, cell);
+        assertEquals(tensor.cells(), tensor.cells());
+    }
+
+    @Test(timeout = 5000)
+    public void testManyCellsWithConsecutiveLabels() {
+        TensorType type = new TensorType.Builder().mapped("x").mapped("y").mapped("z").build();
+        Tensor.Builder builder = Tensor.Builder.of(type);
+        for (int x = 0; x < 40; x++)
+            for (int y = 0; y < 40; y++)
+                for (int z = 0; z < 40; z++)
+                    builder.cell(x * 1600 + y * 40 + z, x, y, z);
+        Tensor tensor = builder.build();
+        assertEquals(64000, tensor.size());
+        for (int x = 0; x < 40; x++)
+            for (int y = 0; y < 40; y++)
+                for (int z = 0; z < 40; z++)
+                    assertEquals(x * 1600 + y * 40 + z, tensor.get(TensorAddress.of(x, y, z)), 0);
+    }
+
+    @Test
+    public void testCellAddresses() {
+        Tensor tensor = Tensor.from("tensor(x{},y{}):{{x:a,y:b}:1.0,{x:c,y:3}:2.0}");
+        var cells = tensor.cellIterator();
+        TensorAddress first = cells.next().getKey();
+        TensorAddress second = cells.next().getKey();
+        assertEquals(TensorAddress.ofLabels("a", "b"), first);
+        assertEquals(TensorAddress.ofLabels("a", "b").hashCode(), first.hashCode());
+        assertEquals(2, second.size());
+        assertEquals(3, second.numericLabel(1));
+        assertEquals(TensorAddress.ofLabels("c", "4"), second.withLabel(1, 4));
+        assertEquals(TensorAddress.ofLabels("c", "3"), second);
+        assertEquals("cell address (c,3)", second.toString());
+        try {
+            first.label(2);
+            fail("Expected exception");
+        }
+        catch (IndexOutOfBoundsException expected) {
+        }
+    }
+
+    @Test
+    public void testHashCode() {
+        Tensor tensor1 = Tensor.from("tensor(x{},y{}):{{x:a,y:b}:1.0,{x:b,y:a}:2.0}");
+        Tensor tensor2 = Tensor.from("tensor(x{},y{}):{{x:b,y:a}:2.0,{x:a,y:b}:1.0}");
+        Tensor tensor3 = Tensor.from("tensor(x{},y{}):{{x:b,y:a}:2.0,{x:a,y:b}:3.0}");
+        assertEquals(tensor1, tensor2);
+        assertEquals(tensor1.hashCode(), tensor2.hashCode());
+        assertEquals(tensor1.cells().hashCode(), tensor1.hashCode());
+        assertNotEquals(tensor1.hashCode(), tensor3.hashCode());
+    }
+
 }
@@ -98,6 +98,17 @@ public class TensorTypeTestCase {
         assertValueType(TensorType.Value.FLOAT, "tensor<float>(x[])");
         assertEquals("tensor(x[])", TensorType.fromSpec("tensor<double>(x[])").toString());
         assertEquals("tensor<float>(x[])", TensorType.fromSpec("tensor<float>(x[])").toString());
+        assertValueType(TensorType.Value.BFLOAT16, "tensor<bfloat16>(x[])");
+        assertEquals("tensor<bfloat16>(x[])", TensorType.fromSpec("tensor<bfloat16>(x[])").toString());
+    }
+
+    @Test
+    public void testLargestValueType() {
+        assertEquals(TensorType.Value.DOUBLE, TensorType.Value.largestOf(TensorType.Value.BFLOAT16, TensorType.Value.DOUBLE));
+        assertEquals(TensorType.Value.FLOAT, TensorType.Value.largestOf(TensorType.Value.BFLOAT16, TensorType.Value.FLOAT));
+        assertEquals(TensorType.Value.BFLOAT16, TensorType.Value.largestOf(TensorType.Value.BFLOAT16, TensorType.Value.BFLOAT16));
+        assertIsAssignableTo("tensor<bfloat16>(x[])", "tensor<float>(x[])");
+        assertUnassignableTo("tensor<float>(x[])", "tensor<bfloat16>(x[])");
     }
 
     private static void assertTensorType(String typeSpec) {
@@ -0,0 +1,96 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BinaryOperator;
+
+/**
+ * Compares the time to evaluate common dense operations on indexed tensors, which are done by the dense kernels,
+ * with the same operations on mapped tensors, which are done by the general algorithms,
+ * and the time to evaluate dense operations on tensors of each cell value type.
+ *
+ * Run with e.g. <code>java -cp ... com.yahoo.tensor.functions.DenseKernelsBenchmark</code>
+ */
+public class DenseKernelsBenchmark {
+
+    /** The number of timed rounds of each benchmark, of which the fastest is reported */
+    private static final int rounds = 5;
+
+    public static void main(String[] args) {
+        benchmark("vector dot product", "tensor(x[256])", "tensor(x[256])",
+                  (a, b) -> a.matmul(b, "x"), 100000);
+        benchmark("matrix-vector product", "tensor(x[256])", "tensor(x[256],y[64])",
+                  (a, b) -> a.matmul(b, "x"), 2000);
+        benchmark("matrix-matrix product", "tensor(i[32],x[64])", "tensor(x[64],y[32])",
+                  (a, b) -> a.matmul(b, "x"), 500);
+        benchmark("elementwise join", "tensor(x[64],y[64])", "tensor(x[64],y[64])",
+                  Tensor::multiply, 2000);
+        benchmark("scalar broadcast join", "tensor(x[64],y[64])", "tensor()",
+                  Tensor::add, 2000);
+        benchmark("row broadcast join", "tensor(x[64],y[64])", "tensor(y[64])",
+                  Tensor::add, 2000);
+        benchmark("innermost reduce", "tensor(x[64],y[64])", "tensor()",
+                  (a, b) -> a.sum("y"), 2000);
+
+        benchmarkCellTypes("matrix-vector product", "(x[256])", "(x[256],y[64])",
+                           (a, b) -> a.matmul(b, "x"), 2000);
+        benchmarkCellTypes("elementwise join", "(x[64],y[64])", "(x[64],y[64])",
+                           Tensor::multiply, 2000);
+        benchmarkCellTypes("innermost reduce", "(x[64],y[64])", "()",
+                           (a, b) -> a.sum("y"), 2000);
+    }
+
+    private static void benchmark(String name, String aType, String bType, BinaryOperator<Tensor> operation, int iterations) {
+        Tensor a = Tensor.random(TensorType.fromSpec(aType));
+        Tensor b = Tensor.random(TensorType.fromSpec(bType));
+        System.out.println(name + ":");
+        run("dense", a, b, operation, iterations);
+        run("general", mapped(a), mapped(b), operation, iterations / 10);
+    }
+
+    private static void benchmarkCellTypes(String name, String aDimensions, String bDimensions,
+                                           BinaryOperator<Tensor> operation, int iterations) {
+        System.out.println(name + " by cell type:");
+        for (String valueType : List.of("double", "float", "bfloat16")) {
+            Tensor a = Tensor.random(TensorType.fromSpec("tensor<" + valueType + ">" + aDimensions));
+            Tensor b = Tensor.random(TensorType.fromSpec("tensor<" + valueType + ">" + bDimensions));
+            run(valueType, a, b, operation, iterations);
+        }
+    }
+
+    private static void run(String name, Tensor a, Tensor b, BinaryOperator<Tensor> operation, int iterations) {
+        double result = evaluate(a, b, operation, iterations); // warmup
+        long bestNanos = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long startTime = System.nanoTime();
+            result += evaluate(a, b, operation, iterations);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - startTime);
+        }
+        System.out.println(String.format(Locale.US, "    %-10s %10.3f us per evaluation (%s)",
+                                         name, bestNanos / 1000.0 / iterations, result));
+    }
+
+    private static double evaluate(Tensor a, Tensor b, BinaryOperator<Tensor> operation, int iterations) {
+        double result = 0;
+        for (int i = 0; i < iterations; i++)
+            result += operation.apply(a, b).sum().asDouble();
+        return result;
+    }
+
+    private static Tensor mapped(Tensor tensor) {
+        TensorType.Builder type = new TensorType.Builder(tensor.type().valueType());
+        for (TensorType.Dimension dimension : tensor.type().dimensions())
+            type.mapped(dimension.name());
+        Tensor.Builder builder = Tensor.Builder.of(type.build());
+        for (var i = tensor.cellIterator(); i.hasNext(); ) {
+            Tensor.Cell cell = i.next();
+            builder.cell(cell.getKey(), cell.getValue());
+        }
+        return builder.build();
+    }
+
+}
@@ -0,0 +1,212 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import com.sun.management.ThreadMXBean;
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.Name;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the dense kernels by comparing with the same computations over mapped tensors,
+ * which are done by the general algorithms.
+ */
+public class DenseKernelsTestCase {
+
+    @Test
+    public void testJoin() {
+        assertJoin("tensor(x[3]):[1,2,3]", "tensor(x[3]):[4,5,6]", ScalarFunctions.add());
+        assertJoin("tensor(x[3],y[2]):[[1,2],[3,4],[5,6]]", "tensor(x[3],y[2]):[[7,8],[9,10],[11,12]]", ScalarFunctions.multiply());
+        assertJoin("tensor(x[3],y[2]):[[1,2],[3,4],[5,6]]", "tensor():{3.0}", ScalarFunctions.subtract());
+        assertJoin("tensor():{3.0}", "tensor(x[3],y[2]):[[1,2],[3,4],[5,6]]", ScalarFunctions.subtract());
+        assertJoin("tensor(x[3],y[2]):[[1,2],[3,4],[5,6]]", "tensor(y[2]):[10,20]", ScalarFunctions.divide());
+        assertJoin("tensor(y[2]):[10,20]", "tensor(x[3],y[2]):[[1,2],[3,4],[5,6]]", ScalarFunctions.divide());
+        assertJoin("tensor(x[2],y[2],z[2]):[[[1,2],[3,4]],[[5,6],[7,8]]]", "tensor(y[2],z[2]):[[1,2],[3,4]]", ScalarFunctions.max());
+        assertJoin("tensor<float>(x[3],y[2]):[[1,2],[3,4],[5,6]]", "tensor(y[2]):[0.5,0.25]", ScalarFunctions.multiply());
+    }
+
+    @Test
+    public void testJoinDifferentVectorSizes() {
+        Tensor a = Tensor.from("tensor(x[]):{{x:0}:1,{x:1}:2,{x:2}:3}");
+        Tensor b = Tensor.from("tensor(x[]):{{x:0}:4,{x:1}:5}");
+        assertEquals(Tensor.from("tensor(x[]):{{x:0}:5,{x:1}:7}"), a.add(b));
+    }
+
+    @Test
+    public void testJoinNotApplicable() {
+        Tensor a = Tensor.from("tensor(x[3],y[2]):[[1,2],[3,4],[5,6]]");
+        Tensor b = Tensor.from("tensor(x[3]):[1,2,3]"); // not the innermost dimension
+        assertNull(DenseKernels.join(a, b, Join.outputType(a.type(), b.type()), ScalarFunctions.add()));
+        assertNull(DenseKernels.join(mapped(a), mapped(a), mapped(a).type(), ScalarFunctions.add()));
+        assertJoin(a.toString(), b.toString(), ScalarFunctions.add());
+    }
+
+    @Test
+    public void testReduce() {
+        for (Reduce.Aggregator aggregator : Reduce.Aggregator.values()) {
+            assertReduce("tensor(x[4]):[1,2,3,4]", aggregator);
+            assertReduce("tensor(x[3],y[2]):[[1,2],[3,4],[5,6]]", aggregator);
+            assertReduce("tensor(x[3],y[2]):[[1,2],[3,4],[5,6]]", aggregator, "y");
+            assertReduce("tensor(x[3],y[2]):[[1,2],[3,4],[5,6]]", aggregator, "x");
+            assertReduce("tensor<float>(x[2],y[2],z[3]):[[[1,2,3],[4,5,6]],[[7,8,9],[10,11,12]]]", aggregator, "z");
+        }
+    }
+
+    @Test
+    public void testMultiplySum() {
+        assertMatmul("tensor(x[3]):[1,2,3]", "tensor(x[3]):[4,5,6]", "x");
+        assertMatmul("tensor(x[3]):[1,2,3]", "tensor(x[3],y[2]):[[1,2],[3,4],[5,6]]", "x");
+        assertMatmul("tensor(x[3],y[2]):[[1,2],[3,4],[5,6]]", "tensor(x[3]):[1,2,3]", "x");
+        assertMatmul("tensor(y[2]):[1,2]", "tensor(x[3],y[2]):[[1,2],[3,4],[5,6]]", "y");
+        assertMatmul("tensor(i[2],x[3]):[[1,2,3],[4,5,6]]", "tensor(j[2],x[3]):[[1,2,3],[4,5,6]]", "x");
+        assertMatmul("tensor(i[2],x[3]):[[1,2,3],[4,5,6]]", "tensor(x[3],y[2]):[[1,2],[3,4],[5,6]]", "x");
+        assertMatmul("tensor(x[3],y[2]):[[1,2],[3,4],[5,6]]", "tensor(i[2],x[3]):[[1,2,3],[4,5,6]]", "x");
+        assertMatmul("tensor(x[2],y[3]):[[1,2,3],[4,5,6]]", "tensor(x[2],z[2]):[[1,2],[3,4]]", "x");
+    }
+
+    @Test
+    public void testXwPlusB() {
+        Tensor x = Tensor.from("tensor(i[2],x[3]):[[1,2,3],[4,5,6]]");
+        Tensor w = Tensor.from("tensor(x[3],y[2]):[[1,2],[3,4],[5,6]]");
+        Tensor b = Tensor.from("tensor(y[2]):[10,20]");
+        Tensor expected = mapped(x).matmul(mapped(w), "x").add(mapped(b));
+        Tensor result = new XwPlusB<>(new ConstantTensor<>(x), new ConstantTensor<>(w), new ConstantTensor<>(b), "x").evaluate();
+        assertEquals(expected, mapped(result));
+    }
+
+    @Test
+    public void testFloatCellTypes() {
+        for (String valueType : List.of("float", "bfloat16")) {
+            String matrix = "tensor<" + valueType + ">(x[3],y[2]):[[1,2],[3,4],[5,6]]";
+            String vector = "tensor<" + valueType + ">(y[2]):[0.5,0.25]";
+            assertCellType(valueType, assertJoin(matrix, matrix, ScalarFunctions.add()));
+            assertCellType(valueType, assertJoin(matrix, vector, ScalarFunctions.multiply()));
+            assertCellType(valueType, assertJoin(matrix, "tensor<" + valueType + ">():{2.0}", ScalarFunctions.subtract()));
+            assertCellType(valueType, assertJoin(vector, vector, ScalarFunctions.max()));
+            assertCellType("double", assertJoin(matrix, "tensor(y[2]):[0.5,0.25]", ScalarFunctions.multiply()));
+            for (Reduce.Aggregator aggregator : Reduce.Aggregator.values())
+                assertCellType(valueType, assertReduce(matrix, aggregator, "y"));
+            assertCellType(valueType, assertMatmul(matrix, vector, "y"));
+            assertCellType(valueType, assertMatmul("tensor<" + valueType + ">(x[3],i[2]):[[1,2],[3,4],[5,6]]", matrix, "x"));
+        }
+        assertCellType("float", assertJoin("tensor<float>(x[2]):[1.5,2.5]", "tensor<bfloat16>(x[2]):[3,4]", ScalarFunctions.divide()));
+    }
+
+    @Test
+    public void testTensorsReadingFromBuffers() {
+        for (String valueType : List.of("double", "float")) {
+            Tensor matrix = Tensor.from("tensor<" + valueType + ">(x[3],y[2]):[[1,2],[3,4],[5,6]]");
+            Tensor vector = Tensor.from("tensor<" + valueType + ">(y[2]):[0.5,0.25]");
+            Tensor x = Tensor.from("tensor(x[3]):[1,2,3]");
+            assertEquals(matrix.matmul(vector, "y"), buffered(matrix).matmul(buffered(vector), "y"));
+            assertEquals(x.matmul(matrix, "x"), x.matmul(buffered(matrix), "x"));
+            assertEquals(matrix.matmul(x, "x"), buffered(matrix).matmul(x, "x"));
+            assertEquals(matrix.multiply(vector), buffered(matrix).multiply(buffered(vector)));
+            assertEquals(matrix.sum("y"), buffered(matrix).sum("y"));
+        }
+    }
+
+    @Test
+    public void testTensorsReadingFromBuffersAreNotCopiedOnEvaluation() {
+        Tensor matrix = buffered(Tensor.random(TensorType.fromSpec("tensor(x[512],y[512])")));
+        Tensor x = Tensor.random(TensorType.fromSpec("tensor(x[512])"));
+        Tensor y = Tensor.random(TensorType.fromSpec("tensor(y[512])"));
+        TensorFunction<Name> fused = FusedTensorFunction.fuse(
+                new Reduce<>(new Map<>(new Join<>(new ConstantTensor<>(matrix), new ConstantTensor<>(y), ScalarFunctions.multiply()),
+                                       ScalarFunctions.square()),
+                             Reduce.Aggregator.sum, "y"));
+        assertTrue(fused instanceof FusedTensorFunction);
+        Runnable evaluation = () -> {
+            x.matmul(matrix, "x");
+            matrix.matmul(y, "y");
+            fused.evaluate();
+        };
+        evaluation.run(); // warmup
+        long matrixBytes = matrix.size() * Double.BYTES;
+        long allocatedBytes = allocatedBytes(evaluation);
+        assertTrue("Allocated " + allocatedBytes + " bytes", allocatedBytes < matrixBytes / 4);
+    }
+
+    private static long allocatedBytes(Runnable runnable) {
+        ThreadMXBean threads = (ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        runnable.run();
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    /** Returns the given indexed tensor as a tensor reading its values from a buffer */
+    private static Tensor buffered(Tensor tensor) {
+        boolean floats = tensor.type().valueType() == TensorType.Value.FLOAT;
+        ByteBuffer buffer = ByteBuffer.allocate((int)tensor.size() * (floats ? Float.BYTES : Double.BYTES));
+        for (var i = tensor.valueIterator(); i.hasNext(); ) {
+            if (floats)
+                buffer.putFloat(i.next().floatValue());
+            else
+                buffer.putDouble(i.next());
+        }
+        buffer.flip();
+        Tensor buffered = IndexedTensor.wrap(tensor.type(), ((IndexedTensor)tensor).dimensionSizes(), buffer);
+        assertTrue(((IndexedTensor)buffered).readsFromBuffer());
+        return buffered;
+    }
+
+    private Tensor assertJoin(String aSpec, String bSpec, DoubleBinaryOperator combinator) {
+        Tensor a = Tensor.from(aSpec);
+        Tensor b = Tensor.from(bSpec);
+        Tensor result = a.join(b, combinator);
+        Tensor expected = mapped(a).join(mapped(b), combinator);
+        assertEquals(expected, mapped(result));
+        return result;
+    }
+
+    private Tensor assertReduce(String spec, Reduce.Aggregator aggregator, String ... dimensions) {
+        Tensor a = Tensor.from(spec);
+        Tensor result = a.reduce(aggregator, dimensions);
+        Tensor expected = mapped(a).reduce(aggregator, dimensions);
+        assertEquals(expected, mapped(result));
+        return result;
+    }
+
+    private Tensor assertMatmul(String aSpec, String bSpec, String dimension) {
+        Tensor a = Tensor.from(aSpec);
+        Tensor b = Tensor.from(bSpec);
+        assertNotNull(DenseKernels.multiplySum(a, b, List.of(dimension),
+                                               Reduce.outputType(Join.outputType(a.type(), b.type()), List.of(dimension))));
+        Tensor expected = mapped(a).matmul(mapped(b), dimension);
+        assertEquals(expected, mapped(a.matmul(b, dimension)));
+        assertEquals(expected, mapped(new ReduceJoin<>(new ConstantTensor<>(a), new ConstantTensor<>(b),
+                                                       ScalarFunctions.multiply(), Reduce.Aggregator.sum,
+                                                       List.of(dimension)).evaluate()));
+        return a.matmul(b, dimension);
+    }
+
+    private static void assertCellType(String expectedValueType, Tensor tensor) {
+        assertEquals(expectedValueType, tensor.type().valueType().id());
+    }
+
+    /** Returns the given tensor with all its dimensions converted to mapped dimensions */
+    private static Tensor mapped(Tensor tensor) {
+        TensorType.Builder type = new TensorType.Builder(tensor.type().valueType());
+        for (TensorType.Dimension dimension : tensor.type().dimensions())
+            type.mapped(dimension.name());
+        Tensor.Builder builder = Tensor.Builder.of(type.build());
+        for (var i = tensor.cellIterator(); i.hasNext(); ) {
+            Tensor.Cell cell = i.next();
+            builder.cell(cell.getKey(), cell.getValue());
+        }
+        return builder.build();
+    }
+
+}
@@ -0,0 +1,93 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.Name;
+
+import java.util.Locale;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Compares the time to evaluate trees of map, join and rename functions over indexed tensors
+ * as a fused function with the time to evaluate the same functions one by one.
+ *
+ * Run with e.g. <code>java -cp ... com.yahoo.tensor.functions.FusedTensorFunctionBenchmark</code>
+ */
+public class FusedTensorFunctionBenchmark {
+
+    /** The number of timed rounds of each benchmark, of which the fastest is reported */
+    private static final int rounds = 5;
+
+    private static final Tensor a = Tensor.random(TensorType.fromSpec("tensor(x[64],y[64])"));
+    private static final Tensor b = Tensor.random(TensorType.fromSpec("tensor(x[64],y[64])"));
+    private static final Tensor c = Tensor.random(TensorType.fromSpec("tensor(x[64],y[64])"));
+    private static final Tensor row = Tensor.random(TensorType.fromSpec("tensor(y[64])"));
+    private static final Tensor column = Tensor.random(TensorType.fromSpec("tensor(x[64])"));
+    private static final Tensor fa = Tensor.random(TensorType.fromSpec("tensor<float>(x[64],y[64])"));
+    private static final Tensor fb = Tensor.random(TensorType.fromSpec("tensor<float>(x[64],y[64])"));
+
+    public static void main(String[] args) {
+        benchmark("map of join",
+                  new Map<>(join(a, b, ScalarFunctions.add()), ScalarFunctions.square()));
+        benchmark("join of join",
+                  join(join(constant(a), constant(b), ScalarFunctions.multiply()), constant(c), ScalarFunctions.add()));
+        benchmark("join of joins",
+                  join(join(constant(a), constant(b), ScalarFunctions.multiply()),
+                       join(constant(c), constant(a), ScalarFunctions.multiply()), ScalarFunctions.add()));
+        benchmark("reduce of join",
+                  new Reduce<>(join(a, b, ScalarFunctions.multiply()), Reduce.Aggregator.sum, "y"));
+        benchmark("reduce of map of join",
+                  new Reduce<>(new Map<>(join(a, b, ScalarFunctions.subtract()), ScalarFunctions.square()),
+                               Reduce.Aggregator.sum, "y"));
+        benchmark("map of row broadcast join",
+                  new Map<>(join(a, row, ScalarFunctions.add()), ScalarFunctions.relu()));
+        benchmark("join of column and row",
+                  join(join(constant(column), constant(row), ScalarFunctions.multiply()), constant(a), ScalarFunctions.add()));
+        benchmark("map of map",
+                  new Map<>(new Map<>(constant(a), ScalarFunctions.neg()), ScalarFunctions.exp()));
+        benchmark("float map of join",
+                  new Map<>(join(fa, fb, ScalarFunctions.multiply()), ScalarFunctions.sigmoid()));
+    }
+
+    private static void benchmark(String name, TensorFunction<Name> function) {
+        TensorFunction<Name> fused = FusedTensorFunction.fuse(function);
+        if ( ! (fused instanceof FusedTensorFunction))
+            throw new IllegalArgumentException(name + " is not fused");
+        System.out.println(name + ":");
+        run("unfused", function, 2000);
+        run("fused", fused, 2000);
+    }
+
+    private static void run(String name, TensorFunction<Name> function, int iterations) {
+        double result = evaluate(function, iterations); // warmup
+        long bestNanos = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long startTime = System.nanoTime();
+            result += evaluate(function, iterations);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - startTime);
+        }
+        System.out.println(String.format(Locale.US, "    %-10s %10.3f us per evaluation (%s)",
+                                         name, bestNanos / 1000.0 / iterations, result));
+    }
+
+    private static double evaluate(TensorFunction<Name> function, int iterations) {
+        double result = 0;
+        for (int i = 0; i < iterations; i++)
+            result += function.evaluate().sum().asDouble();
+        return result;
+    }
+
+    private static Join<Name> join(Tensor a, Tensor b, DoubleBinaryOperator combinator) {
+        return join(constant(a), constant(b), combinator);
+    }
+
+    private static Join<Name> join(TensorFunction<Name> a, TensorFunction<Name> b, DoubleBinaryOperator combinator) {
+        return new Join<>(a, b, combinator);
+    }
+
+    private static ConstantTensor<Name> constant(Tensor tensor) {
+        return new ConstantTensor<>(tensor);
+    }
+
+}
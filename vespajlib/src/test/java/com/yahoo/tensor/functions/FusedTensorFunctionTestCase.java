@@ -0,0 +1,110 @@
+// Copyright 2020 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.evaluation.Name;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests fused evaluation by comparing with evaluating the unfused functions.
+ */
+public class FusedTensorFunctionTestCase {
+
+    private static final Tensor a = Tensor.from("tensor(x[2],y[3]):[[1,2,3],[4,5,6]]");
+    private static final Tensor b = Tensor.from("tensor(y[3]):[0.5,-1,2]");
+    private static final Tensor c = Tensor.from("tensor(z[2]):[3,7]");
+    private static final Tensor s = Tensor.from("tensor():{2.5}");
+    private static final Tensor f = Tensor.from("tensor<float>(x[2],y[3]):[[1,2,3],[4,5,6]]");
+    private static final Tensor m = Tensor.from("tensor(y{}):{{y:0}:1.0,{y:1}:2.0}");
+
+    @Test
+    public void testFusingJoinsAndMaps() {
+        assertFused(new Map<>(join(a, b, ScalarFunctions.add()), ScalarFunctions.exp()));
+        assertFused(join(new Map<>(constant(a), ScalarFunctions.neg()), constant(b), ScalarFunctions.multiply()));
+        assertFused(join(join(constant(a), constant(b), ScalarFunctions.subtract()), constant(c), ScalarFunctions.divide()));
+        assertFused(join(join(constant(s), constant(c), ScalarFunctions.max()), constant(a), ScalarFunctions.add()));
+        assertFused(new Map<>(join(f, b, ScalarFunctions.multiply()), ScalarFunctions.sigmoid()));
+    }
+
+    @Test
+    public void testFusingRenames() {
+        assertFused(join(new Rename<>(constant(c), "z", "x"), constant(a), ScalarFunctions.multiply()));
+        assertFused(new Map<>(new Rename<>(join(a, b, ScalarFunctions.add()), List.of("x", "y"), List.of("y", "x")),
+                              ScalarFunctions.sqrt()));
+        assertFused(join(new Rename<>(join(b, b, ScalarFunctions.add()), "y", "z"), constant(b), ScalarFunctions.multiply()));
+    }
+
+    @Test
+    public void testFusingReduce() {
+        for (Reduce.Aggregator aggregator : Reduce.Aggregator.values()) {
+            assertFused(new Reduce<>(join(a, b, ScalarFunctions.multiply()), aggregator));
+            assertFused(new Reduce<>(join(a, b, ScalarFunctions.multiply()), aggregator, "y"));
+            assertFused(new Reduce<>(join(a, b, ScalarFunctions.multiply()), aggregator, "x"));
+            assertFused(new Reduce<>(join(a, c, ScalarFunctions.add()), aggregator, List.of("x", "z")));
+            assertFused(new Reduce<>(new Map<>(constant(a), ScalarFunctions.square()), aggregator, List.of("x", "y")));
+        }
+    }
+
+    @Test
+    public void testNotFusing() {
+        TensorFunction<Name> join = join(a, b, ScalarFunctions.add());
+        assertSame(join, FusedTensorFunction.fuse(join));
+        TensorFunction<Name> reduceOfConstant = new Reduce<>(constant(a), Reduce.Aggregator.sum);
+        assertSame(reduceOfConstant, FusedTensorFunction.fuse(reduceOfConstant));
+        TensorFunction<Name> mapOfReduce = new Map<>(reduceOfConstant, ScalarFunctions.exp());
+        assertSame(mapOfReduce, FusedTensorFunction.fuse(mapOfReduce));
+    }
+
+    @Test
+    public void testFallbackToUnfusedEvaluation() {
+        assertFused(new Map<>(join(m, b, ScalarFunctions.add()), ScalarFunctions.exp())); // mapped argument
+        assertFused(new Map<>(join(Tensor.from("tensor(y[]):{{y:0}:1,{y:1}:2}"), b, ScalarFunctions.add()), ScalarFunctions.exp())); // different sizes
+        try {
+            FusedTensorFunction.fuse(new Reduce<>(join(a, b, ScalarFunctions.add()), Reduce.Aggregator.sum, "z")).evaluate();
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("Cannot reduce"));
+        }
+    }
+
+    @Test
+    public void testSerialization() {
+        TensorFunction<Name> function = new Reduce<>(new Map<>(join(a, b, ScalarFunctions.add()), ScalarFunctions.exp()),
+                                                     Reduce.Aggregator.sum, "y");
+        assertEquals(function.toString(), FusedTensorFunction.fuse(function).toString());
+
+        TensorFunction<Name> withCompositeArgument = new Map<>(join(new Matmul<>(constant(a), constant(b), "y"),
+                                                                    constant(c), ScalarFunctions.add()),
+                                                               ScalarFunctions.exp());
+        assertEquals(withCompositeArgument.toString(), FusedTensorFunction.fuse(withCompositeArgument).toString());
+    }
+
+    private void assertFused(TensorFunction<Name> function) {
+        TensorFunction<Name> fused = FusedTensorFunction.fuse(function);
+        assertTrue(fused instanceof FusedTensorFunction);
+        assertEquals(function.evaluate(), fused.evaluate());
+        assertEquals(function.evaluate().type(), fused.evaluate().type());
+    }
+
+    private static TensorFunction<Name> join(Tensor a, Tensor b, DoubleBinaryOperator combinator) {
+        return join(constant(a), constant(b), combinator);
+    }
+
+    private static TensorFunction<Name> join(TensorFunction<Name> a, TensorFunction<Name> b, DoubleBinaryOperator combinator) {
+        return new Join<>(a, b, combinator);
+    }
+
+    private static TensorFunction<Name> constant(Tensor tensor) {
+        return new ConstantTensor<>(tensor);
+    }
+
+}
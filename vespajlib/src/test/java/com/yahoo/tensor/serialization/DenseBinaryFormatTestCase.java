@@ -3,9 +3,16 @@ package com.yahoo.tensor.serialization;
 
 import com.yahoo.io.GrowableByteBuffer;
 import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Optional;
 
@@ -67,10 +74,71 @@ public class DenseBinaryFormatTestCase {
         assertEquals(Arrays.toString(encodedTensor), Arrays.toString(TypedBinaryFormat.encode(tensor)));
     }
 
+    @Test
+    public void requireThatBFloat16SerializationFormatDoNotChange() {
+        byte[] encodedTensor = new byte[]{6, // binary format type
+                2, // bfloat16 type
+                2, // dimension count
+                2, (byte) 'x', (byte) 'y', 2, // dimension xy with size
+                1, (byte) 'z', 1, // dimension z with size
+                64, 0, // value 1
+                64, 64, // value 2
+        };
+        Tensor tensor = Tensor.from("tensor<bfloat16>(xy[],z[]):{{xy:0,z:0}:2.0,{xy:1,z:0}:3.0}");
+        assertEquals(Arrays.toString(encodedTensor), Arrays.toString(TypedBinaryFormat.encode(tensor)));
+    }
+
     @Test
     public void testSerializationOfDifferentValueTypes() {
         assertSerialization("tensor<double>(x[],y[]):{{x:0,y:0}:2.0, {x:0,y:1}:3.0, {x:1,y:0}:4.0, {x:1,y:1}:5.0}");
         assertSerialization("tensor<float>(x[],y[]):{{x:0,y:0}:2.0, {x:0,y:1}:3.0, {x:1,y:0}:4.0, {x:1,y:1}:5.0}");
+        assertSerialization("tensor<bfloat16>(x[],y[]):{{x:0,y:0}:2.0, {x:0,y:1}:3.0, {x:1,y:0}:4.0, {x:1,y:1}:-0.5}");
+    }
+
+    @Test
+    public void testWrapping() {
+        Tensor tensor = Tensor.from("tensor(x[2],y[3]):[[1,2,3],[4,5,6]]");
+        byte[] encodedTensor = TypedBinaryFormat.encode(tensor);
+
+        // Data at an offset into a larger buffer
+        ByteBuffer buffer = ByteBuffer.allocate(encodedTensor.length + 10);
+        buffer.position(3);
+        buffer.put(encodedTensor);
+        buffer.position(3);
+        Tensor wrappedTensor = TypedBinaryFormat.wrap(Optional.empty(), buffer);
+        assertEquals(tensor, wrappedTensor);
+        assertEquals(3, buffer.position());
+
+        // Reads values from the buffer rather than copying them
+        buffer.putDouble(3 + encodedTensor.length - Double.BYTES, 7.0);
+        assertEquals(7.0, wrappedTensor.get(TensorAddress.of(1, 2)), 0.0);
+
+        try {
+            TypedBinaryFormat.wrap(Optional.empty(), ByteBuffer.wrap(Arrays.copyOf(encodedTensor, encodedTensor.length - 1)));
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException expected) {
+            assertEquals("Expected 48 bytes of cell values for a tensor of type tensor(x[2],y[3]) but got 47", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testWrappingMemoryMappedFile() throws IOException {
+        Tensor tensor = Tensor.from("tensor<float>(x[2],y[3]):[[1,2,3],[4,5,6]]");
+        File file = File.createTempFile("tensor", ".tbf");
+        try {
+            Files.write(file.toPath(), TypedBinaryFormat.encode(tensor));
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                Tensor wrappedTensor = TypedBinaryFormat.wrap(Optional.of(tensor.type()), buffer);
+                assertEquals(tensor, wrappedTensor);
+                assertEquals(tensor.hashCode(), wrappedTensor.hashCode());
+                assertEquals(tensor.multiply(tensor), wrappedTensor.multiply(wrappedTensor));
+            }
+        }
+        finally {
+            file.delete();
+        }
     }
 
     private void assertSerialization(String tensorString) {
@@ -85,6 +153,9 @@ public class DenseBinaryFormatTestCase {
         byte[] encodedTensor = TypedBinaryFormat.encode(tensor);
         Tensor decodedTensor = TypedBinaryFormat.decode(Optional.of(expectedType), GrowableByteBuffer.wrap(encodedTensor));
         assertEquals(tensor, decodedTensor);
+        Tensor wrappedTensor = TypedBinaryFormat.wrap(Optional.of(expectedType), ByteBuffer.wrap(encodedTensor));
+        assertEquals(tensor, wrappedTensor);
+        assertEquals(decodedTensor.hashCode(), wrappedTensor.hashCode());
     }
 
 }
@@ -6,6 +6,7 @@ import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Optional;
 
@@ -70,6 +71,7 @@ public class SparseBinaryFormatTestCase {
     public void testSerializationOfDifferentValueTypes() {
         assertSerialization("tensor<double>(x{},y{}):{{x:0,y:0}:2.0, {x:0,y:1}:3.0, {x:1,y:0}:4.0, {x:1,y:1}:5.0}");
         assertSerialization("tensor<float>(x{},y{}):{{x:0,y:0}:2.0, {x:0,y:1}:3.0, {x:1,y:0}:4.0, {x:1,y:1}:5.0}");
+        assertSerialization("tensor<bfloat16>(x{},y{}):{{x:0,y:0}:2.0, {x:0,y:1}:3.0, {x:1,y:0}:4.0, {x:1,y:1}:5.0}");
     }
 
     private void assertSerialization(String tensorString) {
@@ -85,6 +87,7 @@ public class SparseBinaryFormatTestCase {
         Tensor decodedTensor = TypedBinaryFormat.decode(Optional.of(expectedType),
                                                         GrowableByteBuffer.wrap(encodedTensor));
         assertEquals(tensor, decodedTensor);
+        assertEquals(tensor, TypedBinaryFormat.wrap(Optional.of(expectedType), ByteBuffer.wrap(encodedTensor)));
     }
 
 }